@@ -0,0 +1,71 @@
+package com.insurance.mcp.service.audience;
+
+import com.insurance.mcp.model.campaign.AudienceCriteria;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Column-scan counts of the criteria variants of one targeting request (base, age band, income)
+ * on the calling thread versus split into partitions on the count pool. Bitmap indexes are off
+ * so every count is a scan; {@code parallelism} 0 uses every core.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class AudienceCountBenchmark {
+
+    @Param({"5000000"})
+    private int profiles;
+
+    @Param({"sequential", "parallel"})
+    private String path;
+
+    @Param({"0"})
+    private int parallelism;
+
+    private CustomerProfileStore store;
+    private List<AudienceCriteria> criteria;
+
+    @Setup
+    public void setUp() throws Exception {
+        store = new CustomerProfileStore();
+        ReflectionTestUtils.setField(store, "datasetPath", "");
+        ReflectionTestUtils.setField(store, "syntheticCount", profiles);
+        ReflectionTestUtils.setField(store, "syntheticSeed", 42L);
+        ReflectionTestUtils.setField(store, "bitmapIndexEnabled", false);
+        ReflectionTestUtils.setField(store, "sketchIndexEnabled", false);
+        ReflectionTestUtils.setField(store, "identityEnabled", false);
+        ReflectionTestUtils.setField(store, "parallelism", parallelism);
+        ReflectionTestUtils.setField(store, "parallelThresholdRows", "parallel".equals(path) ? 0L : Long.MAX_VALUE);
+        ReflectionTestUtils.setField(store, "partitionRows", 65536);
+        ReflectionTestUtils.setField(store, "mergeThresholdRows", Integer.MAX_VALUE);
+        store.initialize();
+
+        criteria = List.of(
+                AudienceCriteria.builder().minAge(25).maxAge(55).build(),
+                AudienceCriteria.builder().minAge(30).maxAge(45).location(List.of("metro", "coastal")).build(),
+                AudienceCriteria.builder().minAge(25).maxAge(55)
+                        .incomeRange(List.of("middle_income", "high_income", "very_high_income")).build());
+    }
+
+    @TearDown
+    public void tearDown() {
+        store.shutdown();
+    }
+
+    @Benchmark
+    public AudienceCounts count() {
+        return store.count(criteria);
+    }
+}
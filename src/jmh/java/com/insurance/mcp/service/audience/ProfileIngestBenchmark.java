@@ -0,0 +1,150 @@
+package com.insurance.mcp.service.audience;
+
+import com.insurance.mcp.model.campaign.AudienceCriteria;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * NDJSON ingest of change batches (upserts of existing and new customers, some deletes) into a
+ * bitmap-indexed store, and audience counts while those batches land and the deltas are merged in
+ * the background every {@code mergeThresholdRows}, against counts of an untouched store.
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ProfileIngestBenchmark {
+
+    private static final String[] GENDERS = {"female", "male"};
+    private static final String[] LOCATIONS = {"metro", "suburban", "rural", "coastal"};
+    private static final String[] RISKS = {"low_risk", "medium_risk", "high_risk"};
+    private static final String[] INTERESTS = {"travel", "health", "sports", "technology", "family"};
+
+    @Param({"1000000"})
+    private int profiles;
+
+    @Param({"5000"})
+    private int batchSize;
+
+    @Param({"100000"})
+    private int mergeThresholdRows;
+
+    private CustomerProfileStore store;
+    private ProfileIngestService ingestService;
+    private String[] batches;
+    private final AtomicInteger next = new AtomicInteger();
+    private List<AudienceCriteria> criteria;
+
+    @Setup
+    public void setUp() throws Exception {
+        store = new CustomerProfileStore();
+        ReflectionTestUtils.setField(store, "datasetPath", "");
+        ReflectionTestUtils.setField(store, "syntheticCount", profiles);
+        ReflectionTestUtils.setField(store, "syntheticSeed", 42L);
+        ReflectionTestUtils.setField(store, "bitmapIndexEnabled", true);
+        ReflectionTestUtils.setField(store, "geoCellDegrees", 0.05);
+        ReflectionTestUtils.setField(store, "sketchIndexEnabled", false);
+        ReflectionTestUtils.setField(store, "identityEnabled", false);
+        ReflectionTestUtils.setField(store, "parallelism", 1);
+        ReflectionTestUtils.setField(store, "parallelThresholdRows", Long.MAX_VALUE);
+        ReflectionTestUtils.setField(store, "partitionRows", 65536);
+        ReflectionTestUtils.setField(store, "mergeThresholdRows", mergeThresholdRows);
+        store.initialize();
+        while (store.snapshot().bitmapIndex() == null) {
+            Thread.sleep(10);
+        }
+
+        ingestService = new ProfileIngestService();
+        ReflectionTestUtils.setField(ingestService, "customerProfileStore", store);
+        ReflectionTestUtils.setField(ingestService, "batchSize", batchSize);
+        ReflectionTestUtils.setField(ingestService, "inbox", "");
+
+        SplittableRandom random = new SplittableRandom(7);
+        batches = new String[32];
+        for (int b = 0; b < batches.length; b++) {
+            batches[b] = batch(random);
+        }
+
+        criteria = List.of(
+                AudienceCriteria.builder().minAge(25).maxAge(55).build(),
+                AudienceCriteria.builder().minAge(30).maxAge(45).location(List.of("metro", "coastal")).build(),
+                AudienceCriteria.builder().gender(List.of("female")).interests(List.of("travel", "health")).build());
+    }
+
+    @TearDown
+    public void tearDown() {
+        store.shutdown();
+    }
+
+    @Benchmark
+    @Group("ingest")
+    public Map<String, Object> ingest() throws IOException {
+        return ingestBatch();
+    }
+
+    @Benchmark
+    @Group("concurrent")
+    @GroupThreads(1)
+    public Map<String, Object> ingestWhileCounting() throws IOException {
+        return ingestBatch();
+    }
+
+    @Benchmark
+    @Group("concurrent")
+    @GroupThreads(1)
+    public AudienceCounts countWhileIngesting() {
+        return store.count(criteria);
+    }
+
+    @Benchmark
+    @Group("alone")
+    public AudienceCounts countAlone() {
+        return store.count(criteria);
+    }
+
+    private Map<String, Object> ingestBatch() throws IOException {
+        String batch = batches[Math.floorMod(next.getAndIncrement(), batches.length)];
+        return ingestService.ingest(new StringReader(batch));
+    }
+
+    /**
+     * One batch: 60% changes of existing customers, 30% new customers, 10% deletes
+     */
+    private String batch(SplittableRandom random) {
+        StringBuilder ndjson = new StringBuilder(batchSize * 160);
+        for (int i = 0; i < batchSize; i++) {
+            int kind = random.nextInt(10);
+            long id = kind < 6 || kind == 9 ? 1 + random.nextInt(profiles) : profiles + 1 + random.nextInt(profiles);
+            if (kind == 9) {
+                ndjson.append("{\"op\":\"delete\",\"customer_id\":").append(id).append("}\n");
+                continue;
+            }
+            ndjson.append("{\"customer_id\":").append(id)
+                    .append(",\"age\":").append(18 + random.nextInt(62))
+                    .append(",\"gender\":\"").append(GENDERS[random.nextInt(GENDERS.length)])
+                    .append("\",\"location\":\"").append(LOCATIONS[random.nextInt(LOCATIONS.length)])
+                    .append("\",\"risk_profile\":\"").append(RISKS[random.nextInt(RISKS.length)])
+                    .append("\",\"interests\":[\"").append(INTERESTS[random.nextInt(INTERESTS.length)])
+                    .append("\",\"").append(INTERESTS[random.nextInt(INTERESTS.length)])
+                    .append("\"]}\n");
+        }
+        return ndjson.toString();
+    }
+}
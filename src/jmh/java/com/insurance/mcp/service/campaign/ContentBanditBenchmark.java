@@ -0,0 +1,105 @@
+package com.insurance.mcp.service.campaign;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Content bandit selection (choose plus exposure) while rewards arrive concurrently, against
+ * selection alone. A background thread publishes arm statistics every millisecond, far more
+ * often than the default publish interval, so readers see fresh totals throughout.
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ContentBanditBenchmark {
+
+    @Param({"THOMPSON", "UCB"})
+    private ContentBandit.Policy policy;
+
+    private ContentBandit bandit;
+    private Thread publisher;
+    private volatile boolean running;
+
+    @Setup
+    public void setUp() {
+        BanditArm[] titles = arms("title", 3);
+        BanditArm[] benefits = arms("benefit", 4);
+        bandit = new ContentBandit("life_insurance:email:0", policy, titles, benefits);
+        // Some history so selection works on realistic counts
+        for (int i = 0; i < 100_000; i++) {
+            int arm = ThreadLocalRandom.current().nextInt(bandit.armCount());
+            bandit.recordExposure(arm);
+            if (ThreadLocalRandom.current().nextInt(100) < 2 + arm % 5) {
+                bandit.recordReward(arm);
+            }
+        }
+        running = true;
+        publisher = new Thread(() -> {
+            while (running) {
+                publish(titles);
+                publish(benefits);
+                LockSupport.parkNanos(1_000_000);
+            }
+        }, "bandit-publisher");
+        publisher.setDaemon(true);
+        publisher.start();
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        running = false;
+        publisher.join();
+    }
+
+    @Benchmark
+    @Group("concurrent")
+    @GroupThreads(3)
+    public int select() {
+        int arm = bandit.choose();
+        bandit.recordExposure(arm);
+        return arm;
+    }
+
+    @Benchmark
+    @Group("concurrent")
+    @GroupThreads(1)
+    public void reward() {
+        bandit.recordReward(ThreadLocalRandom.current().nextInt(bandit.armCount()));
+    }
+
+    @Benchmark
+    @Group("alone")
+    public int selectAlone() {
+        int arm = bandit.choose();
+        bandit.recordExposure(arm);
+        return arm;
+    }
+
+    private static BanditArm[] arms(String prefix, int count) {
+        BanditArm[] arms = new BanditArm[count];
+        for (int i = 0; i < count; i++) {
+            arms[i] = new BanditArm(prefix + " " + i);
+        }
+        publish(arms);
+        return arms;
+    }
+
+    private static void publish(BanditArm[] arms) {
+        for (BanditArm arm : arms) {
+            arm.publish();
+        }
+    }
+}
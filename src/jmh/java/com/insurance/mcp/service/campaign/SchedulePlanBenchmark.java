@@ -0,0 +1,109 @@
+package com.insurance.mcp.service.campaign;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Send plan of one campaign of {@code recipients} email recipients, a third of them with their own
+ * time zone: without quiet hours against overnight quiet hours, which defer most recipients to the
+ * next morning, and with or without read-only frequency cap checks.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class SchedulePlanBenchmark {
+
+    private static final String[] TIMEZONES = {"America/Los_Angeles", "Europe/Berlin", "Asia/Tokyo"};
+
+    @Param({"1000000"})
+    private int recipients;
+
+    @Param({"", "21:00-08:00"})
+    private String quietHours;
+
+    @Param({"true", "false"})
+    private boolean frequencyCap;
+
+    private FrequencyCapService frequencyCapService;
+    private CampaignScheduleService scheduleService;
+    private CampaignScheduleService.SchedulePlan plan;
+    private byte[] input;
+
+    @Setup
+    public void setUp() {
+        frequencyCapService = new FrequencyCapService();
+        ReflectionTestUtils.setField(frequencyCapService, "enabled", true);
+        ReflectionTestUtils.setField(frequencyCapService, "limitsSpec", "email=3/7d");
+        ReflectionTestUtils.setField(frequencyCapService, "capacity", 4L * recipients);
+        ReflectionTestUtils.setField(frequencyCapService, "snapshotPath", "");
+        frequencyCapService.initialize();
+        int email = frequencyCapService.channel("email");
+        // Earlier campaigns reached every tenth recipient three times
+        for (long id = 0; id < recipients; id += 10) {
+            for (int contact = 0; contact < 3; contact++) {
+                frequencyCapService.tryContact(id, email);
+            }
+        }
+
+        SuppressionService suppressionService = new SuppressionService();
+        ReflectionTestUtils.setField(suppressionService, "enabled", false);
+
+        scheduleService = new CampaignScheduleService();
+        ReflectionTestUtils.setField(scheduleService, "frequencyCapService", frequencyCapService);
+        ReflectionTestUtils.setField(scheduleService, "suppressionService", suppressionService);
+        ReflectionTestUtils.setField(scheduleService, "objectMapper", new ObjectMapper());
+        ReflectionTestUtils.setField(scheduleService, "ratesSpec", "email=20000");
+        ReflectionTestUtils.setField(scheduleService, "quietHours", quietHours);
+        ReflectionTestUtils.setField(scheduleService, "defaultTimezone", "America/New_York");
+        ReflectionTestUtils.setField(scheduleService, "horizonDays", 14);
+        ReflectionTestUtils.setField(scheduleService, "maxHorizonDays", 90);
+        scheduleService.initialize();
+
+        Map<String, Object> arguments = new HashMap<>();
+        arguments.put("channel", "email");
+        arguments.put("start_at", "2026-11-02T14:00:00Z");
+        arguments.put("apply_frequency_cap", frequencyCap);
+        plan = scheduleService.plan(arguments);
+
+        StringBuilder ndjson = new StringBuilder(recipients * 48);
+        for (int id = 0; id < recipients; id++) {
+            ndjson.append("{\"customer_id\":").append(id);
+            if (id % 3 == 0) {
+                ndjson.append(",\"timezone\":\"").append(TIMEZONES[id / 3 % TIMEZONES.length]).append('"');
+            }
+            ndjson.append("}\n");
+        }
+        input = ndjson.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @TearDown
+    public void tearDown() {
+        frequencyCapService.shutdown();
+    }
+
+    @Benchmark
+    public CampaignScheduleService.ScheduleStats plan() throws IOException {
+        BufferedReader in = new BufferedReader(new InputStreamReader(new ByteArrayInputStream(input), StandardCharsets.UTF_8),
+                1 << 16);
+        return scheduleService.schedule(plan, in, OutputStream.nullOutputStream());
+    }
+}
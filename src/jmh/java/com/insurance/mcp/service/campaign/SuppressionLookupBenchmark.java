@@ -0,0 +1,90 @@
+package com.insurance.mcp.service.campaign;
+
+import com.insurance.mcp.service.campaign.suppression.MappedIdSet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Suppression lookups of rendered recipients, {@code suppressedPercent} of them on the list:
+ * the service's Bloom filter with exact confirmation of its positives, against binary search of
+ * the memory-mapped exact set alone.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SuppressionLookupBenchmark {
+
+    private static final int QUERIES = 1 << 16;
+
+    @Param({"10000000"})
+    private int suppressed;
+
+    @Param({"1"})
+    private int suppressedPercent;
+
+    private Path directory;
+    private SuppressionService service;
+    private MappedIdSet exact;
+    private long[] queries;
+    private int next;
+
+    @Setup
+    public void setUp() throws Exception {
+        SplittableRandom random = new SplittableRandom(42);
+        long[] ids = new long[suppressed];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = random.nextLong(Long.MAX_VALUE);
+        }
+        Arrays.sort(ids);
+        directory = Files.createTempDirectory("suppression-benchmark");
+        Path store = directory.resolve("suppression.bin");
+        MappedIdSet.write(ids, ids.length, store);
+
+        service = new SuppressionService();
+        ReflectionTestUtils.setField(service, "enabled", true);
+        ReflectionTestUtils.setField(service, "location", "");
+        ReflectionTestUtils.setField(service, "storePath", store.toString());
+        ReflectionTestUtils.setField(service, "bloomBitsPerKey", 10);
+        service.initialize();
+        exact = MappedIdSet.open(store);
+
+        queries = new long[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            queries[i] = random.nextInt(100) < suppressedPercent ? ids[random.nextInt(ids.length)] : random.nextLong(Long.MAX_VALUE);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        service.shutdown();
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public boolean bloomThenExact() {
+        return service.isSuppressed(queries[next++ & (QUERIES - 1)]);
+    }
+
+    @Benchmark
+    public boolean exactOnly() {
+        return exact.contains(queries[next++ & (QUERIES - 1)]);
+    }
+}
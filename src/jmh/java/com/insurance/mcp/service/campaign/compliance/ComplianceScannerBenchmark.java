@@ -0,0 +1,124 @@
+package com.insurance.mcp.service.campaign.compliance;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.insurance.mcp.model.campaign.ComplianceRuleSet;
+import com.insurance.mcp.model.campaign.ComplianceViolation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Compliance scan of rendered campaign messages under the bundled rules plus {@code extraPhrases}
+ * generated ones: the scanner's single automaton pass against one case-insensitive regex per
+ * phrase, which is what the scan would cost without the automaton.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ComplianceScannerBenchmark {
+
+    private static final String[] WORDS = {"your", "policy", "coverage", "family", "premium", "today", "protect",
+            "home", "auto", "life", "health", "plan", "quote", "agent", "savings", "benefits", "claim", "renewal",
+            "the", "and", "with", "for", "our", "new", "best", "save", "rate"};
+    private static final String[] CLAIMS = {"risk-free", "Guaranteed Approval", "act now", "lowest rates",
+            "save up to 40%", "no medical exam"};
+
+    @Param({"0", "1000"})
+    private int extraPhrases;
+
+    @Param({"NY"})
+    private String jurisdiction;
+
+    private ComplianceScanner scanner;
+    private Pattern[] phrasePatterns;
+    private String[] messages;
+    private int next;
+
+    @Setup
+    public void setUp() throws Exception {
+        ComplianceRuleSet ruleSet;
+        try (InputStream in = ComplianceScannerBenchmark.class.getResourceAsStream("/compliance-rules.json")) {
+            ruleSet = new ObjectMapper().readValue(in, ComplianceRuleSet.class);
+        }
+        SplittableRandom random = new SplittableRandom(42);
+        List<ComplianceRuleSet.Rule> rules = new ArrayList<>(ruleSet.getRules());
+        List<String> generated = new ArrayList<>();
+        for (int i = 0; i < extraPhrases; i++) {
+            generated.add(WORDS[random.nextInt(WORDS.length)] + " " + word(random) + " " + word(random));
+        }
+        if (!generated.isEmpty()) {
+            rules.add(ComplianceRuleSet.Rule.builder().id("generated").phrases(generated).severity("warn").build());
+        }
+        ruleSet.setRules(rules);
+        scanner = ComplianceRules.compile(ruleSet).scanner(jurisdiction);
+
+        List<Pattern> patterns = new ArrayList<>();
+        for (ComplianceRuleSet.Rule rule : rules) {
+            if (rule.getJurisdictions() != null && !rule.getJurisdictions().isEmpty()
+                    && !rule.getJurisdictions().contains(jurisdiction)) {
+                continue;
+            }
+            if (rule.getPhrases() != null) {
+                for (String phrase : rule.getPhrases()) {
+                    patterns.add(Pattern.compile("\\b" + String.join("[\\s\\-_]+", phrase.split("[\\s\\-_]+")) + "\\b",
+                            Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE));
+                }
+            }
+            if (rule.getRegex() != null) {
+                patterns.add(Pattern.compile(rule.getRegex(), Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE));
+            }
+        }
+        phrasePatterns = patterns.toArray(new Pattern[0]);
+
+        // About 600 characters each, one in four with a prohibited claim
+        messages = new String[256];
+        for (int m = 0; m < messages.length; m++) {
+            StringBuilder message = new StringBuilder(640);
+            while (message.length() < 600) {
+                message.append(WORDS[random.nextInt(WORDS.length)]).append(random.nextInt(12) == 0 ? ". " : " ");
+            }
+            if (m % 4 == 0) {
+                int at = message.indexOf(" ", random.nextInt(message.length())) + 1;
+                message.insert(at, CLAIMS[random.nextInt(CLAIMS.length)] + " ");
+            }
+            messages[m] = message.toString();
+        }
+    }
+
+    @Benchmark
+    public List<ComplianceViolation> automaton() {
+        return scanner.scan("body", messages[next++ & (messages.length - 1)]);
+    }
+
+    @Benchmark
+    public int regexPerPhrase() {
+        String message = messages[next++ & (messages.length - 1)];
+        int found = 0;
+        for (Pattern pattern : phrasePatterns) {
+            if (pattern.matcher(message).find()) {
+                found++;
+            }
+        }
+        return found;
+    }
+
+    private static String word(SplittableRandom random) {
+        char[] word = new char[4 + random.nextInt(6)];
+        for (int i = 0; i < word.length; i++) {
+            word[i] = (char) ('a' + random.nextInt(26));
+        }
+        return new String(word);
+    }
+}
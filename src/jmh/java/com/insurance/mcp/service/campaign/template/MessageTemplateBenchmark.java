@@ -0,0 +1,74 @@
+package com.insurance.mcp.service.campaign.template;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A campaign message rendered the way {@code CampaignContentService} did before templates, with
+ * {@code String.format} and {@code replace} per call, versus a compiled {@link MessageTemplate}.
+ * Run with {@code -prof gc} to compare allocation per message as well.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class MessageTemplateBenchmark {
+
+    private static final MessageTemplate MESSAGE = MessageTemplate.compile(
+        "Protect yourself and your loved ones with our comprehensive {INSURANCE_TYPE} coverage. "
+            + "Key benefits include {BENEFIT}. "
+            + "Limited time offer - get your personalized quote today and save up to 20% on your premium. "
+            + "Our experienced team is ready to help you find the perfect coverage for your needs.");
+
+    @Param({"life_insurance", "property_insurance"})
+    private String insuranceType;
+
+    private final String benefit = "Financial security for your family";
+    private final Map<String, Object> audienceCriteria = Map.of(
+        "minAge", 30, "maxAge", 45, "incomeRange", List.of("high_income"), "location", List.of("metro"));
+
+    @Setup
+    public void setUp() {
+        if (!stringFormat().equals(compiledTemplate())) {
+            throw new IllegalStateException("Template output differs from String.format: " + compiledTemplate());
+        }
+    }
+
+    @Benchmark
+    public String stringFormat() {
+        StringBuilder message = new StringBuilder();
+        message.append(String.format("Protect yourself and your loved ones with our comprehensive %s coverage. ",
+                insuranceType.replace("_", " ")));
+        message.append(String.format("Key benefits include %s. ", benefit));
+        message.append("Limited time offer - get your personalized quote today and save up to 20% on your premium. ");
+        message.append("Our experienced team is ready to help you find the perfect coverage for your needs.");
+        return message.toString();
+    }
+
+    @Benchmark
+    public String compiledTemplate() {
+        return MESSAGE.render(new TemplateValues()
+                .set(TemplateToken.INSURANCE_TYPE, TemplateValues.displayName(insuranceType))
+                .set(TemplateToken.BENEFIT, benefit));
+    }
+
+    /**
+     * As rendered by the service, with the personalization tokens filled from the criteria
+     */
+    @Benchmark
+    public String compiledTemplatePersonalized() {
+        return MESSAGE.render(new TemplateValues()
+                .set(TemplateToken.INSURANCE_TYPE, TemplateValues.displayName(insuranceType))
+                .set(TemplateToken.BENEFIT, benefit)
+                .personalize(audienceCriteria));
+    }
+}
@@ -38,6 +38,9 @@ public class McpStdioApplication {
         
         // Start stdio server
         startStdioServer(mcpStdioHandler, objectMapper);
+
+        // Stop scheduled reloads and background workers once the client closes stdin
+        context.close();
     }
     
     private static void startStdioServer(McpStdioHandler mcpStdioHandler, ObjectMapper objectMapper) {
@@ -0,0 +1,73 @@
+package com.insurance.mcp;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.PropertyNamingStrategies;
+import com.insurance.mcp.model.campaign.CustomerProfile;
+import com.insurance.mcp.service.audience.CustomerProfileTable;
+import com.insurance.mcp.service.audience.ProfileFileWriter;
+import com.insurance.mcp.service.audience.SyntheticProfileGenerator;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Offline builder for the memory-mapped profile dataset served via
+ * {@code mcp.audience.profiles.dataset}.
+ *
+ * <pre>
+ * ProfileDatasetBuilder --output profiles.mcpprof --input profiles.ndjson
+ * ProfileDatasetBuilder --output profiles.mcpprof --synthetic 5000000 [--seed 42]
+ * </pre>
+ *
+ * NDJSON input holds one snake_case {@link CustomerProfile} per line.
+ */
+public class ProfileDatasetBuilder {
+
+    public static void main(String[] args) throws IOException {
+        Path output = null;
+        Path input = null;
+        int synthetic = -1;
+        long seed = 42;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "--output" -> output = Path.of(args[i + 1]);
+                case "--input" -> input = Path.of(args[i + 1]);
+                case "--synthetic" -> synthetic = Integer.parseInt(args[i + 1]);
+                case "--seed" -> seed = Long.parseLong(args[i + 1]);
+                default -> throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+        if (output == null || (input == null) == (synthetic < 0)) {
+            System.err.println("Usage: ProfileDatasetBuilder --output <file> (--input <profiles.ndjson> | --synthetic <count> [--seed <n>])");
+            System.exit(2);
+        }
+
+        long start = System.nanoTime();
+        CustomerProfileTable table = input != null
+                ? readNdjson(input)
+                : SyntheticProfileGenerator.generate(synthetic, seed);
+        ProfileFileWriter.write(table, output);
+        System.err.printf("Wrote %d profiles to %s (%d MB) in %d ms%n", table.size(), output,
+                Files.size(output) >> 20, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private static CustomerProfileTable readNdjson(Path input) throws IOException {
+        ObjectMapper mapper = new ObjectMapper()
+                .setPropertyNamingStrategy(PropertyNamingStrategies.SNAKE_CASE)
+                .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        CustomerProfileTable.Builder builder = CustomerProfileTable.builder(1 << 16);
+        try (BufferedReader reader = Files.newBufferedReader(input, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isBlank()) {
+                    builder.add(mapper.readValue(line, CustomerProfile.class));
+                }
+            }
+        }
+        return builder.build();
+    }
+}
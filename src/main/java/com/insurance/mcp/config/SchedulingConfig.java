@@ -0,0 +1,12 @@
+package com.insurance.mcp.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Enables scheduled background tasks (rule reload checks, maintenance jobs)
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
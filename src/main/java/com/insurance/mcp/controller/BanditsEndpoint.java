@@ -0,0 +1,37 @@
+package com.insurance.mcp.controller;
+
+import com.insurance.mcp.service.campaign.BanditService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.InvalidEndpointRequestException;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Actuator endpoint for content bandit arm statistics at {@code /actuator/bandits}; rewards are
+ * posted there with the served item's {@code banditArm} token and an outcome
+ */
+@Component
+@Endpoint(id = "bandits")
+public class BanditsEndpoint {
+
+    @Autowired
+    private BanditService banditService;
+
+    @ReadOperation
+    public Map<String, Object> bandits() {
+        return banditService.stats();
+    }
+
+    @WriteOperation
+    public Map<String, Object> recordReward(String banditArm, String outcome) {
+        try {
+            return banditService.recordReward(banditArm, outcome);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidEndpointRequestException(e.getMessage(), e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.insurance.mcp.controller;
+
+import com.insurance.mcp.service.ToolBulkheadService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Actuator endpoint for per-tool bulkhead occupancy and rejections at {@code /actuator/bulkheads};
+ * the same figures are published as {@code mcp.tool.bulkhead.*} meters
+ */
+@Component
+@Endpoint(id = "bulkheads")
+public class BulkheadsEndpoint {
+
+    @Autowired
+    private ToolBulkheadService toolBulkheadService;
+
+    @ReadOperation
+    public Map<String, Object> bulkheads() {
+        return toolBulkheadService.stats();
+    }
+}
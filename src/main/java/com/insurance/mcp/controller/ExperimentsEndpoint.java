@@ -0,0 +1,43 @@
+package com.insurance.mcp.controller;
+
+import com.insurance.mcp.service.campaign.ExperimentService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.InvalidEndpointRequestException;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Actuator endpoint for content experiment stats at {@code /actuator/experiments}; outcomes are
+ * posted to {@code /actuator/experiments/{experiment}} with a recipient id and outcome
+ */
+@Component
+@Endpoint(id = "experiments")
+public class ExperimentsEndpoint {
+
+    @Autowired
+    private ExperimentService experimentService;
+
+    @ReadOperation
+    public Map<String, Object> experiments() {
+        return experimentService.stats();
+    }
+
+    @ReadOperation
+    public Map<String, Object> experiment(@Selector String experiment) {
+        return experimentService.stats(experiment);
+    }
+
+    @WriteOperation
+    public Map<String, Object> recordOutcome(@Selector String experiment, String recipientId, String outcome) {
+        try {
+            return experimentService.recordOutcome(experiment, recipientId, outcome);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidEndpointRequestException(e.getMessage(), e.getMessage());
+        }
+    }
+}
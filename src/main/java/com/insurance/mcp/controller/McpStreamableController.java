@@ -4,21 +4,35 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.insurance.mcp.handler.McpStreamableHandler;
 import com.insurance.mcp.model.McpStreamableRequest;
 import com.insurance.mcp.model.McpStreamableResponse;
+import com.insurance.mcp.service.ToolBulkheadService;
+import com.insurance.mcp.service.audience.AudienceExportCursor;
+import com.insurance.mcp.service.audience.ProfileIngestService;
+import com.insurance.mcp.service.campaign.AudienceExportService;
+import com.insurance.mcp.service.campaign.CampaignRenderService;
+import com.insurance.mcp.service.campaign.CampaignMatrixService;
+import com.insurance.mcp.service.campaign.CampaignScheduleService;
+import com.insurance.mcp.service.campaign.EngagementService;
+import com.insurance.mcp.service.campaign.SuppressionService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import jakarta.servlet.http.HttpServletRequest;
+import java.io.IOException;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
 
 /**
  * MCP Streamable HTTP Transport Controller
@@ -37,6 +51,30 @@ public class McpStreamableController {
 
     @Autowired
     private ObjectMapper objectMapper;
+
+    @Autowired
+    private AudienceExportService audienceExportService;
+
+    @Autowired
+    private ProfileIngestService profileIngestService;
+
+    @Autowired
+    private CampaignRenderService campaignRenderService;
+
+    @Autowired
+    private CampaignScheduleService campaignScheduleService;
+
+    @Autowired
+    private CampaignMatrixService campaignMatrixService;
+
+    @Autowired
+    private EngagementService engagementService;
+
+    @Autowired
+    private SuppressionService suppressionService;
+
+    @Autowired
+    private ToolBulkheadService toolBulkheadService;
     
     // 请求去重缓存（防止重复请求）
     private final Map<String, Long> requestCache = new ConcurrentHashMap<>();
@@ -139,6 +177,32 @@ public class McpStreamableController {
         }
     }
 
+    /**
+     * Execute a pipeline of tool calls server-side
+     * POST /mcp/v1/tools/pipeline
+     */
+    @PostMapping(value = "/tools/pipeline", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<McpStreamableResponse> pipeline(
+            @RequestBody McpStreamableRequest request,
+            @RequestHeader(value = "Authorization", required = false) String authorization,
+            @RequestHeader(value = "X-API-Key", required = false) String apiKey,
+            @RequestHeader Map<String, String> headers,
+            @AuthenticationPrincipal Jwt jwt) {
+
+        String clientId = extractClientId(headers);
+        log.info("MCP Tool Pipeline request from client: {}", clientId);
+
+        try {
+            McpStreamableResponse response = mcpStreamableHandler.pipeline(
+                request, clientId, authorization, apiKey, headers, jwt);
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            log.error("Error executing tool pipeline", e);
+            return ResponseEntity.internalServerError()
+                .body(createErrorResponse(request.getId(), -32603, "Internal error: " + e.getMessage()));
+        }
+    }
+
     /**
      * Create SSE connection for streaming responses
      * GET /mcp/v1/stream/{clientId}
@@ -180,6 +244,197 @@ public class McpStreamableController {
         }
     }
 
+    /**
+     * Stream the customer ids of an audience as NDJSON over chunked HTTP
+     * POST /mcp/v1/audience/export
+     */
+    @PostMapping(value = "/audience/export", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> exportAudience(@RequestBody Map<String, Object> arguments) {
+        return withPermit("audience_export", () -> {
+            AudienceExportCursor cursor = audienceExportService.open(arguments);
+            int chunkSize = audienceExportService.chunkSize(arguments);
+            log.info("Starting NDJSON audience export {} (expected size: {})", cursor.getId(), cursor.getExpectedSize());
+
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/x-ndjson"))
+                .header("X-Export-ID", cursor.getId());
+            if (cursor.getExpectedSize() != null) {
+                response.header("X-Audience-Size", String.valueOf(cursor.getExpectedSize()));
+            }
+            return response.body(out -> audienceExportService.writeNdjson(cursor, chunkSize, out));
+        });
+    }
+
+    /**
+     * Render a personalized message per NDJSON recipient in the request body, streamed back as NDJSON
+     * in input order; campaign settings come from the query parameters
+     * POST /mcp/v1/campaign/render
+     */
+    @PostMapping(value = "/campaign/render", consumes = "application/x-ndjson", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> renderCampaign(@RequestParam Map<String, Object> parameters,
+                                                                HttpServletRequest httpRequest) {
+        return withPermit("render_campaign_batch", () -> {
+            CampaignRenderService.RenderPlan plan = campaignRenderService.plan(parameters);
+            log.info("Starting campaign render stream for {} via {}", parameters.get("insurance_type"), plan.getChannel());
+            return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/x-ndjson"))
+                .body(out -> campaignRenderService.render(plan, httpRequest.getReader(), out));
+        });
+    }
+
+    /**
+     * Plan a send time per NDJSON recipient in the request body, streamed back as NDJSON in send-time
+     * order; channel limits and quiet hours come from the query parameters
+     * POST /mcp/v1/campaign/schedule
+     */
+    @PostMapping(value = "/campaign/schedule", consumes = "application/x-ndjson", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> scheduleCampaign(@RequestParam Map<String, Object> parameters,
+                                                                  HttpServletRequest httpRequest) {
+        return withPermit("plan_campaign_schedule", () -> {
+            CampaignScheduleService.SchedulePlan plan = campaignScheduleService.plan(parameters);
+            log.info("Starting send plan stream via {} at {} sends/min", plan.getChannel(), plan.getRatePerMinute());
+            return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/x-ndjson"))
+                .body(out -> campaignScheduleService.schedule(plan, httpRequest.getReader(), out));
+        });
+    }
+
+    /**
+     * Compute the campaign matrix described by the JSON body, streaming each cell back as an NDJSON
+     * line as soon as it completes and a final {@code {"summary":...}} line
+     * POST /mcp/v1/campaign/matrix
+     */
+    @PostMapping(value = "/campaign/matrix", consumes = MediaType.APPLICATION_JSON_VALUE, produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> campaignMatrix(@RequestBody Map<String, Object> arguments) {
+        return withPermit("campaign_matrix", () -> {
+            CampaignMatrixService.MatrixPlan plan = campaignMatrixService.plan(arguments);
+            log.info("Starting campaign matrix stream for {} x {} x {}", plan.getInsuranceTypes(), plan.getChannels(),
+                plan.getCampaignGoals());
+            return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/x-ndjson"))
+                .body(out -> campaignMatrixService.writeNdjson(plan, out));
+        });
+    }
+
+    /**
+     * A tool's streaming response that holds the tool's bulkhead permit until its body has been
+     * written. The permit is taken before the request is planned, so a saturated tool is turned
+     * away before any work starts.
+     */
+    private ResponseEntity<StreamingResponseBody> withPermit(String tool,
+                                                             Supplier<ResponseEntity<StreamingResponseBody>> stream) {
+        ToolBulkheadService.Permit permit = toolBulkheadService.acquire(tool);
+        ResponseEntity<StreamingResponseBody> response;
+        try {
+            response = stream.get();
+        } catch (RuntimeException e) {
+            permit.close();
+            throw e;
+        }
+        StreamingResponseBody body = response.getBody();
+        return ResponseEntity.status(response.getStatusCode())
+            .headers(response.getHeaders())
+            .body(out -> {
+                try {
+                    body.writeTo(out);
+                } finally {
+                    permit.close();
+                }
+            });
+    }
+
+    @ExceptionHandler(ToolBulkheadService.RejectedException.class)
+    public ResponseEntity<Map<String, Object>> toolRejected(ToolBulkheadService.RejectedException e) {
+        log.warn(e.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+            .header("Retry-After", "1")
+            .contentType(MediaType.APPLICATION_JSON)
+            .body(Map.of("error", e.getMessage(), "tool", e.getTool(), "reason", "bulkhead_full"));
+    }
+
+    /**
+     * Apply NDJSON profile upserts and deletes to the audience store
+     * POST /mcp/v1/audience/profiles/ingest
+     */
+    @PostMapping(value = "/audience/profiles/ingest", consumes = "application/x-ndjson",
+            produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<Map<String, Object>> ingestProfiles(HttpServletRequest httpRequest) {
+        try {
+            Map<String, Object> result = profileIngestService.ingest(httpRequest.getReader());
+            log.info("Ingested profile changes: {}", result);
+            return ResponseEntity.ok(result);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            log.error("Error ingesting profile changes", e);
+            return ResponseEntity.internalServerError()
+                .body(Map.of("error", "Failed to ingest profiles: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Count NDJSON engagement events (sent, opened, clicked, converted) in the rolling windows
+     * POST /mcp/v1/campaign/engagement
+     */
+    @PostMapping(value = "/campaign/engagement", consumes = "application/x-ndjson",
+            produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<Map<String, Object>> ingestEngagement(HttpServletRequest httpRequest) {
+        try {
+            return ResponseEntity.ok(engagementService.ingest(httpRequest.getReader()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            log.error("Error ingesting engagement events", e);
+            return ResponseEntity.internalServerError()
+                .body(Map.of("error", "Failed to ingest engagement events: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Windowed engagement counts of a content id, channel and segment
+     * GET /mcp/v1/campaign/engagement
+     */
+    @GetMapping(value = "/campaign/engagement", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<Map<String, Object>> engagementStats(
+            @RequestParam(value = "content_id", required = false) String contentId,
+            @RequestParam(value = "channel", required = false) String channel,
+            @RequestParam(value = "segment", required = false) String segment,
+            @RequestParam(value = "minutes", required = false) Integer minutes) {
+        return ResponseEntity.ok(engagementService.stats(contentId, channel, segment, minutes));
+    }
+
+    /**
+     * Add recipient ids to or remove them from the suppression list: {@code {"add":[...],"remove":[...]}}
+     * POST /mcp/v1/campaign/suppression
+     */
+    @PostMapping(value = "/campaign/suppression", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<Map<String, Object>> updateSuppression(@RequestBody Map<String, Object> body) {
+        Object add = body.getOrDefault("add", List.of());
+        Object remove = body.getOrDefault("remove", List.of());
+        if (!(add instanceof List<?> additions) || !(remove instanceof List<?> removals)) {
+            return ResponseEntity.badRequest().body(Map.of("error", "add and remove must be arrays of recipient ids"));
+        }
+        try {
+            return ResponseEntity.ok(suppressionService.update(additions, removals));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (IOException e) {
+            log.error("Failed to persist suppression list updates", e);
+            return ResponseEntity.internalServerError()
+                .body(Map.of("error", "Updates applied but not persisted: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Whether recipients are on the suppression list
+     * GET /mcp/v1/campaign/suppression?recipient_id=...
+     */
+    @GetMapping(value = "/campaign/suppression", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<Map<String, Object>> checkSuppression(
+            @RequestParam(value = "recipient_id", required = false) List<String> recipientIds) {
+        return ResponseEntity.ok(suppressionService.check(recipientIds != null ? recipientIds : List.of()));
+    }
+
     /**
      * Handle CORS preflight requests explicitly
      * OPTIONS /mcp/v1/initialize
@@ -4,6 +4,7 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.insurance.mcp.model.McpRequest;
 import com.insurance.mcp.model.McpResponse;
 import com.insurance.mcp.service.McpToolService;
+import com.insurance.mcp.service.ToolPipelineService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
@@ -28,6 +29,9 @@ public class McpHttpStreamHandler {
     @Autowired
     private McpToolService mcpToolService;
 
+    @Autowired
+    private ToolPipelineService toolPipelineService;
+
     @Autowired
     private ObjectMapper objectMapper;
 
@@ -192,6 +196,9 @@ public class McpHttpStreamHandler {
                 String toolName = (String) params.get("name");
                 Map<String, Object> arguments = (Map<String, Object>) params.get("arguments");
                 return mcpToolService.callTool(id, toolName, arguments);
+
+            case "tools/pipeline":
+                return toolPipelineService.execute(id, request.getParams());
                 
             case "initialize":
                 return McpResponse.builder()
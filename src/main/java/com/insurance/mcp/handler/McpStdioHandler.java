@@ -3,11 +3,14 @@ package com.insurance.mcp.handler;
 import com.insurance.mcp.model.McpRequest;
 import com.insurance.mcp.model.McpResponse;
 import com.insurance.mcp.service.McpToolService;
+import com.insurance.mcp.service.ToolPipelineService;
+import com.insurance.mcp.service.campaign.EngagementService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -20,6 +23,8 @@ import java.util.Map;
 public class McpStdioHandler {
 
     private final McpToolService mcpToolService;
+    private final ToolPipelineService toolPipelineService;
+    private final EngagementService engagementService;
 
     public McpResponse handleRequest(McpRequest request) {
         log.info("Processing MCP request: method={}, id={}", request.getMethod(), request.getId());
@@ -32,8 +37,12 @@ public class McpStdioHandler {
                     return handleToolsList(request);
                 case "tools/call":
                     return handleToolsCall(request);
+                case "tools/pipeline":
+                    return toolPipelineService.execute(request.getId(), request.getParams());
                 case "notifications/initialized":
                     return handleInitialized(request);
+                case "notifications/engagement":
+                    return handleEngagement(request);
                 default:
                     return createErrorResponse(request.getId(), -32601, 
                         "Method not found: " + request.getMethod());
@@ -114,6 +123,24 @@ public class McpStdioHandler {
             .build();
     }
 
+    /**
+     * Engagement events, as {@code params.events} or a single event in {@code params}
+     */
+    private McpResponse handleEngagement(McpRequest request) {
+        Map<String, Object> params = request.getParams() != null ? request.getParams() : Map.of();
+        Object events = params.get("events");
+        List<Map<String, Object>> batch = events instanceof List<?> list ? (List<Map<String, Object>>) list : List.of(params);
+        try {
+            return McpResponse.builder()
+                .jsonrpc("2.0")
+                .id(request.getId())
+                .result(engagementService.ingest(batch))
+                .build();
+        } catch (IllegalArgumentException e) {
+            return createErrorResponse(request.getId(), -32602, e.getMessage());
+        }
+    }
+
     private McpResponse createErrorResponse(String id, int code, String message) {
         return McpResponse.builder()
             .jsonrpc("2.0")
@@ -1,10 +1,16 @@
 package com.insurance.mcp.handler;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.insurance.mcp.model.McpResponse;
 import com.insurance.mcp.model.McpStreamableRequest;
 import com.insurance.mcp.model.McpStreamableResponse;
 import com.insurance.mcp.model.McpTool;
 import com.insurance.mcp.service.McpToolService;
+import com.insurance.mcp.service.ToolBulkheadService;
+import com.insurance.mcp.service.ToolPipelineService;
+import com.insurance.mcp.service.audience.AudienceExportCursor;
+import com.insurance.mcp.service.campaign.AudienceExportService;
+import com.insurance.mcp.service.campaign.CampaignMatrixService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
@@ -35,6 +41,18 @@ public class McpStreamableHandler {
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Autowired
+    private AudienceExportService audienceExportService;
+
+    @Autowired
+    private CampaignMatrixService campaignMatrixService;
+
+    @Autowired
+    private ToolPipelineService toolPipelineService;
+
+    @Autowired
+    private ToolBulkheadService toolBulkheadService;
+
     private final Map<String, SseEmitter> activeStreams = new ConcurrentHashMap<>();
     private final Map<String, Authentication> clientAuth = new ConcurrentHashMap<>();
     private final ExecutorService executor = Executors.newCachedThreadPool();
@@ -103,7 +121,14 @@ public class McpStreamableHandler {
             createAudienceTargetingTool(),
             createCampaignContentTool(),
             createInspectorTool(),
-            createStreamingTool()
+            createStreamingTool(),
+            createAudienceExportTool(),
+            createLookalikeAudienceTool(),
+            createRenderCampaignBatchTool(),
+            createCheckFrequencyCapTool(),
+            createPlanCampaignScheduleTool(),
+            createCheckComplianceTool(),
+            createCampaignMatrixTool()
         );
 
         return McpStreamableResponse.builder()
@@ -155,6 +180,46 @@ public class McpStreamableHandler {
         }
     }
 
+    /**
+     * Execute a pipeline of tool calls server-side, returning only its requested outputs
+     */
+    public McpStreamableResponse pipeline(
+            McpStreamableRequest request,
+            String clientId,
+            String authorization,
+            String apiKey,
+            Map<String, String> headers,
+            Jwt jwt) {
+
+        log.info("Executing tool pipeline for client: {}", clientId);
+        McpResponse response = toolPipelineService.execute(request.getId(), request.getParams());
+        McpStreamableResponse.McpStreamableResponseBuilder builder = McpStreamableResponse.builder()
+            .jsonrpc("2.0")
+            .id(request.getId());
+        if (response.getError() != null) {
+            return builder
+                .error(McpStreamableResponse.McpError.builder()
+                    .code(response.getError().getCode())
+                    .message(response.getError().getMessage())
+                    .data(objectMap(response.getError().getData()))
+                    .build())
+                .build();
+        }
+        return builder.result(objectMap(response.getResult())).build();
+    }
+
+    /**
+     * A JSON object value with string keys, or null when {@code value} is no object
+     */
+    private static Map<String, Object> objectMap(Object value) {
+        if (!(value instanceof Map<?, ?> map)) {
+            return null;
+        }
+        Map<String, Object> copy = new LinkedHashMap<>();
+        map.forEach((key, nested) -> copy.put(String.valueOf(key), nested));
+        return copy;
+    }
+
     /**
      * Create SSE stream for streaming responses
      */
@@ -286,6 +351,20 @@ public class McpStreamableHandler {
                 "timestamp", System.currentTimeMillis()
             )));
 
+        if ("audience_export".equals(toolName) || "campaign_matrix".equals(toolName)) {
+            ToolBulkheadService.Permit permit = toolBulkheadService.acquire(toolName);
+            try {
+                if ("audience_export".equals(toolName)) {
+                    streamAudienceExport(emitter, id, arguments, clientId);
+                } else {
+                    streamCampaignMatrix(emitter, id, arguments, clientId);
+                }
+            } finally {
+                permit.close();
+            }
+            return;
+        }
+
         // Simulate streaming response for long-running operations
         Object result = executeToolCall(toolName, arguments);
         
@@ -332,16 +411,110 @@ public class McpStreamableHandler {
     private Object executeToolCall(String toolName, Map<String, Object> arguments) {
         switch (toolName) {
             case "audience_targeting":
-                return mcpToolService.callTool("1", "audience_targeting", arguments).getResult();
+                return dispatch("audience_targeting", arguments);
             case "campaign_content_recommendation":
-                return mcpToolService.callTool("1", "campaign_content_recommendation", arguments).getResult();
+                return dispatch("campaign_content_recommendation", arguments);
             case "inspector_query":
-                return mcpToolService.callTool("1", "inspector_query", arguments).getResult();
+                return dispatch("inspector_query", arguments);
+            case "audience_export":
+                return dispatch("audience_export", arguments);
+            case "lookalike_audience":
+                return dispatch("lookalike_audience", arguments);
+            case "render_campaign_batch":
+                return dispatch("render_campaign_batch", arguments);
+            case "check_frequency_cap":
+                return dispatch("check_frequency_cap", arguments);
+            case "plan_campaign_schedule":
+                return dispatch("plan_campaign_schedule", arguments);
+            case "check_compliance":
+                return dispatch("check_compliance", arguments);
+            case "campaign_matrix":
+                return dispatch("campaign_matrix", arguments);
             default:
                 throw new IllegalArgumentException("Unknown tool: " + toolName);
         }
     }
 
+    /**
+     * Result of a tool call through {@link McpToolService}, whose errors (including bulkhead
+     * rejections) surface as exceptions
+     */
+    private Object dispatch(String toolName, Map<String, Object> arguments) {
+        McpResponse response = mcpToolService.callTool("1", toolName, arguments);
+        if (response.getError() != null) {
+            throw new IllegalStateException(response.getError().getMessage());
+        }
+        return response.getResult();
+    }
+
+    /**
+     * Stream every matching customer id as {@code chunk} events; send blocks while the
+     * client is behind, which pauses the underlying scan
+     */
+    private void streamAudienceExport(SseEmitter emitter, String id, Map<String, Object> arguments,
+                                      String clientId) throws IOException {
+        AudienceExportCursor cursor = audienceExportService.open(arguments);
+        int chunkSize = audienceExportService.chunkSize(arguments);
+        Integer totalChunks = cursor.getExpectedSize() == null ? null
+            : (int) Math.max(1, (cursor.getExpectedSize() + chunkSize - 1) / chunkSize);
+
+        audienceExportService.forEachChunk(cursor, chunkSize, (index, ids, last) ->
+            emitter.send(SseEmitter.event()
+                .name("chunk")
+                .data(McpStreamableResponse.builder()
+                    .jsonrpc("2.0")
+                    .id(id)
+                    .stream(true)
+                    .chunk(McpStreamableResponse.ChunkInfo.builder()
+                        .index(index)
+                        .total(totalChunks)
+                        .isLast(last)
+                        .content(audienceExportService.toJsonArray(ids))
+                        .build())
+                    .build())));
+
+        emitter.send(SseEmitter.event()
+            .name("tool_complete")
+            .data(Map.of(
+                "tool", "audience_export",
+                "result", Map.of("exported", cursor.getExported(), "chunks", cursor.getChunks()),
+                "clientId", clientId,
+                "timestamp", System.currentTimeMillis()
+            )));
+    }
+
+    /**
+     * Stream every matrix cell as a {@code chunk} event as soon as it is computed; the number of
+     * cells is only known at the end, so chunks carry no total
+     */
+    private void streamCampaignMatrix(SseEmitter emitter, String id, Map<String, Object> arguments,
+                                      String clientId) throws IOException {
+        CampaignMatrixService.MatrixPlan plan = campaignMatrixService.plan(arguments);
+        int[] index = new int[1];
+        CampaignMatrixService.MatrixStats stats = campaignMatrixService.run(plan, cell ->
+            emitter.send(SseEmitter.event()
+                .name("chunk")
+                .data(McpStreamableResponse.builder()
+                    .jsonrpc("2.0")
+                    .id(id)
+                    .stream(true)
+                    .chunk(McpStreamableResponse.ChunkInfo.builder()
+                        .index(index[0]++)
+                        .isLast(false)
+                        .content(objectMapper.writeValueAsString(cell))
+                        .build())
+                    .build())));
+
+        emitter.send(SseEmitter.event()
+            .name("tool_complete")
+            .data(Map.of(
+                "tool", "campaign_matrix",
+                "result", stats.toMap(),
+                "clientId", clientId,
+                "timestamp", System.currentTimeMillis()
+            )));
+    }
+
     private Authentication validateAuthentication(String authorization, String apiKey, 
                                                  Map<String, String> headers, Jwt jwt) {
         // Implementation depends on your authentication strategy
@@ -349,6 +522,20 @@ public class McpStreamableHandler {
         return null;
     }
 
+    private Map<String, Object> geoFilterSchema() {
+        return Map.of(
+            "type", "object",
+            "description", "Geographic filter applied to every recommended criteria: latitude, longitude and radiusKm, "
+                + "and/or polygon as [[latitude, longitude], ...]",
+            "properties", Map.of(
+                "latitude", Map.of("type", "number"),
+                "longitude", Map.of("type", "number"),
+                "radiusKm", Map.of("type", "number"),
+                "polygon", Map.of("type", "array", "items", Map.of("type", "array", "items", Map.of("type", "number")))
+            )
+        );
+    }
+
     private McpTool createAudienceTargetingTool() {
         return McpTool.builder()
             .name("audience_targeting")
@@ -358,7 +545,12 @@ public class McpStreamableHandler {
                 "properties", Map.of(
                     "requirements", Map.of("type", "string", "description", "Targeting requirements"),
                     "insurance_type", Map.of("type", "string", "description", "Type of insurance"),
-                    "campaign_objective", Map.of("type", "string", "description", "Campaign objective")
+                    "campaign_objective", Map.of("type", "string", "description", "Campaign objective"),
+                    "save_audience_as", Map.of("type", "string", "description", "Save the recommended audience under this name"),
+                    "compare_with_saved", Map.of("type", "array", "items", Map.of("type", "string"),
+                        "description", "Saved audiences to estimate overlap with"),
+                    "dedup_identities", Map.of("type", "boolean", "description", "Also count unique identities per criteria set"),
+                    "geo", geoFilterSchema()
                 ),
                 "required", Arrays.asList("requirements", "insurance_type")
             ))
@@ -374,7 +566,9 @@ public class McpStreamableHandler {
                 "properties", Map.of(
                     "audience_criteria", Map.of("type", "string", "description", "Target audience criteria"),
                     "insurance_type", Map.of("type", "string", "description", "Type of insurance"),
-                    "content_type", Map.of("type", "string", "description", "Type of content needed")
+                    "content_type", Map.of("type", "string", "description", "Type of content needed"),
+                    "recipient_id", Map.of("type", "string", "description", "Recipient to assign content experiment arms for"),
+                    "jurisdiction", Map.of("type", "string", "description", "Compliance jurisdiction, e.g. NY")
                 ),
                 "required", Arrays.asList("audience_criteria", "insurance_type")
             ))
@@ -411,4 +605,149 @@ public class McpStreamableHandler {
             ))
             .build();
     }
+
+    private McpTool createAudienceExportTool() {
+        return McpTool.builder()
+            .name("audience_export")
+            .description("Exports the customer ids matching audience criteria in chunks (pages with next_cursor, or chunk events when streamed)")
+            .inputSchema(Map.of(
+                "type", "object",
+                "properties", Map.of(
+                    "requirements", Map.of("type", "string", "description", "Targeting requirements"),
+                    "insurance_type", Map.of("type", "string", "description", "Type of insurance"),
+                    "campaign_objective", Map.of("type", "string", "description", "Campaign objective"),
+                    "criteria_index", Map.of("type", "integer", "description", "Recommended variant to export (default: union)"),
+                    "geo", geoFilterSchema(),
+                    "criteria", Map.of("type", "object", "description", "Explicit audience criteria"),
+                    "dedup_identities", Map.of("type", "boolean", "description", "One customer id per resolved identity"),
+                    "apply_suppression", Map.of("type", "boolean", "description", "Leave out suppressed recipients (default true)"),
+                    "chunk_size", Map.of("type", "integer", "description", "Customer ids per chunk"),
+                    "cursor", Map.of("type", "string", "description", "next_cursor from the previous page")
+                )
+            ))
+            .build();
+    }
+
+    private McpTool createLookalikeAudienceTool() {
+        return McpTool.builder()
+            .name("lookalike_audience")
+            .description("Finds the top-K customers most similar to a seed set, with criteria describing them")
+            .inputSchema(Map.of(
+                "type", "object",
+                "properties", Map.of(
+                    "seed_customer_ids", Map.of("type", "array", "items", Map.of("type", "integer"),
+                        "description", "Seed customer ids"),
+                    "k", Map.of("type", "integer", "description", "Number of lookalikes to return"),
+                    "criteria_coverage", Map.of("type", "number", "description", "Share covered by derived criteria"),
+                    "include_scores", Map.of("type", "boolean", "description", "Include similarity scores")
+                ),
+                "required", Arrays.asList("seed_customer_ids")
+            ))
+            .build();
+    }
+
+    private McpTool createRenderCampaignBatchTool() {
+        Map<String, Object> properties = new HashMap<>(Map.of(
+            "recipients_file", Map.of("type", "string", "description", "NDJSON recipients file"),
+            "output_file", Map.of("type", "string", "description", "NDJSON output file"),
+            "insurance_type", Map.of("type", "string", "description", "Type of insurance"),
+            "channel", Map.of("type", "string", "description", "Marketing channel"),
+            "campaign_goal", Map.of("type", "string", "description", "Campaign goal"),
+            "audience_criteria", Map.of("type", "object", "description", "Campaign audience criteria"),
+            "subject_template", Map.of("type", "string", "description", "Subject with {TOKEN} slots"),
+            "message_template", Map.of("type", "string", "description", "Message with {TOKEN} slots"),
+            "apply_frequency_cap", Map.of("type", "boolean", "description", "Skip recipients over their contact limit"),
+            "apply_suppression", Map.of("type", "boolean", "description", "Skip suppressed recipients")
+        ));
+        properties.put("apply_compliance", Map.of("type", "boolean", "description", "Scan rendered copy for prohibited claims"));
+        properties.put("jurisdiction", Map.of("type", "string", "description", "Default compliance jurisdiction"));
+        return McpTool.builder()
+            .name("render_campaign_batch")
+            .description("Renders personalized campaign messages for a recipients file; POST NDJSON to /campaign/render to stream")
+            .inputSchema(Map.of(
+                "type", "object",
+                "properties", properties,
+                "required", Arrays.asList("recipients_file", "output_file")
+            ))
+            .build();
+    }
+
+    private McpTool createCheckFrequencyCapTool() {
+        return McpTool.builder()
+            .name("check_frequency_cap")
+            .description("Atomically checks a recipient's contact limit on a channel and counts the contact if allowed")
+            .inputSchema(Map.of(
+                "type", "object",
+                "properties", Map.of(
+                    "recipient_id", Map.of("type", "string", "description", "Recipient (customer id)"),
+                    "channel", Map.of("type", "string", "description", "Marketing channel"),
+                    "increment", Map.of("type", "boolean", "description", "Count the contact if allowed (default true)")
+                ),
+                "required", Arrays.asList("recipient_id", "channel")
+            ))
+            .build();
+    }
+
+    private McpTool createPlanCampaignScheduleTool() {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("recipients_file", Map.of("type", "string", "description", "NDJSON recipients file"));
+        properties.put("output_file", Map.of("type", "string", "description", "NDJSON send plan file"));
+        properties.put("channel", Map.of("type", "string", "description", "Marketing channel"));
+        properties.put("start_at", Map.of("type", "string", "description", "ISO-8601 instant of the first send"));
+        properties.put("rate_per_minute", Map.of("type", "integer", "description", "Sends per minute"));
+        properties.put("warmup_days", Map.of("type", "integer", "description", "Days of doubling ramp-up"));
+        properties.put("quiet_hours", Map.of("type", "string", "description", "Local quiet hours, HH:mm-HH:mm"));
+        properties.put("timezone", Map.of("type", "string", "description", "Default recipient time zone"));
+        properties.put("horizon_days", Map.of("type", "integer", "description", "Days the plan may span"));
+        properties.put("apply_frequency_cap", Map.of("type", "boolean", "description", "Skip recipients over their contact limit"));
+        properties.put("apply_suppression", Map.of("type", "boolean", "description", "Skip suppressed recipients"));
+        return McpTool.builder()
+            .name("plan_campaign_schedule")
+            .description("Plans send times within channel throughput, quiet hours and frequency caps; POST NDJSON to /campaign/schedule to stream")
+            .inputSchema(Map.of(
+                "type", "object",
+                "properties", properties,
+                "required", Arrays.asList("recipients_file", "output_file")
+            ))
+            .build();
+    }
+
+    private McpTool createCheckComplianceTool() {
+        return McpTool.builder()
+            .name("check_compliance")
+            .description("Scans campaign copy for prohibited insurance claims, with offsets")
+            .inputSchema(Map.of(
+                "type", "object",
+                "properties", Map.of(
+                    "text", Map.of("type", "string", "description", "Copy to scan"),
+                    "title", Map.of("type", "string", "description", "Content title"),
+                    "subject", Map.of("type", "string", "description", "Email subject"),
+                    "message", Map.of("type", "string", "description", "Message body"),
+                    "jurisdiction", Map.of("type", "string", "description", "Jurisdiction code, e.g. NY")
+                )
+            ))
+            .build();
+    }
+
+    private McpTool createCampaignMatrixTool() {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("insurance_types", Map.of("type", "array", "items", Map.of("type", "string"), "description", "Insurance products"));
+        properties.put("channels", Map.of("type", "array", "items", Map.of("type", "string"), "description", "Marketing channels"));
+        properties.put("campaign_goals", Map.of("type", "array", "items", Map.of("type", "string"), "description", "Campaign goals"));
+        properties.put("audience_criteria", Map.of("type", "array", "items", Map.of("type", "object"),
+            "description", "Audience criteria sets; default: recommended per insurance type"));
+        properties.put("requirements", Map.of("type", "string", "description", "Targeting requirements"));
+        properties.put("campaign_objective", Map.of("type", "string", "description", "Campaign objective"));
+        properties.put("jurisdiction", Map.of("type", "string", "description", "Compliance jurisdiction"));
+        properties.put("recipient_id", Map.of("type", "string", "description", "Recipient for experiment arms"));
+        return McpTool.builder()
+            .name("campaign_matrix")
+            .description("Targeting and content for every type x channel x goal x audience combination; stream for cells as they complete")
+            .inputSchema(Map.of(
+                "type", "object",
+                "properties", properties,
+                "required", Arrays.asList("insurance_types")
+            ))
+            .build();
+    }
 }
@@ -4,6 +4,7 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.insurance.mcp.model.McpRequest;
 import com.insurance.mcp.model.McpResponse;
 import com.insurance.mcp.service.McpToolService;
+import com.insurance.mcp.service.ToolPipelineService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
@@ -22,6 +23,9 @@ public class McpWebSocketHandler implements WebSocketHandler {
     @Autowired
     private McpToolService mcpToolService;
 
+    @Autowired
+    private ToolPipelineService toolPipelineService;
+
     @Autowired
     private ObjectMapper objectMapper;
 
@@ -87,6 +91,9 @@ public class McpWebSocketHandler implements WebSocketHandler {
                     String toolName = (String) params.get("name");
                     Map<String, Object> arguments = (Map<String, Object>) params.get("arguments");
                     return mcpToolService.callTool(id, toolName, arguments);
+
+                case "tools/pipeline":
+                    return toolPipelineService.execute(id, request.getParams());
                     
                 case "initialize":
                     return McpResponse.builder()
@@ -42,6 +42,9 @@ public class AudienceCriteria {
     private List<String> purchaseHistory;
     private List<String> onlineBehavior;
     private List<String> interests;
+
+    // Geographic targeting on customer coordinates
+    private GeoFilter geo;
     
     // Campaign specific
     private String campaignObjective;
@@ -0,0 +1,71 @@
+package com.insurance.mcp.model.campaign;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Versioned audience rules file as loaded from disk or classpath
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class AudienceRuleSet {
+
+    @JsonProperty("version")
+    private String version;
+
+    @JsonProperty("segments")
+    private Map<String, List<String>> segments;
+
+    @JsonProperty("default_segments")
+    private List<String> defaultSegments;
+
+    @JsonProperty("base_criteria")
+    private List<BaseCriteriaRule> baseCriteria;
+
+    @JsonProperty("requirement_rules")
+    private List<RequirementRule> requirementRules;
+
+    /**
+     * Base criteria row; "*" matches any insurance type or objective
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class BaseCriteriaRule {
+        @JsonProperty("insurance_type")
+        private String insuranceType;
+
+        @JsonProperty("objective")
+        private String objective;
+
+        @JsonProperty("criteria")
+        private AudienceCriteria criteria;
+    }
+
+    /**
+     * Keyword rule deriving an additional criteria variant from the base criteria
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class RequirementRule {
+        @JsonProperty("name")
+        private String name;
+
+        @JsonProperty("keywords")
+        private List<String> keywords;
+
+        @JsonProperty("overrides")
+        private AudienceCriteria overrides;
+    }
+}
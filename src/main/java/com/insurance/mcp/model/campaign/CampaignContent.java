@@ -64,4 +64,12 @@ public class CampaignContent {
     private String disclaimer;
     private String termsAndConditions;
     private Boolean requiresOptIn;
+    private List<ComplianceViolation> complianceViolations; // prohibited claims found in title, subject or message
+
+    // Experiment assignment, set when the recipient was bucketed into an arm
+    private String experimentId;
+    private String experimentArm;
+
+    // Bandit arm that chose the title and benefit; send it back with engagement feedback
+    private String banditArm;
 }
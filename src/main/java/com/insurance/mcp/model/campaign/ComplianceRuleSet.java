@@ -0,0 +1,59 @@
+package com.insurance.mcp.model.campaign;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Versioned compliance rules file: prohibited phrases and patterns for campaign copy
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ComplianceRuleSet {
+
+    @JsonProperty("version")
+    private String version;
+
+    @JsonProperty("rules")
+    private List<Rule> rules;
+
+    /**
+     * One prohibited claim, as whole-word phrases (case-insensitive; spaces and hyphens are
+     * interchangeable) and/or a regular expression. A regex is only evaluated on text containing
+     * one of its {@code prefilter} literals, so every rule with a regex should name some.
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class Rule {
+        @JsonProperty("id")
+        private String id;
+
+        @JsonProperty("phrases")
+        private List<String> phrases;
+
+        @JsonProperty("regex")
+        private String regex;
+
+        @JsonProperty("prefilter")
+        private List<String> prefilter;
+
+        /** Jurisdiction codes (e.g. NY, CA) the rule applies in; empty for everywhere */
+        @JsonProperty("jurisdictions")
+        private List<String> jurisdictions;
+
+        /** block or warn */
+        @JsonProperty("severity")
+        private String severity;
+
+        @JsonProperty("message")
+        private String message;
+    }
+}
@@ -0,0 +1,25 @@
+package com.insurance.mcp.model.campaign;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A prohibited claim found in campaign copy; {@code start} and {@code end} are character
+ * offsets into the scanned field
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ComplianceViolation {
+
+    private String rule;
+    private String severity;
+    private String field;
+    private int start;
+    private int end;
+    private String match;
+    private String message;
+}
@@ -0,0 +1,174 @@
+package com.insurance.mcp.model.campaign;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Versioned campaign content catalog as loaded from disk or classpath
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ContentCatalog {
+
+    @JsonProperty("version")
+    private String version;
+
+    /** Channels whose content is precomputed; overridden channels are included implicitly */
+    @JsonProperty("channels")
+    private List<String> channels;
+
+    /** Copy per insurance type; "*" is used for types without an entry */
+    @JsonProperty("products")
+    private Map<String, ProductCopy> products;
+
+    /** Content variants, in the order they are recommended */
+    @JsonProperty("variants")
+    private List<VariantCopy> variants;
+
+    /** Channel, then variant id, to the fields that differ on that channel */
+    @JsonProperty("channel_overrides")
+    private Map<String, Map<String, VariantCopy>> channelOverrides;
+
+    /** A/B experiments on content variants */
+    @JsonProperty("experiments")
+    private List<ExperimentCopy> experiments;
+
+    /** Variants whose title and benefit are chosen per request by a multi-armed bandit */
+    @JsonProperty("bandits")
+    private List<BanditCopy> bandits;
+
+    /**
+     * Titles and benefit highlights of one insurance type
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class ProductCopy {
+        @JsonProperty("titles")
+        private List<String> titles;
+
+        @JsonProperty("benefits")
+        private List<String> benefits;
+    }
+
+    /**
+     * One content variant. Titles and benefits are picked from the product by index (clamped to
+     * the last entry) unless given literally; descriptions and messages are templates, messages
+     * keyed by campaign goal with "*" as the default.
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class VariantCopy {
+        @JsonProperty("id")
+        private String id;
+
+        @JsonProperty("title_index")
+        private Integer titleIndex;
+
+        @JsonProperty("title")
+        private String title;
+
+        @JsonProperty("subject")
+        private String subject;
+
+        @JsonProperty("benefit_index")
+        private Integer benefitIndex;
+
+        @JsonProperty("description")
+        private String description;
+
+        @JsonProperty("messages")
+        private Map<String, String> messages;
+
+        @JsonProperty("call_to_action")
+        private String callToAction;
+
+        @JsonProperty("cta_button_text")
+        private String ctaButtonText;
+
+        @JsonProperty("cta_url")
+        private String ctaUrl;
+
+        @JsonProperty("disclaimer")
+        private String disclaimer;
+
+        @JsonProperty("requires_opt_in")
+        private Boolean requiresOptIn;
+
+        @JsonProperty("priority")
+        private Integer priority;
+
+        @JsonProperty("frequency")
+        private String frequency;
+    }
+
+    /**
+     * Experiment splitting recipients of one variant between weighted arms; each arm overrides
+     * fields of the variant. Changing the salt reshuffles assignments.
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class ExperimentCopy {
+        @JsonProperty("id")
+        private String id;
+
+        @JsonProperty("variant")
+        private String variant;
+
+        @JsonProperty("salt")
+        private String salt;
+
+        @JsonProperty("enabled")
+        private Boolean enabled;
+
+        @JsonProperty("arms")
+        private List<ArmCopy> arms;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class ArmCopy {
+        @JsonProperty("name")
+        private String name;
+
+        @JsonProperty("weight")
+        private Integer weight;
+
+        @JsonProperty("overrides")
+        private VariantCopy overrides;
+    }
+
+    /**
+     * Bandit over the product titles and benefit highlights of one variant, per insurance type
+     * and channel. Policy is "thompson" (default) or "ucb".
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class BanditCopy {
+        @JsonProperty("variant")
+        private String variant;
+
+        @JsonProperty("policy")
+        private String policy;
+
+        @JsonProperty("enabled")
+        private Boolean enabled;
+    }
+}
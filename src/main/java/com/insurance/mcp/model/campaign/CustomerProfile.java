@@ -0,0 +1,43 @@
+package com.insurance.mcp.model.campaign;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Customer profile record as exchanged with the targeting store
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder(toBuilder = true)
+public class CustomerProfile {
+
+    private Long customerId;
+    private Integer age;
+    private Double latitude;
+    private Double longitude;
+
+    // Identity keys linking records of the same person or household; never stored in clear
+    private String email;
+    private String phone;
+    private String address;
+
+    private String gender;
+    private String incomeRange;
+    private String occupation;
+    private String location;
+    private String maritalStatus;
+    private String educationLevel;
+    private String riskProfile;
+    private String preferredCommunicationChannel;
+    private Boolean hasExistingPolicy;
+
+    private List<String> existingInsuranceTypes;
+    private List<String> purchaseHistory;
+    private List<String> onlineBehavior;
+    private List<String> interests;
+}
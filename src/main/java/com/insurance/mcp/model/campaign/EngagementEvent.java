@@ -0,0 +1,49 @@
+package com.insurance.mcp.model.campaign;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One campaign engagement event (sent, opened, clicked or converted) of a content item
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class EngagementEvent {
+
+    /** sent, opened, clicked or converted */
+    @JsonProperty("event")
+    private String event;
+
+    @JsonProperty("content_id")
+    private String contentId;
+
+    @JsonProperty("channel")
+    private String channel;
+
+    @JsonProperty("segment")
+    private String segment;
+
+    /** Number of occurrences this event stands for; 1 when absent */
+    @JsonProperty("count")
+    private Long count;
+
+    /** Epoch milliseconds; now when absent */
+    @JsonProperty("timestamp")
+    private Long timestamp;
+
+    /** Served item's banditArm token; clicks and conversions reward that arm */
+    @JsonProperty("bandit_arm")
+    private String banditArm;
+
+    /** Experiment and recipient; clicks and conversions count as that arm's outcome */
+    @JsonProperty("experiment_id")
+    private String experimentId;
+
+    @JsonProperty("recipient_id")
+    private String recipientId;
+}
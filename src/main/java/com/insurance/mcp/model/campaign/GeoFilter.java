@@ -0,0 +1,26 @@
+package com.insurance.mcp.model.campaign;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Geographic predicate on customer coordinates: a circle ({@code latitude}, {@code longitude},
+ * {@code radiusKm}) and/or a polygon of {@code [latitude, longitude]} vertices. When both are
+ * given a customer must lie inside both; customers without coordinates never match.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class GeoFilter {
+
+    private Double latitude;
+    private Double longitude;
+    private Double radiusKm;
+
+    private List<List<Double>> polygon;
+}
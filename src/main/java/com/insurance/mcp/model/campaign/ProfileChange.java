@@ -0,0 +1,37 @@
+package com.insurance.mcp.model.campaign;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One ingested profile change: an upsert carrying the full profile, or a delete by customer id
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ProfileChange {
+
+    public static final String UPSERT = "upsert";
+    public static final String DELETE = "delete";
+
+    private String op;
+    private Long customerId;
+    private CustomerProfile profile;
+
+    @JsonIgnore
+    public boolean isDelete() {
+        return DELETE.equalsIgnoreCase(op);
+    }
+
+    /**
+     * Customer id of the change, taken from the profile for upserts
+     */
+    @JsonIgnore
+    public Long targetId() {
+        return customerId != null ? customerId : profile != null ? profile.getCustomerId() : null;
+    }
+}
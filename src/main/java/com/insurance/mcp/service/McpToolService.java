@@ -3,8 +3,16 @@ package com.insurance.mcp.service;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.insurance.mcp.model.McpResponse;
 import com.insurance.mcp.model.McpTool;
+import com.insurance.mcp.service.campaign.AudienceExportService;
 import com.insurance.mcp.service.campaign.AudienceTargetingService;
 import com.insurance.mcp.service.campaign.CampaignContentService;
+import com.insurance.mcp.service.campaign.CampaignRenderService;
+import com.insurance.mcp.service.campaign.CampaignMatrixService;
+import com.insurance.mcp.service.campaign.CampaignScheduleService;
+import com.insurance.mcp.service.campaign.ComplianceService;
+import com.insurance.mcp.service.campaign.FrequencyCapService;
+import com.insurance.mcp.service.campaign.LookalikeAudienceService;
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -24,28 +32,68 @@ public class McpToolService {
     @Autowired
     private CampaignContentService campaignContentService;
 
+    @Autowired
+    private AudienceExportService audienceExportService;
+
+    @Autowired
+    private LookalikeAudienceService lookalikeAudienceService;
+
+    @Autowired
+    private CampaignRenderService campaignRenderService;
+
+    @Autowired
+    private FrequencyCapService frequencyCapService;
+
+    @Autowired
+    private CampaignScheduleService campaignScheduleService;
+
+    @Autowired
+    private ComplianceService complianceService;
+
+    @Autowired
+    private CampaignMatrixService campaignMatrixService;
+
     @Autowired
     private InspectorService inspectorService;
 
+    @Autowired
+    private ToolBulkheadService toolBulkheadService;
+
     @Autowired
     private ObjectMapper objectMapper;
 
-    public McpResponse listTools(String id) {
-        List<McpTool> tools = Arrays.asList(
-            createAudienceTargetingTool(),
-            createCampaignContentTool(),
-            createInspectorTool()
-        );
+    @PostConstruct
+    public void initialize() {
+        toolBulkheadService.register(tools().stream().map(McpTool::getName).toList());
+    }
 
+    public McpResponse listTools(String id) {
         return McpResponse.builder()
                 .jsonrpc("2.0")
                 .id(id)
-                .result(Map.of("tools", tools))
+                .result(Map.of("tools", tools()))
                 .build();
     }
 
+    private List<McpTool> tools() {
+        return Arrays.asList(
+            createAudienceTargetingTool(),
+            createCampaignContentTool(),
+            createInspectorTool(),
+            createAudienceExportTool(),
+            createLookalikeAudienceTool(),
+            createRenderCampaignBatchTool(),
+            createCheckFrequencyCapTool(),
+            createPlanCampaignScheduleTool(),
+            createCheckComplianceTool(),
+            createCampaignMatrixTool()
+        );
+    }
+
     public McpResponse callTool(String id, String toolName, Map<String, Object> arguments) {
+        ToolBulkheadService.Permit permit = null;
         try {
+            permit = toolBulkheadService.acquire(toolName);
             Object result;
             
             switch (toolName) {
@@ -60,6 +108,34 @@ public class McpToolService {
                 case "inspector_query":
                     result = inspectorService.processInspectorQuery(arguments);
                     break;
+
+                case "audience_export":
+                    result = audienceExportService.exportPage(arguments);
+                    break;
+
+                case "lookalike_audience":
+                    result = lookalikeAudienceService.findLookalikes(arguments);
+                    break;
+
+                case "render_campaign_batch":
+                    result = campaignRenderService.renderBatch(arguments);
+                    break;
+
+                case "check_frequency_cap":
+                    result = frequencyCapService.check(arguments);
+                    break;
+
+                case "plan_campaign_schedule":
+                    result = campaignScheduleService.planBatch(arguments);
+                    break;
+
+                case "check_compliance":
+                    result = complianceService.check(arguments);
+                    break;
+
+                case "campaign_matrix":
+                    result = campaignMatrixService.matrix(arguments);
+                    break;
                     
                 default:
                     throw new IllegalArgumentException("Unknown tool: " + toolName);
@@ -71,6 +147,17 @@ public class McpToolService {
                     .result(Map.of("content", result))
                     .build();
                     
+        } catch (ToolBulkheadService.RejectedException e) {
+            log.warn(e.getMessage());
+            return McpResponse.builder()
+                    .jsonrpc("2.0")
+                    .id(id)
+                    .error(McpResponse.McpError.builder()
+                            .code(-32000)
+                            .message(e.getMessage())
+                            .data(Map.of("tool", toolName, "reason", "bulkhead_full"))
+                            .build())
+                    .build();
         } catch (Exception e) {
             log.error("Error calling tool: {}", toolName, e);
             return McpResponse.builder()
@@ -81,6 +168,10 @@ public class McpToolService {
                             .message("Tool execution error: " + e.getMessage())
                             .build())
                     .build();
+        } finally {
+            if (permit != null) {
+                permit.close();
+            }
         }
     }
 
@@ -97,7 +188,21 @@ public class McpToolService {
             "campaign_objective", Map.of(
                 "type", "string",
                 "description", "Campaign objective (acquisition, retention, upselling, etc.)"
-            )
+            ),
+            "save_audience_as", Map.of(
+                "type", "string",
+                "description", "Save the union of the recommended criteria under this name for later overlap comparisons"
+            ),
+            "compare_with_saved", Map.of(
+                "type", "array",
+                "items", Map.of("type", "string"),
+                "description", "Names of saved audiences to estimate overlap with"
+            ),
+            "dedup_identities", Map.of(
+                "type", "boolean",
+                "description", "Also count unique identities per criteria set (records sharing email, phone or address count once)"
+            ),
+            "geo", geoFilterSchema()
         );
 
         return McpTool.builder()
@@ -128,6 +233,14 @@ public class McpToolService {
             "campaign_goal", Map.of(
                 "type", "string",
                 "description", "Campaign goal (awareness, conversion, retention, etc.)"
+            ),
+            "recipient_id", Map.of(
+                "type", "string",
+                "description", "Recipient (or client) id; assigns the recipient a stable arm of any content experiment"
+            ),
+            "jurisdiction", Map.of(
+                "type", "string",
+                "description", "Jurisdiction (e.g. NY) whose compliance rules the content is checked against"
             )
         );
 
@@ -220,4 +333,273 @@ public class McpToolService {
         
         return suggestions;
     }
+
+    private Map<String, Object> geoFilterSchema() {
+        return Map.of(
+            "type", "object",
+            "description", "Geographic filter applied to every recommended criteria: a circle (latitude, longitude, "
+                + "radiusKm) and/or a polygon of [latitude, longitude] vertices",
+            "properties", Map.of(
+                "latitude", Map.of("type", "number"),
+                "longitude", Map.of("type", "number"),
+                "radiusKm", Map.of("type", "number", "description", "Great-circle radius in kilometres"),
+                "polygon", Map.of(
+                    "type", "array",
+                    "items", Map.of("type", "array", "items", Map.of("type", "number"))
+                )
+            )
+        );
+    }
+
+    private McpTool createAudienceExportTool() {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("requirements", Map.of(
+            "type", "string",
+            "description", "Same requirements as audience_targeting; the recommended criteria are exported"
+        ));
+        properties.put("insurance_type", Map.of("type", "string", "description", "Type of insurance"));
+        properties.put("campaign_objective", Map.of("type", "string", "description", "Campaign objective"));
+        properties.put("criteria_index", Map.of(
+            "type", "integer",
+            "description", "Export only this recommended criteria variant (default: union of all variants)"
+        ));
+        properties.put("geo", geoFilterSchema());
+        properties.put("criteria", Map.of(
+            "type", "object",
+            "description", "Explicit audience criteria to export instead of recommended ones"
+        ));
+        properties.put("dedup_identities", Map.of(
+            "type", "boolean",
+            "description", "Export one customer id per resolved identity (records sharing email, phone or address)"
+        ));
+        properties.put("apply_suppression", Map.of(
+            "type", "boolean",
+            "description", "Leave out recipients on the suppression list (default true)"
+        ));
+        properties.put("chunk_size", Map.of("type", "integer", "description", "Customer ids per page (default 10000)"));
+        properties.put("cursor", Map.of("type", "string", "description", "next_cursor from the previous page"));
+
+        return McpTool.builder()
+                .name("audience_export")
+                .description("Pages through the customer ids matching audience criteria; resume with next_cursor until has_more is false")
+                .inputSchema(Map.of(
+                    "type", "object",
+                    "properties", properties
+                ))
+                .build();
+    }
+
+    private McpTool createLookalikeAudienceTool() {
+        Map<String, Object> properties = Map.of(
+            "seed_customer_ids", Map.of(
+                "type", "array",
+                "items", Map.of("type", "integer"),
+                "description", "Customer ids of the seed audience, e.g. recent converters"
+            ),
+            "k", Map.of("type", "integer", "description", "Number of lookalike customers to return (default 1000)"),
+            "criteria_coverage", Map.of(
+                "type", "number",
+                "description", "Share of the lookalikes the derived criteria should cover (default 0.8)"
+            ),
+            "include_scores", Map.of("type", "boolean", "description", "Include each customer's similarity score")
+        );
+
+        return McpTool.builder()
+                .name("lookalike_audience")
+                .description("Finds the customers most similar to a seed set and derives audience criteria describing them")
+                .inputSchema(Map.of(
+                    "type", "object",
+                    "properties", properties,
+                    "required", Arrays.asList("seed_customer_ids")
+                ))
+                .build();
+    }
+
+    private McpTool createRenderCampaignBatchTool() {
+        Map<String, Object> properties = new HashMap<>(Map.of(
+            "recipients_file", Map.of(
+                "type", "string",
+                "description", "NDJSON recipients (customer_id, first_name, age, income_level, location) inside the render directory"
+            ),
+            "output_file", Map.of(
+                "type", "string",
+                "description", "NDJSON file for the rendered messages, inside the render directory"
+            ),
+            "insurance_type", Map.of("type", "string", "description", "Type of insurance"),
+            "channel", Map.of("type", "string", "description", "Marketing channel (default email)"),
+            "campaign_goal", Map.of("type", "string", "description", "Campaign goal (awareness, conversion)"),
+            "audience_criteria", Map.of(
+                "type", "object",
+                "description", "Campaign audience criteria; fills AGE_RANGE and defaults for INCOME_LEVEL and LOCATION"
+            ),
+            "subject_template", Map.of(
+                "type", "string",
+                "description", "Subject with {TOKEN} or {TOKEN|fallback} slots, e.g. {FIRST_NAME}, {INSURANCE_TYPE}"
+            ),
+            "message_template", Map.of(
+                "type", "string",
+                "description", "Message body with {TOKEN} or {TOKEN|fallback} slots"
+            ),
+            "apply_frequency_cap", Map.of(
+                "type", "boolean",
+                "description", "Skip and count recipients against their contact limit on the channel (default true)"
+            ),
+            "apply_suppression", Map.of(
+                "type", "boolean",
+                "description", "Skip recipients on the suppression list (default true)"
+            )
+        ));
+        properties.put("apply_compliance", Map.of(
+            "type", "boolean",
+            "description", "Scan each rendered subject and message for prohibited claims (default true)"
+        ));
+        properties.put("jurisdiction", Map.of(
+            "type", "string",
+            "description", "Compliance jurisdiction for recipients whose location has no rules of its own"
+        ));
+
+        return McpTool.builder()
+                .name("render_campaign_batch")
+                .description("Renders personalized campaign messages for every recipient in a file and reports throughput")
+                .inputSchema(Map.of(
+                    "type", "object",
+                    "properties", properties,
+                    "required", Arrays.asList("recipients_file", "output_file")
+                ))
+                .build();
+    }
+
+    private McpTool createCheckFrequencyCapTool() {
+        Map<String, Object> properties = Map.of(
+            "recipient_id", Map.of(
+                "type", "string",
+                "description", "Recipient (customer id) to check"
+            ),
+            "channel", Map.of(
+                "type", "string",
+                "description", "Marketing channel (email, sms, push, social_media, direct_mail)"
+            ),
+            "increment", Map.of(
+                "type", "boolean",
+                "description", "Count the contact when it is allowed (default true); false only checks"
+            )
+        );
+
+        return McpTool.builder()
+                .name("check_frequency_cap")
+                .description("Atomically checks a recipient's contact limit on a channel and counts the contact if allowed")
+                .inputSchema(Map.of(
+                    "type", "object",
+                    "properties", properties,
+                    "required", Arrays.asList("recipient_id", "channel")
+                ))
+                .build();
+    }
+
+    private McpTool createPlanCampaignScheduleTool() {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("recipients_file", Map.of(
+            "type", "string",
+            "description", "NDJSON recipients (customer_id, optional timezone such as America/Chicago) inside the render directory"
+        ));
+        properties.put("output_file", Map.of(
+            "type", "string",
+            "description", "NDJSON send plan, one {customer_id, channel, send_at} line per send in send-time order"
+        ));
+        properties.put("channel", Map.of("type", "string", "description", "Marketing channel (default email)"));
+        properties.put("start_at", Map.of("type", "string", "description", "ISO-8601 instant of the first send (default now)"));
+        properties.put("rate_per_minute", Map.of(
+            "type", "integer",
+            "description", "Sends per minute; defaults to the channel's configured provider limit"
+        ));
+        properties.put("warmup_days", Map.of(
+            "type", "integer",
+            "description", "Ramp-up: the rate starts at 1/2^warmup_days and doubles daily (e.g. email warm-up)"
+        ));
+        properties.put("quiet_hours", Map.of(
+            "type", "string",
+            "description", "Local hours without sends, HH:mm-HH:mm (default 21:00-08:00); empty disables"
+        ));
+        properties.put("timezone", Map.of("type", "string", "description", "Time zone of recipients without one"));
+        properties.put("horizon_days", Map.of("type", "integer", "description", "Days the plan may span (default 14)"));
+        properties.put("apply_frequency_cap", Map.of(
+            "type", "boolean",
+            "description", "Skip recipients over their contact limit at their planned send time (default true); planning counts no contacts"
+        ));
+        properties.put("apply_suppression", Map.of(
+            "type", "boolean",
+            "description", "Skip recipients on the suppression list (default true)"
+        ));
+
+        return McpTool.builder()
+                .name("plan_campaign_schedule")
+                .description("Plans a send time per recipient within channel throughput limits, quiet hours and frequency caps")
+                .inputSchema(Map.of(
+                    "type", "object",
+                    "properties", properties,
+                    "required", Arrays.asList("recipients_file", "output_file")
+                ))
+                .build();
+    }
+
+    private McpTool createCheckComplianceTool() {
+        Map<String, Object> properties = Map.of(
+            "text", Map.of("type", "string", "description", "Copy to scan"),
+            "title", Map.of("type", "string", "description", "Content title"),
+            "subject", Map.of("type", "string", "description", "Email subject"),
+            "message", Map.of("type", "string", "description", "Message body"),
+            "jurisdiction", Map.of(
+                "type", "string",
+                "description", "Jurisdiction code (e.g. NY, CA) whose rules apply in addition to the general ones"
+            )
+        );
+
+        return McpTool.builder()
+                .name("check_compliance")
+                .description("Scans campaign copy for prohibited insurance claims and returns each violation with its offsets")
+                .inputSchema(Map.of(
+                    "type", "object",
+                    "properties", properties
+                ))
+                .build();
+    }
+
+    private McpTool createCampaignMatrixTool() {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("insurance_types", Map.of(
+            "type", "array",
+            "items", Map.of("type", "string"),
+            "description", "Insurance products, e.g. [\"life_insurance\", \"auto_insurance\"]"
+        ));
+        properties.put("channels", Map.of(
+            "type", "array",
+            "items", Map.of("type", "string"),
+            "description", "Marketing channels (default [\"email\"])"
+        ));
+        properties.put("campaign_goals", Map.of(
+            "type", "array",
+            "items", Map.of("type", "string"),
+            "description", "Campaign goals (default [\"awareness\"])"
+        ));
+        properties.put("audience_criteria", Map.of(
+            "type", "array",
+            "items", Map.of("type", "object"),
+            "description", "Audience criteria sets; default: the criteria audience targeting recommends per insurance type"
+        ));
+        properties.put("requirements", Map.of("type", "string", "description", "Targeting requirements for audience targeting"));
+        properties.put("campaign_objective", Map.of("type", "string", "description", "Campaign objective for audience targeting"));
+        properties.put("jurisdiction", Map.of("type", "string", "description", "Compliance jurisdiction of the content"));
+        properties.put("recipient_id", Map.of("type", "string", "description", "Recipient for content experiment arms"));
+
+        return McpTool.builder()
+                .name("campaign_matrix")
+                .description("Audience targeting and content recommendations for every insurance type x channel x goal x "
+                    + "audience combination in one call, computed in parallel; stream it to receive cells as they complete")
+                .inputSchema(Map.of(
+                    "type", "object",
+                    "properties", properties,
+                    "required", Arrays.asList("insurance_types")
+                ))
+                .build();
+    }
 }
@@ -0,0 +1,191 @@
+package com.insurance.mcp.service;
+
+import com.insurance.mcp.service.support.Bulkhead;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * One {@link Bulkhead} per tool, so a saturated expensive tool is rejected at its own limit
+ * instead of taking the request threads cheap tools need. Limits are {@code tool=concurrent/queue}
+ * pairs with a default for the rest; occupancy and rejections are published as Micrometer meters
+ * tagged with the tool name.
+ */
+@Slf4j
+@Service
+public class ToolBulkheadService {
+
+    private static final Permit UNLIMITED = () -> { };
+
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
+
+    @Value("${mcp.tools.bulkheads.enabled:true}")
+    private boolean enabled;
+
+    @Value("${mcp.tools.bulkheads.default:16/32}")
+    private String defaultSpec;
+
+    @Value("${mcp.tools.bulkheads.limits:inspector_query=2/4,lookalike_audience=4/8,render_campaign_batch=4/8,campaign_matrix=4/8}")
+    private String limitsSpec;
+
+    @Value("${mcp.tools.bulkheads.max-wait-ms:2000}")
+    private long maxWaitMs;
+
+    private final Map<String, int[]> limits = new HashMap<>();
+    private final Map<String, Bulkhead> bulkheads = new ConcurrentHashMap<>();
+    private int[] defaultLimit;
+
+    @PostConstruct
+    public void initialize() {
+        defaultLimit = parseLimit("default", defaultSpec);
+        for (String entry : limitsSpec.split(",")) {
+            if (entry.isBlank()) {
+                continue;
+            }
+            String[] parts = entry.split("=");
+            if (parts.length != 2) {
+                throw new IllegalStateException("Tool bulkhead '" + entry + "' is not tool=concurrent/queue");
+            }
+            limits.put(parts[0].trim(), parseLimit(parts[0].trim(), parts[1]));
+        }
+    }
+
+    /**
+     * A held bulkhead permit; closing it gives the permit back, closing it again does nothing
+     */
+    @FunctionalInterface
+    public interface Permit extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    /**
+     * Create the bulkheads and meters of the dispatchable tools; other names are not limited
+     */
+    public void register(Collection<String> tools) {
+        if (!enabled) {
+            log.info("Tool bulkheads disabled");
+            return;
+        }
+        for (String tool : tools) {
+            bulkheads.computeIfAbsent(tool, this::create);
+        }
+        log.info("Tool bulkheads (concurrent/queue, max wait {} ms): {}", maxWaitMs, limits());
+    }
+
+    /**
+     * Take a permit of {@code tool}'s bulkhead, waiting in its queue if there is room
+     *
+     * @throws RejectedException when the bulkhead and its queue are full, or the wait timed out
+     */
+    public Permit acquire(String tool) {
+        Bulkhead bulkhead = bulkheads.get(tool);
+        if (bulkhead == null) {
+            return UNLIMITED;
+        }
+        switch (bulkhead.tryAcquire()) {
+            case ACQUIRED:
+                // A second close must not free another caller's permit
+                AtomicBoolean released = new AtomicBoolean();
+                return () -> {
+                    if (released.compareAndSet(false, true)) {
+                        bulkhead.release();
+                    }
+                };
+            case QUEUE_FULL:
+                throw new RejectedException(tool, bulkhead.getMaxConcurrent() + " running and "
+                        + bulkhead.getMaxQueue() + " queued");
+            default:
+                throw new RejectedException(tool, "no permit within " + maxWaitMs + " ms");
+        }
+    }
+
+    /**
+     * Occupancy and rejection counts per tool
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new TreeMap<>();
+        bulkheads.forEach((tool, bulkhead) -> {
+            Map<String, Object> entry = new HashMap<>();
+            entry.put("active", bulkhead.active());
+            entry.put("queued", bulkhead.queued());
+            entry.put("max_concurrent", bulkhead.getMaxConcurrent());
+            entry.put("max_queue", bulkhead.getMaxQueue());
+            entry.put("acquired", bulkhead.acquired());
+            entry.put("rejected_queue_full", bulkhead.rejectedQueueFull());
+            entry.put("rejected_timeout", bulkhead.rejectedTimeout());
+            stats.put(tool, entry);
+        });
+        return stats;
+    }
+
+    private Bulkhead create(String tool) {
+        int[] limit = limits.getOrDefault(tool, defaultLimit);
+        Bulkhead bulkhead = new Bulkhead(tool, limit[0], limit[1], maxWaitMs);
+        if (meterRegistry != null) {
+            Gauge.builder("mcp.tool.bulkhead.active", bulkhead, Bulkhead::active)
+                    .tag("tool", tool).description("Calls holding a permit").register(meterRegistry);
+            Gauge.builder("mcp.tool.bulkhead.queued", bulkhead, Bulkhead::queued)
+                    .tag("tool", tool).description("Calls waiting for a permit").register(meterRegistry);
+            Gauge.builder("mcp.tool.bulkhead.max_concurrent", bulkhead, Bulkhead::getMaxConcurrent)
+                    .tag("tool", tool).register(meterRegistry);
+            FunctionCounter.builder("mcp.tool.bulkhead.acquired", bulkhead, Bulkhead::acquired)
+                    .tag("tool", tool).register(meterRegistry);
+            FunctionCounter.builder("mcp.tool.bulkhead.rejected", bulkhead, Bulkhead::rejectedQueueFull)
+                    .tag("tool", tool).tag("reason", "queue_full").register(meterRegistry);
+            FunctionCounter.builder("mcp.tool.bulkhead.rejected", bulkhead, Bulkhead::rejectedTimeout)
+                    .tag("tool", tool).tag("reason", "timeout").register(meterRegistry);
+        }
+        return bulkhead;
+    }
+
+    private Map<String, String> limits() {
+        Map<String, String> described = new TreeMap<>();
+        bulkheads.forEach((tool, bulkhead) -> described.put(tool, bulkhead.getMaxConcurrent() + "/" + bulkhead.getMaxQueue()));
+        return described;
+    }
+
+    private static int[] parseLimit(String tool, String spec) {
+        String[] parts = spec.trim().split("/");
+        try {
+            if (parts.length == 2) {
+                return new int[] {Integer.parseInt(parts[0].trim()), Integer.parseInt(parts[1].trim())};
+            }
+        } catch (NumberFormatException e) {
+            // reported below
+        }
+        throw new IllegalStateException("Bulkhead limit '" + spec + "' of " + tool + " is not concurrent/queue");
+    }
+
+    /**
+     * A call turned away by its tool's bulkhead
+     */
+    public static class RejectedException extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        private final String tool;
+
+        public RejectedException(String tool, String reason) {
+            super("Tool " + tool + " is at capacity (" + reason + "), retry later");
+            this.tool = tool;
+        }
+
+        public String getTool() {
+            return tool;
+        }
+    }
+}
@@ -0,0 +1,470 @@
+package com.insurance.mcp.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.insurance.mcp.model.McpResponse;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The {@code tools/pipeline} method: a small DAG of tool calls executed server-side. Arguments
+ * may reference earlier results as {@code "$step"} or {@code "$step.path.0.field"}; a step with
+ * {@code for_each} runs once per element of a referenced list, the element being {@code "$item"}
+ * and its position {@code "$index"}. Independent steps and the calls of a {@code for_each} run in
+ * parallel, intermediate results stay on the server and only the requested outputs are returned.
+ */
+@Slf4j
+@Service
+public class ToolPipelineService {
+
+    private static final String ITEM = "item";
+    private static final String INDEX = "index";
+
+    @Autowired
+    private McpToolService mcpToolService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${mcp.pipeline.parallelism:8}")
+    private int parallelism;
+
+    @Value("${mcp.pipeline.max-steps:32}")
+    private int maxSteps;
+
+    @Value("${mcp.pipeline.max-fan-out:100}")
+    private int maxFanOut;
+
+    @Value("${mcp.pipeline.timeout-ms:60000}")
+    private long timeoutMs;
+
+    private ExecutorService pool;
+
+    @PostConstruct
+    public void initialize() {
+        AtomicInteger threads = new AtomicInteger();
+        pool = Executors.newFixedThreadPool(parallelism, runnable -> {
+            Thread thread = new Thread(runnable, "tool-pipeline-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    /**
+     * Execute the pipeline in {@code params}: {@code steps}, a list of {@code {id, tool, arguments,
+     * for_each}}, and {@code outputs}, step ids or a map of output names to references. Without
+     * {@code outputs}, the results of the steps nothing else references are returned.
+     */
+    public McpResponse execute(String id, Map<String, Object> params) {
+        List<Step> steps;
+        Map<String, String> outputs;
+        try {
+            steps = order(parseSteps(params));
+            outputs = parseOutputs(params, steps);
+        } catch (IllegalArgumentException e) {
+            return error(id, -32602, "Invalid pipeline: " + e.getMessage(), null);
+        }
+
+        long start = System.nanoTime();
+        Map<String, CompletableFuture<Object>> results = new ConcurrentHashMap<>();
+        Queue<CompletableFuture<?>> calls = new ConcurrentLinkedQueue<>();
+        CompletableFuture<Void> failure = new CompletableFuture<>();
+        // Set once the pipeline failed or timed out, so steps whose dependencies finish later never call their tools
+        AtomicBoolean aborted = new AtomicBoolean();
+        for (Step step : steps) {
+            CompletableFuture<?>[] dependencies = step.dependencies.stream().map(results::get)
+                    .toArray(CompletableFuture<?>[]::new);
+            CompletableFuture<Object> result = CompletableFuture.allOf(dependencies)
+                    .thenCompose(ready -> run(step, results, calls, aborted));
+            result.whenComplete((value, error) -> {
+                if (error != null) {
+                    aborted.set(true);
+                    failure.completeExceptionally(cause(error));
+                }
+            });
+            results.put(step.id, result);
+        }
+
+        try {
+            CompletableFuture.anyOf(CompletableFuture.allOf(results.values().toArray(new CompletableFuture<?>[0])), failure)
+                    .get(timeoutMs, TimeUnit.MILLISECONDS);
+            Map<String, Object> resolved = new LinkedHashMap<>();
+            for (Map.Entry<String, String> output : outputs.entrySet()) {
+                resolved.put(output.getKey(), resolve(output.getValue(), results, null, -1));
+            }
+            long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+            log.info("Pipeline of {} steps ({} tool calls) completed in {} ms", steps.size(), calls.size(), elapsedMs);
+
+            Map<String, Object> result = new HashMap<>();
+            result.put("outputs", resolved);
+            result.put("steps", steps.size());
+            result.put("tool_calls", calls.size());
+            result.put("elapsed_ms", elapsedMs);
+            return McpResponse.builder()
+                    .jsonrpc("2.0")
+                    .id(id)
+                    .result(result)
+                    .build();
+        } catch (ExecutionException e) {
+            Throwable cause = cause(e.getCause());
+            if (cause instanceof StepFailure failed) {
+                return error(id, -32603, failed.getMessage(), Map.of("step", failed.step, "tool", failed.tool));
+            }
+            log.error("Pipeline failed", cause);
+            return error(id, -32603, "Pipeline failed: " + cause.getMessage(), null);
+        } catch (TimeoutException e) {
+            return error(id, -32603, "Pipeline timed out after " + timeoutMs + " ms", null);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return error(id, -32603, "Pipeline interrupted", null);
+        } catch (IllegalArgumentException e) {
+            return error(id, -32602, "Invalid pipeline output: " + e.getMessage(), null);
+        } finally {
+            // Calls not started yet when the pipeline failed or timed out are skipped
+            aborted.set(true);
+            calls.forEach(call -> call.cancel(false));
+        }
+    }
+
+    /**
+     * Submit the tool calls of one step once its dependencies are done; a {@code for_each} step
+     * completes with the list of its results in element order
+     */
+    private CompletableFuture<Object> run(Step step, Map<String, CompletableFuture<Object>> results,
+                                          Queue<CompletableFuture<?>> calls, AtomicBoolean aborted) {
+        if (aborted.get()) {
+            return CompletableFuture.failedFuture(new StepFailure(step, -1, "pipeline aborted"));
+        }
+        if (step.forEach == null) {
+            return submit(step, -1, () -> resolveArguments(step, results, null, -1), calls, aborted);
+        }
+        Object items;
+        try {
+            items = resolve(step.forEach, results, null, -1);
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.failedFuture(new StepFailure(step, -1, e.getMessage()));
+        }
+        if (!(items instanceof List<?> list)) {
+            return CompletableFuture.failedFuture(new StepFailure(step, -1, "for_each " + step.forEach + " is not a list"));
+        }
+        if (list.size() > maxFanOut) {
+            return CompletableFuture.failedFuture(new StepFailure(step, -1,
+                    "for_each of " + list.size() + " items exceeds max-fan-out " + maxFanOut));
+        }
+        List<CompletableFuture<Object>> each = new ArrayList<>(list.size());
+        for (int i = 0; i < list.size(); i++) {
+            Object item = list.get(i);
+            int index = i;
+            each.add(submit(step, index, () -> resolveArguments(step, results, item, index), calls, aborted));
+        }
+        return CompletableFuture.allOf(each.toArray(new CompletableFuture<?>[0]))
+                .thenApply(done -> each.stream().map(CompletableFuture::join).toList());
+    }
+
+    private CompletableFuture<Object> submit(Step step, int index, ArgumentSupplier arguments,
+                                             Queue<CompletableFuture<?>> calls, AtomicBoolean aborted) {
+        CompletableFuture<Object> call = CompletableFuture.supplyAsync(() -> {
+            // Queued calls may start after the pipeline gave up, before the final cancel reaches them
+            if (aborted.get()) {
+                throw new StepFailure(step, index, "pipeline aborted");
+            }
+            Map<String, Object> resolved;
+            try {
+                resolved = arguments.get();
+            } catch (IllegalArgumentException e) {
+                throw new StepFailure(step, index, e.getMessage());
+            }
+            McpResponse response = mcpToolService.callTool(step.id, step.tool, resolved);
+            if (response.getError() != null) {
+                throw new StepFailure(step, index, response.getError().getMessage());
+            }
+            // Plain maps and lists, as a client would have received them, so later steps can navigate
+            // them; a round trip through JSON because some results splice in pre-serialized parts
+            if (!(response.getResult() instanceof Map<?, ?> result)) {
+                throw new StepFailure(step, index, "Result is not an object");
+            }
+            try {
+                return objectMapper.readValue(objectMapper.writeValueAsBytes(result.get("content")), Object.class);
+            } catch (IOException e) {
+                throw new StepFailure(step, index, "Unreadable result: " + e.getMessage());
+            }
+        }, pool);
+        calls.add(call);
+        return call;
+    }
+
+    @FunctionalInterface
+    private interface ArgumentSupplier {
+        Map<String, Object> get();
+    }
+
+    /**
+     * The arguments of one call of {@code step}, with references resolved
+     */
+    private Map<String, Object> resolveArguments(Step step, Map<String, CompletableFuture<Object>> results,
+                                                 Object item, int index) {
+        if (!(step.arguments instanceof Map<?, ?> map)) {
+            throw new IllegalArgumentException("arguments of step " + step.id + " must be an object");
+        }
+        return resolveMap(map, results, item, index);
+    }
+
+    /**
+     * Copy {@code value}, replacing every reference string with the value it refers to
+     */
+    private Object resolveTree(Object value, Map<String, CompletableFuture<Object>> results, Object item, int index) {
+        if (value instanceof String text) {
+            return resolve(text, results, item, index);
+        }
+        if (value instanceof Map<?, ?> map) {
+            return resolveMap(map, results, item, index);
+        }
+        if (value instanceof List<?> list) {
+            List<Object> copy = new ArrayList<>(list.size());
+            list.forEach(nested -> copy.add(resolveTree(nested, results, item, index)));
+            return copy;
+        }
+        return value;
+    }
+
+    private Map<String, Object> resolveMap(Map<?, ?> map, Map<String, CompletableFuture<Object>> results,
+                                           Object item, int index) {
+        Map<String, Object> copy = new LinkedHashMap<>();
+        map.forEach((key, nested) -> copy.put(String.valueOf(key), resolveTree(nested, results, item, index)));
+        return copy;
+    }
+
+    /**
+     * The value of a {@code $step.path} reference, or {@code text} itself when it is no reference;
+     * {@code $$} escapes a literal leading dollar sign
+     */
+    private Object resolve(String text, Map<String, CompletableFuture<Object>> results, Object item, int index) {
+        if (!text.startsWith("$")) {
+            return text;
+        }
+        if (text.startsWith("$$")) {
+            return text.substring(1);
+        }
+        String[] path = text.substring(1).split("\\.");
+        Object value;
+        if (ITEM.equals(path[0]) && index >= 0) {
+            value = item;
+        } else if (INDEX.equals(path[0]) && index >= 0) {
+            value = index;
+        } else {
+            CompletableFuture<Object> result = results.get(path[0]);
+            if (result == null || !result.isDone()) {
+                throw new IllegalArgumentException("Reference " + text + " to no completed step");
+            }
+            value = result.join();
+        }
+        for (int i = 1; i < path.length; i++) {
+            String segment = path[i];
+            if (value instanceof Map<?, ?> map && map.containsKey(segment)) {
+                value = map.get(segment);
+            } else if (value instanceof List<?> list && segment.matches("\\d+") && Integer.parseInt(segment) < list.size()) {
+                value = list.get(Integer.parseInt(segment));
+            } else {
+                throw new IllegalArgumentException("Reference " + text + ": no '" + segment + "'");
+            }
+        }
+        return value;
+    }
+
+    private List<Step> parseSteps(Map<String, Object> params) {
+        Object raw = params != null ? params.get("steps") : null;
+        if (!(raw instanceof List<?> list) || list.isEmpty()) {
+            throw new IllegalArgumentException("steps must be a non-empty list");
+        }
+        if (list.size() > maxSteps) {
+            throw new IllegalArgumentException(list.size() + " steps exceed max-steps " + maxSteps);
+        }
+        Map<String, Step> steps = new LinkedHashMap<>();
+        for (Object entry : list) {
+            if (!(entry instanceof Map<?, ?> map) || !(map.get("id") instanceof String stepId) || !(map.get("tool") instanceof String tool)) {
+                throw new IllegalArgumentException("Every step needs a string id and tool");
+            }
+            if (!stepId.matches("[A-Za-z_][A-Za-z0-9_-]*") || ITEM.equals(stepId) || INDEX.equals(stepId)) {
+                throw new IllegalArgumentException("Invalid step id: " + stepId);
+            }
+            Object arguments = map.get("arguments") != null ? map.get("arguments") : Map.of();
+            if (!(arguments instanceof Map)) {
+                throw new IllegalArgumentException("arguments of step " + stepId + " must be an object");
+            }
+            Object forEach = map.get("for_each");
+            if (forEach != null && !(forEach instanceof String text && text.startsWith("$") && !text.startsWith("$$"))) {
+                throw new IllegalArgumentException("for_each of step " + stepId + " must be a $reference");
+            }
+            Step step = new Step(stepId, tool, arguments, (String) forEach);
+            if (steps.put(stepId, step) != null) {
+                throw new IllegalArgumentException("Duplicate step id: " + stepId);
+            }
+        }
+        for (Step step : steps.values()) {
+            if (step.forEach != null) {
+                collectReferences(step.forEach, step.dependencies, false);
+            }
+            collectReferences(step.arguments, step.dependencies, step.forEach != null);
+            for (String dependency : step.dependencies) {
+                if (!steps.containsKey(dependency)) {
+                    throw new IllegalArgumentException("Step " + step.id + " references unknown step " + dependency);
+                }
+            }
+        }
+        return new ArrayList<>(steps.values());
+    }
+
+    private Map<String, String> parseOutputs(Map<String, Object> params, List<Step> steps) {
+        Set<String> ids = new LinkedHashSet<>();
+        steps.forEach(step -> ids.add(step.id));
+        Map<String, String> outputs = new LinkedHashMap<>();
+        Object raw = params.get("outputs");
+        if (raw == null) {
+            Set<String> referenced = new LinkedHashSet<>();
+            steps.forEach(step -> referenced.addAll(step.dependencies));
+            ids.stream().filter(stepId -> !referenced.contains(stepId)).forEach(stepId -> outputs.put(stepId, "$" + stepId));
+        } else if (raw instanceof List<?> list) {
+            list.forEach(stepId -> outputs.put(String.valueOf(stepId), "$" + stepId));
+        } else if (raw instanceof Map<?, ?> map) {
+            map.forEach((name, reference) -> outputs.put(String.valueOf(name), String.valueOf(reference)));
+        } else {
+            throw new IllegalArgumentException("outputs must be a list of step ids or a map of names to references");
+        }
+        for (Map.Entry<String, String> output : outputs.entrySet()) {
+            Set<String> referenced = new LinkedHashSet<>();
+            collectReferences(output.getValue(), referenced, false);
+            if (referenced.isEmpty() || !ids.containsAll(referenced)) {
+                throw new IllegalArgumentException("Output " + output.getKey() + " must reference a step, got " + output.getValue());
+            }
+        }
+        return outputs;
+    }
+
+    /**
+     * Step ids referenced anywhere in {@code value}; {@code $item} and {@code $index} only inside {@code for_each} steps
+     */
+    private static void collectReferences(Object value, Set<String> references, boolean inForEach) {
+        if (value instanceof String text) {
+            if (text.startsWith("$") && !text.startsWith("$$")) {
+                String stepId = text.substring(1).split("\\.", 2)[0];
+                if (!inForEach || !ITEM.equals(stepId) && !INDEX.equals(stepId)) {
+                    references.add(stepId);
+                }
+            }
+        } else if (value instanceof Map<?, ?> map) {
+            map.values().forEach(nested -> collectReferences(nested, references, inForEach));
+        } else if (value instanceof Collection<?> list) {
+            list.forEach(nested -> collectReferences(nested, references, inForEach));
+        }
+    }
+
+    /**
+     * Steps in dependency order, rejecting cycles
+     */
+    private static List<Step> order(List<Step> steps) {
+        Map<String, Integer> pending = new HashMap<>();
+        Map<String, List<Step>> dependents = new HashMap<>();
+        Deque<Step> ready = new ArrayDeque<>();
+        for (Step step : steps) {
+            pending.put(step.id, step.dependencies.size());
+            step.dependencies.forEach(dependency -> dependents.computeIfAbsent(dependency, key -> new ArrayList<>()).add(step));
+            if (step.dependencies.isEmpty()) {
+                ready.add(step);
+            }
+        }
+        List<Step> ordered = new ArrayList<>(steps.size());
+        while (!ready.isEmpty()) {
+            Step step = ready.poll();
+            ordered.add(step);
+            for (Step dependent : dependents.getOrDefault(step.id, List.of())) {
+                if (pending.merge(dependent.id, -1, Integer::sum) == 0) {
+                    ready.add(dependent);
+                }
+            }
+        }
+        if (ordered.size() < steps.size()) {
+            List<String> cyclic = steps.stream().filter(step -> !ordered.contains(step)).map(step -> step.id).toList();
+            throw new IllegalArgumentException("Steps form a cycle: " + cyclic);
+        }
+        return ordered;
+    }
+
+    private static Throwable cause(Throwable error) {
+        while ((error instanceof CompletionException || error instanceof ExecutionException) && error.getCause() != null) {
+            error = error.getCause();
+        }
+        return error;
+    }
+
+    private static McpResponse error(String id, int code, String message, Object data) {
+        return McpResponse.builder()
+                .jsonrpc("2.0")
+                .id(id)
+                .error(McpResponse.McpError.builder()
+                        .code(code)
+                        .message(message)
+                        .data(data)
+                        .build())
+                .build();
+    }
+
+    private static final class Step {
+        private final String id;
+        private final String tool;
+        private final Object arguments;
+        private final String forEach;
+        private final Set<String> dependencies = new LinkedHashSet<>();
+
+        private Step(String id, String tool, Object arguments, String forEach) {
+            this.id = id;
+            this.tool = tool;
+            this.arguments = arguments;
+            this.forEach = forEach;
+        }
+    }
+
+    private static final class StepFailure extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        private final String step;
+        private final String tool;
+
+        private StepFailure(Step step, int index, String message) {
+            super("Step " + step.id + (index >= 0 ? "[" + index + "]" : "") + " (" + step.tool + ") failed: " + message);
+            this.step = step.id;
+            this.tool = step.tool;
+        }
+    }
+}
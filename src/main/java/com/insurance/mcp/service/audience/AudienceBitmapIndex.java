@@ -0,0 +1,266 @@
+package com.insurance.mcp.service.audience;
+
+import com.insurance.mcp.model.campaign.AudienceCriteria;
+import com.insurance.mcp.model.campaign.GeoFilter;
+import com.insurance.mcp.service.audience.bitmap.RoaringBitmap;
+import com.insurance.mcp.service.audience.geo.GeoCellEstimate;
+import com.insurance.mcp.service.audience.geo.GeoGridIndex;
+import com.insurance.mcp.service.audience.geo.GeoRegion;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Per-value compressed bitmap indexes over a {@link ProfileSegment}.
+ * A criteria becomes OR-within-attribute and AND-across-attribute bitmap operations;
+ * ages are range-encoded ({@code ageAtMost[a]} holds every row with age <= a) so any
+ * age range costs a single and-not; rows of unknown age are in no age bitmap, so only criteria
+ * without an age bound match them. Geo filters resolve through a grid index over the
+ * customer coordinates; the last region's bitmap is kept since campaigns re-run one region
+ * with varying attribute filters.
+ */
+public final class AudienceBitmapIndex {
+
+    private static final int MAX_AGE = Byte.MAX_VALUE;
+
+    public static final double DEFAULT_GEO_CELL_DEGREES = 0.05;
+    private static final int MAX_GEO_CELLS = 4 << 20;
+
+    private final int rowCount;
+    private final RoaringBitmap[][] valueBitmaps;
+    private final ValueDictionary[] dictionaries;
+    private final RoaringBitmap[] ageAtMost;
+    private final RoaringBitmap allRows;
+    private final GeoGridIndex geoGrid;
+    private volatile GeoTerm lastGeoTerm;
+
+    private AudienceBitmapIndex(int rowCount, RoaringBitmap[][] valueBitmaps, ValueDictionary[] dictionaries,
+                                RoaringBitmap[] ageAtMost, RoaringBitmap allRows, GeoGridIndex geoGrid) {
+        this.rowCount = rowCount;
+        this.valueBitmaps = valueBitmaps;
+        this.dictionaries = dictionaries;
+        this.ageAtMost = ageAtMost;
+        this.allRows = allRows;
+        this.geoGrid = geoGrid;
+    }
+
+    public static AudienceBitmapIndex build(ProfileSegment segment) {
+        return build(segment, DEFAULT_GEO_CELL_DEGREES);
+    }
+
+    public static AudienceBitmapIndex build(ProfileSegment segment, double geoCellDegrees) {
+        int rows = segment.size();
+        ProfileAttribute[] attributes = ProfileAttribute.all();
+        RoaringBitmap[][] valueBitmaps = new RoaringBitmap[attributes.length][];
+        ValueDictionary[] dictionaries = new ValueDictionary[attributes.length];
+        short[] codes = new short[CompiledCriteria.BLOCK_SIZE];
+        int[] tags = new int[CompiledCriteria.BLOCK_SIZE];
+
+        for (ProfileAttribute attribute : attributes) {
+            ValueDictionary dictionary = segment.dictionary(attribute);
+            RoaringBitmap.Builder[] builders = newBuilders(dictionary.size());
+            for (int start = 0; start < rows; start += CompiledCriteria.BLOCK_SIZE) {
+                int length = Math.min(CompiledCriteria.BLOCK_SIZE, rows - start);
+                if (attribute.isMultiValued()) {
+                    segment.readTags(attribute, start, length, tags);
+                    for (int j = 0; j < length; j++) {
+                        int bits = tags[j];
+                        while (bits != 0) {
+                            builders[Integer.numberOfTrailingZeros(bits) + 1].add(start + j);
+                            bits &= bits - 1;
+                        }
+                    }
+                } else {
+                    segment.readCodes(attribute, start, length, codes);
+                    for (int j = 0; j < length; j++) {
+                        builders[codes[j]].add(start + j);
+                    }
+                }
+            }
+            valueBitmaps[attribute.ordinal()] = buildAll(builders);
+            dictionaries[attribute.ordinal()] = dictionary;
+        }
+
+        // Equality bitmaps per age, then prefix unions for the range encoding
+        RoaringBitmap.Builder[] ageBuilders = newBuilders(MAX_AGE + 1);
+        byte[] ages = new byte[CompiledCriteria.BLOCK_SIZE];
+        for (int start = 0; start < rows; start += CompiledCriteria.BLOCK_SIZE) {
+            int length = Math.min(CompiledCriteria.BLOCK_SIZE, rows - start);
+            segment.readAges(start, length, ages);
+            for (int j = 0; j < length; j++) {
+                if (ages[j] >= 0) {
+                    ageBuilders[ages[j]].add(start + j);
+                }
+            }
+        }
+        RoaringBitmap[] ageAtMost = new RoaringBitmap[MAX_AGE + 1];
+        RoaringBitmap running = RoaringBitmap.empty();
+        for (int age = 0; age <= MAX_AGE; age++) {
+            RoaringBitmap exact = ageBuilders[age].build();
+            running = exact.isEmpty() ? running : running.or(exact);
+            ageAtMost[age] = running;
+        }
+
+        RoaringBitmap.Builder all = RoaringBitmap.builder();
+        for (int row = 0; row < rows; row++) {
+            all.add(row);
+        }
+
+        GeoGridIndex geoGrid = GeoGridIndex.build(segment, geoCellDegrees, MAX_GEO_CELLS);
+        return new AudienceBitmapIndex(rows, valueBitmaps, dictionaries, ageAtMost, all.build(), geoGrid);
+    }
+
+    public int rowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Rows matching the criteria
+     */
+    public RoaringBitmap evaluate(AudienceCriteria criteria) {
+        List<RoaringBitmap> terms = terms(criteria);
+        if (terms.isEmpty()) {
+            return RoaringBitmap.empty();
+        }
+        RoaringBitmap result = terms.get(0);
+        for (int i = 1; i < terms.size() && !result.isEmpty(); i++) {
+            result = result.and(terms.get(i));
+        }
+        return result;
+    }
+
+    /**
+     * Number of matching rows; the last intersection is counted without being materialized
+     */
+    public long count(AudienceCriteria criteria) {
+        List<RoaringBitmap> terms = terms(criteria);
+        if (terms.isEmpty()) {
+            return 0;
+        }
+        RoaringBitmap result = terms.get(0);
+        int last = terms.size() - 1;
+        for (int i = 1; i < last && !result.isEmpty(); i++) {
+            result = result.and(terms.get(i));
+        }
+        return last == 0 ? result.cardinality() : result.andCardinality(terms.get(last));
+    }
+
+    public GeoGridIndex geoGrid() {
+        return geoGrid;
+    }
+
+    /**
+     * Coarse size of a geo filter from grid cell counts, ignoring attribute filters
+     */
+    public GeoCellEstimate estimateGeo(GeoFilter geo) {
+        return geoGrid.estimate(GeoRegion.of(geo));
+    }
+
+    public long sizeInBytes() {
+        long bytes = allRows.sizeInBytes();
+        for (RoaringBitmap[] bitmaps : valueBitmaps) {
+            for (RoaringBitmap bitmap : bitmaps) {
+                bytes += bitmap.sizeInBytes();
+            }
+        }
+        RoaringBitmap previous = null;
+        for (RoaringBitmap bitmap : ageAtMost) {
+            if (bitmap != previous) {
+                bytes += bitmap.sizeInBytes();
+                previous = bitmap;
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * One bitmap per constrained attribute, smallest first so intersections shrink early;
+     * an empty list means nothing can match
+     */
+    private List<RoaringBitmap> terms(AudienceCriteria criteria) {
+        List<RoaringBitmap> terms = new ArrayList<>();
+        if (criteria.getMinAge() != null || criteria.getMaxAge() != null) {
+            terms.add(ageRange(criteria.getMinAge(), criteria.getMaxAge()));
+        }
+        for (ProfileAttribute attribute : ProfileAttribute.all()) {
+            List<String> accepted = attribute.criteriaValues(criteria);
+            if (accepted == null || accepted.isEmpty()) {
+                continue;
+            }
+            List<RoaringBitmap> alternatives = new ArrayList<>(accepted.size());
+            for (String value : accepted) {
+                int code = dictionaries[attribute.ordinal()].code(value);
+                if (code > 0) {
+                    alternatives.add(valueBitmaps[attribute.ordinal()][code]);
+                }
+            }
+            if (alternatives.isEmpty()) {
+                return List.of();
+            }
+            terms.add(RoaringBitmap.or(alternatives));
+        }
+        if (criteria.getGeo() != null) {
+            terms.add(geoBitmap(criteria.getGeo()));
+        }
+        if (terms.isEmpty()) {
+            return allRows.isEmpty() ? List.of() : List.of(allRows);
+        }
+        terms.sort(Comparator.comparingLong(RoaringBitmap::cardinality));
+        return terms.get(0).isEmpty() ? List.of() : terms;
+    }
+
+    private RoaringBitmap geoBitmap(GeoFilter geo) {
+        GeoTerm cached = lastGeoTerm;
+        if (cached != null && cached.filter.equals(geo)) {
+            return cached.rows;
+        }
+        RoaringBitmap rows = geoGrid.evaluate(GeoRegion.of(geo));
+        // Cache a copy so later edits to the caller's filter cannot alias the cached rows
+        List<List<Double>> polygon = null;
+        if (geo.getPolygon() != null) {
+            polygon = new ArrayList<>();
+            for (List<Double> vertex : geo.getPolygon()) {
+                polygon.add(List.copyOf(vertex));
+            }
+        }
+        lastGeoTerm = new GeoTerm(new GeoFilter(geo.getLatitude(), geo.getLongitude(), geo.getRadiusKm(), polygon), rows);
+        return rows;
+    }
+
+    private RoaringBitmap ageRange(Integer minAge, Integer maxAge) {
+        int min = minAge != null ? Math.max(0, minAge) : 0;
+        int max = maxAge != null ? Math.min(MAX_AGE, maxAge) : MAX_AGE;
+        if (min > max) {
+            return RoaringBitmap.empty();
+        }
+        RoaringBitmap atMost = ageAtMost[max];
+        return min == 0 ? atMost : atMost.andNot(ageAtMost[min - 1]);
+    }
+
+    private static RoaringBitmap.Builder[] newBuilders(int count) {
+        RoaringBitmap.Builder[] builders = new RoaringBitmap.Builder[count];
+        for (int i = 0; i < count; i++) {
+            builders[i] = RoaringBitmap.builder();
+        }
+        return builders;
+    }
+
+    private static RoaringBitmap[] buildAll(RoaringBitmap.Builder[] builders) {
+        RoaringBitmap[] bitmaps = new RoaringBitmap[builders.length];
+        for (int i = 0; i < builders.length; i++) {
+            bitmaps[i] = builders[i].build();
+        }
+        return bitmaps;
+    }
+
+    private static final class GeoTerm {
+        final GeoFilter filter;
+        final RoaringBitmap rows;
+
+        GeoTerm(GeoFilter filter, RoaringBitmap rows) {
+            this.filter = filter;
+            this.rows = rows;
+        }
+    }
+}
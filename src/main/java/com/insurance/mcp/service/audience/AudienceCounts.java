@@ -0,0 +1,22 @@
+package com.insurance.mcp.service.audience;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Exact audience counts for a list of criteria, in request order
+ */
+@Data
+@AllArgsConstructor
+public class AudienceCounts {
+
+    private long[] counts;
+
+    /** "bitmap_index", "column_scan" or "parallel_column_scan" */
+    private String method;
+
+    private int population;
+
+    /** Dataset path of the profiles counted, {@code synthetic} or {@code empty} */
+    private String source;
+}
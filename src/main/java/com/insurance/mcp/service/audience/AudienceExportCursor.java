@@ -0,0 +1,183 @@
+package com.insurance.mcp.service.audience;
+
+import com.insurance.mcp.model.campaign.AudienceCriteria;
+import com.insurance.mcp.service.audience.identity.IdentityClusters;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.LongPredicate;
+
+/**
+ * Pull-based scan over the customers matching any of a set of criteria. Rows are
+ * evaluated one block at a time only when the consumer asks for more ids, so a
+ * slow consumer pauses the scan and memory stays at one block regardless of
+ * audience size. Parts of the snapshot are walked in order, each with criteria compiled
+ * against its own dictionaries and its deleted rows skipped. With identity clusters only the
+ * first record of each identity is emitted. Customer ids matching an {@link #exclude exclusion}
+ * (e.g. the suppression list) are skipped and counted. Not thread-safe; callers hand a cursor to
+ * one thread at a time.
+ */
+public final class AudienceExportCursor {
+
+    private final String id;
+    private final List<ProfilePart> parts;
+    private final List<AudienceCriteria> criteriaList;
+    private final Long expectedSize;
+    private final IdentityClusters clusters;
+    private final IdentityClusters.ClusterSet seen;
+    private final CompiledCriteria.Scratch scratch = new CompiledCriteria.Scratch();
+    private final byte[] matches = new byte[CompiledCriteria.BLOCK_SIZE];
+    private final long[] blockIds = new long[CompiledCriteria.BLOCK_SIZE];
+
+    private int partIndex = -1;
+    private ProfilePart part;
+    private CompiledCriteria[] criteria;
+    private int nextRow;
+    private int pendingFrom;
+    private int pendingTo;
+    private LongPredicate excluded;
+    private long exported;
+    private long excludedCount;
+    private int chunks;
+    private volatile long lastAccessMillis = System.currentTimeMillis();
+
+    public AudienceExportCursor(String id, List<ProfilePart> parts, List<AudienceCriteria> criteriaList,
+                                Long expectedSize) {
+        this(id, parts, criteriaList, expectedSize, null);
+    }
+
+    public AudienceExportCursor(String id, List<ProfilePart> parts, List<AudienceCriteria> criteriaList,
+                                Long expectedSize, IdentityClusters clusters) {
+        this.id = id;
+        this.parts = parts;
+        this.criteriaList = criteriaList;
+        this.expectedSize = expectedSize;
+        this.clusters = clusters;
+        this.seen = clusters != null ? clusters.newClusterSet() : null;
+    }
+
+    /**
+     * Skip customer ids matching {@code predicate}; set before the first {@link #next}
+     */
+    public AudienceExportCursor exclude(LongPredicate predicate) {
+        this.excluded = predicate;
+        return this;
+    }
+
+    /**
+     * Fill {@code dst} with up to {@code dst.length} further customer ids;
+     * returns how many were written, 0 once the audience is exhausted
+     */
+    public int next(long[] dst) {
+        lastAccessMillis = System.currentTimeMillis();
+        int written = 0;
+        while (written < dst.length) {
+            if (pendingFrom == pendingTo && !evaluateNextBlock()) {
+                break;
+            }
+            int take = Math.min(dst.length - written, pendingTo - pendingFrom);
+            System.arraycopy(blockIds, pendingFrom, dst, written, take);
+            pendingFrom += take;
+            written += take;
+        }
+        exported += written;
+        if (written > 0) {
+            chunks++;
+        }
+        return written;
+    }
+
+    public boolean hasMore() {
+        if (pendingFrom < pendingTo) {
+            return true;
+        }
+        // Look ahead so the last chunk can be flagged as last
+        return evaluateNextBlock();
+    }
+
+    private boolean evaluateNextBlock() {
+        while (true) {
+            while (part == null || nextRow >= part.segment().size()) {
+                if (++partIndex >= parts.size()) {
+                    return false;
+                }
+                openPart(parts.get(partIndex));
+            }
+            ProfileSegment segment = part.segment();
+            int rows = segment.size();
+            while (nextRow < rows) {
+                int start = nextRow;
+                int length = Math.min(CompiledCriteria.BLOCK_SIZE, rows - start);
+                nextRow += length;
+
+                Arrays.fill(matches, 0, length, (byte) 0);
+                for (CompiledCriteria compiled : criteria) {
+                    if (compiled.isEmpty()) {
+                        continue;
+                    }
+                    byte[] selection = compiled.select(segment, start, length, scratch);
+                    for (int j = 0; j < length; j++) {
+                        matches[j] |= selection[j];
+                    }
+                }
+                CompiledCriteria.clearDeleted(matches, start, length, part.deletes());
+                int count = 0;
+                for (int j = 0; j < length; j++) {
+                    if (matches[j] != 0 && (seen == null || seen.add(clusters.cluster(partIndex, start + j)))) {
+                        long customerId = segment.customerId(start + j);
+                        if (excluded != null && excluded.test(customerId)) {
+                            excludedCount++;
+                        } else {
+                            blockIds[count++] = customerId;
+                        }
+                    }
+                }
+                if (count > 0) {
+                    pendingFrom = 0;
+                    pendingTo = count;
+                    return true;
+                }
+            }
+            // Part exhausted; continue with the next one
+        }
+    }
+
+    private void openPart(ProfilePart next) {
+        part = next;
+        nextRow = 0;
+        criteria = new CompiledCriteria[criteriaList.size()];
+        for (int i = 0; i < criteria.length; i++) {
+            criteria[i] = CompiledCriteria.compile(criteriaList.get(i), next.segment());
+        }
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * Exact audience size when known up front (bitmap index available), otherwise null
+     */
+    public Long getExpectedSize() {
+        return expectedSize;
+    }
+
+    public long getExported() {
+        return exported;
+    }
+
+    /**
+     * Matching customer ids skipped so far because they were excluded
+     */
+    public long getExcluded() {
+        return excludedCount;
+    }
+
+    public int getChunks() {
+        return chunks;
+    }
+
+    public long getLastAccessMillis() {
+        return lastAccessMillis;
+    }
+}
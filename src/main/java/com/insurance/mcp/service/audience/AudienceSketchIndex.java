@@ -0,0 +1,147 @@
+package com.insurance.mcp.service.audience;
+
+import com.insurance.mcp.model.campaign.AudienceCriteria;
+import com.insurance.mcp.service.audience.sketch.HyperLogLog;
+
+import java.util.List;
+
+/**
+ * HyperLogLog sketch of the customers holding each attribute value and each age,
+ * built in one pass over a {@link ProfileSegment}. Criteria that constrain a single
+ * dimension are answered by merging value sketches without touching any rows.
+ */
+public final class AudienceSketchIndex {
+
+    private static final int MAX_AGE = Byte.MAX_VALUE;
+
+    private final int precision;
+    private final HyperLogLog[][] valueSketches;
+    private final ValueDictionary[] dictionaries;
+    private final HyperLogLog[] ageSketches;
+    /** Every customer, including those without an age */
+    private final HyperLogLog allSketch;
+
+    private AudienceSketchIndex(int precision, HyperLogLog[][] valueSketches, ValueDictionary[] dictionaries,
+                                HyperLogLog[] ageSketches, HyperLogLog allSketch) {
+        this.precision = precision;
+        this.valueSketches = valueSketches;
+        this.dictionaries = dictionaries;
+        this.ageSketches = ageSketches;
+        this.allSketch = allSketch;
+    }
+
+    public static AudienceSketchIndex build(ProfileSegment segment, int precision) {
+        int rows = segment.size();
+        ProfileAttribute[] attributes = ProfileAttribute.all();
+        HyperLogLog[][] valueSketches = new HyperLogLog[attributes.length][];
+        ValueDictionary[] dictionaries = new ValueDictionary[attributes.length];
+        for (ProfileAttribute attribute : attributes) {
+            dictionaries[attribute.ordinal()] = segment.dictionary(attribute);
+            valueSketches[attribute.ordinal()] = newSketches(segment.dictionary(attribute).size(), precision);
+        }
+        HyperLogLog[] ageSketches = newSketches(MAX_AGE + 1, precision);
+        HyperLogLog allSketch = new HyperLogLog(precision);
+
+        long[] hashes = new long[CompiledCriteria.BLOCK_SIZE];
+        byte[] ages = new byte[CompiledCriteria.BLOCK_SIZE];
+        short[] codes = new short[CompiledCriteria.BLOCK_SIZE];
+        int[] tags = new int[CompiledCriteria.BLOCK_SIZE];
+        for (int start = 0; start < rows; start += CompiledCriteria.BLOCK_SIZE) {
+            int length = Math.min(CompiledCriteria.BLOCK_SIZE, rows - start);
+            for (int j = 0; j < length; j++) {
+                hashes[j] = HyperLogLog.hash(segment.customerId(start + j));
+                allSketch.addHash(hashes[j]);
+            }
+            segment.readAges(start, length, ages);
+            for (int j = 0; j < length; j++) {
+                if (ages[j] >= 0) {
+                    ageSketches[ages[j]].addHash(hashes[j]);
+                }
+            }
+            for (ProfileAttribute attribute : attributes) {
+                HyperLogLog[] sketches = valueSketches[attribute.ordinal()];
+                if (attribute.isMultiValued()) {
+                    segment.readTags(attribute, start, length, tags);
+                    for (int j = 0; j < length; j++) {
+                        int bits = tags[j];
+                        while (bits != 0) {
+                            sketches[Integer.numberOfTrailingZeros(bits) + 1].addHash(hashes[j]);
+                            bits &= bits - 1;
+                        }
+                    }
+                } else {
+                    segment.readCodes(attribute, start, length, codes);
+                    for (int j = 0; j < length; j++) {
+                        sketches[codes[j]].addHash(hashes[j]);
+                    }
+                }
+            }
+        }
+        return new AudienceSketchIndex(precision, valueSketches, dictionaries, ageSketches, allSketch);
+    }
+
+    public int getPrecision() {
+        return precision;
+    }
+
+    /**
+     * Sketch of the criteria's audience when it constrains at most one dimension
+     * (an age range or a single attribute) and has no geo filter, otherwise null
+     */
+    public HyperLogLog sketchFor(AudienceCriteria criteria) {
+        if (criteria.getGeo() != null) {
+            return null;
+        }
+        ProfileAttribute constrained = null;
+        for (ProfileAttribute attribute : ProfileAttribute.all()) {
+            List<String> accepted = attribute.criteriaValues(criteria);
+            if (accepted != null && !accepted.isEmpty()) {
+                if (constrained != null) {
+                    return null;
+                }
+                constrained = attribute;
+            }
+        }
+        boolean ageConstrained = criteria.getMinAge() != null || criteria.getMaxAge() != null;
+        if (constrained != null && ageConstrained) {
+            return null;
+        }
+
+        HyperLogLog sketch = new HyperLogLog(precision);
+        if (constrained == null && !ageConstrained) {
+            sketch.merge(allSketch);
+            return sketch;
+        }
+        if (constrained == null) {
+            int min = criteria.getMinAge() != null ? Math.max(0, criteria.getMinAge()) : 0;
+            int max = criteria.getMaxAge() != null ? Math.min(MAX_AGE, criteria.getMaxAge()) : MAX_AGE;
+            for (int age = min; age <= max; age++) {
+                sketch.merge(ageSketches[age]);
+            }
+            return sketch;
+        }
+        for (String value : constrained.criteriaValues(criteria)) {
+            int code = dictionaries[constrained.ordinal()].code(value);
+            if (code > 0) {
+                sketch.merge(valueSketches[constrained.ordinal()][code]);
+            }
+        }
+        return sketch;
+    }
+
+    public long sizeInBytes() {
+        long bytes = (long) (ageSketches.length + 1) << precision;
+        for (HyperLogLog[] sketches : valueSketches) {
+            bytes += (long) sketches.length << precision;
+        }
+        return bytes;
+    }
+
+    private static HyperLogLog[] newSketches(int count, int precision) {
+        HyperLogLog[] sketches = new HyperLogLog[count];
+        for (int i = 0; i < count; i++) {
+            sketches[i] = new HyperLogLog(precision);
+        }
+        return sketches;
+    }
+}
@@ -0,0 +1,268 @@
+package com.insurance.mcp.service.audience;
+
+import com.insurance.mcp.model.campaign.AudienceCriteria;
+import com.insurance.mcp.service.audience.bitmap.RoaringBitmap;
+import com.insurance.mcp.service.audience.sketch.HyperLogLog;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Union and overlap estimates across criteria sets and saved audiences from mergeable
+ * HyperLogLog sketches. A criteria sketch is the union of one sketch per snapshot part.
+ * For the base part it comes from the per-value sketch index when one dimension is
+ * constrained and the base has no deletes. Sketches cannot be intersected, so criteria
+ * constraining several dimensions hash their matching rows instead. Part sketches are
+ * cached per part, so after an ingest only the new delta parts are hashed again, and
+ * repeated what-if queries only merge 16 KB register arrays.
+ */
+@Slf4j
+@Service
+public class AudienceSketchService {
+
+    /** Two-sided 95% confidence multiplier for the error bounds */
+    private static final double Z_95 = 1.96;
+
+    @Autowired
+    private CustomerProfileStore customerProfileStore;
+
+    @Value("${mcp.audience.sketch.precision:14}")
+    private int precision;
+
+    @Value("${mcp.audience.sketch.cache-size:256}")
+    private int cacheSize;
+
+    @Value("${mcp.audience.sketch.max-saved-audiences:1000}")
+    private int maxSavedAudiences;
+
+    private final Map<String, SavedAudience> savedAudiences = new ConcurrentHashMap<>();
+    private final Map<String, PartSketches> criteriaSketches = new LinkedHashMap<>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, PartSketches> eldest) {
+            return size() > cacheSize;
+        }
+    };
+
+    /**
+     * Union reach and pairwise overlap of {@code criteriaList} (with exact per-criteria counts),
+     * optionally saving the union as {@code saveAs} and comparing it with saved audiences
+     */
+    public Map<String, Object> overlapReport(List<AudienceCriteria> criteriaList, long[] exactCounts,
+                                             String saveAs, List<String> compareWith) {
+        long start = System.nanoTime();
+        ProfileSnapshot snapshot = customerProfileStore.snapshot();
+        List<HyperLogLog> sketches = new ArrayList<>(criteriaList.size());
+        long[] sketchEstimates = new long[criteriaList.size()];
+        for (AudienceCriteria criteria : criteriaList) {
+            HyperLogLog sketch = criteriaSketch(snapshot, criteria);
+            sketchEstimates[sketches.size()] = sketch.estimate();
+            sketches.add(sketch);
+        }
+        HyperLogLog union = HyperLogLog.union(sketches, precision);
+        long unionEstimate = union.estimate();
+        double rse = union.relativeStandardError();
+
+        List<Map<String, Object>> pairwise = new ArrayList<>();
+        for (int a = 0; a < sketches.size(); a++) {
+            for (int b = a + 1; b < sketches.size(); b++) {
+                HyperLogLog pair = sketches.get(a).copy();
+                pair.merge(sketches.get(b));
+                long smaller = Math.min(exactCounts[a], exactCounts[b]);
+                // The union of two sets is at least the larger and at most their sum
+                long pairUnion = Math.max(Math.max(exactCounts[a], exactCounts[b]),
+                        Math.min(exactCounts[a] + exactCounts[b], pair.estimate()));
+                long intersection = clamp(exactCounts[a] + exactCounts[b] - pairUnion, smaller);
+                // The union's sampling error, plus how far each set's sketch is from its exact count: the
+                // sketches' own error (which the union's shares, so it is added rather than in quadrature)
+                // and any ingest that landed between counting and sketching
+                long error = errorBound(rse, pairUnion)
+                        + Math.abs(sketchEstimates[a] - exactCounts[a]) + Math.abs(sketchEstimates[b] - exactCounts[b]);
+                pairwise.add(Map.of(
+                    "criteria_a", a,
+                    "criteria_b", b,
+                    "union_estimate", pairUnion,
+                    "intersection_estimate", intersection,
+                    "intersection_range", List.of(clamp(intersection - error, smaller), clamp(intersection + error, smaller)),
+                    "overlap_ratio", smaller == 0 ? 0.0 : (double) intersection / smaller,
+                    "jaccard", pairUnion == 0 ? 0.0 : (double) intersection / pairUnion,
+                    "error_bound", error
+                ));
+            }
+        }
+
+        List<Map<String, Object>> savedComparisons = new ArrayList<>();
+        if (compareWith != null) {
+            for (String name : compareWith) {
+                savedComparisons.add(compareWithSaved(name, union, unionEstimate));
+            }
+        }
+
+        Map<String, Object> report = new HashMap<>();
+        report.put("union_reach", Map.of(
+            "estimate", unionEstimate,
+            "error_bound", errorBound(rse, unionEstimate)
+        ));
+        report.put("pairwise_overlap", pairwise);
+        report.put("saved_audience_comparisons", savedComparisons);
+        if (saveAs != null && !saveAs.isBlank()) {
+            report.put("saved_as", save(saveAs, criteriaList, union, unionEstimate));
+        }
+        report.put("sketch_precision", precision);
+        report.put("relative_standard_error", rse);
+        report.put("sketch_time_us", (System.nanoTime() - start) / 1_000);
+        return report;
+    }
+
+    private String save(String name, List<AudienceCriteria> criteriaList, HyperLogLog union, long estimate) {
+        if (!savedAudiences.containsKey(name) && savedAudiences.size() >= maxSavedAudiences) {
+            throw new IllegalStateException("Saved audience limit of " + maxSavedAudiences + " reached");
+        }
+        savedAudiences.put(name, SavedAudience.builder()
+                .name(name)
+                .criteria(List.copyOf(criteriaList))
+                .sketch(union.copy())
+                .estimatedSize(estimate)
+                .savedAt(Instant.now())
+                .build());
+        log.info("Saved audience '{}' (~{} customers)", name, estimate);
+        return name;
+    }
+
+    private Map<String, Object> compareWithSaved(String name, HyperLogLog current, long currentEstimate) {
+        SavedAudience saved = savedAudiences.get(name);
+        if (saved == null) {
+            return Map.of("name", name, "error", "Unknown saved audience");
+        }
+        HyperLogLog combined = current.copy();
+        combined.merge(saved.getSketch());
+        long unionEstimate = combined.estimate();
+        long savedEstimate = saved.getEstimatedSize();
+        long intersection = clamp(currentEstimate + savedEstimate - unionEstimate,
+                Math.min(currentEstimate, savedEstimate));
+        double rse = combined.relativeStandardError();
+        // All three terms are estimates from overlapping registers, so their errors are correlated and
+        // can add up; summing them (not in quadrature) bounds the worst case
+        long error = errorBound(rse, currentEstimate) + errorBound(rse, savedEstimate) + errorBound(rse, unionEstimate);
+        long smaller = Math.min(currentEstimate, savedEstimate);
+        return Map.of(
+            "name", name,
+            "saved_estimate", savedEstimate,
+            "union_estimate", unionEstimate,
+            "intersection_estimate", intersection,
+            "intersection_range", List.of(clamp(intersection - error, smaller), clamp(intersection + error, smaller)),
+            "overlap_ratio", currentEstimate == 0 ? 0.0 : (double) intersection / currentEstimate,
+            "error_bound", error,
+            "saved_at", saved.getSavedAt().toString()
+        );
+    }
+
+    private HyperLogLog criteriaSketch(ProfileSnapshot snapshot, AudienceCriteria criteria) {
+        List<ProfilePart> parts = snapshot.parts();
+        String key = criteria.toString();
+        PartSketches cached;
+        synchronized (criteriaSketches) {
+            cached = criteriaSketches.get(key);
+        }
+        ProfilePart[] sketchedParts = new ProfilePart[parts.size()];
+        HyperLogLog[] partSketches = new HyperLogLog[parts.size()];
+        HyperLogLog sketch = new HyperLogLog(precision);
+        for (int p = 0; p < parts.size(); p++) {
+            ProfilePart part = parts.get(p);
+            HyperLogLog partSketch = cached != null ? cached.sketchOf(part) : null;
+            if (partSketch == null) {
+                partSketch = sketchPart(snapshot, p, criteria);
+            }
+            sketchedParts[p] = part;
+            partSketches[p] = partSketch;
+            sketch.merge(partSketch);
+        }
+        synchronized (criteriaSketches) {
+            criteriaSketches.put(key, new PartSketches(sketchedParts, partSketches));
+        }
+        return sketch;
+    }
+
+    /**
+     * Sketch of the live rows of one part that match the criteria
+     */
+    private HyperLogLog sketchPart(ProfileSnapshot snapshot, int p, AudienceCriteria criteria) {
+        ProfilePart part = snapshot.parts().get(p);
+        ProfileSegment segment = part.segment();
+        AudienceSketchIndex sketchIndex = snapshot.sketchIndex();
+        // Value sketches cover every base row, so they only describe a base without deletes
+        if (p == 0 && sketchIndex != null && part.deletes() == null) {
+            HyperLogLog fromValues = sketchIndex.sketchFor(criteria);
+            if (fromValues != null) {
+                return fromValues;
+            }
+        }
+        HyperLogLog sketch = new HyperLogLog(precision);
+        AudienceBitmapIndex bitmapIndex = snapshot.bitmapIndex();
+        if (p == 0 && bitmapIndex != null) {
+            RoaringBitmap rows = bitmapIndex.evaluate(criteria);
+            if (part.deletes() != null) {
+                rows = rows.andNot(part.deletes());
+            }
+            rows.forEach(row -> sketch.add(segment.customerId(row)));
+            return sketch;
+        }
+        CompiledCriteria compiled = CompiledCriteria.compile(criteria, segment);
+        if (compiled.isEmpty()) {
+            return sketch;
+        }
+        CompiledCriteria.Scratch scratch = new CompiledCriteria.Scratch();
+        int rows = segment.size();
+        for (int start = 0; start < rows; start += CompiledCriteria.BLOCK_SIZE) {
+            int length = Math.min(CompiledCriteria.BLOCK_SIZE, rows - start);
+            byte[] selection = compiled.select(segment, start, length, scratch);
+            CompiledCriteria.clearDeleted(selection, start, length, part.deletes());
+            for (int j = 0; j < length; j++) {
+                if (selection[j] != 0) {
+                    sketch.add(segment.customerId(start + j));
+                }
+            }
+        }
+        return sketch;
+    }
+
+    private static long errorBound(double relativeStandardError, long estimate) {
+        return Math.round(Z_95 * relativeStandardError * estimate);
+    }
+
+    private static long clamp(long value, long max) {
+        return Math.max(0, Math.min(value, max));
+    }
+
+    /**
+     * Sketches of one criteria over the parts of the snapshot they were built for. A part is
+     * immutable and replaced when rows are deleted from it, so a sketch stays valid for as
+     * long as later snapshots hold the same part.
+     */
+    private static final class PartSketches {
+        private final ProfilePart[] parts;
+        private final HyperLogLog[] sketches;
+
+        private PartSketches(ProfilePart[] parts, HyperLogLog[] sketches) {
+            this.parts = parts;
+            this.sketches = sketches;
+        }
+
+        private HyperLogLog sketchOf(ProfilePart part) {
+            for (int i = 0; i < parts.length; i++) {
+                if (parts[i] == part) {
+                    return sketches[i];
+                }
+            }
+            return null;
+        }
+    }
+}
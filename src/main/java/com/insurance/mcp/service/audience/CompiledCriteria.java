@@ -0,0 +1,231 @@
+package com.insurance.mcp.service.audience;
+
+import com.insurance.mcp.model.campaign.AudienceCriteria;
+import com.insurance.mcp.service.audience.bitmap.RoaringBitmap;
+import com.insurance.mcp.service.audience.geo.GeoRegion;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * {@link AudienceCriteria} translated into the code space of one profile segment.
+ * Single-valued attributes become byte lookup tables (1 = accepted code) and tag
+ * attributes an any-of bit mask, so evaluation is a chain of branch-free ANDs; a geo
+ * filter tests coordinates only for rows still selected.
+ */
+public final class CompiledCriteria {
+
+    /** Rows evaluated per pass; the selection vector and column scratch stay in L1/L2 */
+    public static final int BLOCK_SIZE = 4096;
+
+    private final boolean ageBounded;
+    private final int minAge;
+    private final int maxAge;
+    private final ProfileAttribute[] codeAttributes;
+    private final byte[][] acceptTables;
+    private final ProfileAttribute[] tagAttributes;
+    private final int[] tagMasks;
+    private final GeoRegion region;
+    private final boolean empty;
+
+    private CompiledCriteria(boolean ageBounded, int minAge, int maxAge, ProfileAttribute[] codeAttributes,
+                             byte[][] acceptTables, ProfileAttribute[] tagAttributes, int[] tagMasks, GeoRegion region,
+                             boolean empty) {
+        this.ageBounded = ageBounded;
+        this.minAge = minAge;
+        this.maxAge = maxAge;
+        this.codeAttributes = codeAttributes;
+        this.acceptTables = acceptTables;
+        this.tagAttributes = tagAttributes;
+        this.tagMasks = tagMasks;
+        this.region = region;
+        this.empty = empty;
+    }
+
+    /**
+     * Translate {@code criteria}; rows of unknown age ({@link CustomerProfileTable#UNKNOWN_AGE})
+     * match only criteria without an age bound
+     */
+    public static CompiledCriteria compile(AudienceCriteria criteria, ProfileSegment segment) {
+        boolean ageBounded = criteria.getMinAge() != null || criteria.getMaxAge() != null;
+        int minAge = criteria.getMinAge() != null ? Math.max(0, criteria.getMinAge()) : 0;
+        int maxAge = criteria.getMaxAge() != null ? Math.min(Byte.MAX_VALUE, criteria.getMaxAge()) : Byte.MAX_VALUE;
+        boolean empty = minAge > maxAge;
+
+        List<ProfileAttribute> codeAttributes = new ArrayList<>();
+        List<byte[]> acceptTables = new ArrayList<>();
+        List<ProfileAttribute> tagAttributes = new ArrayList<>();
+        List<Integer> tagMasks = new ArrayList<>();
+
+        for (ProfileAttribute attribute : ProfileAttribute.all()) {
+            List<String> accepted = attribute.criteriaValues(criteria);
+            if (accepted == null || accepted.isEmpty()) {
+                continue;
+            }
+            ValueDictionary dictionary = segment.dictionary(attribute);
+            if (attribute.isMultiValued()) {
+                int mask = 0;
+                for (String value : accepted) {
+                    int code = dictionary.code(value);
+                    if (code > 0) {
+                        mask |= 1 << (code - 1);
+                    }
+                }
+                empty |= mask == 0;
+                tagAttributes.add(attribute);
+                tagMasks.add(mask);
+            } else {
+                byte[] accept = new byte[dictionary.size()];
+                boolean any = false;
+                for (String value : accepted) {
+                    int code = dictionary.code(value);
+                    if (code > 0) {
+                        accept[code] = 1;
+                        any = true;
+                    }
+                }
+                empty |= !any;
+                codeAttributes.add(attribute);
+                acceptTables.add(accept);
+            }
+        }
+
+        return new CompiledCriteria(ageBounded, minAge, maxAge,
+                codeAttributes.toArray(new ProfileAttribute[0]), acceptTables.toArray(new byte[0][]),
+                tagAttributes.toArray(new ProfileAttribute[0]), tagMasks.stream().mapToInt(Integer::intValue).toArray(),
+                criteria.getGeo() != null ? GeoRegion.of(criteria.getGeo()) : null, empty);
+    }
+
+    /**
+     * True when no row can match (an accepted value list contains only unseen values)
+     */
+    public boolean isEmpty() {
+        return empty;
+    }
+
+    /**
+     * Count matching rows in {@code [from, to)}
+     */
+    public long count(ProfileSegment segment, int from, int to) {
+        if (empty) {
+            return 0;
+        }
+        Scratch scratch = new Scratch();
+        long count = 0;
+        for (int start = from; start < to; start += BLOCK_SIZE) {
+            int length = Math.min(BLOCK_SIZE, to - start);
+            byte[] selection = select(segment, start, length, scratch);
+            for (int j = 0; j < length; j++) {
+                count += selection[j];
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Count matching rows in {@code [from, to)} for every criteria in one pass,
+     * evaluating all criteria on a block while its columns are still cached;
+     * rows set in {@code deletes} (may be null) never match
+     */
+    public static long[] countAll(CompiledCriteria[] criteria, ProfileSegment segment, RoaringBitmap deletes,
+                                  int from, int to) {
+        Scratch scratch = new Scratch();
+        long[] counts = new long[criteria.length];
+        for (int start = from; start < to; start += BLOCK_SIZE) {
+            int length = Math.min(BLOCK_SIZE, to - start);
+            for (int i = 0; i < criteria.length; i++) {
+                if (criteria[i].empty) {
+                    continue;
+                }
+                byte[] selection = criteria[i].select(segment, start, length, scratch);
+                clearDeleted(selection, start, length, deletes);
+                long count = 0;
+                for (int j = 0; j < length; j++) {
+                    count += selection[j];
+                }
+                counts[i] += count;
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * Zero the selection entries of block {@code [start, start + length)} whose rows are deleted
+     */
+    public static void clearDeleted(byte[] selection, int start, int length, RoaringBitmap deletes) {
+        if (deletes == null) {
+            return;
+        }
+        int end = start + length;
+        for (int row = deletes.nextSetBit(start); row >= 0 && row < end; row = deletes.nextSetBit(row + 1)) {
+            selection[row - start] = 0;
+        }
+    }
+
+    /**
+     * Evaluate rows {@code [start, start + length)}; the returned selection vector
+     * (owned by {@code scratch}) holds 1 for matching rows and 0 otherwise
+     */
+    public byte[] select(ProfileSegment segment, int start, int length, Scratch scratch) {
+        byte[] selection = scratch.selection;
+        if (empty) {
+            Arrays.fill(selection, 0, length, (byte) 0);
+            return selection;
+        }
+        if (ageBounded) {
+            byte[] ages = scratch.ages;
+            segment.readAges(start, length, ages);
+            int min = minAge;
+            int max = maxAge;
+            for (int j = 0; j < length; j++) {
+                int age = ages[j];
+                // Both differences are non-negative only inside [min, max], never for an unknown age
+                selection[j] = (byte) ((((age - min) | (max - age)) >>> 31) ^ 1);
+            }
+        } else {
+            Arrays.fill(selection, 0, length, (byte) 1);
+        }
+        short[] codes = scratch.codes;
+        for (int k = 0; k < codeAttributes.length; k++) {
+            segment.readCodes(codeAttributes[k], start, length, codes);
+            byte[] accept = acceptTables[k];
+            for (int j = 0; j < length; j++) {
+                selection[j] &= accept[codes[j]];
+            }
+        }
+        int[] tags = scratch.tags;
+        for (int k = 0; k < tagAttributes.length; k++) {
+            segment.readTags(tagAttributes[k], start, length, tags);
+            int mask = tagMasks[k];
+            for (int j = 0; j < length; j++) {
+                int hit = tags[j] & mask;
+                // (x | -x) has the sign bit set for any non-zero x
+                selection[j] &= (byte) ((hit | -hit) >>> 31);
+            }
+        }
+        if (region != null) {
+            float[] latitudes = scratch.latitudes;
+            float[] longitudes = scratch.longitudes;
+            segment.readCoordinates(start, length, latitudes, longitudes);
+            for (int j = 0; j < length; j++) {
+                if (selection[j] != 0 && !region.contains(latitudes[j], longitudes[j])) {
+                    selection[j] = 0;
+                }
+            }
+        }
+        return selection;
+    }
+
+    /**
+     * Per-thread block buffers for {@link #select}
+     */
+    public static final class Scratch {
+        final byte[] selection = new byte[BLOCK_SIZE];
+        final byte[] ages = new byte[BLOCK_SIZE];
+        final short[] codes = new short[BLOCK_SIZE];
+        final int[] tags = new int[BLOCK_SIZE];
+        final float[] latitudes = new float[BLOCK_SIZE];
+        final float[] longitudes = new float[BLOCK_SIZE];
+    }
+}
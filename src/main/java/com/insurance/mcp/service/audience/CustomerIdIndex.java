@@ -0,0 +1,88 @@
+package com.insurance.mcp.service.audience;
+
+import java.util.Arrays;
+
+/**
+ * Customer id to row lookup for one segment. Segments whose ids are strictly increasing
+ * (synthetic and most offline-built datasets) are binary searched in place at no memory
+ * cost; others get an open-addressing primitive hash table at load factor 0.5.
+ */
+public final class CustomerIdIndex {
+
+    private static final long EMPTY = Long.MIN_VALUE;
+
+    private final ProfileSegment segment;
+    private final long[] keys;
+    private final int[] rows;
+    private final int mask;
+
+    private CustomerIdIndex(ProfileSegment segment, long[] keys, int[] rows) {
+        this.segment = segment;
+        this.keys = keys;
+        this.rows = rows;
+        this.mask = keys == null ? 0 : keys.length - 1;
+    }
+
+    public static CustomerIdIndex build(ProfileSegment segment) {
+        int size = segment.size();
+        boolean sorted = true;
+        for (int row = 1; row < size && sorted; row++) {
+            sorted = segment.customerId(row - 1) < segment.customerId(row);
+        }
+        if (sorted) {
+            return new CustomerIdIndex(segment, null, null);
+        }
+
+        int capacity = Integer.highestOneBit(Math.max(2, size) * 2 - 1) << 1;
+        long[] keys = new long[capacity];
+        int[] rows = new int[capacity];
+        Arrays.fill(keys, EMPTY);
+        int mask = capacity - 1;
+        for (int row = 0; row < size; row++) {
+            long id = segment.customerId(row);
+            int slot = slot(id, mask);
+            while (keys[slot] != EMPTY && keys[slot] != id) {
+                slot = (slot + 1) & mask;
+            }
+            // A repeated id keeps its last row, matching upsert semantics
+            keys[slot] = id;
+            rows[slot] = row;
+        }
+        return new CustomerIdIndex(segment, keys, rows);
+    }
+
+    /**
+     * Row holding {@code customerId}, or -1
+     */
+    public int row(long customerId) {
+        if (keys == null) {
+            int low = 0;
+            int high = segment.size() - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                long id = segment.customerId(mid);
+                if (id < customerId) {
+                    low = mid + 1;
+                } else if (id > customerId) {
+                    high = mid - 1;
+                } else {
+                    return mid;
+                }
+            }
+            return -1;
+        }
+        int slot = slot(customerId, mask);
+        while (keys[slot] != EMPTY) {
+            if (keys[slot] == customerId) {
+                return rows[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    private static int slot(long id, int mask) {
+        long h = id * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+}
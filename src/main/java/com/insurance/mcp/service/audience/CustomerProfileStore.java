@@ -0,0 +1,637 @@
+package com.insurance.mcp.service.audience;
+
+import com.insurance.mcp.model.campaign.AudienceCriteria;
+import com.insurance.mcp.model.campaign.CustomerProfile;
+import com.insurance.mcp.model.campaign.GeoFilter;
+import com.insurance.mcp.model.campaign.ProfileChange;
+import com.insurance.mcp.service.audience.bitmap.RoaringBitmap;
+import com.insurance.mcp.service.audience.geo.GeoCellEstimate;
+import com.insurance.mcp.service.audience.identity.IdentityClusters;
+import com.insurance.mcp.service.audience.identity.IdentityResolver;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Columnar customer profile store answering exact audience counts, from bitmap
+ * indexes when enabled and by a column scan otherwise.
+ * Profiles come from a memory-mapped dataset file when {@code mcp.audience.profiles.dataset}
+ * is set and from the synthetic generator otherwise. Ingested upserts and deletes land in
+ * small delta parts plus per-part delete bitmaps and are periodically merged into a new
+ * base; readers always work on one immutable {@link ProfileSnapshot} and never lock.
+ */
+@Slf4j
+@Service
+public class CustomerProfileStore {
+
+    @Value("${mcp.audience.profiles.dataset:}")
+    private String datasetPath;
+
+    @Value("${mcp.audience.profiles.synthetic-count:0}")
+    private int syntheticCount;
+
+    @Value("${mcp.audience.profiles.synthetic-seed:42}")
+    private long syntheticSeed;
+
+    @Value("${mcp.audience.index.bitmap-enabled:true}")
+    private boolean bitmapIndexEnabled;
+
+    @Value("${mcp.audience.geo.cell-degrees:0.05}")
+    private double geoCellDegrees;
+
+    @Value("${mcp.audience.sketch.enabled:true}")
+    private boolean sketchIndexEnabled;
+
+    @Value("${mcp.audience.sketch.precision:14}")
+    private int sketchPrecision;
+
+    @Value("${mcp.audience.parallel.parallelism:0}")
+    private int parallelism;
+
+    @Value("${mcp.audience.parallel.threshold-rows:262144}")
+    private long parallelThresholdRows;
+
+    @Value("${mcp.audience.parallel.partition-rows:65536}")
+    private int partitionRows;
+
+    @Value("${mcp.audience.ingest.merge-threshold-rows:100000}")
+    private int mergeThresholdRows;
+
+    @Value("${mcp.audience.identity.enabled:true}")
+    private boolean identityEnabled;
+
+    @Value("${mcp.audience.identity.link-keys:email,phone,address}")
+    private String identityLinkKeys;
+
+    private final AtomicReference<ProfileSnapshot> current = new AtomicReference<>();
+    private final ExecutorService indexBuilder = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "audience-index-builder");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile FileTime datasetModified;
+    private volatile IdentityResolver identityResolver;
+    private ForkJoinPool countPool;
+
+    // Writer-side state, guarded by writeLock; readers only ever see published snapshots
+    private final Object writeLock = new Object();
+    private final AtomicBoolean mergeQueued = new AtomicBoolean();
+    private final Map<Long, Long> deltaLocations = new HashMap<>();
+    private Set<Long> touchedDuringMerge;
+
+    @PostConstruct
+    public void initialize() throws IOException {
+        int workers = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        countPool = new ForkJoinPool(workers, pool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("audience-count-" + thread.getPoolIndex());
+            thread.setDaemon(true);
+            return thread;
+        }, null, false);
+
+        long start = System.nanoTime();
+        ProfileSegment segment;
+        String source;
+        if (datasetPath.isBlank()) {
+            segment = SyntheticProfileGenerator.generate(Math.max(0, syntheticCount), syntheticSeed);
+            source = syntheticCount > 0 ? "synthetic" : "empty";
+            if (syntheticCount <= 0) {
+                log.warn("No profile dataset configured (mcp.audience.profiles.dataset); audience counts "
+                        + "cover ingested profiles only");
+            }
+        } else {
+            Path path = Path.of(datasetPath);
+            datasetModified = Files.getLastModifiedTime(path);
+            segment = MappedProfileTable.open(path);
+            source = path.toString();
+        }
+        log.info("Loaded {} customer profiles from {} in {} ms",
+                segment.size(), source, (System.nanoTime() - start) / 1_000_000);
+        identityResolver = resolveIdentities(segment);
+        publish(ProfileSnapshot.of(segment, source));
+    }
+
+    /**
+     * Re-map the dataset file after the offline builder has replaced it; deltas ingested
+     * since the previous build are dropped, the rebuilt file is expected to contain them
+     */
+    @Scheduled(fixedDelayString = "${mcp.audience.profiles.reload-interval-ms:30000}")
+    public void reloadDatasetIfChanged() {
+        if (datasetPath.isBlank()) {
+            return;
+        }
+        try {
+            Path path = Path.of(datasetPath);
+            FileTime modified = Files.getLastModifiedTime(path);
+            if (modified.equals(datasetModified)) {
+                return;
+            }
+            MappedProfileTable table = MappedProfileTable.open(path);
+            IdentityResolver resolver = resolveIdentities(table);
+            synchronized (writeLock) {
+                datasetModified = modified;
+                int dropped = current.get().deltaRows();
+                if (dropped > 0) {
+                    log.warn("Dropping {} ingested delta rows in favour of the rebuilt dataset", dropped);
+                }
+                deltaLocations.clear();
+                touchedDuringMerge = null;
+                identityResolver = resolver;
+                log.info("Re-mapped profile dataset {} ({} profiles)", path, table.size());
+                publish(ProfileSnapshot.of(table, path.toString()));
+            }
+        } catch (IOException | RuntimeException e) {
+            log.warn("Keeping current profile dataset, reload failed: {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        indexBuilder.shutdownNow();
+        countPool.shutdownNow();
+    }
+
+    public ProfileSnapshot snapshot() {
+        return current.get();
+    }
+
+    public int size() {
+        return current.get().size();
+    }
+
+    /**
+     * Exact number of profiles matching each criteria, in order.
+     * The base part is answered from its bitmap index once built; delta parts and an
+     * unindexed base are column-scanned, and scans of at least {@code threshold-rows}
+     * rows (summed over criteria) are split into partitions on the count pool.
+     */
+    public AudienceCounts count(List<AudienceCriteria> criteriaList) {
+        ProfileSnapshot snapshot = current.get();
+        List<ProfilePart> parts = snapshot.parts();
+        long[] counts = new long[criteriaList.size()];
+        String method;
+        AudienceBitmapIndex index = snapshot.bitmapIndex();
+        if (index != null) {
+            RoaringBitmap deletes = parts.get(0).deletes();
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] = deletes == null
+                        ? index.count(criteriaList.get(i))
+                        : index.evaluate(criteriaList.get(i)).andNot(deletes).cardinality();
+            }
+            method = "bitmap_index";
+        } else {
+            method = countScanned(parts.get(0), criteriaList, counts);
+        }
+        for (int p = 1; p < parts.size(); p++) {
+            countScanned(parts.get(p), criteriaList, counts);
+        }
+        if (parts.size() > 1) {
+            method += "+delta_scan";
+        }
+        return new AudienceCounts(counts, method, snapshot.size(), snapshot.source());
+    }
+
+    /**
+     * Coarse size of a geo region from the base part's grid cell counts, without attribute
+     * filters, deletes or delta parts; null until the bitmap index is built
+     */
+    public GeoCellEstimate estimateGeo(GeoFilter geo) {
+        AudienceBitmapIndex index = current.get().bitmapIndex();
+        return index != null ? index.estimateGeo(geo) : null;
+    }
+
+    /**
+     * Cursor over the customers matching any of {@code criteriaList} in the current snapshot
+     */
+    public AudienceExportCursor openExport(String cursorId, List<AudienceCriteria> criteriaList) {
+        return openExport(cursorId, criteriaList, false);
+    }
+
+    /**
+     * Export cursor that, with {@code dedupIdentities}, emits only the first matching record of
+     * each identity; the audience size is then not known up front
+     */
+    public AudienceExportCursor openExport(String cursorId, List<AudienceCriteria> criteriaList,
+                                           boolean dedupIdentities) {
+        ProfileSnapshot snapshot = current.get();
+        IdentityResolver resolver = identityResolver;
+        if (dedupIdentities && resolver == null) {
+            throw new IllegalArgumentException("Identity resolution is disabled (mcp.audience.identity.enabled)");
+        }
+        if (dedupIdentities) {
+            return new AudienceExportCursor(cursorId, snapshot.parts(), criteriaList, null,
+                    resolver.clusters(snapshot.parts()));
+        }
+        Long expectedSize = null;
+        AudienceBitmapIndex index = snapshot.bitmapIndex();
+        if (index != null && snapshot.parts().size() == 1) {
+            List<RoaringBitmap> matches = new ArrayList<>(criteriaList.size());
+            for (AudienceCriteria criteria : criteriaList) {
+                matches.add(index.evaluate(criteria));
+            }
+            RoaringBitmap union = RoaringBitmap.or(matches);
+            RoaringBitmap deletes = snapshot.parts().get(0).deletes();
+            expectedSize = deletes == null ? union.cardinality() : union.andNot(deletes).cardinality();
+        }
+        return new AudienceExportCursor(cursorId, snapshot.parts(), criteriaList, expectedSize);
+    }
+
+    /**
+     * Number of distinct identities among the profiles matching each criteria, in order;
+     * null when identity resolution is disabled. With the base bitmap index built, base rows
+     * that are the only record of their identity are counted by bitmap cardinality and only
+     * the rest resolved to their cluster; other parts are scanned and resolved row by row.
+     */
+    public long[] countIdentities(List<AudienceCriteria> criteriaList) {
+        IdentityResolver resolver = identityResolver;
+        if (resolver == null) {
+            return null;
+        }
+        ProfileSnapshot snapshot = current.get();
+        List<ProfilePart> parts = snapshot.parts();
+        IdentityClusters clusters = resolver.clusters(parts);
+        IdentityClusters.ClusterSet seen = clusters.newClusterSet();
+        AudienceBitmapIndex index = snapshot.bitmapIndex();
+        CompiledCriteria.Scratch scratch = new CompiledCriteria.Scratch();
+        long[] counts = new long[criteriaList.size()];
+        for (int i = 0; i < counts.length; i++) {
+            AudienceCriteria criteria = criteriaList.get(i);
+            seen.clear();
+            long[] count = new long[1];
+            for (int p = 0; p < parts.size(); p++) {
+                ProfilePart part = parts.get(p);
+                if (p == 0 && index != null) {
+                    RoaringBitmap rows = index.evaluate(criteria);
+                    if (part.deletes() != null) {
+                        rows = rows.andNot(part.deletes());
+                    }
+                    RoaringBitmap shared = rows.and(clusters.sharedRows());
+                    count[0] += rows.cardinality() - shared.cardinality();
+                    shared.forEach(row -> {
+                        if (seen.add(clusters.cluster(0, row))) {
+                            count[0]++;
+                        }
+                    });
+                    continue;
+                }
+                ProfileSegment segment = part.segment();
+                CompiledCriteria compiled = CompiledCriteria.compile(criteria, segment);
+                if (compiled.isEmpty()) {
+                    continue;
+                }
+                for (int start = 0; start < segment.size(); start += CompiledCriteria.BLOCK_SIZE) {
+                    int length = Math.min(CompiledCriteria.BLOCK_SIZE, segment.size() - start);
+                    byte[] selection = compiled.select(segment, start, length, scratch);
+                    CompiledCriteria.clearDeleted(selection, start, length, part.deletes());
+                    for (int j = 0; j < length; j++) {
+                        if (selection[j] != 0 && seen.add(clusters.cluster(p, start + j))) {
+                            count[0]++;
+                        }
+                    }
+                }
+            }
+            counts[i] = count[0];
+        }
+        return counts;
+    }
+
+    /**
+     * The {@code k} live profiles most similar to the seed customers (seeds excluded), with
+     * criteria describing {@code coverage} of them. Parts of at least {@code threshold-rows}
+     * rows are scanned in partitions on the count pool.
+     */
+    public LookalikeResult findLookalikes(Collection<Long> seedIds, int k, double coverage) {
+        ProfileSnapshot snapshot = current.get();
+        List<ProfilePart> parts = snapshot.parts();
+        Set<Long> uniqueSeeds = new LinkedHashSet<>(seedIds);
+        List<Long> seedRefs = new ArrayList<>(uniqueSeeds.size());
+        Map<Integer, List<Integer>> seedRows = new HashMap<>();
+        for (Long id : uniqueSeeds) {
+            // A customer is live in at most one part
+            for (int p = parts.size() - 1; p >= 0; p--) {
+                int row = parts.get(p).liveRow(id);
+                if (row >= 0) {
+                    seedRefs.add(ProfileSnapshot.location(p, row));
+                    seedRows.computeIfAbsent(p, key -> new ArrayList<>()).add(row);
+                    break;
+                }
+            }
+        }
+        if (seedRefs.isEmpty()) {
+            throw new IllegalArgumentException("None of the " + uniqueSeeds.size() + " seed customers exist");
+        }
+
+        LookalikeModel model = LookalikeModel.fromSeeds(parts,
+                seedRefs.stream().mapToLong(Long::longValue).toArray());
+        TopKHeap top = new TopKHeap(k);
+        String method = "column_scan";
+        for (int p = 0; p < parts.size(); p++) {
+            ProfilePart part = parts.get(p);
+            ProfileSegment segment = part.segment();
+            RoaringBitmap excluded = part.deletes();
+            List<Integer> seeds = seedRows.get(p);
+            if (seeds != null) {
+                RoaringBitmap seedBitmap = toBitmap(seeds);
+                excluded = excluded == null ? seedBitmap : excluded.or(seedBitmap);
+            }
+            LookalikeScanTask task = new LookalikeScanTask(model.compile(segment), segment, p, excluded, k,
+                    0, segment.size(), partitionRows);
+            if (segment.size() < parallelThresholdRows || countPool.getParallelism() < 2) {
+                top.merge(task.scan());
+            } else {
+                top.merge(countPool.invoke(task));
+                method = "parallel_column_scan";
+            }
+        }
+
+        float[] scores = new float[top.size()];
+        long[] refs = top.sortedRefs(scores);
+        long[] customerIds = new long[refs.length];
+        for (int i = 0; i < refs.length; i++) {
+            customerIds[i] = parts.get(ProfileSnapshot.partOf(refs[i])).segment().customerId(ProfileSnapshot.rowOf(refs[i]));
+        }
+        AudienceCriteria derived = LookalikeModel.describe(parts, refs, coverage);
+        return new LookalikeResult(customerIds, scores, derived, matchingShare(derived, parts, refs),
+                seedRefs.size(), uniqueSeeds.size() - seedRefs.size(), snapshot.size(), method);
+    }
+
+    /**
+     * Apply a batch of upserts and deletes. Upserts become one new delta part and every
+     * earlier row of a changed customer is marked deleted in its part; the result is
+     * published as a single snapshot, so readers see either none or all of the batch.
+     * Within a batch the last change per customer wins.
+     */
+    public IngestResult ingest(List<ProfileChange> changes) {
+        Map<Long, ProfileChange> latest = new LinkedHashMap<>();
+        for (ProfileChange change : changes) {
+            Long id = change.targetId();
+            if (id == null || (!change.isDelete() && change.getProfile() == null)) {
+                throw new IllegalArgumentException("Profile change needs a customer_id and, for upserts, a profile");
+            }
+            latest.put(id, change);
+        }
+
+        ProfileSnapshot published;
+        int upserts = 0;
+        int deletes = 0;
+        synchronized (writeLock) {
+            ProfileSnapshot snapshot = current.get();
+            CustomerIdIndex baseIds = snapshot.parts().get(0).ids();
+            int newPart = snapshot.parts().size();
+            CustomerProfileTable.Builder delta = CustomerProfileTable.builder(latest.size());
+            Map<Integer, List<Integer>> supersededRows = new HashMap<>();
+            for (Map.Entry<Long, ProfileChange> entry : latest.entrySet()) {
+                long id = entry.getKey();
+                ProfileChange change = entry.getValue();
+                Long location = deltaLocations.remove(id);
+                if (location != null) {
+                    supersededRows.computeIfAbsent(ProfileSnapshot.partOf(location), k -> new ArrayList<>())
+                            .add(ProfileSnapshot.rowOf(location));
+                } else {
+                    int row = baseIds.row(id);
+                    if (row >= 0) {
+                        supersededRows.computeIfAbsent(0, k -> new ArrayList<>()).add(row);
+                    }
+                }
+                if (change.isDelete()) {
+                    deletes++;
+                } else {
+                    CustomerProfile profile = change.getProfile();
+                    if (!Objects.equals(profile.getCustomerId(), id)) {
+                        profile = profile.toBuilder().customerId(id).build();
+                    }
+                    deltaLocations.put(id, ProfileSnapshot.location(newPart, delta.size()));
+                    delta.add(profile);
+                    upserts++;
+                }
+                if (touchedDuringMerge != null) {
+                    touchedDuringMerge.add(id);
+                }
+            }
+
+            List<ProfilePart> parts = new ArrayList<>(snapshot.parts());
+            for (Map.Entry<Integer, List<Integer>> entry : supersededRows.entrySet()) {
+                parts.set(entry.getKey(), parts.get(entry.getKey()).withDeletes(toBitmap(entry.getValue())));
+            }
+            if (delta.size() > 0) {
+                CustomerProfileTable deltaTable = delta.build();
+                if (identityResolver != null) {
+                    identityResolver.add(deltaTable);
+                }
+                parts.add(new ProfilePart(deltaTable, null));
+            }
+            // Index attachment may race with us, but it never changes the parts
+            published = current.updateAndGet(latestSnapshot -> latestSnapshot.withParts(parts));
+        }
+        if (published.deltaRows() >= mergeThresholdRows) {
+            scheduleMerge();
+        }
+        return new IngestResult(upserts, deletes, published.version(), published.deltaRows());
+    }
+
+    /**
+     * Queue a background merge of the delta parts and deletes into a new base
+     */
+    @Scheduled(fixedDelayString = "${mcp.audience.ingest.merge-interval-ms:60000}")
+    public void scheduleMerge() {
+        if (!current.get().isPristine() && mergeQueued.compareAndSet(false, true)) {
+            indexBuilder.execute(() -> {
+                mergeQueued.set(false);
+                mergeDelta();
+            });
+        }
+    }
+
+    private IdentityResolver resolveIdentities(ProfileSegment base) {
+        if (!identityEnabled) {
+            return null;
+        }
+        Set<IdentityKey> keys = EnumSet.noneOf(IdentityKey.class);
+        for (String key : identityLinkKeys.split(",")) {
+            if (!key.isBlank()) {
+                keys.add(IdentityKey.valueOf(key.trim().toUpperCase(Locale.ROOT)));
+            }
+        }
+        long start = System.nanoTime();
+        IdentityResolver resolver = IdentityResolver.build(base, keys);
+        log.info("Resolved {} customer records into {} identities (linked by {}) in {} ms",
+                resolver.records(), resolver.identities(), keys, (System.nanoTime() - start) / 1_000_000);
+        return resolver;
+    }
+
+    /**
+     * Serve the snapshot immediately with column scans and attach its bitmap and sketch
+     * indexes as their background builds finish, as long as its base is still current
+     */
+    private void publish(ProfileSnapshot snapshot) {
+        current.set(snapshot);
+        ProfileSegment base = snapshot.segment();
+        indexBuilder.execute(() -> {
+            if (bitmapIndexEnabled) {
+                long start = System.nanoTime();
+                AudienceBitmapIndex index = AudienceBitmapIndex.build(base, geoCellDegrees);
+                if (current.updateAndGet(s -> s.segment() == base ? s.withBitmapIndex(index) : s).bitmapIndex() != index) {
+                    return;
+                }
+                log.info("Built audience bitmap index ({} KB) in {} ms",
+                        index.sizeInBytes() / 1024, (System.nanoTime() - start) / 1_000_000);
+            }
+            if (sketchIndexEnabled) {
+                long start = System.nanoTime();
+                AudienceSketchIndex index = AudienceSketchIndex.build(base, sketchPrecision);
+                if (current.updateAndGet(s -> s.segment() == base ? s.withSketchIndex(index) : s).sketchIndex() == index) {
+                    log.info("Built audience sketch index ({} KB) in {} ms",
+                            index.sizeInBytes() / 1024, (System.nanoTime() - start) / 1_000_000);
+                }
+            }
+        });
+    }
+
+    /**
+     * Build the merged base and its indexes off the write path and swap it in. Changes
+     * ingested meanwhile stay as delta parts, with their customers deleted from the new base.
+     */
+    private void mergeDelta() {
+        ProfileSnapshot before;
+        synchronized (writeLock) {
+            before = current.get();
+            if (before.isPristine()) {
+                return;
+            }
+            touchedDuringMerge = new HashSet<>();
+        }
+        long start = System.nanoTime();
+        CustomerProfileTable merged;
+        AudienceBitmapIndex bitmapIndex;
+        AudienceSketchIndex sketchIndex;
+        IdentityResolver rebuilt;
+        try {
+            CustomerProfileTable.Builder builder = CustomerProfileTable.builder(before.size());
+            for (ProfilePart part : before.parts()) {
+                builder.addLive(part.segment(), part.deletes());
+            }
+            merged = builder.build();
+            bitmapIndex = bitmapIndexEnabled ? AudienceBitmapIndex.build(merged, geoCellDegrees) : null;
+            sketchIndex = sketchIndexEnabled ? AudienceSketchIndex.build(merged, sketchPrecision) : null;
+            // Links of deleted and changed records go with the rows they came from
+            rebuilt = resolveIdentities(merged);
+        } catch (RuntimeException e) {
+            synchronized (writeLock) {
+                touchedDuringMerge = null;
+            }
+            log.error("Profile delta merge failed, keeping the delta parts", e);
+            return;
+        }
+
+        synchronized (writeLock) {
+            ProfileSnapshot latest = current.get();
+            Set<Long> touched = touchedDuringMerge;
+            touchedDuringMerge = null;
+            if (touched == null || latest.segment() != before.segment()) {
+                log.info("Discarding profile merge, the base was replaced meanwhile");
+                return;
+            }
+            CustomerIdIndex mergedIds = CustomerIdIndex.build(merged);
+            List<Integer> superseded = new ArrayList<>();
+            for (Long id : touched) {
+                int row = mergedIds.row(id);
+                if (row >= 0) {
+                    superseded.add(row);
+                }
+            }
+            int mergedParts = before.parts().size();
+            List<ProfilePart> parts = new ArrayList<>();
+            parts.add(new ProfilePart(merged, null, mergedIds).withDeletes(toBitmap(superseded)));
+            parts.addAll(latest.parts().subList(mergedParts, latest.parts().size()));
+            if (rebuilt != null) {
+                for (ProfilePart part : latest.parts().subList(mergedParts, latest.parts().size())) {
+                    rebuilt.add(part.segment());
+                }
+                identityResolver = rebuilt;
+            }
+
+            // Rows of merged parts now resolve through the new base; later parts shift down
+            deltaLocations.values().removeIf(location -> ProfileSnapshot.partOf(location) < mergedParts);
+            deltaLocations.replaceAll((id, location) ->
+                    ProfileSnapshot.location(ProfileSnapshot.partOf(location) - mergedParts + 1,
+                            ProfileSnapshot.rowOf(location)));
+
+            current.set(new ProfileSnapshot(parts, bitmapIndex, sketchIndex, latest.source(), latest.version() + 1));
+            log.info("Merged {} delta parts into a base of {} profiles in {} ms ({} changes arrived meanwhile)",
+                    mergedParts - 1, merged.size(), (System.nanoTime() - start) / 1_000_000, touched.size());
+        }
+    }
+
+    private static double matchingShare(AudienceCriteria criteria, List<ProfilePart> parts, long[] refs) {
+        if (refs.length == 0) {
+            return 0;
+        }
+        CompiledCriteria[] compiled = new CompiledCriteria[parts.size()];
+        CompiledCriteria.Scratch scratch = new CompiledCriteria.Scratch();
+        int matching = 0;
+        for (long ref : refs) {
+            int p = ProfileSnapshot.partOf(ref);
+            ProfileSegment segment = parts.get(p).segment();
+            if (compiled[p] == null) {
+                compiled[p] = CompiledCriteria.compile(criteria, segment);
+            }
+            matching += compiled[p].select(segment, ProfileSnapshot.rowOf(ref), 1, scratch)[0];
+        }
+        return (double) matching / refs.length;
+    }
+
+    private String countScanned(ProfilePart part, List<AudienceCriteria> criteriaList, long[] counts) {
+        // Dictionaries differ between parts, so criteria are compiled per part
+        ProfileSegment segment = part.segment();
+        CompiledCriteria[] compiled = new CompiledCriteria[criteriaList.size()];
+        for (int i = 0; i < compiled.length; i++) {
+            compiled[i] = CompiledCriteria.compile(criteriaList.get(i), segment);
+        }
+        long[] partCounts;
+        String method;
+        if ((long) segment.size() * compiled.length < parallelThresholdRows || countPool.getParallelism() < 2) {
+            partCounts = CompiledCriteria.countAll(compiled, segment, part.deletes(), 0, segment.size());
+            method = "column_scan";
+        } else {
+            partCounts = countPool.invoke(new PartitionCountTask(compiled, segment, part.deletes(),
+                    0, segment.size(), partitionRows));
+            method = "parallel_column_scan";
+        }
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += partCounts[i];
+        }
+        return method;
+    }
+
+    private static RoaringBitmap toBitmap(List<Integer> rows) {
+        RoaringBitmap.Builder builder = RoaringBitmap.builder();
+        rows.stream().mapToInt(Integer::intValue).sorted().distinct().forEach(builder::add);
+        return builder.build();
+    }
+}
@@ -0,0 +1,338 @@
+package com.insurance.mcp.service.audience;
+
+import com.insurance.mcp.model.campaign.CustomerProfile;
+import com.insurance.mcp.service.audience.bitmap.RoaringBitmap;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Immutable column-oriented customer profile table held in primitive arrays.
+ * Row {@code i} is described by {@code customerIds[i]}, {@code ages[i]}, its
+ * coordinates, identity key hashes and the i-th entry of each attribute column.
+ */
+public final class CustomerProfileTable implements ProfileSegment {
+
+    /** Age stored for profiles without a known age; never inside a criteria age range */
+    public static final byte UNKNOWN_AGE = -1;
+
+    private final int size;
+    private final long[] customerIds;
+    private final byte[] ages;
+    private final float[] latitudes;
+    private final float[] longitudes;
+    private final long[][] identityKeys;
+    private final short[][] codes;
+    private final int[][] tags;
+    private final ValueDictionary[] dictionaries;
+
+    private CustomerProfileTable(int size, long[] customerIds, byte[] ages, float[] latitudes, float[] longitudes,
+                                 long[][] identityKeys, short[][] codes, int[][] tags, ValueDictionary[] dictionaries) {
+        this.size = size;
+        this.customerIds = customerIds;
+        this.ages = ages;
+        this.latitudes = latitudes;
+        this.longitudes = longitudes;
+        this.identityKeys = identityKeys;
+        this.codes = codes;
+        this.tags = tags;
+        this.dictionaries = dictionaries;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public long customerId(int row) {
+        return customerIds[row];
+    }
+
+    @Override
+    public ValueDictionary dictionary(ProfileAttribute attribute) {
+        return dictionaries[attribute.ordinal()];
+    }
+
+    @Override
+    public void readAges(int start, int length, byte[] dst) {
+        System.arraycopy(ages, start, dst, 0, length);
+    }
+
+    @Override
+    public void readCodes(ProfileAttribute attribute, int start, int length, short[] dst) {
+        System.arraycopy(codes[attribute.ordinal()], start, dst, 0, length);
+    }
+
+    @Override
+    public void readTags(ProfileAttribute attribute, int start, int length, int[] dst) {
+        System.arraycopy(tags[attribute.ordinal()], start, dst, 0, length);
+    }
+
+    @Override
+    public void readCoordinates(int start, int length, float[] latitudes, float[] longitudes) {
+        System.arraycopy(this.latitudes, start, latitudes, 0, length);
+        System.arraycopy(this.longitudes, start, longitudes, 0, length);
+    }
+
+    @Override
+    public void readIdentityKeys(IdentityKey key, int start, int length, long[] dst) {
+        System.arraycopy(identityKeys[key.ordinal()], start, dst, 0, length);
+    }
+
+    public static Builder builder(int expectedSize) {
+        return new Builder(expectedSize);
+    }
+
+    /**
+     * Append-only table writer
+     */
+    public static final class Builder {
+        private int size;
+        private long[] customerIds;
+        private byte[] ages;
+        private float[] latitudes;
+        private float[] longitudes;
+        private final long[][] identityKeys = new long[IdentityKey.all().length][];
+        private final short[][] codes = new short[ProfileAttribute.all().length][];
+        private final int[][] tags = new int[ProfileAttribute.all().length][];
+        private final ValueDictionary.Builder[] dictionaries = new ValueDictionary.Builder[ProfileAttribute.all().length];
+
+        private Builder(int expectedSize) {
+            int capacity = Math.max(16, expectedSize);
+            customerIds = new long[capacity];
+            ages = new byte[capacity];
+            latitudes = new float[capacity];
+            longitudes = new float[capacity];
+            for (IdentityKey key : IdentityKey.all()) {
+                identityKeys[key.ordinal()] = new long[capacity];
+            }
+            for (ProfileAttribute attribute : ProfileAttribute.all()) {
+                int i = attribute.ordinal();
+                if (attribute.isMultiValued()) {
+                    tags[i] = new int[capacity];
+                    dictionaries[i] = new ValueDictionary.Builder(ProfileAttribute.MAX_TAG_VALUES + 1);
+                } else {
+                    codes[i] = new short[capacity];
+                    dictionaries[i] = new ValueDictionary.Builder(Short.MAX_VALUE);
+                }
+            }
+        }
+
+        public int size() {
+            return size;
+        }
+
+        /**
+         * Dictionary code for a value, registering it if new; used by bulk generators
+         */
+        public int encode(ProfileAttribute attribute, String value) {
+            return dictionaries[attribute.ordinal()].encode(value);
+        }
+
+        /**
+         * Bit for a tag value, registering it if new
+         */
+        public int tagBit(ProfileAttribute attribute, String value) {
+            int code = encode(attribute, value);
+            return code == ValueDictionary.UNKNOWN ? 0 : 1 << (code - 1);
+        }
+
+        /**
+         * Append a row from already encoded values; {@code values[attr.ordinal()]} holds
+         * the code or tag bits of each attribute
+         */
+        public Builder addEncoded(long customerId, int age, int[] values) {
+            return addEncoded(customerId, age, Float.NaN, Float.NaN, values);
+        }
+
+        /**
+         * Append an encoded row with its coordinates; NaN marks an unknown location
+         */
+        public Builder addEncoded(long customerId, int age, float latitude, float longitude, int[] values) {
+            return addEncoded(customerId, age, latitude, longitude, null, values);
+        }
+
+        /**
+         * Append an encoded row with its coordinates and identity key hashes, indexed by
+         * {@link IdentityKey#ordinal()} ({@code null} = no keys)
+         */
+        public Builder addEncoded(long customerId, int age, float latitude, float longitude, long[] identityHashes,
+                                  int[] values) {
+            ensureCapacity(size + 1);
+            customerIds[size] = customerId;
+            ages[size] = encodeAge(age);
+            latitudes[size] = latitude;
+            longitudes[size] = longitude;
+            for (int k = 0; k < identityKeys.length; k++) {
+                identityKeys[k][size] = identityHashes != null ? identityHashes[k] : IdentityKey.NONE;
+            }
+            for (ProfileAttribute attribute : ProfileAttribute.all()) {
+                int i = attribute.ordinal();
+                if (attribute.isMultiValued()) {
+                    tags[i][size] = values[i];
+                } else {
+                    codes[i][size] = (short) values[i];
+                }
+            }
+            size++;
+            return this;
+        }
+
+        public Builder add(CustomerProfile profile) {
+            if (profile.getCustomerId() == null) {
+                throw new IllegalArgumentException("Customer profile without customerId");
+            }
+            int[] values = new int[ProfileAttribute.all().length];
+            for (ProfileAttribute attribute : ProfileAttribute.all()) {
+                List<String> profileValues = attribute.profileValues(profile);
+                if (profileValues == null || profileValues.isEmpty()) {
+                    continue;
+                }
+                if (attribute.isMultiValued()) {
+                    int bits = 0;
+                    for (String value : profileValues) {
+                        bits |= tagBit(attribute, value);
+                    }
+                    values[attribute.ordinal()] = bits;
+                } else {
+                    values[attribute.ordinal()] = encode(attribute, profileValues.get(0));
+                }
+            }
+            long[] identityHashes = new long[IdentityKey.all().length];
+            for (IdentityKey key : IdentityKey.all()) {
+                identityHashes[key.ordinal()] = key.hash(profile);
+            }
+            return addEncoded(profile.getCustomerId(), profile.getAge() != null ? profile.getAge() : -1,
+                    coordinate(profile.getLatitude(), 90), coordinate(profile.getLongitude(), 180), identityHashes,
+                    values);
+        }
+
+        /**
+         * Append every row of {@code source} not set in {@code deletes} (may be null),
+         * re-encoding its dictionary codes into this table's dictionaries block by block
+         */
+        public Builder addLive(ProfileSegment source, RoaringBitmap deletes) {
+            ProfileAttribute[] attributes = ProfileAttribute.all();
+            int[][] translations = new int[attributes.length][];
+            for (ProfileAttribute attribute : attributes) {
+                ValueDictionary dictionary = source.dictionary(attribute);
+                int[] translation = new int[dictionary.size()];
+                for (int code = 1; code < translation.length; code++) {
+                    translation[code] = attribute.isMultiValued()
+                            ? tagBit(attribute, dictionary.value(code))
+                            : encode(attribute, dictionary.value(code));
+                }
+                translations[attribute.ordinal()] = translation;
+            }
+
+            int rows = source.size();
+            int block = CompiledCriteria.BLOCK_SIZE;
+            byte[] blockAges = new byte[block];
+            float[] blockLatitudes = new float[block];
+            float[] blockLongitudes = new float[block];
+            IdentityKey[] keys = IdentityKey.all();
+            long[][] blockKeys = new long[keys.length][block];
+            long[] identityHashes = new long[keys.length];
+            short[][] blockCodes = new short[attributes.length][];
+            int[][] blockTags = new int[attributes.length][];
+            for (ProfileAttribute attribute : attributes) {
+                if (attribute.isMultiValued()) {
+                    blockTags[attribute.ordinal()] = new int[block];
+                } else {
+                    blockCodes[attribute.ordinal()] = new short[block];
+                }
+            }
+            int[] values = new int[attributes.length];
+            for (int start = 0; start < rows; start += block) {
+                int length = Math.min(block, rows - start);
+                source.readAges(start, length, blockAges);
+                source.readCoordinates(start, length, blockLatitudes, blockLongitudes);
+                for (IdentityKey key : keys) {
+                    source.readIdentityKeys(key, start, length, blockKeys[key.ordinal()]);
+                }
+                for (ProfileAttribute attribute : attributes) {
+                    int i = attribute.ordinal();
+                    if (attribute.isMultiValued()) {
+                        source.readTags(attribute, start, length, blockTags[i]);
+                    } else {
+                        source.readCodes(attribute, start, length, blockCodes[i]);
+                    }
+                }
+                int deleted = deletes == null ? -1 : deletes.nextSetBit(start);
+                for (int j = 0; j < length; j++) {
+                    if (deleted == start + j) {
+                        deleted = deletes.nextSetBit(deleted + 1);
+                        continue;
+                    }
+                    for (ProfileAttribute attribute : attributes) {
+                        int i = attribute.ordinal();
+                        int[] translation = translations[i];
+                        if (attribute.isMultiValued()) {
+                            int bits = blockTags[i][j];
+                            int translated = 0;
+                            while (bits != 0) {
+                                translated |= translation[Integer.numberOfTrailingZeros(bits) + 1];
+                                bits &= bits - 1;
+                            }
+                            values[i] = translated;
+                        } else {
+                            values[i] = translation[blockCodes[i][j]];
+                        }
+                    }
+                    for (int k = 0; k < keys.length; k++) {
+                        identityHashes[k] = blockKeys[k][j];
+                    }
+                    addEncoded(source.customerId(start + j), blockAges[j], blockLatitudes[j], blockLongitudes[j],
+                            identityHashes, values);
+                }
+            }
+            return this;
+        }
+
+        /**
+         * Freeze the rows written so far; the builder must not be used afterwards
+         * because exactly-sized columns are handed over without copying
+         */
+        public CustomerProfileTable build() {
+            ValueDictionary[] built = new ValueDictionary[dictionaries.length];
+            for (int i = 0; i < dictionaries.length; i++) {
+                built[i] = dictionaries[i].build();
+            }
+            resize(size);
+            return new CustomerProfileTable(size, customerIds, ages, latitudes, longitudes, identityKeys.clone(),
+                    codes.clone(), tags.clone(), built);
+        }
+
+        private void ensureCapacity(int required) {
+            if (required > customerIds.length) {
+                resize((int) Math.min(Integer.MAX_VALUE - 8, Math.max(required, customerIds.length * 3L / 2)));
+            }
+        }
+
+        private void resize(int capacity) {
+            if (capacity == customerIds.length) {
+                return;
+            }
+            customerIds = Arrays.copyOf(customerIds, capacity);
+            ages = Arrays.copyOf(ages, capacity);
+            latitudes = Arrays.copyOf(latitudes, capacity);
+            longitudes = Arrays.copyOf(longitudes, capacity);
+            for (int k = 0; k < identityKeys.length; k++) {
+                identityKeys[k] = Arrays.copyOf(identityKeys[k], capacity);
+            }
+            for (int i = 0; i < codes.length; i++) {
+                if (codes[i] != null) codes[i] = Arrays.copyOf(codes[i], capacity);
+                if (tags[i] != null) tags[i] = Arrays.copyOf(tags[i], capacity);
+            }
+        }
+
+        private static byte encodeAge(int age) {
+            return age < 0 || age > Byte.MAX_VALUE ? UNKNOWN_AGE : (byte) age;
+        }
+
+        private static float coordinate(Double degrees, double limit) {
+            return degrees == null || !(Math.abs(degrees) <= limit) ? Float.NaN : degrees.floatValue();
+        }
+    }
+}
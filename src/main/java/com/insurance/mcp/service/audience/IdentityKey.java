@@ -0,0 +1,74 @@
+package com.insurance.mcp.service.audience;
+
+import com.insurance.mcp.model.campaign.CustomerProfile;
+import com.insurance.mcp.service.audience.sketch.HyperLogLog;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.function.Function;
+
+/**
+ * Keys that link profile records to one identity. The store keeps only a 64-bit hash of
+ * each normalized key per row (0 = no key), enough to cluster records without holding
+ * contact data.
+ */
+public enum IdentityKey {
+
+    EMAIL(CustomerProfile::getEmail),
+    PHONE(CustomerProfile::getPhone),
+    ADDRESS(CustomerProfile::getAddress);
+
+    /** Hash stored for a record without this key */
+    public static final long NONE = 0L;
+
+    private static final IdentityKey[] VALUES = values();
+
+    private final Function<CustomerProfile, String> profileValue;
+
+    IdentityKey(Function<CustomerProfile, String> profileValue) {
+        this.profileValue = profileValue;
+    }
+
+    public static IdentityKey[] all() {
+        return VALUES;
+    }
+
+    public String columnName() {
+        return name().toLowerCase(Locale.ROOT) + "_key";
+    }
+
+    /**
+     * Hash of the profile's normalized key, or {@link #NONE}
+     */
+    public long hash(CustomerProfile profile) {
+        String value = profileValue.apply(profile);
+        return value == null ? NONE : hash(value);
+    }
+
+    public long hash(String value) {
+        String normalized = normalize(value);
+        if (normalized.isEmpty()) {
+            return NONE;
+        }
+        // FNV-1a over the UTF-8 bytes, then an avalanche so similar keys spread apart
+        long h = 0xCBF29CE484222325L ^ ordinal();
+        for (byte b : normalized.getBytes(StandardCharsets.UTF_8)) {
+            h = (h ^ (b & 0xFF)) * 0x100000001B3L;
+        }
+        h = HyperLogLog.hash(h);
+        return h == NONE ? 1 : h;
+    }
+
+    private String normalize(String value) {
+        switch (this) {
+            case EMAIL:
+                return value.trim().toLowerCase(Locale.ROOT);
+            case PHONE:
+                String digits = value.replaceAll("\\D", "");
+                // Too short to identify anyone (extensions, placeholders)
+                return digits.length() < 7 ? "" : digits;
+            default:
+                return value.toLowerCase(Locale.ROOT).replaceAll("[^\\p{L}\\p{N}]+", " ").trim();
+        }
+    }
+}
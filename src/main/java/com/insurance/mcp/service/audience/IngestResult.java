@@ -0,0 +1,17 @@
+package com.insurance.mcp.service.audience;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Outcome of applying one batch of profile changes
+ */
+@Data
+@AllArgsConstructor
+public class IngestResult {
+
+    private int upserts;
+    private int deletes;
+    private long snapshotVersion;
+    private int deltaRows;
+}
@@ -0,0 +1,342 @@
+package com.insurance.mcp.service.audience;
+
+import com.insurance.mcp.model.campaign.AudienceCriteria;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Seed-set similarity model over one-hot profile vectors: one feature per attribute value,
+ * per tag and per five-year age bucket. Each seed vector is L2-normalized and the model
+ * keeps their mean, so a candidate's dot product with it equals its mean cosine
+ * similarity to all seeds; ranking by it is exact, not a centroid approximation.
+ * Weights are keyed by value, and {@link #compile} maps them into a segment's code space.
+ */
+public final class LookalikeModel {
+
+    public static final int AGE_BUCKET_YEARS = 5;
+
+    private final Map<ProfileAttribute, Map<String, Float>> valueWeights;
+    private final float[] ageWeights;
+    private final int seeds;
+
+    private LookalikeModel(Map<ProfileAttribute, Map<String, Float>> valueWeights, float[] ageWeights, int seeds) {
+        this.valueWeights = valueWeights;
+        this.ageWeights = ageWeights;
+        this.seeds = seeds;
+    }
+
+    /**
+     * Model over the seed rows at {@code seedRefs} (see {@link ProfileSnapshot#location})
+     */
+    public static LookalikeModel fromSeeds(List<ProfilePart> parts, long[] seedRefs) {
+        Map<ProfileAttribute, Map<String, Float>> weights = new EnumMap<>(ProfileAttribute.class);
+        for (ProfileAttribute attribute : ProfileAttribute.all()) {
+            weights.put(attribute, new HashMap<>());
+        }
+        float[] ageWeights = new float[Byte.MAX_VALUE / AGE_BUCKET_YEARS + 1];
+        byte[] age = new byte[1];
+        short[] code = new short[1];
+        int[] tags = new int[1];
+        List<String> features = new ArrayList<>();
+        List<ProfileAttribute> featureAttributes = new ArrayList<>();
+
+        for (long ref : seedRefs) {
+            ProfileSegment segment = parts.get(ProfileSnapshot.partOf(ref)).segment();
+            int row = ProfileSnapshot.rowOf(ref);
+            features.clear();
+            featureAttributes.clear();
+            for (ProfileAttribute attribute : ProfileAttribute.all()) {
+                ValueDictionary dictionary = segment.dictionary(attribute);
+                if (attribute.isMultiValued()) {
+                    segment.readTags(attribute, row, 1, tags);
+                    for (int bits = tags[0]; bits != 0; bits &= bits - 1) {
+                        featureAttributes.add(attribute);
+                        features.add(dictionary.value(Integer.numberOfTrailingZeros(bits) + 1));
+                    }
+                } else {
+                    segment.readCodes(attribute, row, 1, code);
+                    if (code[0] != ValueDictionary.UNKNOWN) {
+                        featureAttributes.add(attribute);
+                        features.add(dictionary.value(code[0]));
+                    }
+                }
+            }
+            segment.readAges(row, 1, age);
+            int active = features.size() + (age[0] >= 0 ? 1 : 0);
+            if (active == 0) {
+                continue;
+            }
+            float weight = (float) (1.0 / (seedRefs.length * Math.sqrt(active)));
+            for (int f = 0; f < features.size(); f++) {
+                weights.get(featureAttributes.get(f)).merge(features.get(f), weight, Float::sum);
+            }
+            if (age[0] >= 0) {
+                ageWeights[age[0] / AGE_BUCKET_YEARS] += weight;
+            }
+        }
+        return new LookalikeModel(weights, ageWeights, seedRefs.length);
+    }
+
+    public int getSeeds() {
+        return seeds;
+    }
+
+    /**
+     * Weight tables in the code space of {@code segment}
+     */
+    public Scorer compile(ProfileSegment segment) {
+        List<ProfileAttribute> codeAttributes = new ArrayList<>();
+        List<float[]> codeWeights = new ArrayList<>();
+        List<ProfileAttribute> tagAttributes = new ArrayList<>();
+        List<float[][]> tagWeights = new ArrayList<>();
+        for (ProfileAttribute attribute : ProfileAttribute.all()) {
+            ValueDictionary dictionary = segment.dictionary(attribute);
+            Map<String, Float> weights = valueWeights.get(attribute);
+            float[] byCode = new float[dictionary.size()];
+            for (int c = 1; c < byCode.length; c++) {
+                byCode[c] = weights.getOrDefault(dictionary.value(c), 0f);
+            }
+            if (attribute.isMultiValued()) {
+                // Sum of the bit weights for every value of each byte of the tag set
+                float[][] byteTables = new float[Integer.BYTES][256];
+                for (int b = 0; b < Integer.BYTES; b++) {
+                    for (int value = 1; value < 256; value++) {
+                        int bit = Integer.numberOfTrailingZeros(value);
+                        int code = b * Byte.SIZE + bit + 1;
+                        float bitWeight = code < byCode.length ? byCode[code] : 0f;
+                        byteTables[b][value] = byteTables[b][value & (value - 1)] + bitWeight;
+                    }
+                }
+                tagAttributes.add(attribute);
+                tagWeights.add(byteTables);
+            } else {
+                codeAttributes.add(attribute);
+                codeWeights.add(byCode);
+            }
+        }
+        float[] byAge = new float[256];
+        for (int age = 0; age <= Byte.MAX_VALUE; age++) {
+            byAge[age] = ageWeights[age / AGE_BUCKET_YEARS];
+        }
+        int maxActive = codeAttributes.size() + tagAttributes.size() * ProfileAttribute.MAX_TAG_VALUES + 1;
+        float[] inverseNorm = new float[maxActive + 1];
+        for (int active = 1; active <= maxActive; active++) {
+            inverseNorm[active] = (float) (1.0 / Math.sqrt(active));
+        }
+        return new Scorer(codeAttributes.toArray(new ProfileAttribute[0]), codeWeights.toArray(new float[0][]),
+                tagAttributes.toArray(new ProfileAttribute[0]), tagWeights.toArray(new float[0][][]),
+                byAge, inverseNorm);
+    }
+
+    /**
+     * Criteria describing about {@code coverage} of a lookalike audience. The coverage budget is
+     * split evenly over age and the attributes: each keeps its most frequent values (or central
+     * ages) covering {@code coverage^(1/dimensions)} of the audience, and is left unconstrained
+     * when that would accept every value, so only attributes the audience concentrates on remain.
+     */
+    public static AudienceCriteria describe(List<ProfilePart> parts, long[] refs, double coverage) {
+        AudienceCriteria criteria = AudienceCriteria.builder().targetSegment("lookalike").build();
+        if (refs.length == 0) {
+            return criteria;
+        }
+        byte[] age = new byte[1];
+        short[] code = new short[1];
+        int[] tags = new int[1];
+        int[] ages = new int[refs.length];
+        int knownAges = 0;
+        Map<ProfileAttribute, Map<String, int[]>> valueCounts = new EnumMap<>(ProfileAttribute.class);
+        Map<ProfileAttribute, List<List<String>>> tagSets = new EnumMap<>(ProfileAttribute.class);
+        for (ProfileAttribute attribute : ProfileAttribute.all()) {
+            valueCounts.put(attribute, new HashMap<>());
+            tagSets.put(attribute, new ArrayList<>());
+        }
+
+        for (long ref : refs) {
+            ProfileSegment segment = parts.get(ProfileSnapshot.partOf(ref)).segment();
+            int row = ProfileSnapshot.rowOf(ref);
+            segment.readAges(row, 1, age);
+            if (age[0] >= 0) {
+                ages[knownAges++] = age[0];
+            }
+            for (ProfileAttribute attribute : ProfileAttribute.all()) {
+                ValueDictionary dictionary = segment.dictionary(attribute);
+                Map<String, int[]> counts = valueCounts.get(attribute);
+                if (attribute.isMultiValued()) {
+                    segment.readTags(attribute, row, 1, tags);
+                    List<String> values = new ArrayList<>(Integer.bitCount(tags[0]));
+                    for (int bits = tags[0]; bits != 0; bits &= bits - 1) {
+                        String value = dictionary.value(Integer.numberOfTrailingZeros(bits) + 1);
+                        values.add(value);
+                        counts.computeIfAbsent(value, v -> new int[1])[0]++;
+                    }
+                    tagSets.get(attribute).add(values);
+                } else {
+                    segment.readCodes(attribute, row, 1, code);
+                    if (code[0] != ValueDictionary.UNKNOWN) {
+                        counts.computeIfAbsent(dictionary.value(code[0]), v -> new int[1])[0]++;
+                    }
+                }
+            }
+        }
+
+        coverage = Math.pow(coverage, 1.0 / (ProfileAttribute.all().length + 1));
+        if (knownAges > 0) {
+            Arrays.sort(ages, 0, knownAges);
+            double tail = (1 - coverage) / 2;
+            criteria.setMinAge(Math.max(18, ages[(int) (tail * (knownAges - 1))]));
+            criteria.setMaxAge(Math.min(100, ages[(int) Math.ceil((1 - tail) * (knownAges - 1))]));
+        }
+        ProfileSegment base = parts.get(0).segment();
+        for (ProfileAttribute attribute : ProfileAttribute.all()) {
+            List<String> ranked = valueCounts.get(attribute).entrySet().stream()
+                    .sorted((a, b) -> Integer.compare(b.getValue()[0], a.getValue()[0]))
+                    .map(Map.Entry::getKey)
+                    .toList();
+            List<String> selected = attribute.isMultiValued()
+                    ? coverTags(ranked, tagSets.get(attribute), refs.length, coverage)
+                    : coverValues(ranked, valueCounts.get(attribute), refs.length, coverage);
+            if (selected != null && selected.size() < base.dictionary(attribute).size() - 1) {
+                setCriteriaValues(criteria, attribute, selected);
+            }
+        }
+        return criteria;
+    }
+
+    private static List<String> coverValues(List<String> ranked, Map<String, int[]> counts, int total,
+                                            double coverage) {
+        List<String> selected = new ArrayList<>();
+        int covered = 0;
+        for (String value : ranked) {
+            if (covered >= coverage * total) {
+                break;
+            }
+            selected.add(value);
+            covered += counts.get(value)[0];
+        }
+        // Profiles with unknown values never match a constrained attribute
+        return covered >= coverage * total ? selected : null;
+    }
+
+    private static List<String> coverTags(List<String> ranked, List<List<String>> tagSets, int total,
+                                          double coverage) {
+        List<String> selected = new ArrayList<>();
+        for (String value : ranked) {
+            selected.add(value);
+            int covered = 0;
+            for (List<String> tags : tagSets) {
+                if (!Collections.disjoint(tags, selected)) {
+                    covered++;
+                }
+            }
+            if (covered >= coverage * total) {
+                return selected;
+            }
+        }
+        return null;
+    }
+
+    private static void setCriteriaValues(AudienceCriteria criteria, ProfileAttribute attribute, List<String> values) {
+        switch (attribute) {
+            case GENDER -> criteria.setGender(values);
+            case INCOME_RANGE -> criteria.setIncomeRange(values);
+            case OCCUPATION -> criteria.setOccupation(values);
+            case LOCATION -> criteria.setLocation(values);
+            case MARITAL_STATUS -> criteria.setMaritalStatus(values);
+            case EDUCATION_LEVEL -> criteria.setEducationLevel(values);
+            case RISK_PROFILE -> criteria.setRiskProfile(values);
+            case PREFERRED_CHANNEL -> criteria.setPreferredCommunicationChannel(values);
+            case HAS_EXISTING_POLICY -> criteria.setHasExistingPolicy(Boolean.valueOf(values.get(0)));
+            case EXISTING_INSURANCE_TYPES -> criteria.setExistingInsuranceTypes(values);
+            case PURCHASE_HISTORY -> criteria.setPurchaseHistory(values);
+            case ONLINE_BEHAVIOR -> criteria.setOnlineBehavior(values);
+            case INTERESTS -> criteria.setInterests(values);
+        }
+    }
+
+    /**
+     * Model weights in one segment's code space. Scoring runs column by column over a
+     * block: each pass is a table gather plus a float add into the block's score array,
+     * with no branches, so the JIT keeps the loops tight and the columns stream from memory.
+     */
+    public static final class Scorer {
+
+        private final ProfileAttribute[] codeAttributes;
+        private final float[][] codeWeights;
+        private final ProfileAttribute[] tagAttributes;
+        private final float[][][] tagWeights;
+        private final float[] ageWeights;
+        private final float[] inverseNorm;
+
+        private Scorer(ProfileAttribute[] codeAttributes, float[][] codeWeights, ProfileAttribute[] tagAttributes,
+                       float[][][] tagWeights, float[] ageWeights, float[] inverseNorm) {
+            this.codeAttributes = codeAttributes;
+            this.codeWeights = codeWeights;
+            this.tagAttributes = tagAttributes;
+            this.tagWeights = tagWeights;
+            this.ageWeights = ageWeights;
+            this.inverseNorm = inverseNorm;
+        }
+
+        /**
+         * Score rows {@code [start, start + length)}; the returned array (owned by
+         * {@code scratch}) holds each row's mean cosine similarity to the seeds
+         */
+        public float[] score(ProfileSegment segment, int start, int length, Scratch scratch) {
+            float[] scores = scratch.scores;
+            int[] active = scratch.active;
+            byte[] ages = scratch.ages;
+            segment.readAges(start, length, ages);
+            for (int j = 0; j < length; j++) {
+                int age = ages[j] & 0xFF;
+                scores[j] = ageWeights[age];
+                // Unknown age is stored as -1 (255 here)
+                active[j] = (age - 255) >>> 31;
+            }
+            short[] codes = scratch.codes;
+            for (int k = 0; k < codeAttributes.length; k++) {
+                segment.readCodes(codeAttributes[k], start, length, codes);
+                float[] weights = codeWeights[k];
+                for (int j = 0; j < length; j++) {
+                    int code = codes[j];
+                    scores[j] += weights[code];
+                    active[j] += (code | -code) >>> 31;
+                }
+            }
+            int[] tags = scratch.tags;
+            for (int k = 0; k < tagAttributes.length; k++) {
+                segment.readTags(tagAttributes[k], start, length, tags);
+                float[] byte0 = tagWeights[k][0];
+                float[] byte1 = tagWeights[k][1];
+                float[] byte2 = tagWeights[k][2];
+                float[] byte3 = tagWeights[k][3];
+                for (int j = 0; j < length; j++) {
+                    int bits = tags[j];
+                    scores[j] += byte0[bits & 0xFF] + byte1[(bits >>> 8) & 0xFF]
+                            + byte2[(bits >>> 16) & 0xFF] + byte3[bits >>> 24];
+                    active[j] += Integer.bitCount(bits);
+                }
+            }
+            for (int j = 0; j < length; j++) {
+                scores[j] *= inverseNorm[active[j]];
+            }
+            return scores;
+        }
+    }
+
+    /**
+     * Per-thread block buffers for {@link Scorer#score}
+     */
+    public static final class Scratch {
+        final float[] scores = new float[CompiledCriteria.BLOCK_SIZE];
+        final int[] active = new int[CompiledCriteria.BLOCK_SIZE];
+        final byte[] ages = new byte[CompiledCriteria.BLOCK_SIZE];
+        final short[] codes = new short[CompiledCriteria.BLOCK_SIZE];
+        final int[] tags = new int[CompiledCriteria.BLOCK_SIZE];
+    }
+}
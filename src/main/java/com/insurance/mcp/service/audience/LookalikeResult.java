@@ -0,0 +1,23 @@
+package com.insurance.mcp.service.audience;
+
+import com.insurance.mcp.model.campaign.AudienceCriteria;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Top-K profiles most similar to a seed set, best first
+ */
+@Data
+@AllArgsConstructor
+public class LookalikeResult {
+
+    private long[] customerIds;
+    private float[] scores;
+    private AudienceCriteria derivedCriteria;
+    /** Share of the returned customers matching {@link #derivedCriteria} */
+    private double derivedCoverage;
+    private int seedsUsed;
+    private int seedsMissing;
+    private int scannedProfiles;
+    private String method;
+}
@@ -0,0 +1,79 @@
+package com.insurance.mcp.service.audience;
+
+import com.insurance.mcp.service.audience.bitmap.RoaringBitmap;
+
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Fork-join top-K similarity scan of one part over a row range. Ranges are split on block
+ * boundaries like {@link PartitionCountTask}; every leaf keeps its own bounded heap and
+ * heaps are merged on the way up, so workers never share state.
+ */
+public final class LookalikeScanTask extends RecursiveTask<TopKHeap> {
+
+    private static final long serialVersionUID = 1L;
+
+    private final LookalikeModel.Scorer scorer;
+    private final ProfileSegment segment;
+    private final int partIndex;
+    private final RoaringBitmap excluded;
+    private final int k;
+    private final int from;
+    private final int to;
+    private final int leafRows;
+
+    /**
+     * @param excluded rows never returned (deleted rows and the seeds themselves), may be null
+     */
+    public LookalikeScanTask(LookalikeModel.Scorer scorer, ProfileSegment segment, int partIndex,
+                             RoaringBitmap excluded, int k, int from, int to, int leafRows) {
+        this.scorer = scorer;
+        this.segment = segment;
+        this.partIndex = partIndex;
+        this.excluded = excluded;
+        this.k = k;
+        this.from = from;
+        this.to = to;
+        this.leafRows = Math.max(CompiledCriteria.BLOCK_SIZE, leafRows);
+    }
+
+    @Override
+    protected TopKHeap compute() {
+        if (to - from <= leafRows) {
+            return scan();
+        }
+        int blocks = (to - from + CompiledCriteria.BLOCK_SIZE - 1) / CompiledCriteria.BLOCK_SIZE;
+        int mid = from + (blocks / 2) * CompiledCriteria.BLOCK_SIZE;
+        LookalikeScanTask right = new LookalikeScanTask(scorer, segment, partIndex, excluded, k, mid, to, leafRows);
+        right.fork();
+        TopKHeap heap = new LookalikeScanTask(scorer, segment, partIndex, excluded, k, from, mid, leafRows).compute();
+        heap.merge(right.join());
+        return heap;
+    }
+
+    /**
+     * Score {@code [from, to)} block by block on the calling thread
+     */
+    public TopKHeap scan() {
+        TopKHeap heap = new TopKHeap(k);
+        LookalikeModel.Scratch scratch = new LookalikeModel.Scratch();
+        for (int start = from; start < to; start += CompiledCriteria.BLOCK_SIZE) {
+            int length = Math.min(CompiledCriteria.BLOCK_SIZE, to - start);
+            float[] scores = scorer.score(segment, start, length, scratch);
+            if (excluded != null) {
+                int end = start + length;
+                for (int row = excluded.nextSetBit(start); row >= 0 && row < end; row = excluded.nextSetBit(row + 1)) {
+                    scores[row - start] = Float.NEGATIVE_INFINITY;
+                }
+            }
+            float threshold = heap.threshold();
+            for (int j = 0; j < length; j++) {
+                if (scores[j] > threshold) {
+                    heap.offer(scores[j], ProfileSnapshot.location(partIndex, start + j));
+                    threshold = heap.threshold();
+                }
+            }
+        }
+        return heap;
+    }
+}
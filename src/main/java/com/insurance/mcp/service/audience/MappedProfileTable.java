@@ -0,0 +1,201 @@
+package com.insurance.mcp.service.audience;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.insurance.mcp.service.audience.ProfileFileFormat.*;
+
+/**
+ * Profile dataset evaluated in place from read-only memory-mapped file pages.
+ * Opening only parses the header, directory and dictionaries, so it costs the same
+ * for any dataset size; column pages are faulted in from the OS page cache on
+ * first use and shared by every process mapping the same file.
+ */
+public final class MappedProfileTable implements ProfileSegment {
+
+    private final Path path;
+    private final int size;
+    private final long createdAt;
+    private final LongBuffer customerIds;
+    private final ByteBuffer ages;
+    private final FloatBuffer latitudes;
+    private final FloatBuffer longitudes;
+    private final LongBuffer[] identityKeys = new LongBuffer[IdentityKey.all().length];
+    private final ShortBuffer[] codes = new ShortBuffer[ProfileAttribute.all().length];
+    private final IntBuffer[] tags = new IntBuffer[ProfileAttribute.all().length];
+    private final ValueDictionary[] dictionaries = new ValueDictionary[ProfileAttribute.all().length];
+
+    private MappedProfileTable(Path path, FileChannel channel) throws IOException {
+        this.path = path;
+        MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+        header.order(BYTE_ORDER);
+
+        byte[] magic = new byte[MAGIC.length];
+        header.get(magic);
+        if (!Arrays.equals(magic, MAGIC)) {
+            throw new IOException("Not a profile dataset file: " + path);
+        }
+        int version = header.getInt();
+        if (version != FORMAT_VERSION) {
+            throw new IOException("Unsupported profile dataset version " + version + " in " + path);
+        }
+        header.getInt();
+        long rows = header.getLong();
+        if (rows > Integer.MAX_VALUE / 8) {
+            throw new IOException("Profile dataset too large for a single segment: " + rows + " rows");
+        }
+        this.size = (int) rows;
+        int columnCount = header.getInt();
+        header.getInt();
+        long directoryOffset = header.getLong();
+        this.createdAt = header.getLong();
+
+        MappedByteBuffer directory = channel.map(FileChannel.MapMode.READ_ONLY, directoryOffset,
+                (long) columnCount * DIRECTORY_ENTRY_SIZE);
+        directory.order(BYTE_ORDER);
+        Map<String, ByteBuffer> data = new HashMap<>();
+        Map<String, ValueDictionary> dictionaryPages = new HashMap<>();
+        for (int c = 0; c < columnCount; c++) {
+            byte[] rawName = new byte[COLUMN_NAME_SIZE];
+            directory.get(rawName);
+            String name = new String(rawName, StandardCharsets.US_ASCII).trim();
+            directory.getInt();
+            directory.getInt();
+            long dictionaryOffset = directory.getLong();
+            long dictionaryLength = directory.getLong();
+            long dataOffset = directory.getLong();
+            long dataLength = directory.getLong();
+            if (dictionaryLength > 0) {
+                dictionaryPages.put(name, readDictionary(
+                        channel.map(FileChannel.MapMode.READ_ONLY, dictionaryOffset, dictionaryLength)));
+            }
+            data.put(name, channel.map(FileChannel.MapMode.READ_ONLY, dataOffset, dataLength).order(BYTE_ORDER));
+        }
+
+        this.customerIds = required(data, CUSTOMER_ID_COLUMN).asLongBuffer();
+        this.ages = required(data, AGE_COLUMN);
+        ByteBuffer latitudeColumn = data.get(LATITUDE_COLUMN);
+        ByteBuffer longitudeColumn = data.get(LONGITUDE_COLUMN);
+        boolean located = latitudeColumn != null && longitudeColumn != null;
+        this.latitudes = located ? latitudeColumn.asFloatBuffer() : null;
+        this.longitudes = located ? longitudeColumn.asFloatBuffer() : null;
+        for (IdentityKey key : IdentityKey.all()) {
+            ByteBuffer column = data.get(key.columnName());
+            identityKeys[key.ordinal()] = column != null ? column.asLongBuffer() : null;
+        }
+        for (ProfileAttribute attribute : ProfileAttribute.all()) {
+            String name = columnName(attribute);
+            int i = attribute.ordinal();
+            ByteBuffer column = required(data, name);
+            dictionaries[i] = dictionaryPages.getOrDefault(name, ValueDictionary.of(List.of()));
+            if (attribute.isMultiValued()) {
+                tags[i] = column.asIntBuffer();
+            } else {
+                codes[i] = column.asShortBuffer();
+            }
+        }
+    }
+
+    /**
+     * Map a dataset file; the mapping stays valid after the channel is closed
+     */
+    public static MappedProfileTable open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return new MappedProfileTable(path, channel);
+        }
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public long getCreatedAt() {
+        return createdAt;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public long customerId(int row) {
+        return customerIds.get(row);
+    }
+
+    @Override
+    public ValueDictionary dictionary(ProfileAttribute attribute) {
+        return dictionaries[attribute.ordinal()];
+    }
+
+    @Override
+    public void readAges(int start, int length, byte[] dst) {
+        // Absolute bulk gets leave the shared buffers' positions untouched, so reads are thread-safe
+        ages.get(start, dst, 0, length);
+    }
+
+    @Override
+    public void readCodes(ProfileAttribute attribute, int start, int length, short[] dst) {
+        codes[attribute.ordinal()].get(start, dst, 0, length);
+    }
+
+    @Override
+    public void readTags(ProfileAttribute attribute, int start, int length, int[] dst) {
+        tags[attribute.ordinal()].get(start, dst, 0, length);
+    }
+
+    @Override
+    public void readCoordinates(int start, int length, float[] latitudes, float[] longitudes) {
+        if (this.latitudes == null) {
+            Arrays.fill(latitudes, 0, length, Float.NaN);
+            Arrays.fill(longitudes, 0, length, Float.NaN);
+            return;
+        }
+        this.latitudes.get(start, latitudes, 0, length);
+        this.longitudes.get(start, longitudes, 0, length);
+    }
+
+    @Override
+    public void readIdentityKeys(IdentityKey key, int start, int length, long[] dst) {
+        LongBuffer column = identityKeys[key.ordinal()];
+        if (column == null) {
+            Arrays.fill(dst, 0, length, IdentityKey.NONE);
+            return;
+        }
+        column.get(start, dst, 0, length);
+    }
+
+    private ByteBuffer required(Map<String, ByteBuffer> data, String column) throws IOException {
+        ByteBuffer buffer = data.get(column);
+        if (buffer == null) {
+            throw new IOException("Profile dataset " + path + " has no column " + column);
+        }
+        return buffer;
+    }
+
+    private static ValueDictionary readDictionary(ByteBuffer page) {
+        page.order(BYTE_ORDER);
+        int count = page.getInt();
+        List<String> values = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            byte[] bytes = new byte[page.getInt()];
+            page.get(bytes);
+            values.add(new String(bytes, StandardCharsets.UTF_8));
+        }
+        return ValueDictionary.of(values);
+    }
+}
@@ -0,0 +1,49 @@
+package com.insurance.mcp.service.audience;
+
+import com.insurance.mcp.service.audience.bitmap.RoaringBitmap;
+
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Fork-join count of several criteria over a row range. Ranges are split in halves
+ * on block boundaries down to {@code leafRows}, so idle workers steal the larger,
+ * older halves while the owner keeps scanning the cache-warm ones.
+ */
+public final class PartitionCountTask extends RecursiveTask<long[]> {
+
+    private static final long serialVersionUID = 1L;
+
+    private final CompiledCriteria[] criteria;
+    private final ProfileSegment segment;
+    private final RoaringBitmap deletes;
+    private final int from;
+    private final int to;
+    private final int leafRows;
+
+    public PartitionCountTask(CompiledCriteria[] criteria, ProfileSegment segment, RoaringBitmap deletes,
+                              int from, int to, int leafRows) {
+        this.criteria = criteria;
+        this.segment = segment;
+        this.deletes = deletes;
+        this.from = from;
+        this.to = to;
+        this.leafRows = Math.max(CompiledCriteria.BLOCK_SIZE, leafRows);
+    }
+
+    @Override
+    protected long[] compute() {
+        if (to - from <= leafRows) {
+            return CompiledCriteria.countAll(criteria, segment, deletes, from, to);
+        }
+        int blocks = (to - from + CompiledCriteria.BLOCK_SIZE - 1) / CompiledCriteria.BLOCK_SIZE;
+        int mid = from + (blocks / 2) * CompiledCriteria.BLOCK_SIZE;
+        PartitionCountTask right = new PartitionCountTask(criteria, segment, deletes, mid, to, leafRows);
+        right.fork();
+        long[] counts = new PartitionCountTask(criteria, segment, deletes, from, mid, leafRows).compute();
+        long[] rightCounts = right.join();
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += rightCounts[i];
+        }
+        return counts;
+    }
+}
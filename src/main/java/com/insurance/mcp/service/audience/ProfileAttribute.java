@@ -0,0 +1,77 @@
+package com.insurance.mcp.service.audience;
+
+import com.insurance.mcp.model.campaign.AudienceCriteria;
+import com.insurance.mcp.model.campaign.CustomerProfile;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Profile attributes stored as dictionary-encoded columns.
+ * Single-valued attributes are stored as one {@code short} code per row; multi-valued
+ * (tag) attributes as an {@code int} bit set, so their dictionaries are limited to 32 values.
+ */
+public enum ProfileAttribute {
+
+    GENDER(false, AudienceCriteria::getGender, p -> single(p.getGender())),
+    INCOME_RANGE(false, AudienceCriteria::getIncomeRange, p -> single(p.getIncomeRange())),
+    OCCUPATION(false, AudienceCriteria::getOccupation, p -> single(p.getOccupation())),
+    LOCATION(false, AudienceCriteria::getLocation, p -> single(p.getLocation())),
+    MARITAL_STATUS(false, AudienceCriteria::getMaritalStatus, p -> single(p.getMaritalStatus())),
+    EDUCATION_LEVEL(false, AudienceCriteria::getEducationLevel, p -> single(p.getEducationLevel())),
+    RISK_PROFILE(false, AudienceCriteria::getRiskProfile, p -> single(p.getRiskProfile())),
+    PREFERRED_CHANNEL(false, AudienceCriteria::getPreferredCommunicationChannel,
+            p -> single(p.getPreferredCommunicationChannel())),
+    HAS_EXISTING_POLICY(false, c -> flag(c.getHasExistingPolicy()), p -> flag(p.getHasExistingPolicy())),
+    EXISTING_INSURANCE_TYPES(true, AudienceCriteria::getExistingInsuranceTypes, CustomerProfile::getExistingInsuranceTypes),
+    PURCHASE_HISTORY(true, AudienceCriteria::getPurchaseHistory, CustomerProfile::getPurchaseHistory),
+    ONLINE_BEHAVIOR(true, AudienceCriteria::getOnlineBehavior, CustomerProfile::getOnlineBehavior),
+    INTERESTS(true, AudienceCriteria::getInterests, CustomerProfile::getInterests);
+
+    /** Largest dictionary a tag attribute can hold (bits in an int) */
+    public static final int MAX_TAG_VALUES = Integer.SIZE;
+
+    private static final ProfileAttribute[] VALUES = values();
+
+    private final boolean multiValued;
+    private final Function<AudienceCriteria, List<String>> criteriaValues;
+    private final Function<CustomerProfile, List<String>> profileValues;
+
+    ProfileAttribute(boolean multiValued,
+                     Function<AudienceCriteria, List<String>> criteriaValues,
+                     Function<CustomerProfile, List<String>> profileValues) {
+        this.multiValued = multiValued;
+        this.criteriaValues = criteriaValues;
+        this.profileValues = profileValues;
+    }
+
+    public static ProfileAttribute[] all() {
+        return VALUES;
+    }
+
+    public boolean isMultiValued() {
+        return multiValued;
+    }
+
+    /**
+     * Accepted values in a criteria; null or empty means the attribute is unconstrained
+     */
+    public List<String> criteriaValues(AudienceCriteria criteria) {
+        return criteriaValues.apply(criteria);
+    }
+
+    /**
+     * Values carried by a profile; null or empty means unknown
+     */
+    public List<String> profileValues(CustomerProfile profile) {
+        return profileValues.apply(profile);
+    }
+
+    private static List<String> single(String value) {
+        return value == null ? null : List.of(value);
+    }
+
+    private static List<String> flag(Boolean value) {
+        return value == null ? null : List.of(value.toString());
+    }
+}
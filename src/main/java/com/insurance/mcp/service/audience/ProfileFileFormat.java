@@ -0,0 +1,55 @@
+package com.insurance.mcp.service.audience;
+
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+/**
+ * Layout of the immutable columnar profile dataset file ({@code .mcpprof}).
+ *
+ * <pre>
+ * header      64 bytes   magic, format version, row count, column count, directory offset, created-at
+ * directory   72 bytes   per column: name[32], type, dictionary offset/length, data offset/length
+ * dictionary  per coded column: value count, then (length, UTF-8 bytes) per value, code order from 1
+ * data pages  per column, page aligned, raw little-endian primitives (one per row)
+ * </pre>
+ *
+ * Readers must reject unknown major versions; columns they do not know are ignored,
+ * so new columns can be added without breaking older servers.
+ */
+public final class ProfileFileFormat {
+
+    static final byte[] MAGIC = "MCPPROF\0".getBytes(StandardCharsets.US_ASCII);
+    static final int FORMAT_VERSION = 1;
+    static final ByteOrder BYTE_ORDER = ByteOrder.LITTLE_ENDIAN;
+
+    static final int HEADER_SIZE = 64;
+    static final int DIRECTORY_ENTRY_SIZE = 72;
+    static final int COLUMN_NAME_SIZE = 32;
+    static final int PAGE_SIZE = 4096;
+
+    static final String CUSTOMER_ID_COLUMN = "customer_id";
+    static final String AGE_COLUMN = "age";
+    /** Optional float columns; files written before they existed read as unknown locations */
+    static final String LATITUDE_COLUMN = "latitude";
+    static final String LONGITUDE_COLUMN = "longitude";
+    // Optional int64 identity key hash columns are named by IdentityKey.columnName()
+
+    /** Column element types */
+    static final int TYPE_INT64 = 1;
+    static final int TYPE_INT8 = 2;
+    static final int TYPE_CODE16 = 3;
+    static final int TYPE_TAGS32 = 4;
+    static final int TYPE_FLOAT32 = 5;
+
+    private ProfileFileFormat() {
+    }
+
+    static String columnName(ProfileAttribute attribute) {
+        return attribute.name().toLowerCase(Locale.ROOT);
+    }
+
+    static long alignToPage(long offset) {
+        return (offset + PAGE_SIZE - 1) & -PAGE_SIZE;
+    }
+}
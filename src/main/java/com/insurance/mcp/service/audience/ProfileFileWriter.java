@@ -0,0 +1,194 @@
+package com.insurance.mcp.service.audience;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.insurance.mcp.service.audience.ProfileFileFormat.*;
+
+/**
+ * Writes a {@link ProfileSegment} in the {@link ProfileFileFormat} layout.
+ * The file is written next to the target and moved into place atomically, so
+ * servers mapping the previous version never observe a partial file.
+ */
+public final class ProfileFileWriter {
+
+    private static final int BLOCK = CompiledCriteria.BLOCK_SIZE;
+
+    private ProfileFileWriter() {
+    }
+
+    public static void write(ProfileSegment segment, Path target) throws IOException {
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        List<Column> columns = columns(segment);
+
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            long offset = HEADER_SIZE + (long) DIRECTORY_ENTRY_SIZE * columns.size();
+
+            for (Column column : columns) {
+                if (column.dictionary != null) {
+                    byte[] page = encodeDictionary(column.dictionary);
+                    column.dictionaryOffset = offset;
+                    column.dictionaryLength = page.length;
+                    writeFully(channel, ByteBuffer.wrap(page), offset);
+                    offset += page.length;
+                }
+            }
+            for (Column column : columns) {
+                offset = alignToPage(offset);
+                column.dataOffset = offset;
+                column.dataLength = (long) segment.size() * column.width;
+                writeData(segment, column, channel, offset);
+                offset += column.dataLength;
+            }
+
+            ByteBuffer head = ByteBuffer.allocate(HEADER_SIZE + DIRECTORY_ENTRY_SIZE * columns.size()).order(BYTE_ORDER);
+            head.put(MAGIC);
+            head.putInt(FORMAT_VERSION);
+            head.putInt(0);
+            head.putLong(segment.size());
+            head.putInt(columns.size());
+            head.putInt(0);
+            head.putLong(HEADER_SIZE);
+            head.putLong(System.currentTimeMillis());
+            head.position(HEADER_SIZE);
+            for (Column column : columns) {
+                byte[] name = new byte[COLUMN_NAME_SIZE];
+                byte[] encoded = column.name.getBytes(StandardCharsets.US_ASCII);
+                System.arraycopy(encoded, 0, name, 0, encoded.length);
+                head.put(name);
+                head.putInt(column.type);
+                head.putInt(0);
+                head.putLong(column.dictionaryOffset);
+                head.putLong(column.dictionaryLength);
+                head.putLong(column.dataOffset);
+                head.putLong(column.dataLength);
+            }
+            head.flip();
+            writeFully(channel, head, 0);
+            channel.force(true);
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static List<Column> columns(ProfileSegment segment) {
+        List<Column> columns = new ArrayList<>();
+        columns.add(new Column(CUSTOMER_ID_COLUMN, TYPE_INT64, 8, null, null));
+        columns.add(new Column(AGE_COLUMN, TYPE_INT8, 1, null, null));
+        columns.add(new Column(LATITUDE_COLUMN, TYPE_FLOAT32, 4, null, null));
+        columns.add(new Column(LONGITUDE_COLUMN, TYPE_FLOAT32, 4, null, null));
+        for (IdentityKey key : IdentityKey.all()) {
+            columns.add(new Column(key.columnName(), TYPE_INT64, 8, null, null, key));
+        }
+        for (ProfileAttribute attribute : ProfileAttribute.all()) {
+            columns.add(attribute.isMultiValued()
+                    ? new Column(columnName(attribute), TYPE_TAGS32, 4, attribute, segment.dictionary(attribute))
+                    : new Column(columnName(attribute), TYPE_CODE16, 2, attribute, segment.dictionary(attribute)));
+        }
+        return columns;
+    }
+
+    private static byte[] encodeDictionary(ValueDictionary dictionary) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ByteBuffer scratch = ByteBuffer.allocate(4).order(BYTE_ORDER);
+        out.writeBytes(scratch.putInt(0, dictionary.size() - 1).array());
+        for (String value : dictionary.values()) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            out.writeBytes(scratch.putInt(0, bytes.length).array());
+            out.writeBytes(bytes);
+        }
+        return out.toByteArray();
+    }
+
+    private static void writeData(ProfileSegment segment, Column column, FileChannel channel, long offset)
+            throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(BLOCK * column.width).order(BYTE_ORDER);
+        byte[] bytes = new byte[BLOCK];
+        short[] shorts = new short[BLOCK];
+        int[] ints = new int[BLOCK];
+        float[] latitudes = new float[BLOCK];
+        float[] longitudes = new float[BLOCK];
+        long[] longs = new long[BLOCK];
+        int rows = segment.size();
+        for (int start = 0; start < rows; start += BLOCK) {
+            int length = Math.min(BLOCK, rows - start);
+            buffer.clear();
+            switch (column.type) {
+                case TYPE_INT64:
+                    if (column.identityKey != null) {
+                        segment.readIdentityKeys(column.identityKey, start, length, longs);
+                        buffer.asLongBuffer().put(longs, 0, length);
+                        buffer.position(length * 8);
+                        break;
+                    }
+                    for (int j = 0; j < length; j++) {
+                        buffer.putLong(segment.customerId(start + j));
+                    }
+                    break;
+                case TYPE_INT8:
+                    segment.readAges(start, length, bytes);
+                    buffer.put(bytes, 0, length);
+                    break;
+                case TYPE_CODE16:
+                    segment.readCodes(column.attribute, start, length, shorts);
+                    buffer.asShortBuffer().put(shorts, 0, length);
+                    buffer.position(length * 2);
+                    break;
+                case TYPE_FLOAT32:
+                    segment.readCoordinates(start, length, latitudes, longitudes);
+                    buffer.asFloatBuffer().put(LATITUDE_COLUMN.equals(column.name) ? latitudes : longitudes, 0, length);
+                    buffer.position(length * 4);
+                    break;
+                default:
+                    segment.readTags(column.attribute, start, length, ints);
+                    buffer.asIntBuffer().put(ints, 0, length);
+                    buffer.position(length * 4);
+                    break;
+            }
+            buffer.flip();
+            writeFully(channel, buffer, offset + (long) start * column.width);
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    private static final class Column {
+        final String name;
+        final int type;
+        final int width;
+        final ProfileAttribute attribute;
+        final ValueDictionary dictionary;
+        final IdentityKey identityKey;
+        long dictionaryOffset;
+        long dictionaryLength;
+        long dataOffset;
+        long dataLength;
+
+        Column(String name, int type, int width, ProfileAttribute attribute, ValueDictionary dictionary) {
+            this(name, type, width, attribute, dictionary, null);
+        }
+
+        Column(String name, int type, int width, ProfileAttribute attribute, ValueDictionary dictionary,
+               IdentityKey identityKey) {
+            this.name = name;
+            this.type = type;
+            this.width = width;
+            this.attribute = attribute;
+            this.dictionary = dictionary;
+            this.identityKey = identityKey;
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.insurance.mcp.service.audience;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.PropertyNamingStrategies;
+import com.insurance.mcp.model.campaign.CustomerProfile;
+import com.insurance.mcp.model.campaign.ProfileChange;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Incremental profile ingestion from NDJSON, posted to the HTTP endpoint or dropped into
+ * the inbox directory. Each line is {@code {"op":"upsert|delete","customer_id":...,"profile":{...}}}
+ * or a bare profile (an upsert); lines are applied to the store in batches, each batch
+ * becoming visible atomically. Batches applied before a malformed line stay applied.
+ */
+@Slf4j
+@Service
+public class ProfileIngestService {
+
+    @Autowired
+    private CustomerProfileStore customerProfileStore;
+
+    @Value("${mcp.audience.ingest.batch-size:5000}")
+    private int batchSize;
+
+    @Value("${mcp.audience.ingest.inbox:}")
+    private String inbox;
+
+    private final ObjectMapper mapper = new ObjectMapper()
+            .setPropertyNamingStrategy(PropertyNamingStrategies.SNAKE_CASE)
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    /**
+     * Apply every change read from {@code reader}
+     */
+    public Map<String, Object> ingest(Reader reader) throws IOException {
+        long start = System.nanoTime();
+        BufferedReader lines = reader instanceof BufferedReader buffered ? buffered : new BufferedReader(reader);
+        List<ProfileChange> batch = new ArrayList<>(batchSize);
+        int upserts = 0;
+        int deletes = 0;
+        int batches = 0;
+        IngestResult last = null;
+        String line;
+        int lineNumber = 0;
+        while ((line = lines.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+            batch.add(parse(line, lineNumber));
+            if (batch.size() >= batchSize) {
+                last = customerProfileStore.ingest(batch);
+                upserts += last.getUpserts();
+                deletes += last.getDeletes();
+                batches++;
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            last = customerProfileStore.ingest(batch);
+            upserts += last.getUpserts();
+            deletes += last.getDeletes();
+            batches++;
+        }
+
+        double seconds = Math.max(1e-9, (System.nanoTime() - start) / 1e9);
+        Map<String, Object> result = new HashMap<>();
+        result.put("upserts", upserts);
+        result.put("deletes", deletes);
+        result.put("batches", batches);
+        result.put("rows_per_second", Math.round((upserts + deletes) / seconds));
+        result.put("snapshot_version", last != null ? last.getSnapshotVersion() : customerProfileStore.snapshot().version());
+        result.put("delta_rows", last != null ? last.getDeltaRows() : customerProfileStore.snapshot().deltaRows());
+        result.put("profiles", customerProfileStore.size());
+        return result;
+    }
+
+    /**
+     * Apply {@code *.ndjson} files from the inbox directory, renaming each to
+     * {@code .done} or {@code .failed} afterwards
+     */
+    @Scheduled(fixedDelayString = "${mcp.audience.ingest.inbox-poll-interval-ms:10000}")
+    public void pollInbox() {
+        if (inbox.isBlank()) {
+            return;
+        }
+        Path directory = Path.of(inbox);
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*.ndjson")) {
+            for (Path file : files) {
+                String suffix;
+                try (BufferedReader reader = Files.newBufferedReader(file)) {
+                    Map<String, Object> result = ingest(reader);
+                    log.info("Ingested profile changes from {}: {}", file.getFileName(), result);
+                    suffix = ".done";
+                } catch (IOException | RuntimeException e) {
+                    log.warn("Failed to ingest {}: {}", file.getFileName(), e.getMessage());
+                    suffix = ".failed";
+                }
+                Files.move(file, file.resolveSibling(file.getFileName() + suffix), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            log.warn("Failed to scan profile inbox {}: {}", directory, e.getMessage());
+        }
+    }
+
+    private ProfileChange parse(String line, int lineNumber) {
+        try {
+            JsonNode node = mapper.readTree(line);
+            if (node.has("op")) {
+                ProfileChange change = mapper.treeToValue(node, ProfileChange.class);
+                if (!change.isDelete() && !ProfileChange.UPSERT.equalsIgnoreCase(change.getOp())) {
+                    throw new IllegalArgumentException("Unknown op '" + change.getOp() + "' on line " + lineNumber);
+                }
+                return change;
+            }
+            CustomerProfile profile = mapper.treeToValue(node, CustomerProfile.class);
+            return new ProfileChange(ProfileChange.UPSERT, profile.getCustomerId(), profile);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Malformed profile change on line " + lineNumber + ": " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.insurance.mcp.service.audience;
+
+import com.insurance.mcp.service.audience.bitmap.RoaringBitmap;
+
+/**
+ * One immutable segment of a {@link ProfileSnapshot} and the rows of it that have
+ * since been deleted or superseded by a newer version in a later part
+ */
+public final class ProfilePart {
+
+    private final ProfileSegment segment;
+    private final RoaringBitmap deletes;
+    private volatile CustomerIdIndex ids;
+
+    public ProfilePart(ProfileSegment segment, RoaringBitmap deletes) {
+        this(segment, deletes, null);
+    }
+
+    ProfilePart(ProfileSegment segment, RoaringBitmap deletes, CustomerIdIndex ids) {
+        this.segment = segment;
+        this.deletes = deletes;
+        this.ids = ids;
+    }
+
+    public ProfileSegment segment() {
+        return segment;
+    }
+
+    /**
+     * Deleted rows, or null when every row is live
+     */
+    public RoaringBitmap deletes() {
+        return deletes;
+    }
+
+    /**
+     * Customer id lookup over the segment, built on first use and shared by later
+     * versions of this part (racing first builds are harmless)
+     */
+    public CustomerIdIndex ids() {
+        CustomerIdIndex index = ids;
+        if (index == null) {
+            index = CustomerIdIndex.build(segment);
+            ids = index;
+        }
+        return index;
+    }
+
+    /**
+     * Row of a live (not deleted) profile with {@code customerId}, or -1
+     */
+    public int liveRow(long customerId) {
+        int row = ids().row(customerId);
+        return row >= 0 && (deletes == null || !deletes.contains(row)) ? row : -1;
+    }
+
+    public int liveRows() {
+        return segment.size() - (deletes == null ? 0 : (int) deletes.cardinality());
+    }
+
+    public ProfilePart withDeletes(RoaringBitmap rows) {
+        if (rows.isEmpty()) {
+            return this;
+        }
+        return new ProfilePart(segment, deletes == null ? rows : deletes.or(rows), ids);
+    }
+}
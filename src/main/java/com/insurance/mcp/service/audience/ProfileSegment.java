@@ -0,0 +1,40 @@
+package com.insurance.mcp.service.audience;
+
+/**
+ * Read access to a block of column-oriented customer profiles, held on the heap
+ * or in mapped file pages. Columns are read in bulk into caller-owned scratch
+ * arrays so evaluation loops run over plain arrays regardless of storage.
+ */
+public interface ProfileSegment {
+
+    int size();
+
+    long customerId(int row);
+
+    ValueDictionary dictionary(ProfileAttribute attribute);
+
+    /**
+     * Copy ages of rows {@code [start, start + length)} into {@code dst[0..length)}
+     */
+    void readAges(int start, int length, byte[] dst);
+
+    /**
+     * Copy dictionary codes of a single-valued attribute
+     */
+    void readCodes(ProfileAttribute attribute, int start, int length, short[] dst);
+
+    /**
+     * Copy tag bit sets of a multi-valued attribute
+     */
+    void readTags(ProfileAttribute attribute, int start, int length, int[] dst);
+
+    /**
+     * Copy home coordinates in degrees; NaN where a customer's location is unknown
+     */
+    void readCoordinates(int start, int length, float[] latitudes, float[] longitudes);
+
+    /**
+     * Copy identity key hashes; {@link IdentityKey#NONE} where a record has no such key
+     */
+    void readIdentityKeys(IdentityKey key, int start, int length, long[] dst);
+}
@@ -0,0 +1,121 @@
+package com.insurance.mcp.service.audience;
+
+import java.util.List;
+
+/**
+ * Immutable view of the targeting data that a request evaluates against: the
+ * read-optimized base part with its indexes, followed by the delta parts written
+ * by ingestion since the last merge. Published as a whole so every query sees one
+ * consistent version without taking locks.
+ */
+public final class ProfileSnapshot {
+
+    private final List<ProfilePart> parts;
+    private final AudienceBitmapIndex bitmapIndex;
+    private final AudienceSketchIndex sketchIndex;
+    private final String source;
+    private final long version;
+
+    public ProfileSnapshot(List<ProfilePart> parts, AudienceBitmapIndex bitmapIndex, AudienceSketchIndex sketchIndex,
+                           String source, long version) {
+        this.parts = List.copyOf(parts);
+        this.bitmapIndex = bitmapIndex;
+        this.sketchIndex = sketchIndex;
+        this.source = source;
+        this.version = version;
+    }
+
+    public static ProfileSnapshot of(ProfileSegment base, String source) {
+        return new ProfileSnapshot(List.of(new ProfilePart(base, null)), null, null, source, 1);
+    }
+
+    /**
+     * Base segment; the bitmap and sketch indexes cover exactly its rows
+     */
+    public ProfileSegment segment() {
+        return parts.get(0).segment();
+    }
+
+    /**
+     * Base part first, then delta parts from oldest to newest
+     */
+    public List<ProfilePart> parts() {
+        return parts;
+    }
+
+    /**
+     * True when the base is the only part and nothing has been deleted from it,
+     * so base-only structures (like the sketch index) describe the whole snapshot
+     */
+    public boolean isPristine() {
+        return parts.size() == 1 && parts.get(0).deletes() == null;
+    }
+
+    /**
+     * Bitmap index over {@link #segment()}, or null while it is being built or when disabled
+     */
+    public AudienceBitmapIndex bitmapIndex() {
+        return bitmapIndex;
+    }
+
+    /**
+     * Per-value HyperLogLog sketches over {@link #segment()}, or null while being built or when disabled
+     */
+    public AudienceSketchIndex sketchIndex() {
+        return sketchIndex;
+    }
+
+    public String source() {
+        return source;
+    }
+
+    public long version() {
+        return version;
+    }
+
+    /**
+     * Live profiles across all parts
+     */
+    public int size() {
+        int size = 0;
+        for (ProfilePart part : parts) {
+            size += part.liveRows();
+        }
+        return size;
+    }
+
+    public int deltaRows() {
+        int rows = 0;
+        for (int i = 1; i < parts.size(); i++) {
+            rows += parts.get(i).segment().size();
+        }
+        return rows;
+    }
+
+    /**
+     * Reference to {@code row} of part {@code part}, packed as {@code part << 32 | row}
+     */
+    public static long location(int part, int row) {
+        return ((long) part << 32) | row;
+    }
+
+    public static int partOf(long location) {
+        return (int) (location >>> 32);
+    }
+
+    public static int rowOf(long location) {
+        return (int) location;
+    }
+
+    public ProfileSnapshot withBitmapIndex(AudienceBitmapIndex index) {
+        return new ProfileSnapshot(parts, index, sketchIndex, source, version);
+    }
+
+    public ProfileSnapshot withSketchIndex(AudienceSketchIndex index) {
+        return new ProfileSnapshot(parts, bitmapIndex, index, source, version);
+    }
+
+    public ProfileSnapshot withParts(List<ProfilePart> newParts) {
+        return new ProfileSnapshot(newParts, bitmapIndex, sketchIndex, source, version + 1);
+    }
+}
@@ -0,0 +1,26 @@
+package com.insurance.mcp.service.audience;
+
+import com.insurance.mcp.model.campaign.AudienceCriteria;
+import com.insurance.mcp.service.audience.sketch.HyperLogLog;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Audience kept for later overlap comparisons: its criteria and the HyperLogLog
+ * sketch of the customers it reached when saved
+ */
+@Data
+@Builder
+@AllArgsConstructor
+public class SavedAudience {
+
+    private String name;
+    private List<AudienceCriteria> criteria;
+    private HyperLogLog sketch;
+    private long estimatedSize;
+    private Instant savedAt;
+}
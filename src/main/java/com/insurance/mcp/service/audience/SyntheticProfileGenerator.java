@@ -0,0 +1,137 @@
+package com.insurance.mcp.service.audience;
+
+import com.insurance.mcp.service.audience.sketch.HyperLogLog;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Deterministic synthetic customer population for development, demos and load tests.
+ * The vocabularies match the values used by the audience rules, so generated
+ * populations produce realistic match rates for the recommended criteria.
+ */
+public final class SyntheticProfileGenerator {
+
+    private static final Map<ProfileAttribute, List<String>> VOCABULARY = new EnumMap<>(ProfileAttribute.class);
+
+    static {
+        VOCABULARY.put(ProfileAttribute.GENDER, List.of("female", "male", "other"));
+        VOCABULARY.put(ProfileAttribute.INCOME_RANGE,
+                List.of("low_income", "middle_income", "high_income", "very_high_income"));
+        VOCABULARY.put(ProfileAttribute.OCCUPATION,
+                List.of("professional", "manager", "executive", "employed", "self_employed", "student", "retired", "unemployed"));
+        VOCABULARY.put(ProfileAttribute.LOCATION,
+                List.of("north", "south", "east", "west", "central", "coastal", "metro", "rural"));
+        VOCABULARY.put(ProfileAttribute.MARITAL_STATUS, List.of("single", "married", "divorced", "widowed"));
+        VOCABULARY.put(ProfileAttribute.EDUCATION_LEVEL, List.of("high_school", "associate", "bachelor", "master", "phd"));
+        VOCABULARY.put(ProfileAttribute.RISK_PROFILE, List.of("low_risk", "medium_risk", "high_risk"));
+        VOCABULARY.put(ProfileAttribute.PREFERRED_CHANNEL,
+                List.of("email", "phone", "mobile_app", "social_media", "mail", "sms"));
+        VOCABULARY.put(ProfileAttribute.HAS_EXISTING_POLICY, List.of("false", "true"));
+        VOCABULARY.put(ProfileAttribute.EXISTING_INSURANCE_TYPES,
+                List.of("life_insurance", "health_insurance", "auto_insurance", "property_insurance", "travel_insurance"));
+        VOCABULARY.put(ProfileAttribute.PURCHASE_HISTORY,
+                List.of("online_purchase", "agent_purchase", "renewal", "claim_filed", "policy_cancelled"));
+        VOCABULARY.put(ProfileAttribute.ONLINE_BEHAVIOR,
+                List.of("website_visit", "quote_requested", "app_user", "newsletter_subscriber", "comparison_shopper"));
+        VOCABULARY.put(ProfileAttribute.INTERESTS,
+                List.of("career_development", "investment", "technology", "family_security", "education", "health",
+                        "retirement_planning", "estate_planning", "travel", "sports", "home_improvement", "automotive"));
+    }
+
+    /** Metro centres (latitude, longitude) that most synthetic customers live around */
+    private static final double[][] METROS = {
+            {40.71, -74.01}, {34.05, -118.24}, {41.88, -87.63}, {29.76, -95.37}, {33.45, -112.07},
+            {39.95, -75.17}, {32.78, -96.80}, {37.77, -122.42}, {47.61, -122.33}, {25.76, -80.19},
+            {39.74, -104.99}, {42.36, -71.06}
+    };
+
+    private SyntheticProfileGenerator() {
+    }
+
+    /**
+     * Generate {@code count} profiles with customer ids {@code 1..count}
+     */
+    public static CustomerProfileTable generate(int count, long seed) {
+        CustomerProfileTable.Builder builder = CustomerProfileTable.builder(count);
+        ProfileAttribute[] attributes = ProfileAttribute.all();
+
+        // Register vocabularies up front so codes are stable for a given seed
+        int[][] encoded = new int[attributes.length][];
+        for (ProfileAttribute attribute : attributes) {
+            List<String> values = VOCABULARY.get(attribute);
+            encoded[attribute.ordinal()] = new int[values.size()];
+            for (int v = 0; v < values.size(); v++) {
+                encoded[attribute.ordinal()][v] = attribute.isMultiValued()
+                        ? builder.tagBit(attribute, values.get(v))
+                        : builder.encode(attribute, values.get(v));
+            }
+        }
+
+        SplittableRandom random = new SplittableRandom(seed);
+        // Separate stream so adding coordinates left the attribute data of a seed unchanged
+        SplittableRandom places = new SplittableRandom(seed ^ 0x9E3779B97F4A7C15L);
+        // Identities: some records are further policies of an earlier person, and persons share households
+        SplittableRandom people = new SplittableRandom(seed ^ 0xC2B2AE3D27D4EB4FL);
+        int[] person = new int[count];
+        int[] household = new int[count];
+        long[] identityHashes = new long[IdentityKey.all().length];
+        int[] row = new int[attributes.length];
+        for (int i = 0; i < count; i++) {
+            for (ProfileAttribute attribute : attributes) {
+                int[] choices = encoded[attribute.ordinal()];
+                if (attribute.isMultiValued()) {
+                    // Up to three tags per profile
+                    int bits = 0;
+                    int tagCount = random.nextInt(4);
+                    for (int t = 0; t < tagCount; t++) {
+                        bits |= choices[random.nextInt(choices.length)];
+                    }
+                    row[attribute.ordinal()] = bits;
+                } else {
+                    row[attribute.ordinal()] = choices[random.nextInt(choices.length)];
+                }
+            }
+            // Adult population skewed towards working age
+            int age = 18 + (random.nextInt(50) + random.nextInt(40)) * 72 / 88;
+            float latitude;
+            float longitude;
+            if (places.nextInt(10) < 7) {
+                double[] metro = METROS[places.nextInt(METROS.length)];
+                latitude = (float) (metro[0] + gaussian(places) * 0.3);
+                longitude = (float) (metro[1] + gaussian(places) * 0.3);
+            } else {
+                latitude = (float) (24 + places.nextDouble() * 25);
+                longitude = (float) (-125 + places.nextDouble() * 58);
+            }
+            boolean duplicate = i > 0 && people.nextInt(100) < 10;
+            person[i] = duplicate ? person[people.nextInt(i)] : i;
+            household[i] = i > 0 && people.nextInt(100) < 35 ? household[people.nextInt(i)] : i;
+            boolean email = people.nextInt(100) < 75;
+            boolean phone = people.nextInt(100) < 60;
+            identityHashes[IdentityKey.EMAIL.ordinal()] = email || (duplicate && !phone)
+                    ? syntheticKey(IdentityKey.EMAIL, person[i]) : IdentityKey.NONE;
+            identityHashes[IdentityKey.PHONE.ordinal()] = phone ? syntheticKey(IdentityKey.PHONE, person[i]) : IdentityKey.NONE;
+            identityHashes[IdentityKey.ADDRESS.ordinal()] = people.nextInt(100) < 85
+                    ? syntheticKey(IdentityKey.ADDRESS, household[i]) : IdentityKey.NONE;
+            builder.addEncoded(i + 1L, age, latitude, longitude, identityHashes, row);
+        }
+        return builder.build();
+    }
+
+    private static long syntheticKey(IdentityKey key, int owner) {
+        long hash = HyperLogLog.hash(((long) owner << 2) | key.ordinal());
+        return hash == IdentityKey.NONE ? 1 : hash;
+    }
+
+    private static double gaussian(SplittableRandom random) {
+        double u = 1 - random.nextDouble();
+        return Math.sqrt(-2 * Math.log(u)) * Math.cos(2 * Math.PI * random.nextDouble());
+    }
+
+    public static List<String> vocabulary(ProfileAttribute attribute) {
+        return VOCABULARY.get(attribute);
+    }
+}
@@ -0,0 +1,102 @@
+package com.insurance.mcp.service.audience;
+
+import java.util.Arrays;
+
+/**
+ * Bounded min-heap keeping the {@code k} highest scores seen, each with a {@code long}
+ * reference. Scores and references live in parallel primitive arrays, so offering a
+ * candidate allocates nothing; a candidate that cannot enter costs one comparison.
+ */
+public final class TopKHeap {
+
+    private final int capacity;
+    private final float[] scores;
+    private final long[] refs;
+    private int size;
+
+    public TopKHeap(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Top-K capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+        this.scores = new float[capacity];
+        this.refs = new long[capacity];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Lowest score that is still kept, or negative infinity while the heap is not full;
+     * only scores strictly above it can enter
+     */
+    public float threshold() {
+        return size < capacity ? Float.NEGATIVE_INFINITY : scores[0];
+    }
+
+    public void offer(float score, long ref) {
+        if (size < capacity) {
+            int i = size++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (scores[parent] <= score) {
+                    break;
+                }
+                scores[i] = scores[parent];
+                refs[i] = refs[parent];
+                i = parent;
+            }
+            scores[i] = score;
+            refs[i] = ref;
+        } else if (score > scores[0]) {
+            siftDown(score, ref);
+        }
+    }
+
+    public void merge(TopKHeap other) {
+        for (int i = 0; i < other.size; i++) {
+            offer(other.scores[i], other.refs[i]);
+        }
+    }
+
+    /**
+     * Kept references ordered by descending score; {@code scoresOut} (may be null)
+     * receives the matching scores
+     */
+    public long[] sortedRefs(float[] scoresOut) {
+        Integer[] order = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Float.compare(scores[b], scores[a]));
+        long[] sorted = new long[size];
+        for (int i = 0; i < size; i++) {
+            sorted[i] = refs[order[i]];
+            if (scoresOut != null) {
+                scoresOut[i] = scores[order[i]];
+            }
+        }
+        return sorted;
+    }
+
+    private void siftDown(float score, long ref) {
+        int i = 0;
+        int half = size >>> 1;
+        while (i < half) {
+            int child = 2 * i + 1;
+            int right = child + 1;
+            if (right < size && scores[right] < scores[child]) {
+                child = right;
+            }
+            if (score <= scores[child]) {
+                break;
+            }
+            scores[i] = scores[child];
+            refs[i] = refs[child];
+            i = child;
+        }
+        scores[i] = score;
+        refs[i] = ref;
+    }
+}
@@ -0,0 +1,82 @@
+package com.insurance.mcp.service.audience;
+
+import java.util.*;
+
+/**
+ * Value dictionary for an encoded column; code 0 is reserved for "unknown"
+ */
+public final class ValueDictionary {
+
+    public static final int UNKNOWN = 0;
+
+    private final String[] values;
+    private final Map<String, Integer> codes;
+
+    private ValueDictionary(String[] values, Map<String, Integer> codes) {
+        this.values = values;
+        this.codes = codes;
+    }
+
+    public static ValueDictionary of(List<String> values) {
+        Builder builder = new Builder(Integer.MAX_VALUE);
+        values.forEach(builder::encode);
+        return builder.build();
+    }
+
+    /**
+     * Code for a value, or -1 if the value never occurs in the column
+     */
+    public int code(String value) {
+        Integer code = value == null ? null : codes.get(value);
+        return code != null ? code : -1;
+    }
+
+    public String value(int code) {
+        return values[code];
+    }
+
+    /**
+     * Number of codes including the reserved unknown code
+     */
+    public int size() {
+        return values.length;
+    }
+
+    public List<String> values() {
+        return Collections.unmodifiableList(Arrays.asList(values).subList(1, values.length));
+    }
+
+    /**
+     * Growable dictionary used while a column is being written
+     */
+    public static final class Builder {
+        private final int maxSize;
+        private final List<String> values = new ArrayList<>();
+        private final Map<String, Integer> codes = new HashMap<>();
+
+        public Builder(int maxSize) {
+            this.maxSize = maxSize;
+            values.add(null);
+        }
+
+        public int encode(String value) {
+            if (value == null) {
+                return UNKNOWN;
+            }
+            Integer code = codes.get(value);
+            if (code == null) {
+                if (values.size() >= maxSize) {
+                    throw new IllegalStateException("Dictionary overflow: more than " + (maxSize - 1) + " values");
+                }
+                code = values.size();
+                values.add(value.intern());
+                codes.put(value.intern(), code);
+            }
+            return code;
+        }
+
+        public ValueDictionary build() {
+            return new ValueDictionary(values.toArray(new String[0]), Map.copyOf(codes));
+        }
+    }
+}
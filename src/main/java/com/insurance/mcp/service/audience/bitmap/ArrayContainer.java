@@ -0,0 +1,151 @@
+package com.insurance.mcp.service.audience.bitmap;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Sparse container: sorted array of at most {@link #ARRAY_MAX_SIZE} values
+ */
+final class ArrayContainer extends Container {
+
+    final char[] values;
+    final int size;
+
+    ArrayContainer(char[] values, int size) {
+        this.values = values;
+        this.size = size;
+    }
+
+    @Override
+    int cardinality() {
+        return size;
+    }
+
+    @Override
+    boolean contains(char value) {
+        return Arrays.binarySearch(values, 0, size, value) >= 0;
+    }
+
+    @Override
+    Container and(Container other) {
+        if (other instanceof BitmapContainer) {
+            return other.and(this);
+        }
+        ArrayContainer o = (ArrayContainer) other;
+        char[] out = new char[Math.min(size, o.size)];
+        int n = 0;
+        int i = 0;
+        int j = 0;
+        while (i < size && j < o.size) {
+            char a = values[i];
+            char b = o.values[j];
+            if (a < b) {
+                i++;
+            } else if (a > b) {
+                j++;
+            } else {
+                out[n++] = a;
+                i++;
+                j++;
+            }
+        }
+        return new ArrayContainer(out, n);
+    }
+
+    @Override
+    Container or(Container other) {
+        if (other instanceof BitmapContainer) {
+            return other.or(this);
+        }
+        ArrayContainer o = (ArrayContainer) other;
+        if (size + o.size > ARRAY_MAX_SIZE) {
+            // Overlapping arrays may still fit in an array
+            BitmapContainer union = (BitmapContainer) BitmapContainer.of(this).or(o);
+            return BitmapContainer.optimize(union.words, union.cardinality);
+        }
+        char[] out = new char[size + o.size];
+        int n = 0;
+        int i = 0;
+        int j = 0;
+        while (i < size && j < o.size) {
+            char a = values[i];
+            char b = o.values[j];
+            if (a < b) {
+                out[n++] = a;
+                i++;
+            } else if (a > b) {
+                out[n++] = b;
+                j++;
+            } else {
+                out[n++] = a;
+                i++;
+                j++;
+            }
+        }
+        while (i < size) {
+            out[n++] = values[i++];
+        }
+        while (j < o.size) {
+            out[n++] = o.values[j++];
+        }
+        return new ArrayContainer(out, n);
+    }
+
+    @Override
+    Container andNot(Container other) {
+        char[] out = new char[size];
+        int n = 0;
+        for (int i = 0; i < size; i++) {
+            if (!other.contains(values[i])) {
+                out[n++] = values[i];
+            }
+        }
+        return new ArrayContainer(out, n);
+    }
+
+    @Override
+    int andCardinality(Container other) {
+        if (other instanceof BitmapContainer) {
+            return other.andCardinality(this);
+        }
+        ArrayContainer o = (ArrayContainer) other;
+        int n = 0;
+        int i = 0;
+        int j = 0;
+        while (i < size && j < o.size) {
+            char a = values[i];
+            char b = o.values[j];
+            if (a < b) {
+                i++;
+            } else if (a > b) {
+                j++;
+            } else {
+                n++;
+                i++;
+                j++;
+            }
+        }
+        return n;
+    }
+
+    @Override
+    void forEach(int high, IntConsumer consumer) {
+        for (int i = 0; i < size; i++) {
+            consumer.accept(high | values[i]);
+        }
+    }
+
+    @Override
+    int nextValue(int from) {
+        int index = Arrays.binarySearch(values, 0, size, (char) from);
+        if (index < 0) {
+            index = -index - 1;
+        }
+        return index < size ? values[index] : -1;
+    }
+
+    @Override
+    long sizeInBytes() {
+        return 16L + values.length * 2L;
+    }
+}
@@ -0,0 +1,183 @@
+package com.insurance.mcp.service.audience.bitmap;
+
+import java.util.function.IntConsumer;
+
+/**
+ * Dense container: 2^16 bits in 1024 words
+ */
+final class BitmapContainer extends Container {
+
+    static final int WORDS = 1024;
+
+    final long[] words;
+    final int cardinality;
+
+    BitmapContainer(long[] words, int cardinality) {
+        this.words = words;
+        this.cardinality = cardinality;
+    }
+
+    static BitmapContainer of(ArrayContainer array) {
+        long[] words = new long[WORDS];
+        for (int i = 0; i < array.size; i++) {
+            char v = array.values[i];
+            words[v >>> 6] |= 1L << v;
+        }
+        return new BitmapContainer(words, array.size);
+    }
+
+    /**
+     * Container for the given words, downgraded to an array container when sparse
+     */
+    static Container optimize(long[] words, int cardinality) {
+        if (cardinality > ARRAY_MAX_SIZE) {
+            return new BitmapContainer(words, cardinality);
+        }
+        char[] values = new char[cardinality];
+        int n = 0;
+        for (int w = 0; w < WORDS; w++) {
+            long word = words[w];
+            while (word != 0) {
+                values[n++] = (char) ((w << 6) + Long.numberOfTrailingZeros(word));
+                word &= word - 1;
+            }
+        }
+        return new ArrayContainer(values, n);
+    }
+
+    @Override
+    int cardinality() {
+        return cardinality;
+    }
+
+    @Override
+    boolean contains(char value) {
+        return (words[value >>> 6] & (1L << value)) != 0;
+    }
+
+    @Override
+    Container and(Container other) {
+        if (other instanceof ArrayContainer) {
+            ArrayContainer o = (ArrayContainer) other;
+            char[] out = new char[o.size];
+            int n = 0;
+            for (int i = 0; i < o.size; i++) {
+                char v = o.values[i];
+                // Branch-free append: the slot is overwritten unless the bit is set
+                out[n] = v;
+                n += (int) ((words[v >>> 6] >>> v) & 1L);
+            }
+            return new ArrayContainer(out, n);
+        }
+        long[] ow = ((BitmapContainer) other).words;
+        long[] out = new long[WORDS];
+        int card = 0;
+        for (int w = 0; w < WORDS; w++) {
+            out[w] = words[w] & ow[w];
+            card += Long.bitCount(out[w]);
+        }
+        return optimize(out, card);
+    }
+
+    @Override
+    Container or(Container other) {
+        long[] out = words.clone();
+        if (other instanceof ArrayContainer) {
+            ArrayContainer o = (ArrayContainer) other;
+            int card = cardinality;
+            for (int i = 0; i < o.size; i++) {
+                char v = o.values[i];
+                long before = out[v >>> 6];
+                long after = before | (1L << v);
+                card += (int) ((before ^ after) >>> v);
+                out[v >>> 6] = after;
+            }
+            return new BitmapContainer(out, card);
+        }
+        long[] ow = ((BitmapContainer) other).words;
+        int card = 0;
+        for (int w = 0; w < WORDS; w++) {
+            out[w] |= ow[w];
+            card += Long.bitCount(out[w]);
+        }
+        return new BitmapContainer(out, card);
+    }
+
+    @Override
+    Container andNot(Container other) {
+        long[] out = words.clone();
+        int card;
+        if (other instanceof ArrayContainer) {
+            ArrayContainer o = (ArrayContainer) other;
+            card = cardinality;
+            for (int i = 0; i < o.size; i++) {
+                char v = o.values[i];
+                long before = out[v >>> 6];
+                long after = before & ~(1L << v);
+                card -= (int) ((before ^ after) >>> v);
+                out[v >>> 6] = after;
+            }
+        } else {
+            long[] ow = ((BitmapContainer) other).words;
+            card = 0;
+            for (int w = 0; w < WORDS; w++) {
+                out[w] &= ~ow[w];
+                card += Long.bitCount(out[w]);
+            }
+        }
+        return optimize(out, card);
+    }
+
+    @Override
+    int andCardinality(Container other) {
+        if (other instanceof ArrayContainer) {
+            ArrayContainer o = (ArrayContainer) other;
+            int n = 0;
+            for (int i = 0; i < o.size; i++) {
+                char v = o.values[i];
+                n += (int) ((words[v >>> 6] >>> v) & 1L);
+            }
+            return n;
+        }
+        long[] ow = ((BitmapContainer) other).words;
+        int n = 0;
+        for (int w = 0; w < WORDS; w++) {
+            n += Long.bitCount(words[w] & ow[w]);
+        }
+        return n;
+    }
+
+    @Override
+    void forEach(int high, IntConsumer consumer) {
+        for (int w = 0; w < WORDS; w++) {
+            long word = words[w];
+            while (word != 0) {
+                consumer.accept(high | ((w << 6) + Long.numberOfTrailingZeros(word)));
+                word &= word - 1;
+            }
+        }
+    }
+
+    @Override
+    int nextValue(int from) {
+        int w = from >>> 6;
+        if (w >= WORDS) {
+            return -1;
+        }
+        long word = words[w] & (-1L << from);
+        while (true) {
+            if (word != 0) {
+                return (w << 6) + Long.numberOfTrailingZeros(word);
+            }
+            if (++w == WORDS) {
+                return -1;
+            }
+            word = words[w];
+        }
+    }
+
+    @Override
+    long sizeInBytes() {
+        return 16L + WORDS * 8L;
+    }
+}
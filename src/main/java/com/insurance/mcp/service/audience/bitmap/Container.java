@@ -0,0 +1,37 @@
+package com.insurance.mcp.service.audience.bitmap;
+
+import java.util.function.IntConsumer;
+
+/**
+ * Set of 16-bit values (the low bits of a row id) under one high-bits key.
+ * Containers are immutable once built; operations return new containers.
+ */
+abstract class Container {
+
+    /** Sparse containers above this cardinality are stored as bitmaps */
+    static final int ARRAY_MAX_SIZE = 4096;
+
+    abstract int cardinality();
+
+    abstract boolean contains(char value);
+
+    abstract Container and(Container other);
+
+    abstract Container or(Container other);
+
+    abstract Container andNot(Container other);
+
+    abstract int andCardinality(Container other);
+
+    /**
+     * Visit values in ascending order, each combined with {@code high} into a full row id
+     */
+    abstract void forEach(int high, IntConsumer consumer);
+
+    /**
+     * Smallest value {@code >= from}, or -1
+     */
+    abstract int nextValue(int from);
+
+    abstract long sizeInBytes();
+}
@@ -0,0 +1,256 @@
+package com.insurance.mcp.service.audience.bitmap;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntConsumer;
+
+/**
+ * Immutable compressed bitmap of non-negative int row ids in the Roaring layout:
+ * ids are split by their high 16 bits into containers holding the low 16 bits,
+ * either as a sorted array (sparse) or a 65536-bit bitmap (dense).
+ */
+public final class RoaringBitmap {
+
+    private static final RoaringBitmap EMPTY = new RoaringBitmap(new char[0], new Container[0], 0);
+
+    private final char[] keys;
+    private final Container[] containers;
+    private final int size;
+
+    private RoaringBitmap(char[] keys, Container[] containers, int size) {
+        this.keys = keys;
+        this.containers = containers;
+        this.size = size;
+    }
+
+    public static RoaringBitmap empty() {
+        return EMPTY;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public long cardinality() {
+        long cardinality = 0;
+        for (int i = 0; i < size; i++) {
+            cardinality += containers[i].cardinality();
+        }
+        return cardinality;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean contains(int value) {
+        int index = Arrays.binarySearch(keys, 0, size, (char) (value >>> 16));
+        return index >= 0 && containers[index].contains((char) value);
+    }
+
+    public RoaringBitmap and(RoaringBitmap other) {
+        char[] outKeys = new char[Math.min(size, other.size)];
+        Container[] out = new Container[outKeys.length];
+        int n = 0;
+        int i = 0;
+        int j = 0;
+        while (i < size && j < other.size) {
+            if (keys[i] < other.keys[j]) {
+                i++;
+            } else if (keys[i] > other.keys[j]) {
+                j++;
+            } else {
+                Container c = containers[i].and(other.containers[j]);
+                if (c.cardinality() > 0) {
+                    outKeys[n] = keys[i];
+                    out[n++] = c;
+                }
+                i++;
+                j++;
+            }
+        }
+        return new RoaringBitmap(outKeys, out, n);
+    }
+
+    public RoaringBitmap or(RoaringBitmap other) {
+        char[] outKeys = new char[size + other.size];
+        Container[] out = new Container[outKeys.length];
+        int n = 0;
+        int i = 0;
+        int j = 0;
+        while (i < size || j < other.size) {
+            if (j == other.size || (i < size && keys[i] < other.keys[j])) {
+                outKeys[n] = keys[i];
+                out[n++] = containers[i++];
+            } else if (i == size || keys[i] > other.keys[j]) {
+                outKeys[n] = other.keys[j];
+                out[n++] = other.containers[j++];
+            } else {
+                outKeys[n] = keys[i];
+                out[n++] = containers[i++].or(other.containers[j++]);
+            }
+        }
+        return new RoaringBitmap(outKeys, out, n);
+    }
+
+    public RoaringBitmap andNot(RoaringBitmap other) {
+        char[] outKeys = new char[size];
+        Container[] out = new Container[size];
+        int n = 0;
+        int j = 0;
+        for (int i = 0; i < size; i++) {
+            while (j < other.size && other.keys[j] < keys[i]) {
+                j++;
+            }
+            Container c = j < other.size && other.keys[j] == keys[i]
+                    ? containers[i].andNot(other.containers[j])
+                    : containers[i];
+            if (c.cardinality() > 0) {
+                outKeys[n] = keys[i];
+                out[n++] = c;
+            }
+        }
+        return new RoaringBitmap(outKeys, out, n);
+    }
+
+    /**
+     * Cardinality of the intersection without materializing it
+     */
+    public long andCardinality(RoaringBitmap other) {
+        long cardinality = 0;
+        int i = 0;
+        int j = 0;
+        while (i < size && j < other.size) {
+            if (keys[i] < other.keys[j]) {
+                i++;
+            } else if (keys[i] > other.keys[j]) {
+                j++;
+            } else {
+                cardinality += containers[i++].andCardinality(other.containers[j++]);
+            }
+        }
+        return cardinality;
+    }
+
+    /**
+     * Union of many bitmaps, merging pairwise so intermediate results stay balanced
+     */
+    public static RoaringBitmap or(List<RoaringBitmap> bitmaps) {
+        if (bitmaps.isEmpty()) {
+            return EMPTY;
+        }
+        RoaringBitmap[] level = bitmaps.toArray(new RoaringBitmap[0]);
+        int length = level.length;
+        while (length > 1) {
+            int half = (length + 1) / 2;
+            for (int k = 0; k < length / 2; k++) {
+                level[k] = level[2 * k].or(level[2 * k + 1]);
+            }
+            if ((length & 1) == 1) {
+                level[half - 1] = level[length - 1];
+            }
+            length = half;
+        }
+        return level[0];
+    }
+
+    /**
+     * Visit all ids in ascending order
+     */
+    public void forEach(IntConsumer consumer) {
+        for (int i = 0; i < size; i++) {
+            containers[i].forEach(keys[i] << 16, consumer);
+        }
+    }
+
+    /**
+     * Smallest id {@code >= from}, or -1 if there is none
+     */
+    public int nextSetBit(int from) {
+        int high = from >>> 16;
+        int index = Arrays.binarySearch(keys, 0, size, (char) high);
+        int low = from & 0xFFFF;
+        if (index < 0) {
+            index = -index - 1;
+            low = 0;
+        }
+        for (; index < size; index++) {
+            int value = containers[index].nextValue(keys[index] == high ? low : 0);
+            if (value >= 0) {
+                return (keys[index] << 16) | value;
+            }
+        }
+        return -1;
+    }
+
+    public long sizeInBytes() {
+        long bytes = 16L + keys.length * 2L + containers.length * 8L;
+        for (int i = 0; i < size; i++) {
+            bytes += containers[i].sizeInBytes();
+        }
+        return bytes;
+    }
+
+    /**
+     * Builds a bitmap from ids added in strictly increasing order
+     */
+    public static final class Builder {
+        private char[] keys = new char[4];
+        private Container[] containers = new Container[4];
+        private int size;
+
+        private int currentKey = -1;
+        private char[] array = new char[Container.ARRAY_MAX_SIZE];
+        private int arraySize;
+        private long[] words;
+        private int wordCardinality;
+
+        public Builder add(int value) {
+            int key = value >>> 16;
+            if (key != currentKey) {
+                flush();
+                currentKey = key;
+            }
+            char low = (char) value;
+            if (words != null) {
+                words[low >>> 6] |= 1L << low;
+                wordCardinality++;
+            } else if (arraySize < array.length) {
+                array[arraySize++] = low;
+            } else {
+                words = new long[BitmapContainer.WORDS];
+                for (int i = 0; i < arraySize; i++) {
+                    words[array[i] >>> 6] |= 1L << array[i];
+                }
+                words[low >>> 6] |= 1L << low;
+                wordCardinality = arraySize + 1;
+                arraySize = 0;
+            }
+            return this;
+        }
+
+        public RoaringBitmap build() {
+            flush();
+            return new RoaringBitmap(Arrays.copyOf(keys, size), Arrays.copyOf(containers, size), size);
+        }
+
+        private void flush() {
+            if (currentKey < 0 || (words == null && arraySize == 0)) {
+                return;
+            }
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, size * 2);
+                containers = Arrays.copyOf(containers, size * 2);
+            }
+            keys[size] = (char) currentKey;
+            if (words != null) {
+                containers[size++] = new BitmapContainer(words, wordCardinality);
+                words = null;
+                wordCardinality = 0;
+            } else {
+                containers[size++] = new ArrayContainer(Arrays.copyOf(array, arraySize), arraySize);
+                arraySize = 0;
+            }
+        }
+    }
+}
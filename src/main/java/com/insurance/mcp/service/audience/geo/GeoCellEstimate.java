@@ -0,0 +1,20 @@
+package com.insurance.mcp.service.audience.geo;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Region size read from grid cell counts alone: cells wholly inside contribute their
+ * count, cells crossing the border their count scaled by the covered area share
+ */
+@Data
+@AllArgsConstructor
+public class GeoCellEstimate {
+    private long estimate;
+    /** Customers in cells wholly inside the region */
+    private long lowerBound;
+    /** Customers in cells touching the region */
+    private long upperBound;
+    private int cellsInside;
+    private int cellsPartial;
+}
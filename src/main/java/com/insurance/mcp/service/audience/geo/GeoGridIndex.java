@@ -0,0 +1,291 @@
+package com.insurance.mcp.service.audience.geo;
+
+import com.insurance.mcp.service.audience.CompiledCriteria;
+import com.insurance.mcp.service.audience.ProfileSegment;
+import com.insurance.mcp.service.audience.bitmap.RoaringBitmap;
+
+/**
+ * Uniform latitude/longitude grid over the located rows of a {@link ProfileSegment},
+ * stored compressed-sparse-row style: {@code cellStart[c] .. cellStart[c + 1]} indexes the
+ * rows of cell {@code c} in {@code rowIds} with their coordinates alongside. A region query
+ * visits only the cells under its bounding box, takes cells wholly inside by count and
+ * tests individual points only in cells crossing the border.
+ */
+public final class GeoGridIndex {
+
+    /** Side of the cell blocks classified before individual cells */
+    private static final int BLOCK_CELLS = 16;
+
+    private final double minLat;
+    private final double minLon;
+    private final double cellDegrees;
+    private final int latCells;
+    private final int lonCells;
+    private final int[] cellStart;
+    private final int[] rowIds;
+    private final float[] latitudes;
+    private final float[] longitudes;
+
+    private GeoGridIndex(double minLat, double minLon, double cellDegrees, int latCells, int lonCells,
+                         int[] cellStart, int[] rowIds, float[] latitudes, float[] longitudes) {
+        this.minLat = minLat;
+        this.minLon = minLon;
+        this.cellDegrees = cellDegrees;
+        this.latCells = latCells;
+        this.lonCells = lonCells;
+        this.cellStart = cellStart;
+        this.rowIds = rowIds;
+        this.latitudes = latitudes;
+        this.longitudes = longitudes;
+    }
+
+    /**
+     * Index the located rows of {@code segment} with square cells of {@code cellDegrees},
+     * widened when the data's extent would need more than {@code maxCells} cells
+     */
+    public static GeoGridIndex build(ProfileSegment segment, double cellDegrees, int maxCells) {
+        int rows = segment.size();
+        int block = CompiledCriteria.BLOCK_SIZE;
+        float[] lat = new float[block];
+        float[] lon = new float[block];
+
+        // Pass 1: extent of the located rows
+        double south = Double.POSITIVE_INFINITY;
+        double north = Double.NEGATIVE_INFINITY;
+        double west = Double.POSITIVE_INFINITY;
+        double east = Double.NEGATIVE_INFINITY;
+        int located = 0;
+        for (int start = 0; start < rows; start += block) {
+            int length = Math.min(block, rows - start);
+            segment.readCoordinates(start, length, lat, lon);
+            for (int j = 0; j < length; j++) {
+                if (lat[j] == lat[j] && lon[j] == lon[j]) {
+                    south = Math.min(south, lat[j]);
+                    north = Math.max(north, lat[j]);
+                    west = Math.min(west, lon[j]);
+                    east = Math.max(east, lon[j]);
+                    located++;
+                }
+            }
+        }
+        if (located == 0) {
+            return new GeoGridIndex(0, 0, cellDegrees, 1, 1, new int[2], new int[0], new float[0], new float[0]);
+        }
+
+        double degrees = cellDegrees;
+        while (cells(north - south, degrees) * cells(east - west, degrees) > maxCells) {
+            degrees *= 2;
+        }
+        int latCells = (int) cells(north - south, degrees);
+        int lonCells = (int) cells(east - west, degrees);
+
+        // Pass 2: counts per cell, prefix-summed into start offsets
+        int[] cellOfRow = new int[rows];
+        int[] cellStart = new int[latCells * lonCells + 1];
+        for (int start = 0; start < rows; start += block) {
+            int length = Math.min(block, rows - start);
+            segment.readCoordinates(start, length, lat, lon);
+            for (int j = 0; j < length; j++) {
+                if (lat[j] == lat[j] && lon[j] == lon[j]) {
+                    int cell = cellOf(lat[j] - south, lon[j] - west, degrees, latCells, lonCells);
+                    cellOfRow[start + j] = cell;
+                    cellStart[cell + 1]++;
+                } else {
+                    cellOfRow[start + j] = -1;
+                }
+            }
+        }
+        for (int c = 0; c < latCells * lonCells; c++) {
+            cellStart[c + 1] += cellStart[c];
+        }
+
+        // Pass 3: scatter rows into their cells; rows stay ascending within a cell
+        int[] next = new int[latCells * lonCells];
+        System.arraycopy(cellStart, 0, next, 0, next.length);
+        int[] rowIds = new int[located];
+        float[] cellLatitudes = new float[located];
+        float[] cellLongitudes = new float[located];
+        for (int start = 0; start < rows; start += block) {
+            int length = Math.min(block, rows - start);
+            segment.readCoordinates(start, length, lat, lon);
+            for (int j = 0; j < length; j++) {
+                int cell = cellOfRow[start + j];
+                if (cell >= 0) {
+                    int slot = next[cell]++;
+                    rowIds[slot] = start + j;
+                    cellLatitudes[slot] = lat[j];
+                    cellLongitudes[slot] = lon[j];
+                }
+            }
+        }
+        return new GeoGridIndex(south, west, degrees, latCells, lonCells, cellStart, rowIds,
+                cellLatitudes, cellLongitudes);
+    }
+
+    public double cellDegrees() {
+        return cellDegrees;
+    }
+
+    public int cellCount() {
+        return latCells * lonCells;
+    }
+
+    /**
+     * Number of rows with known coordinates
+     */
+    public int locatedRows() {
+        return rowIds.length;
+    }
+
+    /**
+     * Rows inside the region
+     */
+    public RoaringBitmap evaluate(GeoRegion region) {
+        if (rowIds.length == 0) {
+            return RoaringBitmap.empty();
+        }
+        int maxRow = 0;
+        for (int row : rowIds) {
+            maxRow = Math.max(maxRow, row);
+        }
+        long[] words = new long[(maxRow >>> 6) + 1];
+        visit(region, (from, to, inside) -> {
+            for (int i = from; i < to; i++) {
+                if (inside || region.contains(latitudes[i], longitudes[i])) {
+                    int row = rowIds[i];
+                    words[row >>> 6] |= 1L << row;
+                }
+            }
+        });
+        RoaringBitmap.Builder builder = RoaringBitmap.builder();
+        for (int w = 0; w < words.length; w++) {
+            long word = words[w];
+            while (word != 0) {
+                builder.add((w << 6) + Long.numberOfTrailingZeros(word));
+                word &= word - 1;
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * Exact number of rows inside the region
+     */
+    public long count(GeoRegion region) {
+        long[] count = new long[1];
+        visit(region, (from, to, inside) -> {
+            if (inside) {
+                count[0] += to - from;
+                return;
+            }
+            for (int i = from; i < to; i++) {
+                if (region.contains(latitudes[i], longitudes[i])) {
+                    count[0]++;
+                }
+            }
+        });
+        return count[0];
+    }
+
+    /**
+     * Size of the region from cell counts only, without touching any point
+     */
+    public GeoCellEstimate estimate(GeoRegion region) {
+        long[] totals = new long[2];
+        double[] estimate = new double[1];
+        int[] cells = new int[2];
+        visitCells(region, (firstCell, endCell, south, west, inside) -> {
+            if (inside) {
+                totals[0] += cellStart[endCell] - cellStart[firstCell];
+                for (int c = firstCell; c < endCell; c++) {
+                    cells[0] += cellStart[c + 1] > cellStart[c] ? 1 : 0;
+                }
+                return;
+            }
+            int rows = cellStart[firstCell + 1] - cellStart[firstCell];
+            if (rows > 0) {
+                totals[1] += rows;
+                estimate[0] += rows * region.areaFraction(south, south + cellDegrees, west, west + cellDegrees);
+                cells[1]++;
+            }
+        });
+        return new GeoCellEstimate(Math.round(totals[0] + estimate[0]), totals[0], totals[0] + totals[1],
+                cells[0], cells[1]);
+    }
+
+    private void visit(GeoRegion region, RangeVisitor visitor) {
+        visitCells(region, (firstCell, endCell, south, west, inside) -> {
+            int from = cellStart[firstCell];
+            int to = cellStart[endCell];
+            if (from < to) {
+                visitor.visit(from, to, inside);
+            }
+        });
+    }
+
+    /**
+     * Classify blocks of {@code BLOCK_CELLS x BLOCK_CELLS} cells under the region's bounding box,
+     * descending to single cells only in blocks crossing the border. Inside blocks are reported
+     * as one run of consecutive cells per grid row, border cells one at a time.
+     */
+    private void visitCells(GeoRegion region, CellVisitor visitor) {
+        if (rowIds.length == 0) {
+            return;
+        }
+        int firstLat = clamp((int) Math.floor((region.minLat() - minLat) / cellDegrees), latCells);
+        int lastLat = clamp((int) Math.floor((region.maxLat() - minLat) / cellDegrees), latCells);
+        int firstLon = clamp((int) Math.floor((region.minLon() - minLon) / cellDegrees), lonCells);
+        int lastLon = clamp((int) Math.floor((region.maxLon() - minLon) / cellDegrees), lonCells);
+        for (int bi = firstLat; bi <= lastLat; bi += BLOCK_CELLS) {
+            int endLat = Math.min(lastLat + 1, bi + BLOCK_CELLS);
+            for (int bj = firstLon; bj <= lastLon; bj += BLOCK_CELLS) {
+                int endLon = Math.min(lastLon + 1, bj + BLOCK_CELLS);
+                double blockSouth = minLat + bi * cellDegrees;
+                double blockWest = minLon + bj * cellDegrees;
+                GeoRegion.Coverage block = region.classify(blockSouth, minLat + endLat * cellDegrees,
+                        blockWest, minLon + endLon * cellDegrees);
+                if (block == GeoRegion.Coverage.OUTSIDE) {
+                    continue;
+                }
+                for (int i = bi; i < endLat; i++) {
+                    double south = minLat + i * cellDegrees;
+                    if (block == GeoRegion.Coverage.INSIDE) {
+                        visitor.visit(i * lonCells + bj, i * lonCells + endLon, south, blockWest, true);
+                        continue;
+                    }
+                    for (int j = bj; j < endLon; j++) {
+                        double west = minLon + j * cellDegrees;
+                        GeoRegion.Coverage coverage = region.classify(south, south + cellDegrees, west, west + cellDegrees);
+                        if (coverage != GeoRegion.Coverage.OUTSIDE) {
+                            int cell = i * lonCells + j;
+                            visitor.visit(cell, cell + 1, south, west, coverage == GeoRegion.Coverage.INSIDE);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private static long cells(double extent, double degrees) {
+        return Math.max(1, (long) Math.floor(extent / degrees) + 1);
+    }
+
+    private static int cellOf(double latOffset, double lonOffset, double degrees, int latCells, int lonCells) {
+        int i = Math.min(latCells - 1, (int) (latOffset / degrees));
+        int j = Math.min(lonCells - 1, (int) (lonOffset / degrees));
+        return i * lonCells + j;
+    }
+
+    private static int clamp(int cell, int cells) {
+        return Math.max(0, Math.min(cells - 1, cell));
+    }
+
+    private interface RangeVisitor {
+        void visit(int from, int to, boolean inside);
+    }
+
+    private interface CellVisitor {
+        /** Cells {@code [firstCell, endCell)} of one grid row, starting at {@code (south, west)} */
+        void visit(int firstCell, int endCell, double south, double west, boolean inside);
+    }
+}
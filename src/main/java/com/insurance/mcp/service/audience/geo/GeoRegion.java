@@ -0,0 +1,261 @@
+package com.insurance.mcp.service.audience.geo;
+
+import com.insurance.mcp.model.campaign.GeoFilter;
+
+import java.util.List;
+
+/**
+ * A {@link GeoFilter} prepared for evaluation: a circle (great-circle distance) and/or a
+ * polygon (planar in latitude/longitude, fine for regional shapes away from the antimeridian),
+ * with a bounding box for cheap rejection and a conservative classification of grid cells.
+ */
+public final class GeoRegion {
+
+    public static final double EARTH_RADIUS_KM = 6371.0088;
+
+    /** How a grid cell relates to the region */
+    public enum Coverage { INSIDE, OUTSIDE, PARTIAL }
+
+    private final boolean circle;
+    private final double centerLat;
+    private final double centerLon;
+    private final double radiusKm;
+    private final double[] polygonLat;
+    private final double[] polygonLon;
+
+    private final double minLat;
+    private final double maxLat;
+    private final double minLon;
+    private final double maxLon;
+
+    private GeoRegion(boolean circle, double centerLat, double centerLon, double radiusKm,
+                      double[] polygonLat, double[] polygonLon) {
+        this.circle = circle;
+        this.centerLat = centerLat;
+        this.centerLon = centerLon;
+        this.radiusKm = radiusKm;
+        this.polygonLat = polygonLat;
+        this.polygonLon = polygonLon;
+
+        double south = -90;
+        double north = 90;
+        double west = -180;
+        double east = 180;
+        if (circle) {
+            double latSpan = Math.toDegrees(radiusKm / EARTH_RADIUS_KM);
+            south = Math.max(-90, centerLat - latSpan);
+            north = Math.min(90, centerLat + latSpan);
+            double cos = Math.cos(Math.toRadians(Math.max(Math.abs(south), Math.abs(north))));
+            double lonSpan = cos < 1e-9 ? 180 : Math.min(180, latSpan / cos);
+            west = Math.max(-180, centerLon - lonSpan);
+            east = Math.min(180, centerLon + lonSpan);
+        }
+        if (polygonLat != null) {
+            double pSouth = 90;
+            double pNorth = -90;
+            double pWest = 180;
+            double pEast = -180;
+            for (int i = 0; i < polygonLat.length; i++) {
+                pSouth = Math.min(pSouth, polygonLat[i]);
+                pNorth = Math.max(pNorth, polygonLat[i]);
+                pWest = Math.min(pWest, polygonLon[i]);
+                pEast = Math.max(pEast, polygonLon[i]);
+            }
+            south = Math.max(south, pSouth);
+            north = Math.min(north, pNorth);
+            west = Math.max(west, pWest);
+            east = Math.min(east, pEast);
+        }
+        this.minLat = south;
+        this.maxLat = north;
+        this.minLon = west;
+        this.maxLon = east;
+    }
+
+    public static GeoRegion of(GeoFilter filter) {
+        boolean circle = filter.getLatitude() != null || filter.getLongitude() != null || filter.getRadiusKm() != null;
+        if (circle && (filter.getLatitude() == null || filter.getLongitude() == null || filter.getRadiusKm() == null)) {
+            throw new IllegalArgumentException("Geo radius filter needs latitude, longitude and radiusKm");
+        }
+        if (circle && (Math.abs(filter.getLatitude()) > 90 || Math.abs(filter.getLongitude()) > 180
+                || filter.getRadiusKm() <= 0)) {
+            throw new IllegalArgumentException("Geo radius filter out of range: " + filter);
+        }
+        double[] polygonLat = null;
+        double[] polygonLon = null;
+        List<List<Double>> polygon = filter.getPolygon();
+        if (polygon != null && !polygon.isEmpty()) {
+            if (polygon.size() < 3) {
+                throw new IllegalArgumentException("Geo polygon needs at least 3 [latitude, longitude] vertices");
+            }
+            polygonLat = new double[polygon.size()];
+            polygonLon = new double[polygon.size()];
+            for (int i = 0; i < polygon.size(); i++) {
+                List<Double> vertex = polygon.get(i);
+                if (vertex == null || vertex.size() != 2 || vertex.get(0) == null || vertex.get(1) == null) {
+                    throw new IllegalArgumentException("Geo polygon vertex " + i + " must be [latitude, longitude]");
+                }
+                polygonLat[i] = vertex.get(0);
+                polygonLon[i] = vertex.get(1);
+            }
+        } else if (!circle) {
+            throw new IllegalArgumentException("Geo filter needs a radius or a polygon");
+        }
+        return circle
+                ? new GeoRegion(true, filter.getLatitude(), filter.getLongitude(), filter.getRadiusKm(), polygonLat, polygonLon)
+                : new GeoRegion(false, 0, 0, 0, polygonLat, polygonLon);
+    }
+
+    public double minLat() {
+        return minLat;
+    }
+
+    public double maxLat() {
+        return maxLat;
+    }
+
+    public double minLon() {
+        return minLon;
+    }
+
+    public double maxLon() {
+        return maxLon;
+    }
+
+    /**
+     * True when the point lies in the region; NaN coordinates (unknown) never do
+     */
+    public boolean contains(double lat, double lon) {
+        if (!(lat >= minLat && lat <= maxLat && lon >= minLon && lon <= maxLon)) {
+            return false;
+        }
+        if (circle && distanceKm(centerLat, centerLon, lat, lon) > radiusKm) {
+            return false;
+        }
+        return polygonLat == null || insidePolygon(lat, lon);
+    }
+
+    /**
+     * Conservative relation of the cell {@code [south, north] x [west, east]} to the region:
+     * INSIDE and OUTSIDE are exact, anything uncertain is PARTIAL
+     */
+    public Coverage classify(double south, double north, double west, double east) {
+        if (north < minLat || south > maxLat || east < minLon || west > maxLon) {
+            return Coverage.OUTSIDE;
+        }
+        Coverage result = Coverage.INSIDE;
+        if (circle) {
+            double nearestLon = Math.max(west, Math.min(centerLon, east));
+            // Along a meridian the closest point to the centre sits poleward of the centre's latitude
+            double phi = Math.toRadians(centerLat);
+            double closest = Math.toDegrees(Math.atan2(Math.sin(phi),
+                    Math.cos(phi) * Math.cos(Math.toRadians(nearestLon - centerLon))));
+            double nearestLat = Math.max(south, Math.min(closest, north));
+            if (distanceKm(centerLat, centerLon, nearestLat, nearestLon) > radiusKm) {
+                return Coverage.OUTSIDE;
+            }
+            double farthest = Math.max(
+                    Math.max(distanceKm(centerLat, centerLon, south, west), distanceKm(centerLat, centerLon, south, east)),
+                    Math.max(distanceKm(centerLat, centerLon, north, west), distanceKm(centerLat, centerLon, north, east)));
+            if (farthest > radiusKm) {
+                result = Coverage.PARTIAL;
+            }
+        }
+        if (polygonLat != null) {
+            Coverage polygonCoverage = classifyPolygon(south, north, west, east);
+            if (polygonCoverage == Coverage.OUTSIDE) {
+                return Coverage.OUTSIDE;
+            }
+            if (polygonCoverage == Coverage.PARTIAL) {
+                result = Coverage.PARTIAL;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Approximate share of the cell's area inside the region, from a regular sample grid
+     */
+    public double areaFraction(double south, double north, double west, double east) {
+        int samples = 4;
+        int inside = 0;
+        for (int i = 0; i < samples; i++) {
+            double lat = south + (i + 0.5) * (north - south) / samples;
+            for (int j = 0; j < samples; j++) {
+                if (contains(lat, west + (j + 0.5) * (east - west) / samples)) {
+                    inside++;
+                }
+            }
+        }
+        return (double) inside / (samples * samples);
+    }
+
+    public static double distanceKm(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+
+    private Coverage classifyPolygon(double south, double north, double west, double east) {
+        int cornersInside = (insidePolygon(south, west) ? 1 : 0) + (insidePolygon(south, east) ? 1 : 0)
+                + (insidePolygon(north, west) ? 1 : 0) + (insidePolygon(north, east) ? 1 : 0);
+        if (cornersInside != 0 && cornersInside != 4) {
+            return Coverage.PARTIAL;
+        }
+        int n = polygonLat.length;
+        for (int i = 0, j = n - 1; i < n; j = i++) {
+            if (segmentCrossesCell(polygonLat[j], polygonLon[j], polygonLat[i], polygonLon[i], south, north, west, east)) {
+                return Coverage.PARTIAL;
+            }
+        }
+        // No edge touches the cell, so it lies wholly inside or wholly outside
+        return cornersInside == 4 ? Coverage.INSIDE : Coverage.OUTSIDE;
+    }
+
+    private boolean insidePolygon(double lat, double lon) {
+        boolean inside = false;
+        int n = polygonLat.length;
+        for (int i = 0, j = n - 1; i < n; j = i++) {
+            if ((polygonLat[i] > lat) != (polygonLat[j] > lat)
+                    && lon < (polygonLon[j] - polygonLon[i]) * (lat - polygonLat[i]) / (polygonLat[j] - polygonLat[i])
+                    + polygonLon[i]) {
+                inside = !inside;
+            }
+        }
+        return inside;
+    }
+
+    private static boolean segmentCrossesCell(double lat1, double lon1, double lat2, double lon2,
+                                              double south, double north, double west, double east) {
+        if (Math.max(lat1, lat2) < south || Math.min(lat1, lat2) > north
+                || Math.max(lon1, lon2) < west || Math.min(lon1, lon2) > east) {
+            return false;
+        }
+        if (inBox(lat1, lon1, south, north, west, east) || inBox(lat2, lon2, south, north, west, east)) {
+            return true;
+        }
+        return segmentsIntersect(lat1, lon1, lat2, lon2, south, west, south, east)
+                || segmentsIntersect(lat1, lon1, lat2, lon2, north, west, north, east)
+                || segmentsIntersect(lat1, lon1, lat2, lon2, south, west, north, west)
+                || segmentsIntersect(lat1, lon1, lat2, lon2, south, east, north, east);
+    }
+
+    private static boolean inBox(double lat, double lon, double south, double north, double west, double east) {
+        return lat >= south && lat <= north && lon >= west && lon <= east;
+    }
+
+    private static boolean segmentsIntersect(double ay, double ax, double by, double bx,
+                                             double cy, double cx, double dy, double dx) {
+        double d1 = cross(cx, cy, dx, dy, ax, ay);
+        double d2 = cross(cx, cy, dx, dy, bx, by);
+        double d3 = cross(ax, ay, bx, by, cx, cy);
+        double d4 = cross(ax, ay, bx, by, dx, dy);
+        return ((d1 > 0) != (d2 > 0) || d1 == 0 || d2 == 0) && ((d3 > 0) != (d4 > 0) || d3 == 0 || d4 == 0);
+    }
+
+    private static double cross(double ox, double oy, double ax, double ay, double bx, double by) {
+        return (ax - ox) * (by - oy) - (ay - oy) * (bx - ox);
+    }
+}
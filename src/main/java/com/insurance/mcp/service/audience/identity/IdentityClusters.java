@@ -0,0 +1,81 @@
+package com.insurance.mcp.service.audience.identity;
+
+import com.insurance.mcp.service.audience.bitmap.RoaringBitmap;
+
+import java.util.Arrays;
+
+/**
+ * Immutable identity view of one snapshot: the cluster of every row of every part, so dedup
+ * counts and exports resolve a row with two array reads. Rows unknown to the resolver have
+ * cluster -1 and count as identities of their own. Rows of the first part that are the only
+ * record of their identity are left out of {@link #sharedRows()}, so counts take them from a
+ * bitmap cardinality and resolve only the shared rows.
+ */
+public final class IdentityClusters {
+
+    private final int[] clusterOfNode;
+    private final int[][] nodeOfRow;
+    private final int clusterCount;
+    private final RoaringBitmap sharedRows;
+
+    IdentityClusters(int[] clusterOfNode, int[][] nodeOfRow, int clusterCount, RoaringBitmap sharedRows) {
+        this.clusterOfNode = clusterOfNode;
+        this.nodeOfRow = nodeOfRow;
+        this.clusterCount = clusterCount;
+        this.sharedRows = sharedRows;
+    }
+
+    /**
+     * Cluster of row {@code row} in part {@code part}, or -1
+     */
+    public int cluster(int part, int row) {
+        int node = nodeOfRow[part][row];
+        return node < 0 ? -1 : clusterOfNode[node];
+    }
+
+    /**
+     * Distinct identities among every record the resolver has seen, deleted ones included
+     */
+    public int clusterCount() {
+        return clusterCount;
+    }
+
+    /**
+     * Rows of the first part whose identity has other records, deleted ones included
+     */
+    public RoaringBitmap sharedRows() {
+        return sharedRows;
+    }
+
+    public ClusterSet newClusterSet() {
+        return new ClusterSet(clusterOfNode.length);
+    }
+
+    /**
+     * Bit set over cluster ids for counting or skipping identities already seen
+     */
+    public static final class ClusterSet {
+        private final long[] words;
+
+        private ClusterSet(int clusters) {
+            this.words = new long[(clusters + 63) >>> 6];
+        }
+
+        /**
+         * True when {@code cluster} was not in the set yet; -1 (unresolved) is always new
+         */
+        public boolean add(int cluster) {
+            if (cluster < 0) {
+                return true;
+            }
+            long bit = 1L << cluster;
+            long word = words[cluster >>> 6];
+            words[cluster >>> 6] = word | bit;
+            return (word & bit) == 0;
+        }
+
+        public void clear() {
+            Arrays.fill(words, 0);
+        }
+    }
+}
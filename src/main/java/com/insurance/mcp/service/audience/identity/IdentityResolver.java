@@ -0,0 +1,252 @@
+package com.insurance.mcp.service.audience.identity;
+
+import com.insurance.mcp.service.audience.CompiledCriteria;
+import com.insurance.mcp.service.audience.IdentityKey;
+import com.insurance.mcp.service.audience.ProfilePart;
+import com.insurance.mcp.service.audience.ProfileSegment;
+import com.insurance.mcp.service.audience.bitmap.RoaringBitmap;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+/**
+ * Clusters customer records into identities: records sharing any linked key (email, phone,
+ * address) end up in one disjoint set. Every customer id is a node of a union-find forest
+ * held in {@code int} arrays (union by size, path halving). Keys map to one owner node,
+ * so linking a new record costs one lookup and at most one union per key.
+ * <p>
+ * The base is resolved in bulk by radix-sorting key hashes and uniting runs of equal
+ * hashes; ingested segments are added record by record. Links are never undone: a customer
+ * whose email changes stays linked through the old one, and deleted customers keep bridging
+ * their cluster until the resolver is rebuilt, which the store does from the live records
+ * whenever it merges deltas and deletes into a new base.
+ * <p>
+ * Mutators and {@link #clusters} are synchronized; the views they return are immutable.
+ */
+public final class IdentityResolver {
+
+    private final IdentityKey[] linkKeys;
+    private LongIntIndex customers;
+    private final LongIntIndex[] keyOwners = new LongIntIndex[IdentityKey.all().length];
+    private final Map<ProfileSegment, int[]> rowNodes = new WeakHashMap<>();
+
+    private int[] parent;
+    private int[] clusterSize;
+    private int nodes;
+    private int unions;
+
+    private long version;
+    private long labelledVersion = -1;
+    private int[] labels;
+    private ProfileSegment sharedSegment;
+    private RoaringBitmap sharedRows;
+
+    private IdentityResolver(IdentityKey[] linkKeys, int[] parent, int nodes) {
+        this.linkKeys = linkKeys;
+        this.parent = parent;
+        this.clusterSize = new int[parent.length];
+        Arrays.fill(clusterSize, 0, nodes, 1);
+        this.nodes = nodes;
+    }
+
+    /**
+     * Resolve every row of {@code base}; row {@code i} becomes node {@code i}
+     */
+    public static IdentityResolver build(ProfileSegment base, Set<IdentityKey> linkKeys) {
+        int rows = base.size();
+        long[] ids = new long[rows];
+        int[] owners = new int[rows];
+        for (int row = 0; row < rows; row++) {
+            ids[row] = base.customerId(row);
+            owners[row] = row;
+        }
+        int[] parent = new int[Math.max(16, rows)];
+        for (int node = 0; node < rows; node++) {
+            parent[node] = node;
+        }
+
+        // Repeated customer ids in the base are one customer
+        PairSort.sort(ids, owners, rows);
+        IdentityResolver resolver = new IdentityResolver(linkKeys.toArray(new IdentityKey[0]), parent, rows);
+        int distinctIds = resolver.uniteRuns(ids, owners, rows);
+        resolver.customers = LongIntIndex.ofSorted(ids, owners, distinctIds);
+
+        int block = CompiledCriteria.BLOCK_SIZE;
+        long[] blockKeys = new long[block];
+        for (IdentityKey key : resolver.linkKeys) {
+            long[] hashes = new long[rows];
+            int[] keyOwners = new int[rows];
+            int keyed = 0;
+            for (int start = 0; start < rows; start += block) {
+                int length = Math.min(block, rows - start);
+                base.readIdentityKeys(key, start, length, blockKeys);
+                for (int j = 0; j < length; j++) {
+                    if (blockKeys[j] != IdentityKey.NONE) {
+                        hashes[keyed] = blockKeys[j];
+                        keyOwners[keyed++] = start + j;
+                    }
+                }
+            }
+            PairSort.sort(hashes, keyOwners, keyed);
+            int distinct = resolver.uniteRuns(hashes, keyOwners, keyed);
+            resolver.keyOwners[key.ordinal()] = LongIntIndex.ofSorted(hashes, keyOwners, distinct);
+        }
+        int[] identity = new int[rows];
+        for (int row = 0; row < rows; row++) {
+            identity[row] = row;
+        }
+        resolver.rowNodes.put(base, identity);
+        return resolver;
+    }
+
+    /**
+     * Resolve every row of a newly ingested segment
+     */
+    public synchronized void add(ProfileSegment segment) {
+        int rows = segment.size();
+        int[] nodeOfRow = new int[rows];
+        int block = CompiledCriteria.BLOCK_SIZE;
+        long[][] blockKeys = new long[linkKeys.length][block];
+        for (int start = 0; start < rows; start += block) {
+            int length = Math.min(block, rows - start);
+            for (int k = 0; k < linkKeys.length; k++) {
+                segment.readIdentityKeys(linkKeys[k], start, length, blockKeys[k]);
+            }
+            for (int j = 0; j < length; j++) {
+                long customerId = segment.customerId(start + j);
+                int node = customers.get(customerId);
+                if (node < 0) {
+                    node = newNode();
+                    customers.put(customerId, node);
+                }
+                nodeOfRow[start + j] = node;
+                for (int k = 0; k < linkKeys.length; k++) {
+                    long hash = blockKeys[k][j];
+                    if (hash == IdentityKey.NONE) {
+                        continue;
+                    }
+                    LongIntIndex owners = keyOwners[linkKeys[k].ordinal()];
+                    int owner = owners.get(hash);
+                    if (owner < 0) {
+                        owners.put(hash, node);
+                    } else {
+                        union(owner, node);
+                    }
+                }
+            }
+        }
+        rowNodes.put(segment, nodeOfRow);
+        version++;
+    }
+
+    /**
+     * Identity view of {@code parts}; the node-to-cluster labels, and the rows of the first
+     * part whose identity has other records, are computed once per change and shared by every
+     * view until the next one
+     */
+    public synchronized IdentityClusters clusters(List<ProfilePart> parts) {
+        ProfileSegment base = parts.get(0).segment();
+        if (labelledVersion != version || sharedSegment != base) {
+            int[] flattened = new int[nodes];
+            for (int node = 0; node < nodes; node++) {
+                flattened[node] = find(node);
+            }
+            labels = flattened;
+            sharedRows = sharedRows(rowNodes.computeIfAbsent(base, this::lookupRows));
+            sharedSegment = base;
+            labelledVersion = version;
+        }
+        int[][] nodeOfRow = new int[parts.size()][];
+        for (int p = 0; p < parts.size(); p++) {
+            nodeOfRow[p] = rowNodes.computeIfAbsent(parts.get(p).segment(), this::lookupRows);
+        }
+        return new IdentityClusters(labels, nodeOfRow, nodes - unions, sharedRows);
+    }
+
+    public synchronized int records() {
+        return nodes;
+    }
+
+    public synchronized int identities() {
+        return nodes - unions;
+    }
+
+    public IdentityKey[] linkKeys() {
+        return linkKeys.clone();
+    }
+
+    private RoaringBitmap sharedRows(int[] nodeOfRow) {
+        RoaringBitmap.Builder shared = RoaringBitmap.builder();
+        for (int row = 0; row < nodeOfRow.length; row++) {
+            int node = nodeOfRow[row];
+            if (node >= 0 && clusterSize[labels[node]] > 1) {
+                shared.add(row);
+            }
+        }
+        return shared.build();
+    }
+
+    private int[] lookupRows(ProfileSegment segment) {
+        int[] nodeOfRow = new int[segment.size()];
+        for (int row = 0; row < nodeOfRow.length; row++) {
+            nodeOfRow[row] = customers.get(segment.customerId(row));
+        }
+        return nodeOfRow;
+    }
+
+    /**
+     * Unite the owners of each run of equal sorted keys and compact the arrays to one
+     * {@code (key, first owner)} pair per run; returns the number of runs
+     */
+    private int uniteRuns(long[] keys, int[] owners, int size) {
+        int distinct = 0;
+        for (int i = 0; i < size; i++) {
+            if (distinct > 0 && keys[distinct - 1] == keys[i]) {
+                union(owners[distinct - 1], owners[i]);
+            } else {
+                keys[distinct] = keys[i];
+                owners[distinct++] = owners[i];
+            }
+        }
+        return distinct;
+    }
+
+    private int newNode() {
+        if (nodes == parent.length) {
+            int capacity = (int) Math.min(Integer.MAX_VALUE - 8, parent.length * 3L / 2);
+            parent = Arrays.copyOf(parent, capacity);
+            clusterSize = Arrays.copyOf(clusterSize, capacity);
+        }
+        int node = nodes++;
+        parent[node] = node;
+        clusterSize[node] = 1;
+        return node;
+    }
+
+    private int find(int node) {
+        while (parent[node] != node) {
+            parent[node] = parent[parent[node]];
+            node = parent[node];
+        }
+        return node;
+    }
+
+    private void union(int a, int b) {
+        int rootA = find(a);
+        int rootB = find(b);
+        if (rootA == rootB) {
+            return;
+        }
+        if (clusterSize[rootA] < clusterSize[rootB]) {
+            int swap = rootA;
+            rootA = rootB;
+            rootB = swap;
+        }
+        parent[rootB] = rootA;
+        clusterSize[rootA] += clusterSize[rootB];
+        unions++;
+    }
+}
@@ -0,0 +1,172 @@
+package com.insurance.mcp.service.audience.identity;
+
+import com.insurance.mcp.service.audience.sketch.HyperLogLog;
+
+import java.util.Arrays;
+
+/**
+ * Primitive {@code long -> int} map for tens of millions of entries. The bulk sits in two
+ * parallel arrays sorted by key (12 bytes per entry, binary searched); incremental inserts go
+ * to a small open-addressing table that is merged into the sorted arrays once it reaches an
+ * eighth of their size, keeping inserts amortized O(1) and memory close to the sorted form.
+ */
+final class LongIntIndex {
+
+    private static final long EMPTY = Long.MIN_VALUE;
+    private static final int MIN_PENDING = 4096;
+
+    private long[] keys;
+    private int[] values;
+    private int size;
+
+    private long[] pendingKeys;
+    private int[] pendingValues;
+    private int pendingSize;
+    private boolean hasEmptyKey;
+    private int emptyKeyValue;
+
+    private LongIntIndex(long[] keys, int[] values, int size) {
+        this.keys = keys;
+        this.values = values;
+        this.size = size;
+        resetPending();
+    }
+
+    static LongIntIndex empty() {
+        return new LongIntIndex(new long[0], new int[0], 0);
+    }
+
+    /**
+     * Index over the first {@code size} pairs, which must be sorted by key ({@link PairSort})
+     * without repeated keys; the arrays are taken over
+     */
+    static LongIntIndex ofSorted(long[] keys, int[] values, int size) {
+        return new LongIntIndex(keys, values, size);
+    }
+
+    int size() {
+        return size + pendingSize + (hasEmptyKey ? 1 : 0);
+    }
+
+    /**
+     * Value for {@code key}, or -1
+     */
+    int get(long key) {
+        if (key == EMPTY) {
+            if (hasEmptyKey) {
+                return emptyKeyValue;
+            }
+        } else {
+            int mask = pendingKeys.length - 1;
+            for (int slot = slot(key, mask); pendingKeys[slot] != EMPTY; slot = (slot + 1) & mask) {
+                if (pendingKeys[slot] == key) {
+                    return pendingValues[slot];
+                }
+            }
+        }
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int order = Long.compareUnsigned(keys[mid], key);
+            if (order < 0) {
+                low = mid + 1;
+            } else if (order > 0) {
+                high = mid - 1;
+            } else {
+                return values[mid];
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Add a key that is not present yet
+     */
+    void put(long key, int value) {
+        if (key == EMPTY) {
+            hasEmptyKey = true;
+            emptyKeyValue = value;
+            return;
+        }
+        if ((pendingSize + 1) * 2 > pendingKeys.length) {
+            if (pendingSize >= Math.max(MIN_PENDING, size / 8)) {
+                compact();
+            } else {
+                growPending();
+            }
+        }
+        insertPending(key, value);
+    }
+
+    /**
+     * Merge the pending table into the sorted arrays
+     */
+    private void compact() {
+        long[] addedKeys = new long[pendingSize];
+        int[] addedValues = new int[pendingSize];
+        int added = 0;
+        for (int slot = 0; slot < pendingKeys.length; slot++) {
+            if (pendingKeys[slot] != EMPTY) {
+                addedKeys[added] = pendingKeys[slot];
+                addedValues[added++] = pendingValues[slot];
+            }
+        }
+        PairSort.sort(addedKeys, addedValues, added);
+
+        long[] mergedKeys = new long[size + added];
+        int[] mergedValues = new int[size + added];
+        int i = 0;
+        int j = 0;
+        int k = 0;
+        while (i < size || j < added) {
+            if (j == added || (i < size && Long.compareUnsigned(keys[i], addedKeys[j]) < 0)) {
+                mergedKeys[k] = keys[i];
+                mergedValues[k++] = values[i++];
+            } else {
+                mergedKeys[k] = addedKeys[j];
+                mergedValues[k++] = addedValues[j++];
+            }
+        }
+        keys = mergedKeys;
+        values = mergedValues;
+        size = k;
+        resetPending();
+    }
+
+    private void growPending() {
+        long[] oldKeys = pendingKeys;
+        int[] oldValues = pendingValues;
+        pendingKeys = new long[oldKeys.length * 2];
+        pendingValues = new int[oldKeys.length * 2];
+        Arrays.fill(pendingKeys, EMPTY);
+        pendingSize = 0;
+        for (int slot = 0; slot < oldKeys.length; slot++) {
+            if (oldKeys[slot] != EMPTY) {
+                insertPending(oldKeys[slot], oldValues[slot]);
+            }
+        }
+    }
+
+    private void insertPending(long key, int value) {
+        int mask = pendingKeys.length - 1;
+        int slot = slot(key, mask);
+        while (pendingKeys[slot] != EMPTY) {
+            slot = (slot + 1) & mask;
+        }
+        pendingKeys[slot] = key;
+        pendingValues[slot] = value;
+        pendingSize++;
+    }
+
+    private void resetPending() {
+        pendingKeys = new long[64];
+        pendingValues = new int[64];
+        Arrays.fill(pendingKeys, EMPTY);
+        pendingSize = 0;
+    }
+
+    private static int slot(long key, int mask) {
+        return (int) HyperLogLog.hash(key) & mask;
+    }
+}
@@ -0,0 +1,63 @@
+package com.insurance.mcp.service.audience.identity;
+
+import java.util.Arrays;
+
+/**
+ * LSD radix sort of parallel {@code (long key, int value)} arrays by unsigned key, 16 bits
+ * per pass. Passes whose digit is the same for every key are skipped, so small keys such as
+ * sequential customer ids cost two passes instead of four.
+ */
+final class PairSort {
+
+    private static final int DIGIT_BITS = 16;
+    private static final int BUCKETS = 1 << DIGIT_BITS;
+
+    private PairSort() {
+    }
+
+    /**
+     * Sort the first {@code size} pairs in place; equal keys keep their relative order
+     */
+    static void sort(long[] keys, int[] values, int size) {
+        if (size < 2) {
+            return;
+        }
+        long[] keyBuffer = new long[size];
+        int[] valueBuffer = new int[size];
+        long[] fromKeys = keys;
+        int[] fromValues = values;
+        long[] toKeys = keyBuffer;
+        int[] toValues = valueBuffer;
+        int[] counts = new int[BUCKETS];
+        for (int shift = 0; shift < Long.SIZE; shift += DIGIT_BITS) {
+            Arrays.fill(counts, 0);
+            for (int i = 0; i < size; i++) {
+                counts[(int) (fromKeys[i] >>> shift) & (BUCKETS - 1)]++;
+            }
+            if (counts[(int) (fromKeys[0] >>> shift) & (BUCKETS - 1)] == size) {
+                continue;
+            }
+            int offset = 0;
+            for (int b = 0; b < BUCKETS; b++) {
+                int count = counts[b];
+                counts[b] = offset;
+                offset += count;
+            }
+            for (int i = 0; i < size; i++) {
+                int slot = counts[(int) (fromKeys[i] >>> shift) & (BUCKETS - 1)]++;
+                toKeys[slot] = fromKeys[i];
+                toValues[slot] = fromValues[i];
+            }
+            long[] swapKeys = fromKeys;
+            fromKeys = toKeys;
+            toKeys = swapKeys;
+            int[] swapValues = fromValues;
+            fromValues = toValues;
+            toValues = swapValues;
+        }
+        if (fromKeys != keys) {
+            System.arraycopy(fromKeys, 0, keys, 0, size);
+            System.arraycopy(fromValues, 0, values, 0, size);
+        }
+    }
+}
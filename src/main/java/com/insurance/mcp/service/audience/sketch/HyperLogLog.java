@@ -0,0 +1,135 @@
+package com.insurance.mcp.service.audience.sketch;
+
+import java.util.Collection;
+
+/**
+ * Mergeable HyperLogLog cardinality sketch (Flajolet et al.) with one byte per register
+ * and linear counting for small cardinalities. Sketches of equal precision merge by
+ * register-wise max, which is exactly the sketch of the union of their inputs.
+ */
+public final class HyperLogLog {
+
+    public static final int DEFAULT_PRECISION = 14;
+
+    private static final double[] INVERSE_POWERS = new double[65];
+
+    static {
+        for (int i = 0; i < INVERSE_POWERS.length; i++) {
+            INVERSE_POWERS[i] = Math.scalb(1.0, -i);
+        }
+    }
+
+    private final int precision;
+    private final byte[] registers;
+
+    public HyperLogLog(int precision) {
+        if (precision < 4 || precision > 18) {
+            throw new IllegalArgumentException("HyperLogLog precision must be between 4 and 18: " + precision);
+        }
+        this.precision = precision;
+        this.registers = new byte[1 << precision];
+    }
+
+    private HyperLogLog(int precision, byte[] registers) {
+        this.precision = precision;
+        this.registers = registers;
+    }
+
+    /**
+     * 64-bit avalanche hash (SplitMix64 finalizer) of a customer id, so sketches built
+     * from different dataset versions stay mergeable
+     */
+    public static long hash(long value) {
+        long z = value + 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    public void addHash(long hash) {
+        int index = (int) (hash >>> (64 - precision));
+        // The guard bit caps the rank at 64 - precision + 1 when the remaining bits are zero
+        int rank = Long.numberOfLeadingZeros((hash << precision) | (1L << (precision - 1))) + 1;
+        if (rank > registers[index]) {
+            registers[index] = (byte) rank;
+        }
+    }
+
+    public void add(long value) {
+        addHash(hash(value));
+    }
+
+    /**
+     * Fold {@code other} into this sketch
+     */
+    public void merge(HyperLogLog other) {
+        checkPrecision(other);
+        byte[] theirs = other.registers;
+        for (int i = 0; i < registers.length; i++) {
+            if (theirs[i] > registers[i]) {
+                registers[i] = theirs[i];
+            }
+        }
+    }
+
+    public static HyperLogLog union(Collection<HyperLogLog> sketches, int precision) {
+        HyperLogLog union = new HyperLogLog(precision);
+        for (HyperLogLog sketch : sketches) {
+            union.merge(sketch);
+        }
+        return union;
+    }
+
+    public HyperLogLog copy() {
+        return new HyperLogLog(precision, registers.clone());
+    }
+
+    public long estimate() {
+        int m = registers.length;
+        double sum = 0;
+        int zeros = 0;
+        for (byte register : registers) {
+            sum += INVERSE_POWERS[register];
+            if (register == 0) {
+                zeros++;
+            }
+        }
+        double alpha = 0.7213 / (1 + 1.079 / m);
+        double raw = alpha * m * m / sum;
+        if (raw <= 2.5 * m && zeros > 0) {
+            return Math.round(m * Math.log((double) m / zeros));
+        }
+        return Math.round(raw);
+    }
+
+    /**
+     * Relative standard error of {@link #estimate()}: 1.04 / sqrt(m)
+     */
+    public double relativeStandardError() {
+        return 1.04 / Math.sqrt(registers.length);
+    }
+
+    public int getPrecision() {
+        return precision;
+    }
+
+    public int sizeInBytes() {
+        return registers.length;
+    }
+
+    public boolean isEmpty() {
+        for (byte register : registers) {
+            if (register != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void checkPrecision(HyperLogLog other) {
+        if (other.precision != precision) {
+            throw new IllegalArgumentException("Cannot merge HyperLogLog sketches of precision "
+                    + precision + " and " + other.precision);
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package com.insurance.mcp.service.campaign;
+
+import com.insurance.mcp.model.campaign.AudienceCriteria;
+import com.insurance.mcp.model.campaign.AudienceRuleSet;
+
+import java.util.*;
+
+/**
+ * Immutable decision table compiled from an {@link AudienceRuleSet}.
+ * Base criteria are resolved per (insurance type, objective) at compile time,
+ * so a lookup is two index probes and an array read.
+ */
+public final class AudienceDecisionTable {
+
+    static final String WILDCARD = "*";
+
+    private final String version;
+    private final Map<String, Integer> insuranceTypeIndex;
+    private final Map<String, Integer> objectiveIndex;
+    private final AudienceCriteria[][] baseCriteria;
+    private final Map<String, List<String>> segments;
+    private final List<String> defaultSegments;
+    private final String[][] ruleKeywords;
+    private final AudienceCriteria[] ruleOverrides;
+
+    private AudienceDecisionTable(String version,
+                                  Map<String, Integer> insuranceTypeIndex,
+                                  Map<String, Integer> objectiveIndex,
+                                  AudienceCriteria[][] baseCriteria,
+                                  Map<String, List<String>> segments,
+                                  List<String> defaultSegments,
+                                  String[][] ruleKeywords,
+                                  AudienceCriteria[] ruleOverrides) {
+        this.version = version;
+        this.insuranceTypeIndex = insuranceTypeIndex;
+        this.objectiveIndex = objectiveIndex;
+        this.baseCriteria = baseCriteria;
+        this.segments = segments;
+        this.defaultSegments = defaultSegments;
+        this.ruleKeywords = ruleKeywords;
+        this.ruleOverrides = ruleOverrides;
+    }
+
+    /**
+     * Compile a rule set; throws {@link IllegalArgumentException} if the rules are inconsistent
+     */
+    public static AudienceDecisionTable compile(AudienceRuleSet ruleSet) {
+        if (ruleSet.getVersion() == null || ruleSet.getVersion().isBlank()) {
+            throw new IllegalArgumentException("Audience rules must declare a version");
+        }
+        List<AudienceRuleSet.BaseCriteriaRule> rows = ruleSet.getBaseCriteria() != null
+                ? ruleSet.getBaseCriteria() : List.of();
+
+        // Index 0 is the wildcard slot for both dimensions
+        Map<String, Integer> typeIndex = new HashMap<>();
+        Map<String, Integer> objectiveIndex = new HashMap<>();
+        typeIndex.put(WILDCARD, 0);
+        objectiveIndex.put(WILDCARD, 0);
+        for (AudienceRuleSet.BaseCriteriaRule row : rows) {
+            typeIndex.putIfAbsent(keyOf(row.getInsuranceType()), typeIndex.size());
+            objectiveIndex.putIfAbsent(keyOf(row.getObjective()), objectiveIndex.size());
+        }
+
+        // Explicit rows first, then resolve every empty cell from the most specific wildcard row
+        AudienceCriteria[][] explicit = new AudienceCriteria[typeIndex.size()][objectiveIndex.size()];
+        for (AudienceRuleSet.BaseCriteriaRule row : rows) {
+            if (row.getCriteria() == null) {
+                throw new IllegalArgumentException("Base criteria row without criteria: " + row.getInsuranceType());
+            }
+            explicit[typeIndex.get(keyOf(row.getInsuranceType()))][objectiveIndex.get(keyOf(row.getObjective()))] =
+                    freeze(row.getCriteria());
+        }
+        if (explicit[0][0] == null) {
+            throw new IllegalArgumentException("Audience rules must define a \"*\"/\"*\" base criteria row");
+        }
+
+        AudienceCriteria[][] resolved = new AudienceCriteria[explicit.length][];
+        for (int t = 0; t < explicit.length; t++) {
+            resolved[t] = new AudienceCriteria[explicit[t].length];
+            for (int o = 0; o < explicit[t].length; o++) {
+                AudienceCriteria cell = explicit[t][o];
+                if (cell == null) cell = explicit[t][0];
+                if (cell == null) cell = explicit[0][o];
+                if (cell == null) cell = explicit[0][0];
+                resolved[t][o] = cell;
+            }
+        }
+
+        Map<String, List<String>> segments = new HashMap<>();
+        if (ruleSet.getSegments() != null) {
+            ruleSet.getSegments().forEach((type, list) -> segments.put(type, List.copyOf(list)));
+        }
+        List<String> defaultSegments = ruleSet.getDefaultSegments() != null
+                ? List.copyOf(ruleSet.getDefaultSegments()) : List.of("general");
+
+        List<AudienceRuleSet.RequirementRule> rules = ruleSet.getRequirementRules() != null
+                ? ruleSet.getRequirementRules() : List.of();
+        String[][] keywords = new String[rules.size()][];
+        AudienceCriteria[] overrides = new AudienceCriteria[rules.size()];
+        for (int i = 0; i < rules.size(); i++) {
+            AudienceRuleSet.RequirementRule rule = rules.get(i);
+            if (rule.getKeywords() == null || rule.getKeywords().isEmpty() || rule.getOverrides() == null) {
+                throw new IllegalArgumentException("Requirement rule needs keywords and overrides: " + rule.getName());
+            }
+            keywords[i] = rule.getKeywords().stream()
+                    .map(k -> k.toLowerCase(Locale.ROOT))
+                    .toArray(String[]::new);
+            overrides[i] = freeze(rule.getOverrides());
+        }
+
+        return new AudienceDecisionTable(ruleSet.getVersion(), Map.copyOf(typeIndex), Map.copyOf(objectiveIndex),
+                resolved, Map.copyOf(segments), defaultSegments, keywords, overrides);
+    }
+
+    public String getVersion() {
+        return version;
+    }
+
+    /**
+     * Base criteria for the insurance type and objective, stamped with the objective
+     */
+    public AudienceCriteria baseCriteria(String insuranceType, String campaignObjective) {
+        int t = insuranceTypeIndex.getOrDefault(insuranceType, 0);
+        int o = objectiveIndex.getOrDefault(campaignObjective, 0);
+        return baseCriteria[t][o].toBuilder()
+                .campaignObjective(campaignObjective)
+                .build();
+    }
+
+    /**
+     * Criteria variants derived from the base criteria by the requirement keyword rules, in rule order
+     */
+    public List<AudienceCriteria> requirementVariants(AudienceCriteria base, String requirements) {
+        if (requirements == null || ruleKeywords.length == 0) {
+            return List.of();
+        }
+        String lowerRequirements = requirements.toLowerCase(Locale.ROOT);
+        List<AudienceCriteria> variants = new ArrayList<>();
+        for (int i = 0; i < ruleKeywords.length; i++) {
+            for (String keyword : ruleKeywords[i]) {
+                if (lowerRequirements.contains(keyword)) {
+                    variants.add(overlay(base, ruleOverrides[i]));
+                    break;
+                }
+            }
+        }
+        return variants;
+    }
+
+    public List<String> segmentsFor(String insuranceType) {
+        return segments.getOrDefault(insuranceType, defaultSegments);
+    }
+
+    public boolean isKnownInsuranceType(String insuranceType) {
+        return segments.containsKey(insuranceType);
+    }
+
+    public int getRuleCount() {
+        return ruleKeywords.length;
+    }
+
+    private static String keyOf(String value) {
+        return value == null || value.isBlank() ? WILDCARD : value;
+    }
+
+    /**
+     * Copy a criteria with unmodifiable lists so snapshots can be shared across requests
+     */
+    private static AudienceCriteria freeze(AudienceCriteria c) {
+        return overlay(new AudienceCriteria(), c);
+    }
+
+    /**
+     * Non-null fields of {@code overrides} replace the corresponding fields of {@code base}
+     */
+    static AudienceCriteria overlay(AudienceCriteria base, AudienceCriteria overrides) {
+        AudienceCriteria.AudienceCriteriaBuilder b = base.toBuilder();
+        if (overrides.getMinAge() != null) b.minAge(overrides.getMinAge());
+        if (overrides.getMaxAge() != null) b.maxAge(overrides.getMaxAge());
+        if (overrides.getGender() != null) b.gender(List.copyOf(overrides.getGender()));
+        if (overrides.getIncomeRange() != null) b.incomeRange(List.copyOf(overrides.getIncomeRange()));
+        if (overrides.getOccupation() != null) b.occupation(List.copyOf(overrides.getOccupation()));
+        if (overrides.getLocation() != null) b.location(List.copyOf(overrides.getLocation()));
+        if (overrides.getMaritalStatus() != null) b.maritalStatus(List.copyOf(overrides.getMaritalStatus()));
+        if (overrides.getEducationLevel() != null) b.educationLevel(List.copyOf(overrides.getEducationLevel()));
+        if (overrides.getExistingInsuranceTypes() != null) b.existingInsuranceTypes(List.copyOf(overrides.getExistingInsuranceTypes()));
+        if (overrides.getRiskProfile() != null) b.riskProfile(List.copyOf(overrides.getRiskProfile()));
+        if (overrides.getHasExistingPolicy() != null) b.hasExistingPolicy(overrides.getHasExistingPolicy());
+        if (overrides.getPreferredCommunicationChannel() != null) b.preferredCommunicationChannel(List.copyOf(overrides.getPreferredCommunicationChannel()));
+        if (overrides.getPurchaseHistory() != null) b.purchaseHistory(List.copyOf(overrides.getPurchaseHistory()));
+        if (overrides.getOnlineBehavior() != null) b.onlineBehavior(List.copyOf(overrides.getOnlineBehavior()));
+        if (overrides.getInterests() != null) b.interests(List.copyOf(overrides.getInterests()));
+        if (overrides.getCampaignObjective() != null) b.campaignObjective(overrides.getCampaignObjective());
+        if (overrides.getTargetSegment() != null) b.targetSegment(overrides.getTargetSegment());
+        return b.build();
+    }
+}
@@ -0,0 +1,186 @@
+package com.insurance.mcp.service.campaign;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.insurance.mcp.model.campaign.AudienceCriteria;
+import com.insurance.mcp.service.audience.AudienceExportCursor;
+import com.insurance.mcp.service.audience.CustomerProfileStore;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Streams the customer ids matching recommended (or explicit) audience criteria in bounded chunks.
+ * HTTP exports write NDJSON straight from a scan cursor; the {@code audience_export} tool pages
+ * through a server-side cursor that callers resume with {@code cursor}. Recipients on the
+ * suppression list are left out unless {@code apply_suppression} is false.
+ */
+@Slf4j
+@Service
+public class AudienceExportService {
+
+    @Autowired
+    private AudienceTargetingService audienceTargetingService;
+
+    @Autowired
+    private CustomerProfileStore customerProfileStore;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private SuppressionService suppressionService;
+
+    @Value("${mcp.audience.export.chunk-size:10000}")
+    private int defaultChunkSize;
+
+    @Value("${mcp.audience.export.max-chunk-size:100000}")
+    private int maxChunkSize;
+
+    @Value("${mcp.audience.export.max-open-cursors:64}")
+    private int maxOpenCursors;
+
+    @Value("${mcp.audience.export.cursor-idle-timeout-ms:300000}")
+    private long cursorIdleTimeoutMs;
+
+    private final Map<String, AudienceExportCursor> openCursors = new ConcurrentHashMap<>();
+
+    /**
+     * Cursor over the audience described by the arguments: {@code criteria} (explicit criteria),
+     * or the {@code audience_targeting} arguments plus an optional {@code criteria_index};
+     * without an index the union of all recommended variants is exported. With
+     * {@code dedup_identities} one customer id is exported per person or household.
+     */
+    public AudienceExportCursor open(Map<String, Object> arguments) {
+        AudienceExportCursor cursor = customerProfileStore.openExport(UUID.randomUUID().toString(),
+                resolveCriteria(arguments), Boolean.TRUE.equals(arguments.get("dedup_identities")));
+        if (suppressionService.isEnabled() && !"false".equals(String.valueOf(arguments.get("apply_suppression")))) {
+            cursor.exclude(suppressionService::isSuppressed);
+        }
+        return cursor;
+    }
+
+    public int chunkSize(Map<String, Object> arguments) {
+        Object requested = arguments.get("chunk_size");
+        int size = requested instanceof Number number ? number.intValue() : defaultChunkSize;
+        return Math.max(1, Math.min(size, maxChunkSize));
+    }
+
+    /**
+     * One page of the {@code audience_export} tool, opening a cursor on the first call
+     */
+    public Map<String, Object> exportPage(Map<String, Object> arguments) {
+        String cursorId = (String) arguments.get("cursor");
+        AudienceExportCursor cursor;
+        if (cursorId != null) {
+            cursor = openCursors.remove(cursorId);
+            if (cursor == null) {
+                throw new IllegalArgumentException("Unknown or expired export cursor: " + cursorId);
+            }
+        } else {
+            if (openCursors.size() >= maxOpenCursors) {
+                throw new IllegalStateException("Too many open audience exports (" + maxOpenCursors + ")");
+            }
+            cursor = open(arguments);
+        }
+
+        long[] ids = new long[chunkSize(arguments)];
+        int count = cursor.next(ids);
+        boolean hasMore = cursor.hasMore();
+        if (hasMore) {
+            openCursors.put(cursor.getId(), cursor);
+        }
+
+        Map<String, Object> page = new HashMap<>();
+        page.put("customer_ids", Arrays.stream(ids, 0, count).boxed().toList());
+        page.put("chunk_index", cursor.getChunks() - 1);
+        page.put("exported", cursor.getExported());
+        page.put("suppressed", cursor.getExcluded());
+        page.put("has_more", hasMore);
+        if (hasMore) {
+            page.put("next_cursor", cursor.getId());
+        }
+        if (cursor.getExpectedSize() != null) {
+            page.put("audience_size", cursor.getExpectedSize());
+        }
+        return page;
+    }
+
+    /**
+     * Write the whole audience as NDJSON ({@code {"customer_id":...}} per line), flushing per chunk.
+     * Blocking writes stall the scan whenever the client stops reading.
+     */
+    public long writeNdjson(AudienceExportCursor cursor, int chunkSize, OutputStream out) throws IOException {
+        long[] ids = new long[chunkSize];
+        StringBuilder lines = new StringBuilder(chunkSize * 24);
+        int count;
+        while ((count = cursor.next(ids)) > 0) {
+            lines.setLength(0);
+            for (int i = 0; i < count; i++) {
+                lines.append("{\"customer_id\":").append(ids[i]).append("}\n");
+            }
+            out.write(lines.toString().getBytes(StandardCharsets.UTF_8));
+            out.flush();
+        }
+        log.info("Exported {} customer ids in {} chunks, {} suppressed", cursor.getExported(), cursor.getChunks(),
+                cursor.getExcluded());
+        return cursor.getExported();
+    }
+
+    /**
+     * Drive the cursor chunk by chunk through {@code sink}, which renders and sends each chunk
+     */
+    public void forEachChunk(AudienceExportCursor cursor, int chunkSize, ChunkSink sink) throws IOException {
+        long[] ids = new long[chunkSize];
+        int count;
+        while ((count = cursor.next(ids)) > 0) {
+            sink.accept(cursor.getChunks() - 1, Arrays.copyOf(ids, count), !cursor.hasMore());
+        }
+    }
+
+    public String toJsonArray(long[] ids) throws IOException {
+        return objectMapper.writeValueAsString(ids);
+    }
+
+    @Scheduled(fixedDelayString = "${mcp.audience.export.cursor-sweep-interval-ms:60000}")
+    public void expireIdleCursors() {
+        long cutoff = System.currentTimeMillis() - cursorIdleTimeoutMs;
+        openCursors.values().removeIf(cursor -> cursor.getLastAccessMillis() < cutoff);
+    }
+
+    private List<AudienceCriteria> resolveCriteria(Map<String, Object> arguments) {
+        Object explicit = arguments.get("criteria");
+        if (explicit != null) {
+            return List.of(objectMapper.convertValue(explicit, AudienceCriteria.class));
+        }
+        List<AudienceCriteria> recommended = audienceTargetingService.recommendCriteria(arguments);
+        Object index = arguments.get("criteria_index");
+        if (index instanceof Number number) {
+            int i = number.intValue();
+            if (i < 0 || i >= recommended.size()) {
+                throw new IllegalArgumentException("criteria_index " + i + " out of range 0.." + (recommended.size() - 1));
+            }
+            return List.of(recommended.get(i));
+        }
+        return recommended;
+    }
+
+    /**
+     * Receives export chunks in order
+     */
+    @FunctionalInterface
+    public interface ChunkSink {
+        void accept(int index, long[] ids, boolean last) throws IOException;
+    }
+}
@@ -0,0 +1,88 @@
+package com.insurance.mcp.service.campaign;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.insurance.mcp.model.campaign.AudienceRuleSet;
+import com.insurance.mcp.service.support.ReloadableResource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Loads the versioned audience rules file and publishes compiled decision tables.
+ * Readers take the current snapshot with a single volatile read; a reload compiles
+ * a new table off to the side and swaps it in, so in-flight requests are never blocked.
+ */
+@Slf4j
+@Service
+public class AudienceRuleService {
+
+    @Autowired
+    private ResourceLoader resourceLoader;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${mcp.audience.rules.location:classpath:audience-rules.json}")
+    private String rulesLocation;
+
+    private final AtomicReference<AudienceDecisionTable> current = new AtomicReference<>();
+    private ReloadableResource rulesResource;
+
+    @PostConstruct
+    public void initialize() {
+        rulesResource = new ReloadableResource(resourceLoader, rulesLocation);
+        try {
+            reload();
+        } catch (IOException | IllegalArgumentException e) {
+            throw new IllegalStateException("Unable to load audience rules from " + rulesLocation, e);
+        }
+    }
+
+    /**
+     * Current rules snapshot
+     */
+    public AudienceDecisionTable current() {
+        return current.get();
+    }
+
+    /**
+     * Re-read and compile the rules file, then publish it
+     */
+    public synchronized AudienceDecisionTable reload() throws IOException {
+        AudienceRuleSet ruleSet;
+        try (InputStream in = rulesResource.open()) {
+            ruleSet = objectMapper.readValue(in, AudienceRuleSet.class);
+        }
+        AudienceDecisionTable table = AudienceDecisionTable.compile(ruleSet);
+        AudienceDecisionTable previous = current.getAndSet(table);
+        log.info("Loaded audience rules version {} ({} requirement rules) from {}, previous version: {}",
+                table.getVersion(), table.getRuleCount(), rulesResource.getLocation(),
+                previous != null ? previous.getVersion() : "none");
+        return table;
+    }
+
+    /**
+     * Poll the rules file and reload when it changes; a bad file keeps the previous snapshot
+     */
+    @Scheduled(fixedDelayString = "${mcp.audience.rules.reload-interval-ms:30000}",
+            initialDelayString = "${mcp.audience.rules.reload-interval-ms:30000}")
+    public void reloadIfChanged() {
+        if (!rulesResource.hasChanged()) {
+            return;
+        }
+        try {
+            reload();
+        } catch (Exception e) {
+            log.error("Rejected audience rules update from {}, keeping version {}: {}",
+                    rulesResource.getLocation(), current().getVersion(), e.getMessage());
+        }
+    }
+}
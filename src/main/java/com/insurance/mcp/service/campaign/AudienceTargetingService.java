@@ -1,7 +1,18 @@
 package com.insurance.mcp.service.campaign;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.insurance.mcp.model.campaign.AudienceCriteria;
+import com.insurance.mcp.model.campaign.GeoFilter;
+import com.insurance.mcp.service.audience.AudienceCounts;
+import com.insurance.mcp.service.audience.AudienceSketchService;
+import com.insurance.mcp.service.audience.CustomerProfileStore;
+import com.insurance.mcp.service.audience.geo.GeoCellEstimate;
+import com.insurance.mcp.service.audience.geo.GeoRegion;
+import com.insurance.mcp.service.campaign.template.MessageTemplate;
+import com.insurance.mcp.service.campaign.template.TemplateToken;
+import com.insurance.mcp.service.campaign.template.TemplateValues;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.util.*;
@@ -14,43 +25,26 @@ import java.util.stream.Collectors;
 @Service
 public class AudienceTargetingService {
 
-    private static final Map<String, List<String>> INSURANCE_TYPE_SEGMENTS = Map.of(
-        "life_insurance", Arrays.asList("young_professionals", "families", "seniors"),
-        "health_insurance", Arrays.asList("young_adults", "families", "seniors", "self_employed"),
-        "auto_insurance", Arrays.asList("new_drivers", "experienced_drivers", "commercial_drivers"),
-        "property_insurance", Arrays.asList("homeowners", "renters", "business_owners"),
-        "travel_insurance", Arrays.asList("frequent_travelers", "vacationers", "business_travelers")
-    );
-
-    private static final Map<String, AudienceCriteria> SEGMENT_TEMPLATES = Map.of(
-        "young_professionals", AudienceCriteria.builder()
-                .minAge(25)
-                .maxAge(35)
-                .incomeRange(Arrays.asList("middle_income", "high_income"))
-                .occupation(Arrays.asList("professional", "manager", "executive"))
-                .educationLevel(Arrays.asList("bachelor", "master", "phd"))
-                .maritalStatus(Arrays.asList("single", "married"))
-                .preferredCommunicationChannel(Arrays.asList("email", "mobile_app", "social_media"))
-                .interests(Arrays.asList("career_development", "investment", "technology"))
-                .build(),
-                
-        "families", AudienceCriteria.builder()
-                .minAge(30)
-                .maxAge(50)
-                .incomeRange(Arrays.asList("middle_income", "high_income"))
-                .maritalStatus(Arrays.asList("married"))
-                .preferredCommunicationChannel(Arrays.asList("email", "phone", "mobile_app"))
-                .interests(Arrays.asList("family_security", "education", "health"))
-                .build(),
-                
-        "seniors", AudienceCriteria.builder()
-                .minAge(55)
-                .maxAge(75)
-                .incomeRange(Arrays.asList("middle_income", "high_income"))
-                .preferredCommunicationChannel(Arrays.asList("phone", "mail", "email"))
-                .interests(Arrays.asList("retirement_planning", "health", "estate_planning"))
-                .build()
-    );
+    private static final MessageTemplate AGE_REASONING = MessageTemplate.compile(
+            "Age range {AGE_MIN}-{AGE_MAX} is optimal for {CAMPAIGN_OBJECTIVE} campaigns. ");
+    private static final MessageTemplate INCOME_REASONING = MessageTemplate.compile(
+            "Targeting {INCOME_SEGMENTS} income segments aligns with campaign objectives. ");
+    private static final MessageTemplate CHANNEL_REASONING = MessageTemplate.compile(
+            "Recommended channels: {CHANNELS} for better engagement. ");
+    private static final MessageTemplate RADIUS_REASONING = MessageTemplate.compile(
+            "Limited to customers within {RADIUS_KM} km of the campaign area. ");
+
+    @Autowired
+    private AudienceRuleService audienceRuleService;
+
+    @Autowired
+    private CustomerProfileStore customerProfileStore;
+
+    @Autowired
+    private AudienceSketchService audienceSketchService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
 
     public Map<String, Object> recommendAudienceCriteria(Map<String, Object> request) {
         String requirements = (String) request.get("requirements");
@@ -60,11 +54,16 @@ public class AudienceTargetingService {
         log.info("Generating audience criteria for requirements: {}, insurance: {}, objective: {}", 
                 requirements, insuranceType, campaignObjective);
 
+        // One snapshot per request so a concurrent reload cannot mix rule versions
+        AudienceDecisionTable rules = audienceRuleService.current();
+
         // Analyze requirements and generate criteria
-        List<AudienceCriteria> criteriaList = generateCriteriaFromRequirements(requirements, insuranceType, campaignObjective);
+        GeoFilter geo = geoFilter(request);
+        List<AudienceCriteria> criteriaList = generateCriteriaFromRequirements(rules, requirements, insuranceType,
+                campaignObjective, geo);
         
         // Get recommended segments
-        List<String> recommendedSegments = INSURANCE_TYPE_SEGMENTS.getOrDefault(insuranceType, Arrays.asList("general"));
+        List<String> recommendedSegments = rules.segmentsFor(insuranceType);
         
         // Generate targeting suggestions
         List<Map<String, Object>> targetingSuggestions = generateTargetingSuggestions(criteriaList, campaignObjective);
@@ -74,90 +73,53 @@ public class AudienceTargetingService {
             "target_segments", recommendedSegments,
             "targeting_suggestions", targetingSuggestions,
             "insights", generateInsights(requirements, insuranceType, campaignObjective),
-            "estimated_audience_size", estimateAudienceSize(criteriaList),
-            "confidence_score", calculateConfidenceScore(requirements, insuranceType)
+            "estimated_audience_size", estimateAudienceSize(criteriaList, request, geo),
+            "confidence_score", calculateConfidenceScore(rules, requirements, insuranceType),
+            "rules_version", rules.getVersion()
         );
     }
 
-    private List<AudienceCriteria> generateCriteriaFromRequirements(String requirements, String insuranceType, String campaignObjective) {
+    /**
+     * Criteria variants that {@link #recommendAudienceCriteria} would recommend for the request
+     */
+    public List<AudienceCriteria> recommendCriteria(Map<String, Object> request) {
+        String requirements = (String) request.get("requirements");
+        String insuranceType = (String) request.getOrDefault("insurance_type", "general");
+        String campaignObjective = (String) request.getOrDefault("campaign_objective", "acquisition");
+        return generateCriteriaFromRequirements(audienceRuleService.current(), requirements, insuranceType,
+                campaignObjective, geoFilter(request));
+    }
+
+    private List<AudienceCriteria> generateCriteriaFromRequirements(AudienceDecisionTable rules, String requirements,
+                                                                    String insuranceType, String campaignObjective,
+                                                                    GeoFilter geo) {
         List<AudienceCriteria> criteriaList = new ArrayList<>();
         
-        // Basic criteria based on insurance type
-        AudienceCriteria baseCriteria = createBaseCriteria(insuranceType, campaignObjective);
+        // Basic criteria based on insurance type and objective
+        AudienceCriteria baseCriteria = rules.baseCriteria(insuranceType, campaignObjective);
         criteriaList.add(baseCriteria);
 
-        // Analyze requirements for additional criteria
-        if (requirements != null) {
-            String lowerRequirements = requirements.toLowerCase();
-            
-            // Age-based targeting
-            if (lowerRequirements.contains("young") || lowerRequirements.contains("millennial")) {
-                criteriaList.add(baseCriteria.toBuilder()
-                        .minAge(25)
-                        .maxAge(35)
-                        .preferredCommunicationChannel(Arrays.asList("social_media", "mobile_app", "email"))
-                        .build());
-            }
-            
-            if (lowerRequirements.contains("senior") || lowerRequirements.contains("retirement")) {
-                criteriaList.add(baseCriteria.toBuilder()
-                        .minAge(55)
-                        .maxAge(75)
-                        .preferredCommunicationChannel(Arrays.asList("phone", "mail", "email"))
-                        .build());
-            }
+        // Additional criteria from the requirement keyword rules
+        criteriaList.addAll(rules.requirementVariants(baseCriteria, requirements));
 
-            // Income-based targeting
-            if (lowerRequirements.contains("affordable") || lowerRequirements.contains("budget")) {
-                criteriaList.add(baseCriteria.toBuilder()
-                        .incomeRange(Arrays.asList("low_income", "middle_income"))
-                        .build());
-            }
-            
-            if (lowerRequirements.contains("premium") || lowerRequirements.contains("high-end")) {
-                criteriaList.add(baseCriteria.toBuilder()
-                        .incomeRange(Arrays.asList("high_income", "very_high_income"))
-                        .build());
-            }
+        // A requested region narrows every variant
+        if (geo != null) {
+            criteriaList.replaceAll(criteria -> criteria.toBuilder().geo(geo).build());
         }
-
         return criteriaList;
     }
 
-    private AudienceCriteria createBaseCriteria(String insuranceType, String campaignObjective) {
-        switch (insuranceType) {
-            case "life_insurance":
-                return AudienceCriteria.builder()
-                        .minAge(25)
-                        .maxAge(65)
-                        .maritalStatus(Arrays.asList("single", "married"))
-                        .riskProfile(Arrays.asList("low_risk", "medium_risk"))
-                        .campaignObjective(campaignObjective)
-                        .build();
-                        
-            case "health_insurance":
-                return AudienceCriteria.builder()
-                        .minAge(18)
-                        .maxAge(65)
-                        .riskProfile(Arrays.asList("medium_risk", "high_risk"))
-                        .campaignObjective(campaignObjective)
-                        .build();
-                        
-            case "auto_insurance":
-                return AudienceCriteria.builder()
-                        .minAge(18)
-                        .maxAge(75)
-                        .occupation(Arrays.asList("employed", "self_employed"))
-                        .campaignObjective(campaignObjective)
-                        .build();
-                        
-            default:
-                return AudienceCriteria.builder()
-                        .minAge(18)
-                        .maxAge(65)
-                        .campaignObjective(campaignObjective)
-                        .build();
+    /**
+     * The request's {@code geo} argument, validated, or null
+     */
+    private GeoFilter geoFilter(Map<String, Object> request) {
+        Object value = request.get("geo");
+        if (value == null) {
+            return null;
         }
+        GeoFilter geo = objectMapper.convertValue(value, GeoFilter.class);
+        GeoRegion.of(geo);
+        return geo;
     }
 
     private List<Map<String, Object>> generateTargetingSuggestions(List<AudienceCriteria> criteriaList, String campaignObjective) {
@@ -175,21 +137,29 @@ public class AudienceTargetingService {
     }
 
     private String generateReasoning(AudienceCriteria criteria, String campaignObjective) {
-        StringBuilder reasoning = new StringBuilder();
+        TemplateValues values = new TemplateValues().set(TemplateToken.CAMPAIGN_OBJECTIVE, campaignObjective);
+        StringBuilder reasoning = MessageTemplate.buffer();
         
         if (criteria.getMinAge() != null && criteria.getMaxAge() != null) {
-            reasoning.append(String.format("Age range %d-%d is optimal for %s campaigns. ", 
-                    criteria.getMinAge(), criteria.getMaxAge(), campaignObjective));
+            values.set(TemplateToken.AGE_MIN, criteria.getMinAge()).set(TemplateToken.AGE_MAX, criteria.getMaxAge());
+            AGE_REASONING.renderTo(values, reasoning);
         }
         
         if (criteria.getIncomeRange() != null && !criteria.getIncomeRange().isEmpty()) {
-            reasoning.append(String.format("Targeting %s income segments aligns with campaign objectives. ", 
-                    String.join(", ", criteria.getIncomeRange())));
+            values.set(TemplateToken.INCOME_SEGMENTS, String.join(", ", criteria.getIncomeRange()));
+            INCOME_REASONING.renderTo(values, reasoning);
         }
         
         if (criteria.getPreferredCommunicationChannel() != null && !criteria.getPreferredCommunicationChannel().isEmpty()) {
-            reasoning.append(String.format("Recommended channels: %s for better engagement. ", 
-                    String.join(", ", criteria.getPreferredCommunicationChannel())));
+            values.set(TemplateToken.CHANNELS, String.join(", ", criteria.getPreferredCommunicationChannel()));
+            CHANNEL_REASONING.renderTo(values, reasoning);
+        }
+
+        if (criteria.getGeo() != null && criteria.getGeo().getRadiusKm() != null) {
+            values.set(TemplateToken.RADIUS_KM, Math.round(criteria.getGeo().getRadiusKm()));
+            RADIUS_REASONING.renderTo(values, reasoning);
+        } else if (criteria.getGeo() != null) {
+            reasoning.append("Limited to customers inside the campaign area. ");
         }
         
         return reasoning.toString();
@@ -206,28 +176,84 @@ public class AudienceTargetingService {
         return insights;
     }
 
-    private String estimateAudienceSize(List<AudienceCriteria> criteriaList) {
-        // Simplified estimation logic
-        int baseSize = 100000;
-        int criteriaCount = criteriaList.size();
-        
-        if (criteriaCount > 3) {
-            return "Small (1,000 - 10,000)";
-        } else if (criteriaCount > 1) {
+    private Map<String, Object> estimateAudienceSize(List<AudienceCriteria> criteriaList, Map<String, Object> request,
+                                                     GeoFilter geo) {
+        long start = System.nanoTime();
+        AudienceCounts result = customerProfileStore.count(criteriaList);
+        long[] counts = result.getCounts();
+        int population = result.getPopulation();
+
+        // Records of one person or household count once, on request
+        long[] identities = Boolean.TRUE.equals(request.get("dedup_identities"))
+                ? customerProfileStore.countIdentities(criteriaList) : null;
+        long elapsedMicros = (System.nanoTime() - start) / 1_000;
+
+        List<Map<String, Object>> perCriteria = new ArrayList<>();
+        for (int i = 0; i < counts.length; i++) {
+            Map<String, Object> count = new HashMap<>(Map.of(
+                "criteria_index", i,
+                "matching_count", counts[i],
+                "share_of_population", population == 0 ? 0.0 : (double) counts[i] / population,
+                "size_band", sizeBand(identities != null ? identities[i] : counts[i])
+            ));
+            if (identities != null) {
+                count.put("unique_identities", identities[i]);
+                count.put("duplicate_records", counts[i] - identities[i]);
+            }
+            perCriteria.add(count);
+        }
+
+        Map<String, Object> estimate = new HashMap<>(Map.of(
+            "population", population,
+            "source", result.getSource(),
+            "criteria_counts", perCriteria,
+            "count_method", result.getMethod(),
+            "count_time_us", elapsedMicros,
+            "overlap", audienceSketchService.overlapReport(criteriaList, counts,
+                    (String) request.get("save_audience_as"), savedAudienceNames(request.get("compare_with_saved")))
+        ));
+        GeoCellEstimate cells = geo != null ? customerProfileStore.estimateGeo(geo) : null;
+        if (cells != null) {
+            // Region size before attribute filters, read from grid cell counts alone
+            estimate.put("geo_cell_estimate", Map.of(
+                "estimate", cells.getEstimate(),
+                "lower_bound", cells.getLowerBound(),
+                "upper_bound", cells.getUpperBound(),
+                "cells_inside", cells.getCellsInside(),
+                "cells_partial", cells.getCellsPartial()
+            ));
+        }
+        return estimate;
+    }
+
+    private List<String> savedAudienceNames(Object value) {
+        if (value instanceof List<?> list) {
+            return list.stream().map(String::valueOf).collect(Collectors.toList());
+        }
+        if (value instanceof String names && !names.isBlank()) {
+            return Arrays.stream(names.split(",")).map(String::trim).collect(Collectors.toList());
+        }
+        return List.of();
+    }
+
+    private String sizeBand(long count) {
+        if (count < 10_000) {
+            return "Small (< 10,000)";
+        } else if (count < 100_000) {
             return "Medium (10,000 - 100,000)";
         } else {
             return "Large (100,000+)";
         }
     }
 
-    private double calculateConfidenceScore(String requirements, String insuranceType) {
+    private double calculateConfidenceScore(AudienceDecisionTable rules, String requirements, String insuranceType) {
         double score = 0.7; // Base score
         
         if (requirements != null && requirements.length() > 50) {
             score += 0.1; // More detailed requirements
         }
         
-        if (INSURANCE_TYPE_SEGMENTS.containsKey(insuranceType)) {
+        if (rules.isKnownInsuranceType(insuranceType)) {
             score += 0.2; // Known insurance type
         }
         
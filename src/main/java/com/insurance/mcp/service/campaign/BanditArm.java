@@ -0,0 +1,55 @@
+package com.insurance.mcp.service.campaign;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Trials and successes of one bandit arm. Feedback goes to striped {@link LongAdder}s; selection
+ * reads the last published totals, two volatile reads, so readers never sum adders or contend
+ * with writers. Arms are kept across catalog reloads, keyed by their copy.
+ */
+public final class BanditArm {
+
+    private final String label;
+    private final LongAdder trials = new LongAdder();
+    private final LongAdder successes = new LongAdder();
+    private volatile long publishedTrials;
+    private volatile long publishedSuccesses;
+
+    BanditArm(String label) {
+        this.label = label;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    void recordTrial() {
+        trials.increment();
+    }
+
+    void recordSuccess() {
+        successes.increment();
+    }
+
+    /**
+     * Make the feedback recorded so far visible to selection
+     */
+    void publish() {
+        publishedTrials = trials.sum();
+        publishedSuccesses = successes.sum();
+    }
+
+    /**
+     * Published trial count
+     */
+    public long trials() {
+        return publishedTrials;
+    }
+
+    /**
+     * Published success count, at most the trial count
+     */
+    public long successes() {
+        return Math.min(publishedSuccesses, publishedTrials);
+    }
+}
@@ -0,0 +1,88 @@
+package com.insurance.mcp.service.campaign;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+
+/**
+ * Feedback and statistics of the content bandits. Rewards are applied to the arms' adders as
+ * they arrive; a scheduled task publishes the totals that selection reads, so selection stays
+ * a handful of volatile reads however much feedback is flowing in.
+ */
+@Slf4j
+@Service
+public class BanditService {
+
+    @Autowired
+    private ContentCatalogService contentCatalogService;
+
+    /**
+     * Reward the arm named by a served item's {@code banditArm} token with a click or conversion
+     */
+    public Map<String, Object> recordReward(String token, String outcome) {
+        if (!ExperimentService.OUTCOME_CLICK.equals(outcome) && !ExperimentService.OUTCOME_CONVERSION.equals(outcome)) {
+            throw new IllegalArgumentException("Unknown outcome '" + outcome + "', expected click or conversion");
+        }
+        int benefitSeparator = token != null ? token.lastIndexOf(':') : -1;
+        int titleSeparator = benefitSeparator > 0 ? token.lastIndexOf(':', benefitSeparator - 1) : -1;
+        ContentBandit bandit = titleSeparator > 0 ? contentCatalogService.current().bandit(token.substring(0, titleSeparator)) : null;
+        if (bandit == null) {
+            throw new IllegalArgumentException("Unknown bandit arm: " + token);
+        }
+        int title;
+        int benefit;
+        try {
+            title = Integer.parseInt(token.substring(titleSeparator + 1, benefitSeparator));
+            benefit = Integer.parseInt(token.substring(benefitSeparator + 1));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Unknown bandit arm: " + token);
+        }
+        if (title < 0 || title >= bandit.getTitles().length || benefit < 0 || benefit >= bandit.getBenefits().length) {
+            throw new IllegalArgumentException("Unknown bandit arm: " + token);
+        }
+        bandit.recordReward(title * bandit.getBenefits().length + benefit);
+        return Map.of("bandit", bandit.getKey(), "title", bandit.getTitles()[title].getLabel(),
+                "benefit", String.valueOf(bandit.getBenefits()[benefit].getLabel()), "outcome", outcome);
+    }
+
+    /**
+     * Publish the feedback recorded since the last run to selection
+     */
+    @Scheduled(fixedDelayString = "${mcp.campaign.bandit.publish-interval-ms:1000}")
+    public void publish() {
+        for (BanditArm arm : contentCatalogService.banditArms()) {
+            arm.publish();
+        }
+    }
+
+    /**
+     * Published arm statistics of every bandit in the current catalog
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> bandits = new TreeMap<>();
+        for (ContentBandit bandit : contentCatalogService.current().getBandits()) {
+            bandits.put(bandit.getKey(), Map.of(
+                "policy", bandit.getPolicy().name().toLowerCase(),
+                "titles", armStats(bandit.getTitles()),
+                "benefits", armStats(bandit.getBenefits())
+            ));
+        }
+        return Map.of("catalog_version", contentCatalogService.current().getVersion(), "bandits", bandits);
+    }
+
+    private List<Map<String, Object>> armStats(BanditArm[] arms) {
+        List<Map<String, Object>> stats = new ArrayList<>(arms.length);
+        for (BanditArm arm : arms) {
+            Map<String, Object> armStats = new LinkedHashMap<>();
+            armStats.put("arm", arm.getLabel());
+            armStats.put("trials", arm.trials());
+            armStats.put("successes", arm.successes());
+            armStats.put("success_rate", arm.trials() == 0 ? 0.0 : (double) arm.successes() / arm.trials());
+            stats.add(armStats);
+        }
+        return stats;
+    }
+}
@@ -1,7 +1,17 @@
 package com.insurance.mcp.service.campaign;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.insurance.mcp.model.campaign.CampaignContent;
+import com.insurance.mcp.model.campaign.ComplianceViolation;
+import com.insurance.mcp.service.campaign.compliance.ComplianceScanner;
+import com.insurance.mcp.service.campaign.template.TemplateToken;
+import com.insurance.mcp.service.campaign.template.TemplateValues;
+import com.insurance.mcp.service.support.RawJson;
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.util.*;
@@ -14,66 +24,69 @@ import java.util.stream.Collectors;
 @Service
 public class CampaignContentService {
 
-    private static final Map<String, List<String>> CONTENT_TEMPLATES = Map.of(
-        "life_insurance", Arrays.asList(
-            "Protect Your Family's Future",
-            "Life Insurance Made Simple",
-            "Secure Tomorrow, Today"
-        ),
-        "health_insurance", Arrays.asList(
-            "Your Health, Our Priority",
-            "Comprehensive Coverage for You",
-            "Stay Healthy, Stay Protected"
-        ),
-        "auto_insurance", Arrays.asList(
-            "Drive with Confidence",
-            "Complete Auto Protection",
-            "Your Road to Peace of Mind"
-        ),
-        "property_insurance", Arrays.asList(
-            "Protect What Matters Most",
-            "Home Sweet Home Protection",
-            "Secure Your Investments"
-        )
-    );
-
-    private static final Map<String, List<String>> BENEFIT_HIGHLIGHTS = Map.of(
-        "life_insurance", Arrays.asList(
-            "Financial security for your family",
-            "Tax-free death benefit",
-            "Cash value accumulation",
-            "Flexible payment options"
-        ),
-        "health_insurance", Arrays.asList(
-            "Comprehensive medical coverage",
-            "Preventive care included",
-            "Network of top doctors",
-            "Emergency coverage worldwide"
-        ),
-        "auto_insurance", Arrays.asList(
-            "24/7 roadside assistance",
-            "Accident forgiveness",
-            "New car replacement",
-            "Comprehensive coverage"
-        ),
-        "property_insurance", Arrays.asList(
-            "Full replacement cost coverage",
-            "Natural disaster protection",
-            "Personal property coverage",
-            "Liability protection"
-        )
-    );
+    private static final TemplateToken[] PERSONALIZATION_TOKENS = {
+        TemplateToken.AGE_RANGE, TemplateToken.INCOME_LEVEL, TemplateToken.LOCATION
+    };
+
+    /** Slots that do not depend on the audience; templates using only these can be rendered ahead of time */
+    private static final EnumSet<TemplateToken> CAMPAIGN_TOKENS = EnumSet.of(TemplateToken.INSURANCE_TYPE, TemplateToken.BENEFIT);
+
+    @Autowired
+    private ContentCatalogService contentCatalogService;
+
+    @Autowired
+    private ExperimentService experimentService;
+
+    @Autowired
+    private EngagementService engagementService;
+
+    @Autowired
+    private ComplianceService complianceService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private volatile ContentRecommendationMatrix matrix;
+
+    @PostConstruct
+    public void initialize() {
+        contentCatalogService.addListener(this::precompute);
+        precompute(contentCatalogService.current());
+    }
 
     public Map<String, Object> recommendCampaignContent(Map<String, Object> request) {
+        return recommend(request, true);
+    }
+
+    /**
+     * The content {@link #recommendCampaignContent} would serve, without counting experiment or
+     * bandit exposures: for planning views that show content to no recipient
+     */
+    public Map<String, Object> previewCampaignContent(Map<String, Object> request) {
+        return recommend(request, false);
+    }
+
+    private Map<String, Object> recommend(Map<String, Object> request, boolean countExposure) {
         Map<String, Object> audienceCriteria = (Map<String, Object>) request.get("audience_criteria");
         String insuranceType = (String) request.get("insurance_type");
         String channel = (String) request.getOrDefault("channel", "email");
         String campaignGoal = (String) request.getOrDefault("campaign_goal", "awareness");
+        String recipientId = recipientId(request);
+        ComplianceScanner scanner = complianceService.scanner((String) request.get("jurisdiction"));
 
         log.info("Generating campaign content for insurance: {}, channel: {}, goal: {}", 
                 insuranceType, channel, campaignGoal);
 
-        List<CampaignContent> contentList = generateContentRecommendations(audienceCriteria, insuranceType, channel, campaignGoal);
+        ContentCatalogSnapshot catalog = contentCatalogService.current();
+        ContentRecommendationMatrix precomputed = matrix;
+        ContentRecommendationMatrix.Cell cell = precomputed != null && precomputed.getCatalog() == catalog
+                ? precomputed.cell(insuranceType, channel, catalog.goal(campaignGoal)) : null;
+        if (cell != null) {
+            return spliceAudience(cell, audienceCriteria, recipientId, channel, scanner, countExposure);
+        }
+
+        List<CampaignContent> contentList = generateContentRecommendations(catalog, audienceCriteria, insuranceType, channel,
+                campaignGoal, recipientId, scanner, countExposure);
         
         return Map.of(
             "recommended_content", contentList,
@@ -81,151 +94,255 @@ public class CampaignContentService {
             "personalization_tips", generatePersonalizationTips(audienceCriteria),
             "optimization_suggestions", generateOptimizationSuggestions(channel, campaignGoal),
             "compliance_notes", generateComplianceNotes(insuranceType),
-            "performance_expectations", generatePerformanceExpectations(channel, campaignGoal)
+            "performance_expectations", observedOr(generatePerformanceExpectations(channel, campaignGoal), channel)
         );
     }
 
-    private List<CampaignContent> generateContentRecommendations(Map<String, Object> audienceCriteria, 
-                                                               String insuranceType, String channel, String campaignGoal) {
-        List<CampaignContent> contentList = new ArrayList<>();
-        
-        // Generate multiple content variations
-        contentList.add(createMainContent(audienceCriteria, insuranceType, channel, campaignGoal));
-        contentList.add(createSecondaryContent(audienceCriteria, insuranceType, channel, campaignGoal));
-        contentList.add(createFollowUpContent(audienceCriteria, insuranceType, channel, campaignGoal));
+    /**
+     * Recipient to bucket into content experiments, or null to serve the base variants
+     */
+    private String recipientId(Map<String, Object> request) {
+        Object id = request.get("recipient_id");
+        if (id == null) {
+            id = request.get("client_id");
+        }
+        return id != null && !String.valueOf(id).isBlank() ? String.valueOf(id) : null;
+    }
 
-        return contentList;
+    /**
+     * Arm of the variant served to this request, or -1 for the base variant. Counts the exposure
+     * if {@code countExposure}. Experiments need a recipient id; bandits choose for every request.
+     */
+    private int chooseArm(ContentCatalogSnapshot.ContentVariant variant, String recipientId, boolean countExposure) {
+        ContentExperiment experiment = variant.getExperiment();
+        if (experiment != null && recipientId != null) {
+            int arm = experiment.assign(recipientId);
+            if (countExposure) {
+                experimentService.recordExposure(experiment, arm);
+            }
+            return arm;
+        }
+        ContentBandit bandit = variant.getBandit();
+        if (bandit != null) {
+            int arm = bandit.choose();
+            if (countExposure) {
+                bandit.recordExposure(arm);
+            }
+            return arm;
+        }
+        return -1;
     }
 
-    private CampaignContent createMainContent(Map<String, Object> audienceCriteria, String insuranceType, 
-                                            String channel, String campaignGoal) {
-        List<String> titles = CONTENT_TEMPLATES.getOrDefault(insuranceType, Arrays.asList("Insurance Protection"));
-        List<String> benefits = BENEFIT_HIGHLIGHTS.getOrDefault(insuranceType, Arrays.asList("Comprehensive coverage"));
-        
-        String title = titles.get(0);
-        String benefit = benefits.get(0);
-        
-        return CampaignContent.builder()
-                .contentId("main_" + insuranceType + "_" + channel)
-                .title(title)
-                .description(generateDescription(insuranceType, audienceCriteria))
-                .contentType(channel)
-                .subject(title)
-                .message(generateMessage(insuranceType, benefit, audienceCriteria, campaignGoal))
-                .callToAction("Get Quote Now")
-                .ctaButtonText("Start Protection")
-                .ctaUrl("https://insurance.com/get-quote")
-                .channel(channel)
-                .insuranceType(insuranceType)
-                .productCategory(insuranceType)
-                .benefitHighlight(benefit)
-                .personalizationTokens(generatePersonalizationTokens(audienceCriteria))
-                .recommendedSegments(getRecommendedSegments(audienceCriteria))
-                .disclaimer("Terms and conditions apply. Coverage subject to underwriting approval.")
-                .requiresOptIn(true)
-                .build();
+    /**
+     * Response from a precomputed cell: only the audience-dependent content fields are serialized;
+     * compliance results are serialized once per cell and jurisdiction
+     */
+    private Map<String, Object> spliceAudience(ContentRecommendationMatrix.Cell cell, Map<String, Object> audienceCriteria,
+                                               String recipientId, String channel, ComplianceScanner scanner,
+                                               boolean countExposure) {
+        String audienceFields;
+        try {
+            audienceFields = ",\"personalizationTokens\":" + objectMapper.writeValueAsString(generatePersonalizationTokens(audienceCriteria))
+                    + ",\"recommendedSegments\":" + objectMapper.writeValueAsString(getRecommendedSegments(audienceCriteria)) + "}";
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unable to serialize personalization fields", e);
+        }
+
+        String[][] complianceFields = complianceFields(cell, scanner);
+
+        // "[", prefix, compliance, fields, ",", prefix, compliance, fields, ..., "]": written part by part, never concatenated
+        String[] parts = new String[cell.contentPrefixes.length * 4 + 1];
+        parts[0] = "[";
+        for (int i = 0; i < cell.contentPrefixes.length; i++) {
+            int arm = chooseArm(cell.variants[i], recipientId, countExposure);
+            parts[4 * i + 1] = cell.contentPrefixes[i][1 + arm];
+            parts[4 * i + 2] = complianceFields[i][1 + arm];
+            parts[4 * i + 3] = audienceFields;
+            parts[4 * i + 4] = i + 1 < cell.contentPrefixes.length ? "," : "]";
+        }
+
+        return Map.of(
+            "recommended_content", new RawJson(parts),
+            "content_strategy", cell.contentStrategy,
+            "personalization_tips", cell.personalizationTips,
+            "optimization_suggestions", cell.optimizationSuggestions,
+            "compliance_notes", cell.complianceNotes,
+            "performance_expectations", observedOr(cell.performanceExpectations, channel)
+        );
     }
 
-    private CampaignContent createSecondaryContent(Map<String, Object> audienceCriteria, String insuranceType, 
-                                                 String channel, String campaignGoal) {
-        List<String> titles = CONTENT_TEMPLATES.getOrDefault(insuranceType, Arrays.asList("Insurance Protection"));
-        List<String> benefits = BENEFIT_HIGHLIGHTS.getOrDefault(insuranceType, Arrays.asList("Comprehensive coverage"));
-        
-        String title = titles.size() > 1 ? titles.get(1) : titles.get(0);
-        String benefit = benefits.size() > 1 ? benefits.get(1) : benefits.get(0);
-        
-        return CampaignContent.builder()
-                .contentId("secondary_" + insuranceType + "_" + channel)
-                .title(title)
-                .description(generateDescription(insuranceType, audienceCriteria))
-                .contentType(channel)
-                .subject(title)
-                .message(generateMessage(insuranceType, benefit, audienceCriteria, campaignGoal))
-                .callToAction("Learn More")
-                .ctaButtonText("Explore Options")
-                .ctaUrl("https://insurance.com/learn-more")
-                .channel(channel)
-                .insuranceType(insuranceType)
-                .productCategory(insuranceType)
-                .benefitHighlight(benefit)
-                .personalizationTokens(generatePersonalizationTokens(audienceCriteria))
-                .recommendedSegments(getRecommendedSegments(audienceCriteria))
-                .disclaimer("Terms and conditions apply. Coverage subject to underwriting approval.")
-                .requiresOptIn(true)
-                .priority(2)
-                .build();
+    /**
+     * The {@code complianceViolations} field of every content prefix of {@code cell} under {@code scanner},
+     * empty for compliant content
+     */
+    private String[][] complianceFields(ContentRecommendationMatrix.Cell cell, ComplianceScanner scanner) {
+        String[][] fields = cell.complianceFields.get(scanner);
+        if (fields != null) {
+            return fields;
+        }
+        if (cell.complianceFields.size() > complianceService.current().jurisdictions().size()) {
+            // Scanners of earlier rules versions
+            cell.complianceFields.clear();
+        }
+        fields = new String[cell.contents.length][];
+        try {
+            for (int i = 0; i < cell.contents.length; i++) {
+                fields[i] = new String[cell.contents[i].length];
+                for (int arm = 0; arm < cell.contents[i].length; arm++) {
+                    List<ComplianceViolation> violations = complianceService.scan(scanner, cell.contents[i][arm]);
+                    fields[i][arm] = violations.isEmpty() ? ""
+                            : ",\"complianceViolations\":" + objectMapper.writeValueAsString(violations);
+                }
+            }
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unable to serialize compliance violations", e);
+        }
+        cell.complianceFields.put(scanner, fields);
+        return fields;
+    }
+
+    /**
+     * Expectations observed for the channel over the recent engagement window, else the defaults
+     */
+    private Object observedOr(Object defaults, String channel) {
+        Map<String, Object> observed = engagementService.expectations(channel);
+        return observed != null ? observed : defaults;
+    }
+
+    private void precompute(ContentCatalogSnapshot catalog) {
+        long start = System.nanoTime();
+        ContentRecommendationMatrix built = ContentRecommendationMatrix.build(catalog,
+                (insuranceType, channel, goal, goalName) -> precomputeCell(catalog, insuranceType, channel, goal, goalName));
+        matrix = built;
+        log.info("Precomputed {} content recommendation cells for catalog version {} in {} ms",
+                built.precomputedCells(), catalog.getVersion(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private ContentRecommendationMatrix.Cell precomputeCell(ContentCatalogSnapshot catalog, String insuranceType,
+                                                            String channel, int goal, String campaignGoal) {
+        ContentCatalogSnapshot.ContentVariant[] variants = catalog.variants(insuranceType, channel);
+        for (int i = 0; i < variants.length; i++) {
+            if (personalized(variants[i], goal)) {
+                return null;
+            }
+            for (int arm = 0; arm < variants[i].armCount(); arm++) {
+                if (personalized(variants[i].arm(arm), goal)) {
+                    return null;
+                }
+            }
+        }
+        try {
+            String[][] prefixes = new String[variants.length][];
+            CampaignContent[][] contents = new CampaignContent[variants.length][];
+            for (int i = 0; i < variants.length; i++) {
+                prefixes[i] = new String[1 + variants[i].armCount()];
+                contents[i] = new CampaignContent[prefixes[i].length];
+                for (int arm = -1; arm < variants[i].armCount(); arm++) {
+                    contents[i][1 + arm] = buildContent(variants[i], arm, goal, insuranceType, channel, null);
+                    prefixes[i][1 + arm] = contentPrefix(contents[i][1 + arm]);
+                }
+            }
+            return new ContentRecommendationMatrix.Cell(prefixes, contents, variants,
+                    rawJson(generateContentStrategy(insuranceType, channel, campaignGoal)),
+                    rawJson(generatePersonalizationTips(null)),
+                    rawJson(generateOptimizationSuggestions(channel, campaignGoal)),
+                    rawJson(generateComplianceNotes(insuranceType)),
+                    rawJson(generatePerformanceExpectations(channel, campaignGoal)));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unable to precompute content for " + insuranceType + "/" + channel, e);
+        }
+    }
+
+    private boolean personalized(ContentCatalogSnapshot.ContentVariant variant, int goal) {
+        return !CAMPAIGN_TOKENS.containsAll(variant.message(goal).tokens())
+                || (variant.getDescription() != null && !CAMPAIGN_TOKENS.containsAll(variant.getDescription().tokens()));
+    }
+
+    private String contentPrefix(CampaignContent content) throws JsonProcessingException {
+        ObjectNode node = objectMapper.valueToTree(content);
+        node.remove("personalizationTokens");
+        node.remove("recommendedSegments");
+        String json = objectMapper.writeValueAsString(node);
+        return json.substring(0, json.length() - 1);
     }
 
-    private CampaignContent createFollowUpContent(Map<String, Object> audienceCriteria, String insuranceType, 
-                                                String channel, String campaignGoal) {
+    private RawJson rawJson(Object value) throws JsonProcessingException {
+        return new RawJson(objectMapper.writeValueAsString(value));
+    }
+
+    private List<CampaignContent> generateContentRecommendations(ContentCatalogSnapshot catalog, Map<String, Object> audienceCriteria,
+                                                               String insuranceType, String channel, String campaignGoal,
+                                                               String recipientId, ComplianceScanner scanner,
+                                                               boolean countExposure) {
+        ContentCatalogSnapshot.ContentVariant[] variants = catalog.variants(insuranceType, channel);
+        int goal = catalog.goal(campaignGoal);
+        Map<String, String> personalizationTokens = generatePersonalizationTokens(audienceCriteria);
+        List<String> recommendedSegments = getRecommendedSegments(audienceCriteria);
+
+        // One content item per catalog variant, in catalog order
+        List<CampaignContent> contentList = new ArrayList<>(variants.length);
+        for (ContentCatalogSnapshot.ContentVariant variant : variants) {
+            int arm = chooseArm(variant, recipientId, countExposure);
+            CampaignContent content = buildContent(variant, arm, goal, insuranceType, channel, audienceCriteria);
+            content.setPersonalizationTokens(personalizationTokens);
+            content.setRecommendedSegments(recommendedSegments);
+            List<ComplianceViolation> violations = complianceService.scan(scanner, content);
+            if (!violations.isEmpty()) {
+                content.setComplianceViolations(violations);
+            }
+            contentList.add(content);
+        }
+        return contentList;
+    }
+
+    /**
+     * Content item for one variant as served to experiment or bandit {@code arm} (-1 for none),
+     * without the audience fields (personalization tokens, segments)
+     */
+    private CampaignContent buildContent(ContentCatalogSnapshot.ContentVariant base, int arm, int goal, String insuranceType,
+                                         String channel, Map<String, Object> audienceCriteria) {
+        ContentCatalogSnapshot.ContentVariant variant = arm < 0 ? base : base.arm(arm);
+        TemplateValues values = templateValues(insuranceType, variant.getBenefit(), audienceCriteria);
         return CampaignContent.builder()
-                .contentId("followup_" + insuranceType + "_" + channel)
-                .title("Don't Miss Out on Protection")
-                .description("Follow-up message to re-engage prospects")
+                .contentId(variant.getId() + "_" + insuranceType + "_" + channel)
+                .title(variant.getTitle())
+                .description(variant.getDescription() != null ? variant.getDescription().render(values) : null)
                 .contentType(channel)
-                .subject("Last Chance: Secure Your Protection")
-                .message("You showed interest in " + insuranceType + " protection. Don't wait - secure your coverage today and protect what matters most.")
-                .callToAction("Get Protected Now")
-                .ctaButtonText("Secure Coverage")
-                .ctaUrl("https://insurance.com/get-quote")
+                .subject(variant.getSubject())
+                .message(variant.message(goal).render(values))
+                .callToAction(variant.getCallToAction())
+                .ctaButtonText(variant.getCtaButtonText())
+                .ctaUrl(variant.getCtaUrl())
                 .channel(channel)
                 .insuranceType(insuranceType)
                 .productCategory(insuranceType)
-                .personalizationTokens(generatePersonalizationTokens(audienceCriteria))
-                .recommendedSegments(getRecommendedSegments(audienceCriteria))
-                .disclaimer("Terms and conditions apply. Coverage subject to underwriting approval.")
-                .requiresOptIn(true)
-                .priority(3)
-                .frequency("weekly")
+                .benefitHighlight(variant.getBenefit())
+                .disclaimer(variant.getDisclaimer())
+                .requiresOptIn(variant.getRequiresOptIn())
+                .priority(variant.getPriority())
+                .frequency(variant.getFrequency())
+                .experimentId(arm < 0 || base.getExperiment() == null ? null : base.getExperiment().getId())
+                .experimentArm(arm < 0 || base.getExperiment() == null ? null : base.getExperiment().armName(arm))
+                .banditArm(arm < 0 || base.getBandit() == null ? null : base.getBandit().token(arm))
                 .build();
     }
 
-    private String generateDescription(String insuranceType, Map<String, Object> audienceCriteria) {
-        return String.format("Comprehensive %s coverage tailored for your needs. Get personalized protection that fits your lifestyle and budget.", 
-                insuranceType.replace("_", " "));
-    }
-
-    private String generateMessage(String insuranceType, String benefit, Map<String, Object> audienceCriteria, String campaignGoal) {
-        StringBuilder message = new StringBuilder();
-        
-        message.append(String.format("Protect yourself and your loved ones with our comprehensive %s coverage. ", 
-                insuranceType.replace("_", " ")));
-        
-        message.append(String.format("Key benefits include %s. ", benefit));
-        
-        if (campaignGoal.equals("conversion")) {
-            message.append("Limited time offer - get your personalized quote today and save up to 20% on your premium. ");
-        } else {
-            message.append("Learn more about how we can help protect what matters most to you. ");
-        }
-        
-        message.append("Our experienced team is ready to help you find the perfect coverage for your needs.");
-        
-        return message.toString();
+    private TemplateValues templateValues(String insuranceType, String benefit, Map<String, Object> audienceCriteria) {
+        return new TemplateValues()
+                .set(TemplateToken.INSURANCE_TYPE, TemplateValues.displayName(insuranceType))
+                .set(TemplateToken.BENEFIT, benefit)
+                .personalize(audienceCriteria);
     }
 
     private Map<String, String> generatePersonalizationTokens(Map<String, Object> audienceCriteria) {
         Map<String, String> tokens = new HashMap<>();
-        
-        if (audienceCriteria != null) {
-            Object minAge = audienceCriteria.get("minAge");
-            Object maxAge = audienceCriteria.get("maxAge");
-            
-            if (minAge != null && maxAge != null) {
-                tokens.put("AGE_RANGE", minAge + "-" + maxAge);
-            }
-            
-            Object incomeRange = audienceCriteria.get("incomeRange");
-            if (incomeRange instanceof List && !((List<?>) incomeRange).isEmpty()) {
-                tokens.put("INCOME_LEVEL", ((List<?>) incomeRange).get(0).toString());
-            }
-            
-            Object location = audienceCriteria.get("location");
-            if (location instanceof List && !((List<?>) location).isEmpty()) {
-                tokens.put("LOCATION", ((List<?>) location).get(0).toString());
+        TemplateValues values = new TemplateValues().personalize(audienceCriteria);
+        for (TemplateToken token : PERSONALIZATION_TOKENS) {
+            String value = values.get(token);
+            if (value != null) {
+                tokens.put(token.name(), value);
             }
         }
-        
         return tokens;
     }
 
@@ -0,0 +1,393 @@
+package com.insurance.mcp.service.campaign;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * The {@code campaign_matrix} tool: audience targeting and content recommendations for every
+ * (insurance type, channel, goal, audience criteria) combination in one call. Combinations run
+ * as tasks on a work-stealing pool and are delivered as they complete. Shared sub-results are
+ * computed once: audience targeting per insurance type, and content per distinct combination,
+ * so repeated list entries or criteria cost nothing extra.
+ */
+@Slf4j
+@Service
+public class CampaignMatrixService {
+
+    private static final Map<String, Object> END = Map.of();
+
+    @Autowired
+    private AudienceTargetingService audienceTargetingService;
+
+    @Autowired
+    private CampaignContentService campaignContentService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${mcp.campaign.matrix.parallelism:0}")
+    private int parallelism;
+
+    @Value("${mcp.campaign.matrix.max-cells:1000}")
+    private int maxCells;
+
+    private ForkJoinPool pool;
+
+    @PostConstruct
+    public void initialize() {
+        int workers = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        pool = new ForkJoinPool(workers, forkJoinPool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(forkJoinPool);
+            thread.setName("campaign-matrix-" + thread.getPoolIndex());
+            thread.setDaemon(true);
+            return thread;
+        }, null, true);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    /**
+     * Receives each cell of a matrix on the calling thread, in completion order
+     */
+    @FunctionalInterface
+    public interface CellSink {
+        void accept(Map<String, Object> cell) throws IOException;
+    }
+
+    /**
+     * Dimensions of one matrix from {@code insurance_types}, {@code channels}, {@code campaign_goals}
+     * and the optional {@code audience_criteria} list; without it, each insurance type uses the
+     * criteria its audience targeting recommends. {@code requirements}, {@code campaign_objective}
+     * and {@code geo} go to audience targeting, {@code jurisdiction} and {@code recipient_id} to
+     * content recommendation. Without explicit criteria the matrix size depends on the
+     * recommendations, so targeting runs here and max-cells is checked on its result.
+     */
+    public MatrixPlan plan(Map<String, Object> arguments) {
+        List<String> insuranceTypes = stringList(arguments, "insurance_types", null);
+        if (insuranceTypes == null || insuranceTypes.isEmpty()) {
+            throw new IllegalArgumentException("insurance_types must list at least one insurance type");
+        }
+        List<String> channels = stringList(arguments, "channels", List.of("email"));
+        List<String> goals = stringList(arguments, "campaign_goals", List.of("awareness"));
+        List<Map<String, Object>> criteria = null;
+        if (arguments.get("audience_criteria") != null) {
+            try {
+                criteria = objectMapper.convertValue(arguments.get("audience_criteria"),
+                        new TypeReference<List<Map<String, Object>>>() { });
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("audience_criteria must be a list of criteria objects");
+            }
+        }
+        long combinations = (long) insuranceTypes.size() * channels.size() * goals.size()
+                * (criteria != null ? Math.max(1, criteria.size()) : 1);
+        checkSize(combinations);
+
+        Map<String, Object> targeting = new HashMap<>();
+        copy(arguments, targeting, "requirements", "campaign_objective", "geo");
+        Map<String, Object> content = new HashMap<>();
+        copy(arguments, content, "jurisdiction", "recipient_id");
+        MatrixPlan plan = new MatrixPlan(insuranceTypes, channels, goals, criteria, targeting, content, Map.of());
+        if (criteria == null) {
+            plan.setAudiences(recommendedAudiences(plan));
+        }
+        return plan;
+    }
+
+    /**
+     * Audience targeting of every insurance type of {@code plan}, awaited so the matrix is rejected
+     * before any cell is computed when the recommended criteria make it exceed max-cells
+     */
+    private Map<String, CompletableFuture<Targeting>> recommendedAudiences(MatrixPlan plan) {
+        Map<String, CompletableFuture<Targeting>> audiences = new HashMap<>();
+        for (String insuranceType : plan.getInsuranceTypes()) {
+            audiences.computeIfAbsent(insuranceType,
+                    type -> CompletableFuture.supplyAsync(() -> audience(plan, type), pool));
+        }
+        long rows = (long) plan.getChannels().size() * plan.getCampaignGoals().size();
+        long combinations = 0;
+        for (String insuranceType : plan.getInsuranceTypes()) {
+            try {
+                combinations += rows * Math.max(1, audiences.get(insuranceType).join().getCriteria().size());
+            } catch (CompletionException | CancellationException e) {
+                // Delivered as one error cell per row
+                combinations += rows;
+            }
+        }
+        checkSize(combinations);
+        return audiences;
+    }
+
+    private void checkSize(long combinations) {
+        if (combinations > maxCells) {
+            throw new IllegalArgumentException("Matrix of " + combinations + " cells exceeds max-cells " + maxCells);
+        }
+    }
+
+    /**
+     * Compute every cell of {@code plan}, handing each to {@code sink} as soon as it completes.
+     * A failed cell is delivered with an {@code error} instead of failing the matrix.
+     */
+    public MatrixStats run(MatrixPlan plan, CellSink sink) throws IOException {
+        long start = System.nanoTime();
+        Map<String, CompletableFuture<Targeting>> audiences = new HashMap<>(plan.getAudiences());
+        Map<List<Object>, CompletableFuture<Map<String, Object>>> contents = new ConcurrentHashMap<>();
+        BlockingQueue<Map<String, Object>> completed = new LinkedBlockingQueue<>();
+
+        List<CompletableFuture<Void>> rows = new ArrayList<>();
+        for (String insuranceType : plan.getInsuranceTypes()) {
+            CompletableFuture<Targeting> audience = audiences.computeIfAbsent(insuranceType,
+                    type -> CompletableFuture.supplyAsync(() -> audience(plan, type), pool));
+            for (String channel : plan.getChannels()) {
+                for (String goal : plan.getCampaignGoals()) {
+                    rows.add(audience.handle((targeting, error) ->
+                                    row(plan, insuranceType, channel, goal, targeting, error, contents, completed))
+                            .thenCompose(cells -> cells));
+                }
+            }
+        }
+        CompletableFuture.allOf(rows.toArray(new CompletableFuture<?>[0]))
+                .whenComplete((done, error) -> completed.add(END));
+
+        int cells = 0;
+        int failed = 0;
+        try {
+            for (Map<String, Object> cell = completed.take(); cell != END; cell = completed.take()) {
+                cells++;
+                if (cell.containsKey("error")) {
+                    failed++;
+                }
+                sink.accept(cell);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while computing campaign matrix", e);
+        } finally {
+            // Cells not started yet when the sink failed are never computed
+            audiences.values().forEach(audience -> audience.cancel(false));
+            contents.values().forEach(content -> content.cancel(false));
+        }
+
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+        MatrixStats stats = new MatrixStats(cells, failed, audiences.size(), contents.size(), elapsedMs,
+                pool.getParallelism());
+        log.info("Campaign matrix of {} cells ({} failed) from {} audience and {} content computations in {} ms",
+                cells, failed, audiences.size(), contents.size(), elapsedMs);
+        return stats;
+    }
+
+    /**
+     * The {@code campaign_matrix} tool without streaming: every cell, in completion order
+     */
+    public Map<String, Object> matrix(Map<String, Object> arguments) throws IOException {
+        List<Map<String, Object>> cells = new ArrayList<>();
+        MatrixStats stats = run(plan(arguments), cells::add);
+        Map<String, Object> result = stats.toMap();
+        result.put("cells", cells);
+        return result;
+    }
+
+    /**
+     * Write each cell of {@code plan} to {@code out} as an NDJSON line as soon as it completes,
+     * then a final {@code {"summary": ...}} line with the stats
+     */
+    public MatrixStats writeNdjson(MatrixPlan plan, OutputStream out) throws IOException {
+        MatrixStats stats = run(plan, cell -> {
+            out.write(objectMapper.writeValueAsBytes(cell));
+            out.write('\n');
+            out.flush();
+        });
+        out.write(objectMapper.writeValueAsBytes(Map.of("summary", stats.toMap())));
+        out.write('\n');
+        out.flush();
+        return stats;
+    }
+
+    /**
+     * Submit the content of one (type, channel, goal) for each audience criteria set; completes
+     * when all of them were delivered
+     */
+    private CompletableFuture<Void> row(MatrixPlan plan, String insuranceType, String channel, String goal,
+                                        Targeting targeting, Throwable error,
+                                        Map<List<Object>, CompletableFuture<Map<String, Object>>> contents,
+                                        BlockingQueue<Map<String, Object>> completed) {
+        if (error != null) {
+            Map<String, Object> cell = cell(insuranceType, channel, goal, -1, null);
+            cell.put("error", "Audience targeting failed: " + cause(error).getMessage());
+            completed.add(cell);
+            return CompletableFuture.completedFuture(null);
+        }
+        List<Map<String, Object>> criteriaSets = plan.getAudienceCriteria() != null
+                ? plan.getAudienceCriteria() : targeting.getCriteria();
+        if (criteriaSets.isEmpty()) {
+            criteriaSets = List.of(Map.of());
+        }
+        CompletableFuture<?>[] cells = new CompletableFuture<?>[criteriaSets.size()];
+        for (int i = 0; i < criteriaSets.size(); i++) {
+            int index = i;
+            Map<String, Object> criteria = criteriaSets.get(i);
+            CompletableFuture<Map<String, Object>> content = contents.computeIfAbsent(
+                    List.of(insuranceType, channel, goal, criteria),
+                    key -> CompletableFuture.supplyAsync(() -> content(plan, insuranceType, channel, goal, criteria), pool));
+            cells[i] = content.handle((recommendation, failure) -> {
+                Map<String, Object> cell = cell(insuranceType, channel, goal, index, criteria);
+                cell.put("audience", targeting.getSummary());
+                if (failure != null) {
+                    cell.put("error", "Content recommendation failed: " + cause(failure).getMessage());
+                } else {
+                    cell.put("content", recommendation);
+                }
+                completed.add(cell);
+                return null;
+            });
+        }
+        return CompletableFuture.allOf(cells);
+    }
+
+    /**
+     * Audience targeting of one insurance type: its criteria sets, as maps, and a summary for the cells
+     */
+    private Targeting audience(MatrixPlan plan, String insuranceType) {
+        Map<String, Object> request = new HashMap<>(plan.getTargetingArguments());
+        request.put("insurance_type", insuranceType);
+        Map<String, Object> recommendation = audienceTargetingService.recommendAudienceCriteria(request);
+
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("target_segments", recommendation.get("target_segments"));
+        summary.put("estimated_audience_size", recommendation.get("estimated_audience_size"));
+        summary.put("confidence_score", recommendation.get("confidence_score"));
+        summary.put("rules_version", recommendation.get("rules_version"));
+        List<Map<String, Object>> criteria = recommendation.get("recommended_criteria") == null ? List.of()
+                : objectMapper.convertValue(recommendation.get("recommended_criteria"),
+                        new TypeReference<List<Map<String, Object>>>() { });
+        return new Targeting(summary, criteria);
+    }
+
+    private Map<String, Object> content(MatrixPlan plan, String insuranceType, String channel, String goal,
+                                        Map<String, Object> criteria) {
+        Map<String, Object> request = new HashMap<>(plan.getContentArguments());
+        request.put("insurance_type", insuranceType);
+        request.put("channel", channel);
+        request.put("campaign_goal", goal);
+        request.put("audience_criteria", criteria);
+        // Planning serves content to no one, so experiment and bandit exposures are not counted
+        return campaignContentService.previewCampaignContent(request);
+    }
+
+    private static Map<String, Object> cell(String insuranceType, String channel, String goal, int index,
+                                            Map<String, Object> criteria) {
+        Map<String, Object> cell = new LinkedHashMap<>();
+        cell.put("insurance_type", insuranceType);
+        cell.put("channel", channel);
+        cell.put("campaign_goal", goal);
+        if (index >= 0) {
+            cell.put("audience_index", index);
+            cell.put("audience_criteria", criteria);
+        }
+        return cell;
+    }
+
+    private static Throwable cause(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+
+    private static void copy(Map<String, Object> from, Map<String, Object> to, String... names) {
+        for (String name : names) {
+            if (from.get(name) != null) {
+                to.put(name, from.get(name));
+            }
+        }
+    }
+
+    private static List<String> stringList(Map<String, Object> arguments, String name, List<String> defaultValue) {
+        Object value = arguments.get(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        if (value instanceof String text) {
+            return List.of(text.split("\\s*,\\s*"));
+        }
+        if (!(value instanceof List<?> list)) {
+            throw new IllegalArgumentException(name + " must be a list of strings");
+        }
+        List<String> values = new ArrayList<>(list.size());
+        list.forEach(item -> values.add(String.valueOf(item)));
+        return values;
+    }
+
+    /**
+     * Dimensions and pass-through arguments of one matrix
+     */
+    @Data
+    @AllArgsConstructor
+    public static class MatrixPlan {
+        private List<String> insuranceTypes;
+        private List<String> channels;
+        private List<String> campaignGoals;
+        /** Explicit criteria sets, or null to use each insurance type's recommended criteria */
+        private List<Map<String, Object>> audienceCriteria;
+        private Map<String, Object> targetingArguments;
+        private Map<String, Object> contentArguments;
+        /** Audience targeting already started per insurance type; the others start when the matrix runs */
+        private Map<String, CompletableFuture<Targeting>> audiences;
+    }
+
+    /**
+     * Audience targeting result of one insurance type
+     */
+    @Data
+    @AllArgsConstructor
+    public static class Targeting {
+        private Map<String, Object> summary;
+        /** Recommended criteria sets, empty when targeting recommended none */
+        private List<Map<String, Object>> criteria;
+    }
+
+    @Data
+    @AllArgsConstructor
+    public static class MatrixStats {
+        private int cells;
+        private int failedCells;
+        private int audienceComputations;
+        private int contentComputations;
+        private long elapsedMs;
+        private int parallelism;
+
+        public Map<String, Object> toMap() {
+            Map<String, Object> result = new HashMap<>();
+            result.put("cells_total", cells);
+            result.put("failed_cells", failedCells);
+            result.put("audience_computations", audienceComputations);
+            result.put("content_computations", contentComputations);
+            result.put("elapsed_ms", elapsedMs);
+            result.put("parallelism", parallelism);
+            return result;
+        }
+    }
+}
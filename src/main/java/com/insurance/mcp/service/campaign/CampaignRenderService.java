@@ -0,0 +1,522 @@
+package com.insurance.mcp.service.campaign;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.insurance.mcp.model.campaign.ComplianceViolation;
+import com.insurance.mcp.service.campaign.compliance.ComplianceRules;
+import com.insurance.mcp.service.campaign.compliance.ComplianceScanner;
+import com.insurance.mcp.service.campaign.frequency.FrequencyCapTable;
+import com.insurance.mcp.service.campaign.template.MessageTemplate;
+import com.insurance.mcp.service.campaign.template.TemplateToken;
+import com.insurance.mcp.service.campaign.template.TemplateValues;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Per-recipient message rendering for send time. Recipients are read as NDJSON
+ * ({@code {"customer_id":1,"first_name":"Ann","age":34,"income_level":"high","location":"CA"}}),
+ * rendered in chunks on a worker pool and written back as NDJSON in input order. At most
+ * {@code max-in-flight-chunks} chunks exist at once: when the output stops draining, reading
+ * stops too, so a batch of any size runs in bounded memory. Recipients over their contact limit
+ * on the channel are counted by {@link FrequencyCapService} as they render (and taken back when
+ * their line never reaches the output) and written as
+ * {@code {"customer_id":1,"channel":"email","skipped":"frequency_cap"}} instead; recipients on the
+ * suppression list likewise, with {@code "skipped":"suppressed"}. Rendered subjects and messages
+ * are scanned by {@link ComplianceService} under the recipient's {@code location} as jurisdiction;
+ * violations are written to the line as {@code compliance_violations}.
+ */
+@Slf4j
+@Service
+public class CampaignRenderService {
+
+    private static final String DEFAULT_GREETING = "Hi {FIRST_NAME|there}, ";
+
+    @Autowired
+    private ContentCatalogService contentCatalogService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private FrequencyCapService frequencyCapService;
+
+    @Autowired
+    private SuppressionService suppressionService;
+
+    @Autowired
+    private ComplianceService complianceService;
+
+    @Value("${mcp.campaign.render.parallelism:0}")
+    private int parallelism;
+
+    @Value("${mcp.campaign.render.chunk-size:1000}")
+    private int chunkSize;
+
+    @Value("${mcp.campaign.render.max-in-flight-chunks:8}")
+    private int maxInFlightChunks;
+
+    @Value("${mcp.campaign.render.directory:data/render}")
+    private String directory;
+
+    private ExecutorService renderPool;
+    private int workers;
+
+    @PostConstruct
+    public void initialize() {
+        workers = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threads = new AtomicInteger();
+        renderPool = Executors.newFixedThreadPool(workers, runnable -> {
+            Thread thread = new Thread(runnable, "campaign-render-" + threads.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        renderPool.shutdownNow();
+    }
+
+    /**
+     * Templates and campaign-wide values from {@code insurance_type}, {@code channel},
+     * {@code campaign_goal}, {@code audience_criteria} and the optional {@code subject_template}
+     * and {@code message_template} overrides; {@code apply_frequency_cap=false} renders without
+     * checking or counting contact limits, {@code apply_suppression=false} without the suppression list,
+     * {@code apply_compliance=false} without compliance scanning; {@code jurisdiction} applies to
+     * recipients whose location has no rules of its own
+     */
+    public RenderPlan plan(Map<String, Object> arguments) {
+        String insuranceType = (String) arguments.getOrDefault("insurance_type", "life_insurance");
+        String channel = (String) arguments.getOrDefault("channel", "email");
+        String campaignGoal = (String) arguments.getOrDefault("campaign_goal", "awareness");
+
+        // Defaults come from the catalog's first (main) variant for this product and channel
+        ContentCatalogSnapshot catalog = contentCatalogService.current();
+        ContentCatalogSnapshot.ContentVariant main = catalog.variants(insuranceType, channel)[0];
+        String subject = (String) arguments.get("subject_template");
+        String message = (String) arguments.get("message_template");
+        MessageTemplate subjectTemplate = MessageTemplate.compile(subject != null ? subject : main.getSubject());
+        MessageTemplate messageTemplate = MessageTemplate.compile(message != null ? message
+                : DEFAULT_GREETING + main.message(catalog.goal(campaignGoal)).getPattern());
+
+        Object criteria = arguments.get("audience_criteria");
+        TemplateValues defaults = new TemplateValues()
+                .set(TemplateToken.INSURANCE_TYPE, TemplateValues.displayName(insuranceType))
+                .set(TemplateToken.BENEFIT, main.getBenefit())
+                .set(TemplateToken.CAMPAIGN_OBJECTIVE, campaignGoal)
+                .personalize(criteria instanceof Map<?, ?> map ? map : null);
+        boolean applyCap = !"false".equals(String.valueOf(arguments.get("apply_frequency_cap")));
+        int capChannel = applyCap ? frequencyCapService.channel(channel) : -1;
+        boolean suppress = suppressionService.isEnabled()
+                && !"false".equals(String.valueOf(arguments.get("apply_suppression")));
+        boolean scan = !"false".equals(String.valueOf(arguments.get("apply_compliance")));
+        return new RenderPlan(channel, subjectTemplate, messageTemplate, defaults, capChannel, suppress,
+                scan ? complianceService.current() : null,
+                scan ? complianceService.scanner((String) arguments.get("jurisdiction")) : null);
+    }
+
+    /**
+     * Render every recipient read from {@code in} to {@code out}, one
+     * {@code {"customer_id":...,"channel":...,"subject":...,"message":...}} line each
+     */
+    public RenderStats render(RenderPlan plan, BufferedReader in, OutputStream out) throws IOException {
+        return render(plan, in, out, null);
+    }
+
+    /**
+     * {@link #render(RenderPlan, BufferedReader, OutputStream)}, collecting the frequency cap contacts
+     * of the lines written in {@code written} (may be null). Contacts of lines that are rendered but
+     * never written, because the batch failed, are taken back.
+     */
+    RenderStats render(RenderPlan plan, BufferedReader in, OutputStream out, Contacts written) throws IOException {
+        long start = System.nanoTime();
+        ArrayDeque<Future<RenderedChunk>> inFlight = new ArrayDeque<>();
+        int maxInFlight = Math.max(1, maxInFlightChunks);
+        long recipients = 0;
+        long capped = 0;
+        long suppressed = 0;
+        long noncompliant = 0;
+        long chunks = 0;
+        int lineNumber = 0;
+        try {
+            String[] lines = new String[chunkSize];
+            int count = 0;
+            int firstLine = 1;
+            String line;
+            while ((line = in.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                if (count == 0) {
+                    firstLine = lineNumber;
+                }
+                lines[count++] = line;
+                if (count == lines.length) {
+                    inFlight.add(submit(plan, lines, count, firstLine));
+                    lines = new String[chunkSize];
+                    count = 0;
+                    while (inFlight.size() >= maxInFlight) {
+                        RenderedChunk chunk = write(plan, inFlight.poll(), out, written);
+                        recipients += chunk.recipients;
+                        capped += chunk.capped;
+                        suppressed += chunk.suppressed;
+                        noncompliant += chunk.noncompliant;
+                        chunks++;
+                    }
+                }
+            }
+            if (count > 0) {
+                inFlight.add(submit(plan, lines, count, firstLine));
+            }
+            while (!inFlight.isEmpty()) {
+                RenderedChunk chunk = write(plan, inFlight.poll(), out, written);
+                recipients += chunk.recipients;
+                capped += chunk.capped;
+                suppressed += chunk.suppressed;
+                noncompliant += chunk.noncompliant;
+                chunks++;
+            }
+            out.flush();
+        } finally {
+            // Only left after a failure: chunks rendered but never written took their contacts for nothing
+            for (Future<RenderedChunk> pending : inFlight) {
+                discard(plan, pending);
+            }
+        }
+
+        long elapsedNanos = System.nanoTime() - start;
+        long rendered = recipients - capped - suppressed;
+        RenderStats stats = new RenderStats(rendered, capped, suppressed, noncompliant, chunks, elapsedNanos / 1_000_000,
+                Math.round(recipients / Math.max(1e-9, elapsedNanos / 1e9)), workers);
+        log.info("Rendered {} campaign messages ({} frequency capped, {} suppressed, {} noncompliant) in {} chunks: {} ms, {} msg/s",
+                rendered, capped, suppressed, noncompliant, chunks, stats.getElapsedMs(), stats.getMessagesPerSecond());
+        return stats;
+    }
+
+    /**
+     * The {@code render_campaign_batch} tool: render {@code recipients_file} into {@code output_file},
+     * both resolved inside the configured render directory
+     */
+    public Map<String, Object> renderBatch(Map<String, Object> arguments) throws IOException {
+        Path input = resolve(arguments.get("recipients_file"), "recipients_file");
+        Path output = resolve(arguments.get("output_file"), "output_file");
+        if (!Files.isRegularFile(input)) {
+            throw new IllegalArgumentException("Recipients file not found: " + arguments.get("recipients_file"));
+        }
+        RenderPlan plan = plan(arguments);
+        RenderStats stats = renderFile(plan, input, output);
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("output_file", arguments.get("output_file"));
+        result.put("rendered", stats.getRendered());
+        result.put("frequency_capped", stats.getFrequencyCapped());
+        result.put("suppressed", stats.getSuppressed());
+        result.put("noncompliant", stats.getNoncompliant());
+        result.put("chunks", stats.getChunks());
+        result.put("elapsed_ms", stats.getElapsedMs());
+        result.put("messages_per_second", stats.getMessagesPerSecond());
+        result.put("workers", stats.getWorkers());
+        result.put("channel", plan.getChannel());
+        return result;
+    }
+
+    /**
+     * Render {@code input} into {@code output}, which appears only once complete. Until then its
+     * recipients' contacts are provisional: if the batch fails, nothing is sent, so they are taken
+     * back and a retry is not capped by them.
+     */
+    RenderStats renderFile(RenderPlan plan, Path input, Path output) throws IOException {
+        Files.createDirectories(output.getParent());
+        Path partial = output.resolveSibling(output.getFileName() + ".part");
+        Contacts counted = new Contacts();
+        RenderStats stats;
+        try {
+            try (BufferedReader in = Files.newBufferedReader(input);
+                 OutputStream out = Files.newOutputStream(partial)) {
+                stats = render(plan, in, out, counted);
+            }
+            Files.move(partial, output, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(partial);
+            release(plan, counted);
+            throw e;
+        }
+        return stats;
+    }
+
+    /**
+     * A file argument resolved inside the render directory, which other batch tools share
+     */
+    Path resolve(Object file, String argument) {
+        if (!(file instanceof String name) || name.isBlank()) {
+            throw new IllegalArgumentException(argument + " is required");
+        }
+        Path root = Path.of(directory).toAbsolutePath().normalize();
+        Path path = root.resolve(name).normalize();
+        if (!path.startsWith(root) || path.equals(root)) {
+            throw new IllegalArgumentException(argument + " must name a file inside the render directory");
+        }
+        return path;
+    }
+
+    private Future<RenderedChunk> submit(RenderPlan plan, String[] lines, int count, int firstLine) {
+        return renderPool.submit(() -> renderChunk(plan, lines, count, firstLine));
+    }
+
+    private RenderedChunk write(RenderPlan plan, Future<RenderedChunk> pending, OutputStream out, Contacts written)
+            throws IOException {
+        RenderedChunk chunk;
+        try {
+            chunk = pending.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            discard(plan, pending);
+            throw new IOException("Interrupted while rendering campaign batch", e);
+        } catch (ExecutionException e) {
+            // A failed chunk has taken back its own contacts
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IOException("Failed to render campaign batch", e.getCause());
+        }
+        try {
+            out.write(chunk.bytes, 0, chunk.length);
+        } catch (IOException e) {
+            release(plan, chunk.contacts);
+            throw e;
+        }
+        if (written != null) {
+            written.addAll(chunk.contacts);
+        }
+        return chunk;
+    }
+
+    /**
+     * Drop a chunk that will not be written, taking back the contacts it counted
+     */
+    private void discard(RenderPlan plan, Future<RenderedChunk> pending) {
+        if (pending.cancel(false)) {
+            return;
+        }
+        try {
+            release(plan, pending.get().contacts);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            // Failed chunks take back their own contacts
+        }
+    }
+
+    private void release(RenderPlan plan, Contacts contacts) {
+        for (int i = 0; i < contacts.size; i++) {
+            frequencyCapService.release(contacts.keys[i], plan.getFrequencyCapChannel(), contacts.entries[i]);
+        }
+    }
+
+    private RenderedChunk renderChunk(RenderPlan plan, String[] lines, int count, int firstLine) throws IOException {
+        ChunkBuffer buffer = new ChunkBuffer(count * 512);
+        TemplateValues values = new TemplateValues();
+        StringBuilder text = new StringBuilder(512);
+        int capped = 0;
+        int suppressed = 0;
+        int noncompliant = 0;
+        Contacts contacts = new Contacts();
+        List<ComplianceViolation> violations = new ArrayList<>();
+        try (JsonGenerator json = objectMapper.getFactory().createGenerator(buffer)) {
+            json.setRootValueSeparator(null);
+            for (int i = 0; i < count; i++) {
+                JsonNode recipient = parse(lines[i], firstLine + i);
+                values.copyFrom(plan.getDefaults());
+                personalize(values, recipient);
+
+                json.writeStartObject();
+                JsonNode customerId = recipient.get("customer_id");
+                if (customerId != null && customerId.canConvertToLong()) {
+                    json.writeNumberField("customer_id", customerId.asLong());
+                } else if (customerId != null) {
+                    json.writeStringField("customer_id", customerId.asText());
+                }
+                json.writeStringField("channel", plan.getChannel());
+                if (plan.isSuppress() && customerId != null && suppressionService.isSuppressed(recipientKey(customerId))) {
+                    json.writeStringField("skipped", "suppressed");
+                    json.writeEndObject();
+                    json.writeRaw('\n');
+                    suppressed++;
+                    continue;
+                }
+                if (plan.getFrequencyCapChannel() >= 0 && customerId != null) {
+                    long key = recipientKey(customerId);
+                    long entry = frequencyCapService.contact(key, plan.getFrequencyCapChannel());
+                    if (!FrequencyCapTable.allowed(entry)) {
+                        json.writeStringField("skipped", "frequency_cap");
+                        json.writeEndObject();
+                        json.writeRaw('\n');
+                        capped++;
+                        continue;
+                    }
+                    contacts.add(key, entry);
+                }
+                text.setLength(0);
+                String subject = plan.getSubject().renderTo(values, text).toString();
+                json.writeStringField("subject", subject);
+                text.setLength(0);
+                String message = plan.getMessage().renderTo(values, text).toString();
+                json.writeStringField("message", message);
+                if (plan.getCompliance() != null) {
+                    JsonNode location = recipient.get("location");
+                    ComplianceScanner scanner = location != null && location.isTextual()
+                            ? plan.getCompliance().scanner(location.asText(), plan.getComplianceScanner())
+                            : plan.getComplianceScanner();
+                    violations.clear();
+                    scanner.scan("subject", subject, violations);
+                    scanner.scan("message", message, violations);
+                    if (!violations.isEmpty()) {
+                        json.writeObjectField("compliance_violations", violations);
+                        noncompliant++;
+                    }
+                }
+                json.writeEndObject();
+                json.writeRaw('\n');
+            }
+        } catch (IOException | RuntimeException e) {
+            release(plan, contacts);
+            throw e;
+        }
+        return new RenderedChunk(buffer.bytes(), buffer.size(), count, capped, suppressed, noncompliant, contacts);
+    }
+
+    private JsonNode parse(String line, int lineNumber) {
+        try {
+            JsonNode node = objectMapper.readTree(line);
+            if (!node.isObject()) {
+                throw new IllegalArgumentException("Recipient on line " + lineNumber + " is not a JSON object");
+            }
+            return node;
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Malformed recipient on line " + lineNumber + ": " + e.getMessage());
+        }
+    }
+
+    private static long recipientKey(JsonNode customerId) {
+        return customerId.canConvertToLong() ? customerId.asLong() : FrequencyCapService.recipientKey(customerId.asText());
+    }
+
+    private static void personalize(TemplateValues values, JsonNode recipient) {
+        set(values, TemplateToken.FIRST_NAME, recipient.get("first_name"));
+        set(values, TemplateToken.AGE, recipient.get("age"));
+        set(values, TemplateToken.INCOME_LEVEL, recipient.get("income_level"));
+        set(values, TemplateToken.LOCATION, recipient.get("location"));
+    }
+
+    private static void set(TemplateValues values, TemplateToken token, JsonNode field) {
+        if (field != null && !field.isNull()) {
+            values.set(token, field.asText());
+        }
+    }
+
+    /**
+     * Compiled templates and campaign-wide slot values shared by every recipient of a batch
+     */
+    @Data
+    @AllArgsConstructor
+    public static class RenderPlan {
+        private String channel;
+        private MessageTemplate subject;
+        private MessageTemplate message;
+        private TemplateValues defaults;
+        /** Capped channel index in {@link FrequencyCapService}, or -1 to render without capping */
+        private int frequencyCapChannel;
+        /** Skip recipients on the {@link SuppressionService} list */
+        private boolean suppress;
+        /** Rules to scan rendered copy with, or null to render without scanning */
+        private ComplianceRules compliance;
+        /** Scanner for recipients whose location has no rules of its own */
+        private ComplianceScanner complianceScanner;
+    }
+
+    @Data
+    @AllArgsConstructor
+    public static class RenderStats {
+        private long rendered;
+        private long frequencyCapped;
+        private long suppressed;
+        private long noncompliant;
+        private long chunks;
+        private long elapsedMs;
+        private long messagesPerSecond;
+        private int workers;
+    }
+
+    @AllArgsConstructor
+    private static class RenderedChunk {
+        private final byte[] bytes;
+        private final int length;
+        private final int recipients;
+        private final int capped;
+        private final int suppressed;
+        private final int noncompliant;
+        private final Contacts contacts;
+    }
+
+    /**
+     * Recipient keys and cap table entries of the contacts counted for rendered lines
+     */
+    static final class Contacts {
+        private long[] keys = new long[16];
+        private long[] entries = new long[16];
+        private int size;
+
+        void add(long key, long entry) {
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, size * 2);
+                entries = Arrays.copyOf(entries, size * 2);
+            }
+            keys[size] = key;
+            entries[size++] = entry;
+        }
+
+        void addAll(Contacts other) {
+            for (int i = 0; i < other.size; i++) {
+                add(other.keys[i], other.entries[i]);
+            }
+        }
+    }
+
+    /** Exposes the backing array so a rendered chunk is not copied before it is written */
+    private static final class ChunkBuffer extends ByteArrayOutputStream {
+        ChunkBuffer(int size) {
+            super(size);
+        }
+
+        byte[] bytes() {
+            return buf;
+        }
+    }
+}
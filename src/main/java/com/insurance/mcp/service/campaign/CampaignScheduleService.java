@@ -0,0 +1,472 @@
+package com.insurance.mcp.service.campaign;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.insurance.mcp.service.campaign.schedule.QuietHours;
+import com.insurance.mcp.service.campaign.schedule.TimingWheel;
+import jakarta.annotation.PostConstruct;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Turns a campaign's recipients into a send plan: one send time per recipient such that each
+ * minute stays within the channel's throughput (optionally ramped up over warm-up days), no
+ * recipient is contacted during local quiet hours, and suppressed or frequency-capped recipients
+ * are left out. Planning only reads the frequency caps, as of each send's planned minute, so
+ * re-planning the same recipients spends no contacts; contacts are counted when messages are
+ * rendered. Recipients wait in a {@link TimingWheel} until their earliest allowed minute and
+ * are then sent first-come first-served as capacity allows; the plan is written as NDJSON in
+ * send-time order while it is being computed.
+ */
+@Slf4j
+@Service
+public class CampaignScheduleService {
+
+    private static final int NONE = -1;
+
+    @Autowired
+    private CampaignRenderService campaignRenderService;
+
+    @Autowired
+    private FrequencyCapService frequencyCapService;
+
+    @Autowired
+    private SuppressionService suppressionService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${mcp.campaign.schedule.rates:email=20000,sms=600,push=50000,social_media=2000,direct_mail=5000}")
+    private String ratesSpec;
+
+    @Value("${mcp.campaign.schedule.quiet-hours:21:00-08:00}")
+    private String quietHours;
+
+    @Value("${mcp.campaign.schedule.default-timezone:America/New_York}")
+    private String defaultTimezone;
+
+    @Value("${mcp.campaign.schedule.horizon-days:14}")
+    private int horizonDays;
+
+    @Value("${mcp.campaign.schedule.max-horizon-days:90}")
+    private int maxHorizonDays;
+
+    private final Map<String, Integer> rates = new HashMap<>();
+
+    @PostConstruct
+    public void initialize() {
+        for (String entry : ratesSpec.split(",")) {
+            if (entry.isBlank()) {
+                continue;
+            }
+            String[] parts = entry.split("=");
+            if (parts.length != 2) {
+                throw new IllegalStateException("Channel rate '" + entry + "' is not channel=sends_per_minute");
+            }
+            rates.put(parts[0].trim(), Integer.parseInt(parts[1].trim()));
+        }
+    }
+
+    /**
+     * Settings of one plan from {@code channel}, {@code start_at}, {@code rate_per_minute},
+     * {@code warmup_days}, {@code quiet_hours}, {@code timezone}, {@code horizon_days},
+     * {@code apply_frequency_cap} and {@code apply_suppression}
+     */
+    public SchedulePlan plan(Map<String, Object> arguments) {
+        String channel = (String) arguments.getOrDefault("channel", "email");
+        int rate = intArgument(arguments, "rate_per_minute", rates.getOrDefault(channel, 0));
+        if (rate <= 0) {
+            throw new IllegalArgumentException("No send rate configured for channel " + channel + "; pass rate_per_minute");
+        }
+        int warmupDays = Math.max(0, intArgument(arguments, "warmup_days", 0));
+        int horizon = intArgument(arguments, "horizon_days", horizonDays);
+        if (horizon < 1 || horizon > maxHorizonDays) {
+            throw new IllegalArgumentException("horizon_days must be between 1 and " + maxHorizonDays);
+        }
+
+        long startMillis = System.currentTimeMillis();
+        Object startAt = arguments.get("start_at");
+        if (startAt != null) {
+            try {
+                startMillis = Instant.parse(String.valueOf(startAt)).toEpochMilli();
+            } catch (DateTimeParseException e) {
+                throw new IllegalArgumentException("start_at must be an ISO-8601 instant, e.g. 2026-11-02T14:00:00Z");
+            }
+        }
+        String quiet = (String) arguments.getOrDefault("quiet_hours", quietHours);
+        String timezone = (String) arguments.getOrDefault("timezone", defaultTimezone);
+        // Validate now rather than after the recipients were read
+        QuietHours.parse(quiet).zone(timezone);
+
+        boolean applyCap = !"false".equals(String.valueOf(arguments.get("apply_frequency_cap")));
+        boolean suppress = suppressionService.isEnabled()
+                && !"false".equals(String.valueOf(arguments.get("apply_suppression")));
+        return new SchedulePlan(channel, rate, warmupDays, quiet, timezone, Math.floorDiv(startMillis + 59_999, 60_000),
+                horizon, applyCap ? frequencyCapService.channel(channel) : -1, suppress);
+    }
+
+    /**
+     * Plan every recipient read from {@code in}, writing one
+     * {@code {"customer_id":...,"channel":...,"send_at":...}} line per send in send-time order.
+     * Recipients left out are written as {@code {"customer_id":...,"skipped":...}} with reason
+     * {@code suppressed}, {@code frequency_cap} or {@code horizon}. The output of
+     * {@code render_campaign_batch} can be planned as it is: its skipped lines stay skipped, and its
+     * messages, already counted against the frequency cap when rendered, are not counted twice.
+     */
+    public ScheduleStats schedule(SchedulePlan plan, BufferedReader in, OutputStream out) throws IOException {
+        long start = System.nanoTime();
+        QuietHours quiet = QuietHours.parse(plan.getQuietHours());
+        int defaultZone = quiet.zone(plan.getDefaultTimezone());
+        TimingWheel wheel = new TimingWheel(plan.getHorizonDays(), 1 << 16);
+        Recipients recipients = new Recipients();
+        Counts counts = new Counts();
+
+        try (JsonGenerator json = objectMapper.getFactory().createGenerator(out)) {
+            json.setRootValueSeparator(null);
+            String line;
+            int lineNumber = 0;
+            while ((line = in.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                JsonNode recipient = parse(line, lineNumber);
+                JsonNode customerId = recipient.get("customer_id");
+                if (customerId == null || customerId.isNull()) {
+                    throw new IllegalArgumentException("Recipient on line " + lineNumber + " has no customer_id");
+                }
+                JsonNode timezone = recipient.get("timezone");
+                int zone = timezone != null && timezone.isTextual() ? quiet.zone(timezone.asText()) : defaultZone;
+                int entry = recipients.add(customerId, zone, recipient.has("message"));
+                JsonNode skipped = recipient.get("skipped");
+                if (skipped != null && skipped.isTextual()) {
+                    // Left out when it was rendered
+                    skip(json, recipients, entry, plan, skipped.asText());
+                    if ("suppressed".equals(skipped.asText())) {
+                        counts.suppressed++;
+                    } else if ("frequency_cap".equals(skipped.asText())) {
+                        counts.capped++;
+                    }
+                    continue;
+                }
+                if (plan.isSuppress() && suppressionService.isSuppressed(recipients.key(entry))) {
+                    skip(json, recipients, entry, plan, "suppressed");
+                    counts.suppressed++;
+                    continue;
+                }
+                int wait = quiet.delay(zone, plan.getStartEpochMinute());
+                if (wait > 0) {
+                    counts.deferred++;
+                }
+                if (!wheel.schedule(entry, wait)) {
+                    skip(json, recipients, entry, plan, "horizon");
+                    counts.beyondHorizon++;
+                }
+            }
+            counts.recipients = recipients.size;
+            drain(plan, wheel, quiet, recipients, counts, json);
+            json.flush();
+        }
+
+        long elapsedNanos = System.nanoTime() - start;
+        ScheduleStats stats = new ScheduleStats(counts.recipients, counts.scheduled, counts.suppressed, counts.capped,
+                counts.beyondHorizon, counts.deferred, counts.first, counts.last, counts.peak,
+                elapsedNanos / 1_000_000, Math.round(counts.recipients / Math.max(1e-9, elapsedNanos / 1e9)));
+        log.info("Planned {} {} sends of {} recipients over {} minutes: {} ms, {} recipients/s", counts.scheduled,
+                plan.getChannel(), counts.recipients, counts.last != null ? counts.lastMinute + 1 : 0,
+                stats.getElapsedMs(), stats.getRecipientsPerSecond());
+        return stats;
+    }
+
+    /**
+     * The {@code plan_campaign_schedule} tool: plan {@code recipients_file} into {@code output_file},
+     * both resolved inside the render directory
+     */
+    public Map<String, Object> planBatch(Map<String, Object> arguments) throws IOException {
+        Path input = campaignRenderService.resolve(arguments.get("recipients_file"), "recipients_file");
+        Path output = campaignRenderService.resolve(arguments.get("output_file"), "output_file");
+        if (!Files.isRegularFile(input)) {
+            throw new IllegalArgumentException("Recipients file not found: " + arguments.get("recipients_file"));
+        }
+        SchedulePlan plan = plan(arguments);
+
+        Files.createDirectories(output.getParent());
+        Path partial = output.resolveSibling(output.getFileName() + ".part");
+        ScheduleStats stats;
+        try (BufferedReader in = Files.newBufferedReader(input);
+             OutputStream out = Files.newOutputStream(partial)) {
+            stats = schedule(plan, in, out);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(partial);
+            throw e;
+        }
+        Files.move(partial, output, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("output_file", arguments.get("output_file"));
+        result.put("channel", plan.getChannel());
+        result.put("rate_per_minute", plan.getRatePerMinute());
+        result.put("recipients", stats.getRecipients());
+        result.put("scheduled", stats.getScheduled());
+        result.put("suppressed", stats.getSuppressed());
+        result.put("frequency_capped", stats.getFrequencyCapped());
+        result.put("beyond_horizon", stats.getBeyondHorizon());
+        result.put("deferred_for_quiet_hours", stats.getDeferredForQuietHours());
+        result.put("peak_sends_per_minute", stats.getPeakPerMinute());
+        if (stats.getFirstSendAt() != null) {
+            result.put("first_send_at", stats.getFirstSendAt());
+            result.put("last_send_at", stats.getLastSendAt());
+        }
+        result.put("elapsed_ms", stats.getElapsedMs());
+        result.put("recipients_per_second", stats.getRecipientsPerSecond());
+        return result;
+    }
+
+    /**
+     * Walk the wheel minute by minute; minutes with nothing due or waiting are skipped
+     */
+    private void drain(SchedulePlan plan, TimingWheel wheel, QuietHours quiet, Recipients recipients, Counts counts,
+                       JsonGenerator json) throws IOException {
+        int readyHead = NONE;
+        int readyTail = NONE;
+        int minute = 0;
+        while (true) {
+            if (readyHead == NONE) {
+                minute = wheel.nextDue(minute);
+                if (minute == NONE) {
+                    break;
+                }
+            } else if (minute >= wheel.horizon()) {
+                break;
+            }
+
+            int due = wheel.take(minute);
+            if (due != NONE) {
+                if (readyHead == NONE) {
+                    readyHead = due;
+                } else {
+                    wheel.link(readyTail, due);
+                }
+                readyTail = due;
+                while (wheel.next(readyTail) != NONE) {
+                    readyTail = wheel.next(readyTail);
+                }
+            }
+
+            long epochMinute = plan.getStartEpochMinute() + minute;
+            int capacity = capacity(plan, minute);
+            int sent = 0;
+            String sendAt = null;
+            while (readyHead != NONE && sent < capacity) {
+                int entry = readyHead;
+                readyHead = wheel.next(entry);
+                if (readyHead == NONE) {
+                    readyTail = NONE;
+                }
+                // Waiting for capacity may have run into the recipient's quiet hours
+                int wait = quiet.delay(recipients.zones[entry], epochMinute);
+                if (wait > 0) {
+                    counts.deferred++;
+                    if (!wheel.schedule(entry, minute + wait)) {
+                        skip(json, recipients, entry, plan, "horizon");
+                        counts.beyondHorizon++;
+                    }
+                    continue;
+                }
+                if (plan.getFrequencyCapChannel() >= 0 && !frequencyCapService.allowedAt(recipients.key(entry),
+                        plan.getFrequencyCapChannel(), epochMinute, recipients.counted(entry))) {
+                    skip(json, recipients, entry, plan, "frequency_cap");
+                    counts.capped++;
+                    continue;
+                }
+                if (sendAt == null) {
+                    sendAt = Instant.ofEpochSecond(epochMinute * 60).toString();
+                }
+                json.writeStartObject();
+                recipients.writeId(json, entry);
+                json.writeStringField("channel", plan.getChannel());
+                json.writeStringField("send_at", sendAt);
+                json.writeEndObject();
+                json.writeRaw('\n');
+                sent++;
+            }
+            if (sent > 0) {
+                counts.scheduled += sent;
+                counts.peak = Math.max(counts.peak, sent);
+                if (counts.first == null) {
+                    counts.first = sendAt;
+                }
+                counts.last = sendAt;
+                counts.lastMinute = minute;
+            }
+            minute++;
+        }
+        // Still waiting for capacity when the horizon ended
+        for (int entry = readyHead; entry != NONE; entry = wheel.next(entry)) {
+            skip(json, recipients, entry, plan, "horizon");
+            counts.beyondHorizon++;
+        }
+    }
+
+    /**
+     * Sends allowed in {@code minute}; during warm-up the rate doubles daily up to the full rate
+     */
+    private static int capacity(SchedulePlan plan, int minute) {
+        int day = minute / 1440;
+        if (day >= plan.getWarmupDays()) {
+            return plan.getRatePerMinute();
+        }
+        return Math.max(1, plan.getRatePerMinute() >> Math.min(30, plan.getWarmupDays() - day));
+    }
+
+    private static void skip(JsonGenerator json, Recipients recipients, int entry, SchedulePlan plan, String reason)
+            throws IOException {
+        json.writeStartObject();
+        recipients.writeId(json, entry);
+        json.writeStringField("channel", plan.getChannel());
+        json.writeStringField("skipped", reason);
+        json.writeEndObject();
+        json.writeRaw('\n');
+    }
+
+    private JsonNode parse(String line, int lineNumber) {
+        try {
+            JsonNode node = objectMapper.readTree(line);
+            if (!node.isObject()) {
+                throw new IllegalArgumentException("Recipient on line " + lineNumber + " is not a JSON object");
+            }
+            return node;
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Malformed recipient on line " + lineNumber + ": " + e.getMessage());
+        }
+    }
+
+    private static int intArgument(Map<String, Object> arguments, String name, int defaultValue) {
+        Object value = arguments.get(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return value instanceof Number number ? number.intValue() : Integer.parseInt(String.valueOf(value));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(name + " must be an integer");
+        }
+    }
+
+    /**
+     * Channel limits and campaign-wide settings of one plan
+     */
+    @Data
+    @AllArgsConstructor
+    public static class SchedulePlan {
+        private String channel;
+        private int ratePerMinute;
+        private int warmupDays;
+        private String quietHours;
+        private String defaultTimezone;
+        private long startEpochMinute;
+        private int horizonDays;
+        /** Capped channel index in {@link FrequencyCapService}, or -1 to plan without capping */
+        private int frequencyCapChannel;
+        private boolean suppress;
+    }
+
+    @Data
+    @AllArgsConstructor
+    public static class ScheduleStats {
+        private long recipients;
+        private long scheduled;
+        private long suppressed;
+        private long frequencyCapped;
+        private long beyondHorizon;
+        private long deferredForQuietHours;
+        private String firstSendAt;
+        private String lastSendAt;
+        private int peakPerMinute;
+        private long elapsedMs;
+        private long recipientsPerSecond;
+    }
+
+    private static final class Counts {
+        long recipients;
+        long scheduled;
+        long suppressed;
+        long capped;
+        long beyondHorizon;
+        long deferred;
+        int peak;
+        int lastMinute;
+        String first;
+        String last;
+    }
+
+    /**
+     * Recipients as parallel primitive arrays; ids that are not numbers are kept aside as text, and
+     * recipients whose message was already counted against the frequency cap are marked in a bit set
+     */
+    static final class Recipients {
+        long[] ids = new long[1 << 16];
+        short[] zones = new short[1 << 16];
+        String[] textIds;
+        final BitSet counted = new BitSet();
+        int size;
+
+        int add(JsonNode customerId, int zone, boolean alreadyCounted) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+                zones = Arrays.copyOf(zones, size * 2);
+                if (textIds != null) {
+                    textIds = Arrays.copyOf(textIds, size * 2);
+                }
+            }
+            if (alreadyCounted) {
+                counted.set(size);
+            }
+            if (customerId.canConvertToLong()) {
+                ids[size] = customerId.asLong();
+            } else {
+                if (textIds == null) {
+                    textIds = new String[ids.length];
+                }
+                textIds[size] = customerId.asText();
+                ids[size] = FrequencyCapService.recipientKey(textIds[size]);
+            }
+            zones[size] = (short) zone;
+            return size++;
+        }
+
+        long key(int entry) {
+            return ids[entry];
+        }
+
+        boolean counted(int entry) {
+            return counted.get(entry);
+        }
+
+        void writeId(JsonGenerator json, int entry) throws IOException {
+            if (textIds != null && textIds[entry] != null) {
+                json.writeStringField("customer_id", textIds[entry]);
+            } else {
+                json.writeNumberField("customer_id", ids[entry]);
+            }
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.insurance.mcp.service.campaign;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.insurance.mcp.model.campaign.CampaignContent;
+import com.insurance.mcp.model.campaign.ComplianceRuleSet;
+import com.insurance.mcp.model.campaign.ComplianceViolation;
+import com.insurance.mcp.service.campaign.compliance.ComplianceRules;
+import com.insurance.mcp.service.campaign.compliance.ComplianceScanner;
+import com.insurance.mcp.service.support.ReloadableResource;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Scans campaign copy for prohibited claims ("guaranteed approval", "no medical exam", "risk-free")
+ * under jurisdiction-specific rules. The rules file is compiled into one automaton per
+ * jurisdiction and hot-reloaded like the content catalog: a changed file is compiled off to the
+ * side and swapped in, a bad one is rejected and the previous rules stay.
+ */
+@Slf4j
+@Service
+public class ComplianceService {
+
+    public static final String BLOCK = "block";
+
+    @Autowired
+    private ResourceLoader resourceLoader;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${mcp.campaign.compliance.location:classpath:compliance-rules.json}")
+    private String rulesLocation;
+
+    @Value("${mcp.campaign.compliance.default-jurisdiction:}")
+    private String defaultJurisdiction;
+
+    private volatile ComplianceRules current;
+    private ReloadableResource rulesResource;
+
+    @PostConstruct
+    public void initialize() {
+        rulesResource = new ReloadableResource(resourceLoader, rulesLocation);
+        try {
+            reload();
+        } catch (IOException | IllegalArgumentException e) {
+            throw new IllegalStateException("Unable to load compliance rules from " + rulesLocation, e);
+        }
+    }
+
+    /**
+     * Current compiled rules
+     */
+    public ComplianceRules current() {
+        return current;
+    }
+
+    /**
+     * Scanner for {@code jurisdiction}, or for the configured default jurisdiction when blank
+     */
+    public ComplianceScanner scanner(String jurisdiction) {
+        return current.scanner(jurisdiction != null && !jurisdiction.isBlank() ? jurisdiction
+                : defaultJurisdiction.isBlank() ? null : defaultJurisdiction);
+    }
+
+    /**
+     * Violations in the title, subject and message of {@code content}
+     */
+    public List<ComplianceViolation> scan(ComplianceScanner scanner, CampaignContent content) {
+        List<ComplianceViolation> violations = new ArrayList<>(0);
+        scanner.scan("title", content.getTitle(), violations);
+        scanner.scan("subject", content.getSubject(), violations);
+        scanner.scan("message", content.getMessage(), violations);
+        return violations;
+    }
+
+    /**
+     * The {@code check_compliance} tool: scan {@code text}, or {@code title}, {@code subject} and
+     * {@code message}, under the rules of {@code jurisdiction}
+     */
+    public Map<String, Object> check(Map<String, Object> arguments) {
+        ComplianceScanner scanner = scanner((String) arguments.get("jurisdiction"));
+        List<ComplianceViolation> violations = new ArrayList<>();
+        boolean any = false;
+        for (String field : List.of("text", "title", "subject", "message")) {
+            Object text = arguments.get(field);
+            if (text != null) {
+                scanner.scan(field, String.valueOf(text), violations);
+                any = true;
+            }
+        }
+        if (!any) {
+            throw new IllegalArgumentException("Pass text, or any of title, subject and message");
+        }
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("rules_version", current.getVersion());
+        result.put("jurisdiction", scanner.getJurisdiction() != null ? scanner.getJurisdiction() : "general");
+        result.put("compliant", violations.stream().noneMatch(violation -> BLOCK.equals(violation.getSeverity())));
+        result.put("violations", violations);
+        return result;
+    }
+
+    /**
+     * Re-read and compile the rules file, then publish it
+     */
+    public synchronized ComplianceRules reload() throws IOException {
+        ComplianceRuleSet ruleSet;
+        try (InputStream in = rulesResource.open()) {
+            ruleSet = objectMapper.readValue(in, ComplianceRuleSet.class);
+        }
+        long start = System.nanoTime();
+        ComplianceRules rules = ComplianceRules.compile(ruleSet);
+        ComplianceRules previous = current;
+        current = rules;
+        log.info("Loaded compliance rules version {} ({} rules, jurisdictions {}) from {} in {} ms, previous version: {}",
+                rules.getVersion(), ruleSet.getRules() != null ? ruleSet.getRules().size() : 0, rules.jurisdictions(),
+                rulesResource.getLocation(), (System.nanoTime() - start) / 1_000_000,
+                previous != null ? previous.getVersion() : "none");
+        return rules;
+    }
+
+    /**
+     * Poll the rules file and reload when it changes; a bad file keeps the previous rules
+     */
+    @Scheduled(fixedDelayString = "${mcp.campaign.compliance.reload-interval-ms:30000}",
+            initialDelayString = "${mcp.campaign.compliance.reload-interval-ms:30000}")
+    public void reloadIfChanged() {
+        if (!rulesResource.hasChanged()) {
+            return;
+        }
+        try {
+            reload();
+        } catch (Exception e) {
+            log.error("Rejected compliance rules update from {}, keeping version {}: {}",
+                    rulesResource.getLocation(), current.getVersion(), e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package com.insurance.mcp.service.campaign;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Bandit choosing the title and the benefit highlight of one variant in one catalog cell. The
+ * two choices are independent bandits sharing each reward. An arm of the variant is
+ * {@code title * benefitCount + benefit}.
+ */
+public final class ContentBandit {
+
+    public enum Policy {
+        THOMPSON, UCB;
+
+        static Policy of(String name) {
+            return name == null ? THOMPSON : valueOf(name.trim().toUpperCase());
+        }
+    }
+
+    private static final double APPROXIMATE_GAMMA_SHAPE = 50;
+
+    private final String key;
+    private final Policy policy;
+    private final BanditArm[] titles;
+    private final BanditArm[] benefits;
+
+    ContentBandit(String key, Policy policy, BanditArm[] titles, BanditArm[] benefits) {
+        this.key = key;
+        this.policy = policy;
+        this.titles = titles;
+        this.benefits = benefits;
+    }
+
+    /**
+     * Arm for the next request, from the last published arm statistics
+     */
+    public int choose() {
+        return choose(titles) * benefits.length + choose(benefits);
+    }
+
+    /**
+     * Count a request served {@code arm}
+     */
+    public void recordExposure(int arm) {
+        titles[arm / benefits.length].recordTrial();
+        benefits[arm % benefits.length].recordTrial();
+    }
+
+    /**
+     * Count a click or conversion of a request served {@code arm}
+     */
+    public void recordReward(int arm) {
+        titles[arm / benefits.length].recordSuccess();
+        benefits[arm % benefits.length].recordSuccess();
+    }
+
+    public int armCount() {
+        return titles.length * benefits.length;
+    }
+
+    /**
+     * Token naming {@code arm} in served content, for feedback
+     */
+    public String token(int arm) {
+        return key + ":" + arm / benefits.length + ":" + arm % benefits.length;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public Policy getPolicy() {
+        return policy;
+    }
+
+    public BanditArm[] getTitles() {
+        return titles;
+    }
+
+    public BanditArm[] getBenefits() {
+        return benefits;
+    }
+
+    private int choose(BanditArm[] arms) {
+        if (arms.length == 1) {
+            return 0;
+        }
+        return policy == Policy.UCB ? upperConfidenceBound(arms) : thompsonSample(arms);
+    }
+
+    /**
+     * Arm with the highest draw from its Beta(1 + successes, 1 + failures) posterior
+     */
+    private static int thompsonSample(BanditArm[] arms) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int best = 0;
+        double bestDraw = -1;
+        for (int i = 0; i < arms.length; i++) {
+            long trials = arms[i].trials();
+            long successes = arms[i].successes();
+            double draw = beta(1 + successes, 1 + trials - successes, random);
+            if (draw > bestDraw) {
+                bestDraw = draw;
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * UCB1: untried arms first (at random), then the highest mean plus exploration bonus
+     */
+    private static int upperConfidenceBound(BanditArm[] arms) {
+        long total = 0;
+        int untried = 0;
+        for (BanditArm arm : arms) {
+            total += arm.trials();
+            untried += arm.trials() == 0 ? 1 : 0;
+        }
+        if (untried > 0) {
+            int pick = ThreadLocalRandom.current().nextInt(untried);
+            for (int i = 0; i < arms.length; i++) {
+                if (arms[i].trials() == 0 && pick-- == 0) {
+                    return i;
+                }
+            }
+        }
+        double logTotal = Math.log(total);
+        int best = 0;
+        double bestScore = -1;
+        for (int i = 0; i < arms.length; i++) {
+            long trials = arms[i].trials();
+            double score = (double) arms[i].successes() / trials + Math.sqrt(2 * logTotal / trials);
+            if (score > bestScore) {
+                bestScore = score;
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    static double beta(double alpha, double beta, ThreadLocalRandom random) {
+        double x = gamma(alpha, random);
+        return x / (x + gamma(beta, random));
+    }
+
+    /**
+     * Gamma(shape, 1) draw for shape at least 1: exponential at 1, Marsaglia-Tsang with its
+     * rejection step skipped for large shapes (where it is the Wilson-Hilferty approximation and
+     * almost never rejects), and the full Marsaglia-Tsang sampler in between
+     */
+    static double gamma(double shape, ThreadLocalRandom random) {
+        if (shape == 1) {
+            return -Math.log(1 - random.nextDouble());
+        }
+        double d = shape - 1.0 / 3;
+        double c = 1 / Math.sqrt(9 * d);
+        if (shape >= APPROXIMATE_GAMMA_SHAPE) {
+            double v = Math.max(0, 1 + c * random.nextGaussian());
+            return d * v * v * v;
+        }
+        while (true) {
+            double x;
+            double v;
+            do {
+                x = random.nextGaussian();
+                v = 1 + c * x;
+            } while (v <= 0);
+            v = v * v * v;
+            double u = random.nextDouble();
+            if (u < 1 - 0.0331 * x * x * x * x || Math.log(u) < 0.5 * x * x + d * (1 - v + Math.log(v))) {
+                return d * v;
+            }
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.insurance.mcp.service.campaign;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.insurance.mcp.model.campaign.ContentCatalog;
+import com.insurance.mcp.service.support.ReloadableResource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Loads the versioned content catalog (titles, benefits, copy, CTAs) and publishes compiled
+ * snapshots. Readers take the current snapshot with a single volatile read; a reload compiles
+ * a new snapshot off to the side and swaps it in, so copy changes need no redeploy.
+ */
+@Slf4j
+@Service
+public class ContentCatalogService {
+
+    @Autowired
+    private ResourceLoader resourceLoader;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${mcp.campaign.content.location:classpath:content-catalog.json}")
+    private String catalogLocation;
+
+    private final AtomicReference<ContentCatalogSnapshot> current = new AtomicReference<>();
+    private final List<Consumer<ContentCatalogSnapshot>> listeners = new CopyOnWriteArrayList<>();
+    /** Bandit arms by key, kept across versions so feedback is not lost on reload */
+    private final Map<String, BanditArm> banditArms = new ConcurrentHashMap<>();
+    private ReloadableResource catalogResource;
+
+    @PostConstruct
+    public void initialize() {
+        catalogResource = new ReloadableResource(resourceLoader, catalogLocation);
+        try {
+            reload();
+        } catch (IOException | IllegalArgumentException e) {
+            throw new IllegalStateException("Unable to load content catalog from " + catalogLocation, e);
+        }
+    }
+
+    /**
+     * Current catalog snapshot
+     */
+    public ContentCatalogSnapshot current() {
+        return current.get();
+    }
+
+    /**
+     * Every bandit arm created so far, including arms of earlier catalog versions
+     */
+    public Collection<BanditArm> banditArms() {
+        return banditArms.values();
+    }
+
+    /**
+     * Call {@code listener} with every snapshot published from now on, e.g. to precompute derived data
+     */
+    public void addListener(Consumer<ContentCatalogSnapshot> listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Re-read and compile the catalog file, then publish it
+     */
+    public synchronized ContentCatalogSnapshot reload() throws IOException {
+        ContentCatalog catalog;
+        try (InputStream in = catalogResource.open()) {
+            catalog = objectMapper.readValue(in, ContentCatalog.class);
+        }
+        ContentCatalogSnapshot snapshot = ContentCatalogSnapshot.compile(catalog,
+                (key, label) -> banditArms.computeIfAbsent(key, name -> new BanditArm(label)));
+        ContentCatalogSnapshot previous = current.getAndSet(snapshot);
+        log.info("Loaded content catalog version {} ({} products x {} channels) from {}, previous version: {}",
+                snapshot.getVersion(), snapshot.getProductCount(), snapshot.getChannelCount(),
+                catalogResource.getLocation(), previous != null ? previous.getVersion() : "none");
+        for (Consumer<ContentCatalogSnapshot> listener : listeners) {
+            try {
+                listener.accept(snapshot);
+            } catch (RuntimeException e) {
+                log.error("Content catalog listener failed for version {}", snapshot.getVersion(), e);
+            }
+        }
+        return snapshot;
+    }
+
+    /**
+     * Poll the catalog file and reload when it changes; a bad file keeps the previous snapshot
+     */
+    @Scheduled(fixedDelayString = "${mcp.campaign.content.reload-interval-ms:30000}",
+            initialDelayString = "${mcp.campaign.content.reload-interval-ms:30000}")
+    public void reloadIfChanged() {
+        if (!catalogResource.hasChanged()) {
+            return;
+        }
+        try {
+            reload();
+        } catch (Exception e) {
+            log.error("Rejected content catalog update from {}, keeping version {}: {}",
+                    catalogResource.getLocation(), current().getVersion(), e.getMessage());
+        }
+    }
+}
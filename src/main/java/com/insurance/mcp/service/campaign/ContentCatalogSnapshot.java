@@ -0,0 +1,513 @@
+package com.insurance.mcp.service.campaign;
+
+import com.insurance.mcp.model.campaign.ContentCatalog;
+import com.insurance.mcp.service.campaign.template.MessageTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiFunction;
+
+/**
+ * Immutable content catalog compiled from a {@link ContentCatalog}. Every (insurance type,
+ * channel) cell is resolved at compile time into its final variants, with templates compiled
+ * and strings interned, so a lookup is two index probes and an array read.
+ */
+public final class ContentCatalogSnapshot {
+
+    static final String WILDCARD = "*";
+
+    private final String version;
+    private final Map<String, Integer> productIndex;
+    private final Map<String, Integer> channelIndex;
+    private final Map<String, Integer> goalIndex;
+    private final int channelCount;
+    private final ContentVariant[][] cells;
+    private final List<String> products;
+    private final List<String> channels;
+    private final Map<String, ContentExperiment> experiments;
+    private final Map<String, ContentBandit> bandits;
+
+    private ContentCatalogSnapshot(String version, Map<String, Integer> productIndex, Map<String, Integer> channelIndex,
+                                   Map<String, Integer> goalIndex, ContentVariant[][] cells,
+                                   List<String> products, List<String> channels, Map<String, ContentExperiment> experiments,
+                                   Map<String, ContentBandit> bandits) {
+        this.version = version;
+        this.productIndex = productIndex;
+        this.channelIndex = channelIndex;
+        this.goalIndex = goalIndex;
+        this.channelCount = channelIndex.size();
+        this.cells = cells;
+        this.products = products;
+        this.channels = channels;
+        this.experiments = experiments;
+        this.bandits = bandits;
+    }
+
+    /**
+     * Compile a catalog; throws {@link IllegalArgumentException} if it is incomplete or a template is invalid.
+     * Bandit arms are taken from {@code banditArms} by key and label, so their statistics carry over between versions.
+     */
+    public static ContentCatalogSnapshot compile(ContentCatalog catalog, BiFunction<String, String, BanditArm> banditArms) {
+        if (catalog.getVersion() == null || catalog.getVersion().isBlank()) {
+            throw new IllegalArgumentException("Content catalog must declare a version");
+        }
+        Map<String, ContentCatalog.ProductCopy> products = catalog.getProducts() != null ? catalog.getProducts() : Map.of();
+        if (!products.containsKey(WILDCARD)) {
+            throw new IllegalArgumentException("Content catalog must define a \"*\" product");
+        }
+        List<ContentCatalog.VariantCopy> variants = catalog.getVariants();
+        if (variants == null || variants.isEmpty()) {
+            throw new IllegalArgumentException("Content catalog must define at least one variant");
+        }
+        Map<String, Map<String, ContentCatalog.VariantCopy>> overrides =
+                catalog.getChannelOverrides() != null ? catalog.getChannelOverrides() : Map.of();
+
+        // Index 0 is the wildcard slot for every dimension
+        Map<String, Integer> productIndex = new HashMap<>();
+        productIndex.put(WILDCARD, 0);
+        products.keySet().forEach(type -> productIndex.putIfAbsent(type, productIndex.size()));
+        Map<String, Integer> channelIndex = new HashMap<>();
+        channelIndex.put(WILDCARD, 0);
+        overrides.keySet().forEach(channel -> channelIndex.putIfAbsent(channel, channelIndex.size()));
+        Map<String, Integer> goalIndex = new HashMap<>();
+        goalIndex.put(WILDCARD, 0);
+        for (ContentCatalog.VariantCopy variant : variants) {
+            if (variant.getId() == null || variant.getMessages() == null || !variant.getMessages().containsKey(WILDCARD)) {
+                throw new IllegalArgumentException("Content variant " + variant.getId() + " needs an id and a \"*\" message");
+            }
+            variant.getMessages().keySet().forEach(goal -> goalIndex.putIfAbsent(goal, goalIndex.size()));
+        }
+
+        Map<String, ContentExperiment> experiments = new LinkedHashMap<>();
+        Map<String, ContentCatalog.ExperimentCopy> experimentByVariant = new HashMap<>();
+        compileExperiments(catalog, variants, experiments, experimentByVariant);
+        Map<String, ContentBandit.Policy> banditByVariant = compileBandits(catalog, variants, experimentByVariant);
+        Map<String, ContentBandit> bandits = new HashMap<>();
+
+        ContentVariant[][] cells = new ContentVariant[productIndex.size() * channelIndex.size()][];
+        Map<String, MessageTemplate> templates = new HashMap<>();
+        for (Map.Entry<String, Integer> product : productIndex.entrySet()) {
+            ContentCatalog.ProductCopy copy = products.get(product.getKey());
+            for (Map.Entry<String, Integer> channel : channelIndex.entrySet()) {
+                Map<String, ContentCatalog.VariantCopy> channelOverrides = overrides.getOrDefault(channel.getKey(), Map.of());
+                ContentVariant[] cell = new ContentVariant[variants.size()];
+                for (int i = 0; i < cell.length; i++) {
+                    ContentCatalog.VariantCopy variant = merge(variants.get(i), channelOverrides.get(variants.get(i).getId()));
+                    cell[i] = resolve(variant, copy, goalIndex, templates);
+                    ContentCatalog.ExperimentCopy experiment = experimentByVariant.get(variant.getId());
+                    if (experiment != null) {
+                        ContentVariant[] arms = new ContentVariant[experiment.getArms().size()];
+                        for (int arm = 0; arm < arms.length; arm++) {
+                            arms[arm] = resolve(merge(variant, experiment.getArms().get(arm).getOverrides()),
+                                    copy, goalIndex, templates);
+                        }
+                        cell[i] = cell[i].withArms(experiments.get(experiment.getId()), null, arms);
+                    }
+                    ContentBandit.Policy policy = banditByVariant.get(variant.getId());
+                    if (policy != null) {
+                        ContentBandit bandit = bandit(variant.getId() + ":" + product.getKey() + ":" + channel.getKey(),
+                                policy, variant, cell[i], copy, banditArms);
+                        ContentVariant[] arms = new ContentVariant[bandit.armCount()];
+                        int benefitCount = bandit.getBenefits().length;
+                        for (int arm = 0; arm < arms.length; arm++) {
+                            ContentCatalog.VariantCopy choice = ContentCatalog.VariantCopy.builder()
+                                    .titleIndex(bandit.getTitles().length > 1 ? arm / benefitCount : null)
+                                    .benefitIndex(benefitCount > 1 ? arm % benefitCount : null)
+                                    .build();
+                            arms[arm] = resolve(merge(variant, choice), copy, goalIndex, templates);
+                        }
+                        cell[i] = cell[i].withArms(null, bandit, arms);
+                        bandits.put(bandit.getKey(), bandit);
+                    }
+                }
+                cells[product.getValue() * channelIndex.size() + channel.getValue()] = cell;
+            }
+        }
+        Set<String> channels = new LinkedHashSet<>(catalog.getChannels() != null ? catalog.getChannels() : List.of());
+        channels.addAll(overrides.keySet());
+        channels.remove(WILDCARD);
+        List<String> productNames = products.keySet().stream().filter(type -> !WILDCARD.equals(type)).sorted().toList();
+        return new ContentCatalogSnapshot(catalog.getVersion(), Map.copyOf(productIndex), Map.copyOf(channelIndex),
+                Map.copyOf(goalIndex), cells, productNames, List.copyOf(channels), Collections.unmodifiableMap(experiments),
+                Map.copyOf(bandits));
+    }
+
+    public String getVersion() {
+        return version;
+    }
+
+    /**
+     * Variants for an insurance type and channel, falling back to the "*" product and channel
+     */
+    public ContentVariant[] variants(String insuranceType, String channel) {
+        int product = insuranceType != null ? productIndex.getOrDefault(insuranceType, 0) : 0;
+        int column = channel != null ? channelIndex.getOrDefault(channel, 0) : 0;
+        return cells[product * channelCount + column];
+    }
+
+    /**
+     * Index of a campaign goal for {@link ContentVariant#message(int)}; unknown goals use the "*" message
+     */
+    public int goal(String campaignGoal) {
+        return campaignGoal != null ? goalIndex.getOrDefault(campaignGoal, 0) : 0;
+    }
+
+    public int getProductCount() {
+        return productIndex.size();
+    }
+
+    /**
+     * Goal names ordered by goal index; index 0 is "*"
+     */
+    public List<String> getGoals() {
+        String[] goals = new String[goalIndex.size()];
+        goalIndex.forEach((goal, index) -> goals[index] = goal);
+        return List.of(goals);
+    }
+
+    /**
+     * Insurance types with their own copy, without the "*" fallback
+     */
+    public List<String> getProducts() {
+        return products;
+    }
+
+    /**
+     * Declared and overridden channels, without "*"
+     */
+    public List<String> getChannels() {
+        return channels;
+    }
+
+    public int getChannelCount() {
+        return channelCount;
+    }
+
+    /**
+     * Enabled experiment by id, or null
+     */
+    public ContentExperiment experiment(String id) {
+        return experiments.get(id);
+    }
+
+    public Collection<ContentExperiment> getExperiments() {
+        return experiments.values();
+    }
+
+    /**
+     * Bandit by key, as it appears in {@link ContentBandit#token} ("variant:product:channel"), or null
+     */
+    public ContentBandit bandit(String key) {
+        return bandits.get(key);
+    }
+
+    public Collection<ContentBandit> getBandits() {
+        return bandits.values();
+    }
+
+    private static Map<String, ContentBandit.Policy> compileBandits(ContentCatalog catalog, List<ContentCatalog.VariantCopy> variants,
+                                                                    Map<String, ContentCatalog.ExperimentCopy> experimentByVariant) {
+        Map<String, ContentBandit.Policy> banditByVariant = new HashMap<>();
+        if (catalog.getBandits() == null) {
+            return banditByVariant;
+        }
+        for (ContentCatalog.BanditCopy bandit : catalog.getBandits()) {
+            if (Boolean.FALSE.equals(bandit.getEnabled())) {
+                continue;
+            }
+            String variant = bandit.getVariant();
+            if (variants.stream().noneMatch(copy -> copy.getId().equals(variant))) {
+                throw new IllegalArgumentException("Bandit targets unknown variant " + variant);
+            }
+            if (experimentByVariant.containsKey(variant)) {
+                throw new IllegalArgumentException("Variant " + variant + " cannot run an experiment and a bandit");
+            }
+            ContentBandit.Policy policy;
+            try {
+                policy = ContentBandit.Policy.of(bandit.getPolicy());
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Bandit on " + variant + " has unknown policy " + bandit.getPolicy());
+            }
+            if (banditByVariant.putIfAbsent(variant, policy) != null) {
+                throw new IllegalArgumentException("Variant " + variant + " has more than one enabled bandit");
+            }
+        }
+        return banditByVariant;
+    }
+
+    /**
+     * Bandit over the product's titles and benefits, for whichever of the two the variant picks by index
+     */
+    private static ContentBandit bandit(String key, ContentBandit.Policy policy, ContentCatalog.VariantCopy variant,
+                                        ContentVariant base, ContentCatalog.ProductCopy product,
+                                        BiFunction<String, String, BanditArm> banditArms) {
+        List<String> titles = variant.getTitleIndex() != null && product.getTitles() != null && !product.getTitles().isEmpty()
+                ? product.getTitles() : List.of(base.getTitle());
+        List<String> benefits = variant.getBenefitIndex() != null && product.getBenefits() != null && !product.getBenefits().isEmpty()
+                ? product.getBenefits() : Collections.singletonList(base.getBenefit());
+        BanditArm[] titleArms = new BanditArm[titles.size()];
+        for (int i = 0; i < titleArms.length; i++) {
+            titleArms[i] = banditArms.apply(key + "/title/" + titles.get(i), titles.get(i));
+        }
+        BanditArm[] benefitArms = new BanditArm[benefits.size()];
+        for (int i = 0; i < benefitArms.length; i++) {
+            benefitArms[i] = banditArms.apply(key + "/benefit/" + benefits.get(i), benefits.get(i));
+        }
+        return new ContentBandit(intern(key), policy, titleArms, benefitArms);
+    }
+
+    private static void compileExperiments(ContentCatalog catalog, List<ContentCatalog.VariantCopy> variants,
+                                           Map<String, ContentExperiment> experiments,
+                                           Map<String, ContentCatalog.ExperimentCopy> experimentByVariant) {
+        if (catalog.getExperiments() == null) {
+            return;
+        }
+        Set<String> variantIds = new HashSet<>();
+        variants.forEach(variant -> variantIds.add(variant.getId()));
+        for (ContentCatalog.ExperimentCopy experiment : catalog.getExperiments()) {
+            String id = experiment.getId();
+            if (id == null || id.isBlank() || experiments.containsKey(id)) {
+                throw new IllegalArgumentException("Content experiments need unique ids: " + id);
+            }
+            if (Boolean.FALSE.equals(experiment.getEnabled())) {
+                continue;
+            }
+            if (!variantIds.contains(experiment.getVariant())) {
+                throw new IllegalArgumentException("Experiment " + id + " targets unknown variant " + experiment.getVariant());
+            }
+            if (experimentByVariant.putIfAbsent(experiment.getVariant(), experiment) != null) {
+                throw new IllegalArgumentException("Variant " + experiment.getVariant() + " has more than one enabled experiment");
+            }
+            List<ContentCatalog.ArmCopy> arms = experiment.getArms() != null ? experiment.getArms() : List.of();
+            if (arms.size() < 2) {
+                throw new IllegalArgumentException("Experiment " + id + " needs at least two arms");
+            }
+            List<String> names = new ArrayList<>();
+            List<Integer> weights = new ArrayList<>();
+            for (ContentCatalog.ArmCopy arm : arms) {
+                int weight = arm.getWeight() != null ? arm.getWeight() : 1;
+                if (arm.getName() == null || names.contains(arm.getName()) || weight < 0) {
+                    throw new IllegalArgumentException("Experiment " + id + " arms need unique names and non-negative weights");
+                }
+                names.add(intern(arm.getName()));
+                weights.add(weight);
+            }
+            if (weights.stream().mapToInt(Integer::intValue).sum() <= 0) {
+                throw new IllegalArgumentException("Experiment " + id + " has no weight on any arm");
+            }
+            experiments.put(id, new ContentExperiment(intern(id), experiment.getVariant(), experiment.getSalt(), names, weights));
+        }
+    }
+
+    private static ContentVariant resolve(ContentCatalog.VariantCopy variant, ContentCatalog.ProductCopy product,
+                                          Map<String, Integer> goalIndex, Map<String, MessageTemplate> templates) {
+        String title = variant.getTitleIndex() != null ? pick(product.getTitles(), variant.getTitleIndex()) : variant.getTitle();
+        if (title == null) {
+            throw new IllegalArgumentException("Content variant " + variant.getId() + " needs a title or title_index");
+        }
+        String benefit = variant.getBenefitIndex() != null ? pick(product.getBenefits(), variant.getBenefitIndex()) : null;
+
+        MessageTemplate[] messages = new MessageTemplate[goalIndex.size()];
+        MessageTemplate fallback = template(variant.getMessages().get(WILDCARD), templates);
+        for (Map.Entry<String, Integer> goal : goalIndex.entrySet()) {
+            String pattern = variant.getMessages().get(goal.getKey());
+            messages[goal.getValue()] = pattern != null ? template(pattern, templates) : fallback;
+        }
+        return new ContentVariant(intern(variant.getId()), intern(title),
+                intern(variant.getSubject() != null ? variant.getSubject() : title), intern(benefit),
+                variant.getDescription() != null ? template(variant.getDescription(), templates) : null, messages,
+                intern(variant.getCallToAction()), intern(variant.getCtaButtonText()), intern(variant.getCtaUrl()),
+                intern(variant.getDisclaimer()), variant.getRequiresOptIn(), variant.getPriority(),
+                intern(variant.getFrequency()));
+    }
+
+    private static ContentCatalog.VariantCopy merge(ContentCatalog.VariantCopy base, ContentCatalog.VariantCopy override) {
+        if (override == null) {
+            return base;
+        }
+        Map<String, String> messages = new HashMap<>(base.getMessages());
+        if (override.getMessages() != null) {
+            messages.putAll(override.getMessages());
+        }
+        return ContentCatalog.VariantCopy.builder()
+                .id(base.getId())
+                .titleIndex(override.getTitleIndex() != null || override.getTitle() != null
+                        ? override.getTitleIndex() : base.getTitleIndex())
+                .title(override.getTitle() != null ? override.getTitle() : base.getTitle())
+                .subject(override.getSubject() != null ? override.getSubject() : base.getSubject())
+                .benefitIndex(override.getBenefitIndex() != null ? override.getBenefitIndex() : base.getBenefitIndex())
+                .description(override.getDescription() != null ? override.getDescription() : base.getDescription())
+                .messages(messages)
+                .callToAction(override.getCallToAction() != null ? override.getCallToAction() : base.getCallToAction())
+                .ctaButtonText(override.getCtaButtonText() != null ? override.getCtaButtonText() : base.getCtaButtonText())
+                .ctaUrl(override.getCtaUrl() != null ? override.getCtaUrl() : base.getCtaUrl())
+                .disclaimer(override.getDisclaimer() != null ? override.getDisclaimer() : base.getDisclaimer())
+                .requiresOptIn(override.getRequiresOptIn() != null ? override.getRequiresOptIn() : base.getRequiresOptIn())
+                .priority(override.getPriority() != null ? override.getPriority() : base.getPriority())
+                .frequency(override.getFrequency() != null ? override.getFrequency() : base.getFrequency())
+                .build();
+    }
+
+    private static String pick(List<String> values, int index) {
+        if (values == null || values.isEmpty()) {
+            return null;
+        }
+        return values.get(Math.max(0, Math.min(index, values.size() - 1)));
+    }
+
+    private static MessageTemplate template(String pattern, Map<String, MessageTemplate> templates) {
+        return templates.computeIfAbsent(pattern, MessageTemplate::compile);
+    }
+
+    private static String intern(String value) {
+        return value != null ? value.intern() : null;
+    }
+
+    /**
+     * One fully resolved content variant of a catalog cell
+     */
+    public static final class ContentVariant {
+
+        private final String id;
+        private final String title;
+        private final String subject;
+        private final String benefit;
+        private final MessageTemplate description;
+        private final MessageTemplate[] messages;
+        private final String callToAction;
+        private final String ctaButtonText;
+        private final String ctaUrl;
+        private final String disclaimer;
+        private final Boolean requiresOptIn;
+        private final Integer priority;
+        private final String frequency;
+        private final ContentExperiment experiment;
+        private final ContentBandit bandit;
+        private final ContentVariant[] arms;
+
+        ContentVariant(String id, String title, String subject, String benefit, MessageTemplate description,
+                       MessageTemplate[] messages, String callToAction, String ctaButtonText, String ctaUrl,
+                       String disclaimer, Boolean requiresOptIn, Integer priority, String frequency) {
+            this(id, title, subject, benefit, description, messages, callToAction, ctaButtonText, ctaUrl, disclaimer,
+                    requiresOptIn, priority, frequency, null, null, null);
+        }
+
+        private ContentVariant(String id, String title, String subject, String benefit, MessageTemplate description,
+                               MessageTemplate[] messages, String callToAction, String ctaButtonText, String ctaUrl,
+                               String disclaimer, Boolean requiresOptIn, Integer priority, String frequency,
+                               ContentExperiment experiment, ContentBandit bandit, ContentVariant[] arms) {
+            this.id = id;
+            this.title = title;
+            this.subject = subject;
+            this.benefit = benefit;
+            this.description = description;
+            this.messages = messages;
+            this.callToAction = callToAction;
+            this.ctaButtonText = ctaButtonText;
+            this.ctaUrl = ctaUrl;
+            this.disclaimer = disclaimer;
+            this.requiresOptIn = requiresOptIn;
+            this.priority = priority;
+            this.frequency = frequency;
+            this.experiment = experiment;
+            this.bandit = bandit;
+            this.arms = arms;
+        }
+
+        ContentVariant withArms(ContentExperiment experiment, ContentBandit bandit, ContentVariant[] arms) {
+            return new ContentVariant(id, title, subject, benefit, description, messages, callToAction, ctaButtonText,
+                    ctaUrl, disclaimer, requiresOptIn, priority, frequency, experiment, bandit, arms);
+        }
+
+        /**
+         * Experiment running on this variant, or null
+         */
+        public ContentExperiment getExperiment() {
+            return experiment;
+        }
+
+        /**
+         * Bandit choosing this variant's title and benefit, or null
+         */
+        public ContentBandit getBandit() {
+            return bandit;
+        }
+
+        /**
+         * Number of experiment or bandit arms, 0 when the variant is always served as is
+         */
+        public int armCount() {
+            return arms != null ? arms.length : 0;
+        }
+
+        /**
+         * This variant as served to an experiment or bandit arm
+         */
+        public ContentVariant arm(int arm) {
+            return arms[arm];
+        }
+
+        /**
+         * Message template for a goal index from {@link ContentCatalogSnapshot#goal(String)}
+         */
+        public MessageTemplate message(int goal) {
+            return messages[goal];
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public String getTitle() {
+            return title;
+        }
+
+        public String getSubject() {
+            return subject;
+        }
+
+        public String getBenefit() {
+            return benefit;
+        }
+
+        public MessageTemplate getDescription() {
+            return description;
+        }
+
+        public String getCallToAction() {
+            return callToAction;
+        }
+
+        public String getCtaButtonText() {
+            return ctaButtonText;
+        }
+
+        public String getCtaUrl() {
+            return ctaUrl;
+        }
+
+        public String getDisclaimer() {
+            return disclaimer;
+        }
+
+        public Boolean getRequiresOptIn() {
+            return requiresOptIn;
+        }
+
+        public Integer getPriority() {
+            return priority;
+        }
+
+        public String getFrequency() {
+            return frequency;
+        }
+    }
+}
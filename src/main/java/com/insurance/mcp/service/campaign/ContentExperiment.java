@@ -0,0 +1,84 @@
+package com.insurance.mcp.service.campaign;
+
+import com.insurance.mcp.service.audience.sketch.HyperLogLog;
+
+import java.util.List;
+
+/**
+ * Weighted arms of one content experiment. A recipient's arm is a pure function of the
+ * experiment seed and the recipient id, so assignment needs no shared state, is stable across
+ * requests and restarts, and outcomes can be attributed later by re-deriving it.
+ */
+public final class ContentExperiment {
+
+    private static final long FNV_PRIME = 0x100000001B3L;
+
+    private final String id;
+    private final String variantId;
+    private final long seed;
+    private final String[] armNames;
+    private final int[] weights;
+    private final int[] cumulativeWeights;
+    private final int totalWeight;
+
+    ContentExperiment(String id, String variantId, String salt, List<String> armNames, List<Integer> weights) {
+        this.id = id;
+        this.variantId = variantId;
+        this.seed = seed(id, salt);
+        this.armNames = armNames.toArray(new String[0]);
+        this.weights = new int[weights.size()];
+        this.cumulativeWeights = new int[weights.size()];
+        int total = 0;
+        for (int i = 0; i < this.weights.length; i++) {
+            this.weights[i] = weights.get(i);
+            total += this.weights[i];
+            cumulativeWeights[i] = total;
+        }
+        this.totalWeight = total;
+    }
+
+    /**
+     * Arm index for a recipient
+     */
+    public int assign(String recipientId) {
+        long h = seed;
+        for (int i = 0; i < recipientId.length(); i++) {
+            h = (h ^ recipientId.charAt(i)) * FNV_PRIME;
+        }
+        int bucket = (int) Long.remainderUnsigned(HyperLogLog.hash(h), totalWeight);
+        int arm = 0;
+        while (bucket >= cumulativeWeights[arm]) {
+            arm++;
+        }
+        return arm;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getVariantId() {
+        return variantId;
+    }
+
+    public int armCount() {
+        return armNames.length;
+    }
+
+    public String armName(int arm) {
+        return armNames[arm];
+    }
+
+    public int weight(int arm) {
+        return weights[arm];
+    }
+
+    private static long seed(String id, String salt) {
+        String key = salt != null ? id + "/" + salt : id;
+        long h = 0xCBF29CE484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            h = (h ^ key.charAt(i)) * FNV_PRIME;
+        }
+        return HyperLogLog.hash(h);
+    }
+}
@@ -0,0 +1,123 @@
+package com.insurance.mcp.service.campaign;
+
+import com.insurance.mcp.model.campaign.CampaignContent;
+import com.insurance.mcp.service.campaign.compliance.ComplianceScanner;
+import com.insurance.mcp.service.support.RawJson;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The audience-independent parts of {@code campaign_content_recommendation} responses for every
+ * (insurance type, channel, goal) of one catalog snapshot, serialized ahead of time. A request
+ * with a precomputed cell only serializes its audience-dependent fields and splices them in.
+ */
+final class ContentRecommendationMatrix {
+
+    private final ContentCatalogSnapshot catalog;
+    private final Map<String, Integer> productIndex = new HashMap<>();
+    private final Map<String, Integer> channelIndex = new HashMap<>();
+    private final int goalCount;
+    private final Cell[] cells;
+
+    private ContentRecommendationMatrix(ContentCatalogSnapshot catalog) {
+        this.catalog = catalog;
+        List<String> products = catalog.getProducts();
+        List<String> channels = catalog.getChannels();
+        for (int i = 0; i < products.size(); i++) {
+            productIndex.put(products.get(i), i);
+        }
+        for (int i = 0; i < channels.size(); i++) {
+            channelIndex.put(channels.get(i), i);
+        }
+        this.goalCount = catalog.getGoals().size();
+        this.cells = new Cell[products.size() * channels.size() * goalCount];
+    }
+
+    /**
+     * Precompute every cell of {@code catalog}; {@code factory} may return null for cells that
+     * cannot be precomputed, which are then served dynamically
+     */
+    static ContentRecommendationMatrix build(ContentCatalogSnapshot catalog, CellFactory factory) {
+        ContentRecommendationMatrix matrix = new ContentRecommendationMatrix(catalog);
+        List<String> goals = catalog.getGoals();
+        for (Map.Entry<String, Integer> product : matrix.productIndex.entrySet()) {
+            for (Map.Entry<String, Integer> channel : matrix.channelIndex.entrySet()) {
+                for (int goal = 0; goal < goals.size(); goal++) {
+                    matrix.cells[matrix.offset(product.getValue(), channel.getValue(), goal)] =
+                            factory.build(product.getKey(), channel.getKey(), goal, goals.get(goal));
+                }
+            }
+        }
+        return matrix;
+    }
+
+    ContentCatalogSnapshot getCatalog() {
+        return catalog;
+    }
+
+    /**
+     * Precomputed cell, or null when the type, channel or goal has none
+     */
+    Cell cell(String insuranceType, String channel, int goal) {
+        Integer product = insuranceType != null ? productIndex.get(insuranceType) : null;
+        Integer column = channel != null ? channelIndex.get(channel) : null;
+        if (product == null || column == null) {
+            return null;
+        }
+        return cells[offset(product, column, goal)];
+    }
+
+    int precomputedCells() {
+        int count = 0;
+        for (Cell cell : cells) {
+            if (cell != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private int offset(int product, int channel, int goal) {
+        return (product * channelIndex.size() + channel) * goalCount + goal;
+    }
+
+    /**
+     * Pre-serialized response parts. Each content prefix is a {@code CampaignContent} object
+     * without its audience fields and without the closing brace. {@code contentPrefixes[i][0]}
+     * is {@code variants[i]} as served without an arm, {@code [i][1 + arm]} as served to one of
+     * its experiment or bandit arms; {@code contents} holds the same items unserialized.
+     */
+    static final class Cell {
+        final String[][] contentPrefixes;
+        final CampaignContent[][] contents;
+        /** Serialized {@code complianceViolations} field of each content prefix, by jurisdiction scanner */
+        final Map<ComplianceScanner, String[][]> complianceFields = new ConcurrentHashMap<>();
+        final ContentCatalogSnapshot.ContentVariant[] variants;
+        final RawJson contentStrategy;
+        final RawJson personalizationTips;
+        final RawJson optimizationSuggestions;
+        final RawJson complianceNotes;
+        final RawJson performanceExpectations;
+
+        Cell(String[][] contentPrefixes, CampaignContent[][] contents, ContentCatalogSnapshot.ContentVariant[] variants,
+             RawJson contentStrategy, RawJson personalizationTips, RawJson optimizationSuggestions, RawJson complianceNotes,
+             RawJson performanceExpectations) {
+            this.contentPrefixes = contentPrefixes;
+            this.contents = contents;
+            this.variants = variants;
+            this.contentStrategy = contentStrategy;
+            this.personalizationTips = personalizationTips;
+            this.optimizationSuggestions = optimizationSuggestions;
+            this.complianceNotes = complianceNotes;
+            this.performanceExpectations = performanceExpectations;
+        }
+    }
+
+    @FunctionalInterface
+    interface CellFactory {
+        Cell build(String insuranceType, String channel, int goal, String goalName);
+    }
+}
@@ -0,0 +1,315 @@
+package com.insurance.mcp.service.campaign;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.insurance.mcp.model.campaign.EngagementEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Ingests campaign engagement events into rolling per-minute windows per (content id, channel,
+ * segment) and per channel, and derives performance expectations from the recent window.
+ * Memory is bounded: the number of keys is capped and every window is a fixed ring of minute
+ * slots. Slots are cleared one minute ahead of use by a ticker, or by the first writer of a
+ * minute when the ticker is late.
+ */
+@Slf4j
+@Service
+public class EngagementService {
+
+    private static final String ANY = "*";
+    private static final long MINUTE_MILLIS = 60_000;
+
+    @Autowired
+    private BanditService banditService;
+
+    @Autowired
+    private ExperimentService experimentService;
+
+    @Value("${mcp.campaign.engagement.window-minutes:60}")
+    private int windowMinutes;
+
+    @Value("${mcp.campaign.engagement.max-keys:4096}")
+    private int maxKeys;
+
+    @Value("${mcp.campaign.engagement.stripes:0}")
+    private int stripes;
+
+    @Value("${mcp.campaign.engagement.min-sample:1000}")
+    private long minSample;
+
+    private final ObjectMapper mapper = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    private final ObjectReader eventReader = mapper.readerFor(EngagementEvent.class);
+
+    private final ConcurrentMap<String, EngagementWindow> windows = new ConcurrentHashMap<>();
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder expired = new LongAdder();
+    private final LongAdder untracked = new LongAdder();
+    private final LongAdder rewards = new LongAdder();
+    private final LongAdder unattributed = new LongAdder();
+
+    /** Minute each ring slot currently holds; a slot is only read for that minute */
+    private AtomicLongArray slotMinutes;
+    private int slots;
+    private long clearedThrough;
+
+    @PostConstruct
+    public void initialize() {
+        if (stripes <= 0) {
+            stripes = Math.min(8, Runtime.getRuntime().availableProcessors());
+        }
+        stripes = Integer.highestOneBit(stripes);
+        // The window, the minute being cleared ahead, and one spare for writers crossing a minute
+        slots = windowMinutes + 2;
+        slotMinutes = new AtomicLongArray(slots);
+        long now = currentMinute();
+        for (long minute = now + 1 - slots + 1; minute <= now + 1; minute++) {
+            slotMinutes.set(slot(minute), minute);
+        }
+        clearedThrough = now + 1;
+        log.info("Engagement windows: {} minutes, {} stripes, at most {} keys (~{} MB)", windowMinutes, stripes, maxKeys,
+                (maxKeys + 16L) * EngagementWindow.bytes(slots, stripes) / (1024 * 1024));
+    }
+
+    /**
+     * Ingest NDJSON events, one {@link EngagementEvent} per line
+     */
+    public Map<String, Object> ingest(Reader reader) throws IOException {
+        long start = System.nanoTime();
+        long events = 0;
+        try (MappingIterator<EngagementEvent> iterator = eventReader.readValues(reader)) {
+            while (iterator.hasNextValue()) {
+                record(iterator.nextValue());
+                events++;
+            }
+        } catch (RuntimeException | JsonProcessingException e) {
+            throw new IllegalArgumentException("Rejected engagement event after " + events + " events: " + e.getMessage());
+        }
+        double seconds = Math.max(1e-9, (System.nanoTime() - start) / 1e9);
+        Map<String, Object> result = new HashMap<>(totals());
+        result.put("events", events);
+        result.put("events_per_second", Math.round(events / seconds));
+        return result;
+    }
+
+    /**
+     * Ingest events given as maps, e.g. from a stdio notification
+     */
+    public Map<String, Object> ingest(List<Map<String, Object>> events) {
+        for (Map<String, Object> event : events) {
+            record(mapper.convertValue(event, EngagementEvent.class));
+        }
+        Map<String, Object> result = new HashMap<>(totals());
+        result.put("events", events.size());
+        return result;
+    }
+
+    /**
+     * Count one event in its key's window and its channel's window
+     */
+    public void record(EngagementEvent event) {
+        int type = type(event.getEvent());
+        String channel = event.getChannel() != null ? event.getChannel() : ANY;
+        long count = event.getCount() != null ? event.getCount() : 1;
+        if (count <= 0) {
+            throw new IllegalArgumentException("Engagement event count must be positive");
+        }
+
+        long now = currentMinute();
+        long minute = event.getTimestamp() != null ? Math.min(now, Math.floorDiv(event.getTimestamp(), MINUTE_MILLIS)) : now;
+        if (minute <= now - windowMinutes) {
+            expired.increment();
+            return;
+        }
+        int slot = slot(minute);
+        if (slotMinutes.get(slot) != minute) {
+            advance(now);
+        }
+
+        add(key(channel, ANY, ANY), slot, type, count);
+        if (event.getContentId() != null || event.getSegment() != null) {
+            add(key(channel, event.getContentId(), event.getSegment()), slot, type, count);
+        }
+        accepted.increment();
+
+        if (type == EngagementWindow.CLICKED || type == EngagementWindow.CONVERTED) {
+            reward(event, type == EngagementWindow.CLICKED ? ExperimentService.OUTCOME_CLICK : ExperimentService.OUTCOME_CONVERSION);
+        }
+    }
+
+    /**
+     * Expected rates for a channel from its recent window, or null when it has fewer than
+     * {@code min-sample} sends
+     */
+    public Map<String, Object> expectations(String channel) {
+        EngagementWindow window = windows.get(key(channel != null ? channel : ANY, ANY, ANY));
+        if (window == null) {
+            return null;
+        }
+        long[] totals = sum(window, windowMinutes);
+        long sent = totals[EngagementWindow.SENT];
+        if (sent < minSample) {
+            return null;
+        }
+        Map<String, Object> expectations = new HashMap<>();
+        expectations.put("expected_open_rate", percent(totals[EngagementWindow.OPENED], sent));
+        expectations.put("expected_click_rate", percent(totals[EngagementWindow.CLICKED], sent));
+        expectations.put("expected_conversion_rate", percent(totals[EngagementWindow.CONVERTED], sent));
+        expectations.put("optimization_timeline", "2-4 weeks");
+        expectations.put("basis", Map.of("source", "observed", "sent", sent, "window_minutes", windowMinutes));
+        return expectations;
+    }
+
+    /**
+     * Windowed counts of one key; content id and segment may be omitted for channel totals
+     */
+    public Map<String, Object> stats(String contentId, String channel, String segment, Integer minutes) {
+        int span = minutes != null ? Math.max(1, Math.min(minutes, windowMinutes)) : windowMinutes;
+        String key = contentId == null && segment == null
+                ? key(channel != null ? channel : ANY, ANY, ANY)
+                : key(channel != null ? channel : ANY, contentId, segment);
+        EngagementWindow window = windows.get(key);
+        long[] totals = window != null ? sum(window, span) : new long[EngagementWindow.TYPES];
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("content_id", contentId != null ? contentId : ANY);
+        stats.put("channel", channel != null ? channel : ANY);
+        stats.put("segment", segment != null ? segment : ANY);
+        stats.put("window_minutes", span);
+        stats.put("sent", totals[EngagementWindow.SENT]);
+        stats.put("opened", totals[EngagementWindow.OPENED]);
+        stats.put("clicked", totals[EngagementWindow.CLICKED]);
+        stats.put("converted", totals[EngagementWindow.CONVERTED]);
+        stats.put("ingest", totals());
+        return stats;
+    }
+
+    /**
+     * Clear the slot of the coming minute, so no writer has to
+     */
+    @Scheduled(fixedDelay = 1000)
+    public void tick() {
+        advance(currentMinute());
+    }
+
+    private synchronized void advance(long now) {
+        // After a long pause every slot is stale; clear each once
+        for (long minute = Math.max(clearedThrough + 1, now + 2 - slots); minute <= now + 1; minute++) {
+            int slot = slot(minute);
+            for (EngagementWindow window : windows.values()) {
+                window.clear(slot);
+            }
+            slotMinutes.set(slot, minute);
+        }
+        clearedThrough = Math.max(clearedThrough, now + 1);
+    }
+
+    private long[] sum(EngagementWindow window, int span) {
+        long now = currentMinute();
+        long[] totals = new long[EngagementWindow.TYPES];
+        for (long minute = now - span + 1; minute <= now; minute++) {
+            int slot = slot(minute);
+            if (slotMinutes.get(slot) == minute) {
+                window.sumInto(slot, totals);
+            }
+        }
+        return totals;
+    }
+
+    private void add(String key, int slot, int type, long count) {
+        EngagementWindow window = window(key);
+        if (window != null) {
+            window.add(slot, type, count);
+        } else {
+            untracked.increment();
+        }
+    }
+
+    /**
+     * Window of a key, created on first use; null once the key cap is reached
+     */
+    private EngagementWindow window(String key) {
+        EngagementWindow window = windows.get(key);
+        if (window != null || windows.size() >= maxKeys) {
+            return window;
+        }
+        return windows.computeIfAbsent(key, k -> new EngagementWindow(slots, stripes));
+    }
+
+    private void reward(EngagementEvent event, String outcome) {
+        try {
+            if (event.getBanditArm() != null) {
+                banditService.recordReward(event.getBanditArm(), outcome);
+                rewards.increment();
+            }
+            if (event.getExperimentId() != null && event.getRecipientId() != null) {
+                experimentService.recordOutcome(event.getExperimentId(), event.getRecipientId(), outcome);
+                rewards.increment();
+            }
+        } catch (IllegalArgumentException e) {
+            // An arm or experiment retired since the content was served
+            unattributed.increment();
+        }
+    }
+
+    private Map<String, Object> totals() {
+        return Map.of(
+            "accepted", accepted.sum(),
+            "expired", expired.sum(),
+            "untracked_keys", untracked.sum(),
+            "rewards", rewards.sum(),
+            "unattributed_rewards", unattributed.sum(),
+            "keys", windows.size()
+        );
+    }
+
+    private int slot(long minute) {
+        return (int) Math.floorMod(minute, (long) slots);
+    }
+
+    private static long currentMinute() {
+        return System.currentTimeMillis() / MINUTE_MILLIS;
+    }
+
+    private static String key(String channel, String contentId, String segment) {
+        return (contentId != null ? contentId : ANY) + '|' + channel + '|' + (segment != null ? segment : ANY);
+    }
+
+    private static int type(String event) {
+        if (event == null) {
+            throw new IllegalArgumentException("Engagement event needs an event type");
+        }
+        switch (event) {
+            case "sent":
+                return EngagementWindow.SENT;
+            case "opened":
+                return EngagementWindow.OPENED;
+            case "clicked":
+                return EngagementWindow.CLICKED;
+            case "converted":
+                return EngagementWindow.CONVERTED;
+            default:
+                throw new IllegalArgumentException("Unknown engagement event '" + event
+                        + "', expected sent, opened, clicked or converted");
+        }
+    }
+
+    private static String percent(long count, long sent) {
+        return Math.round(1000.0 * count / sent) / 10.0 + "%";
+    }
+}
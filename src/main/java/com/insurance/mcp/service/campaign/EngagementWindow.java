@@ -0,0 +1,61 @@
+package com.insurance.mcp.service.campaign;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Rolling per-minute engagement counts of one key. Counts live in a ring of minute slots, each
+ * slot holding one counter per event type per stripe; writers add to their thread's stripe so
+ * concurrent writers of a hot key rarely share a cache line. Which minute a slot holds is
+ * tracked by {@link EngagementService}, which clears a slot before it is reused.
+ */
+final class EngagementWindow {
+
+    static final int SENT = 0;
+    static final int OPENED = 1;
+    static final int CLICKED = 2;
+    static final int CONVERTED = 3;
+    static final int TYPES = 4;
+
+    private final int slots;
+    private final int stripeMask;
+    private final AtomicLongArray counts;
+
+    EngagementWindow(int slots, int stripes) {
+        this.slots = slots;
+        this.stripeMask = stripes - 1;
+        this.counts = new AtomicLongArray(stripes * slots * TYPES);
+    }
+
+    void add(int slot, int type, long count) {
+        int stripe = (int) Thread.currentThread().getId() & stripeMask;
+        counts.getAndAdd((stripe * slots + slot) * TYPES + type, count);
+    }
+
+    /**
+     * Add the counts of {@code slot} to {@code totals}, indexed by event type
+     */
+    void sumInto(int slot, long[] totals) {
+        for (int stripe = 0; stripe <= stripeMask; stripe++) {
+            int offset = (stripe * slots + slot) * TYPES;
+            for (int type = 0; type < TYPES; type++) {
+                totals[type] += counts.get(offset + type);
+            }
+        }
+    }
+
+    void clear(int slot) {
+        for (int stripe = 0; stripe <= stripeMask; stripe++) {
+            int offset = (stripe * slots + slot) * TYPES;
+            for (int type = 0; type < TYPES; type++) {
+                counts.set(offset + type, 0);
+            }
+        }
+    }
+
+    /**
+     * Heap bytes of the counters, for sizing
+     */
+    static long bytes(int slots, int stripes) {
+        return 16L + (long) stripes * slots * TYPES * Long.BYTES;
+    }
+}
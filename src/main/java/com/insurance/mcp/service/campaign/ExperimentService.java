@@ -0,0 +1,141 @@
+package com.insurance.mcp.service.campaign;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Exposure and outcome counters of content experiments. Counters are striped {@link LongAdder}s
+ * keyed by experiment and arm, so concurrent recommendations never contend on one cache line,
+ * and they outlive catalog reloads: an experiment removed from the catalog keeps its totals.
+ */
+@Slf4j
+@Service
+public class ExperimentService {
+
+    public static final String OUTCOME_CLICK = "click";
+    public static final String OUTCOME_CONVERSION = "conversion";
+
+    @Autowired
+    private ContentCatalogService contentCatalogService;
+
+    private final ConcurrentMap<String, ConcurrentMap<String, ArmCounters>> counters = new ConcurrentHashMap<>();
+
+    /**
+     * Count one recipient served {@code arm} of {@code experiment}
+     */
+    public void recordExposure(ContentExperiment experiment, int arm) {
+        counters(experiment.getId(), experiment.armName(arm)).exposures.increment();
+    }
+
+    /**
+     * Attribute a click or conversion to the arm the recipient was assigned in the current catalog
+     */
+    public Map<String, Object> recordOutcome(String experimentId, String recipientId, String outcome) {
+        ContentExperiment experiment = contentCatalogService.current().experiment(experimentId);
+        if (experiment == null) {
+            throw new IllegalArgumentException("Unknown or disabled experiment: " + experimentId);
+        }
+        if (recipientId == null || recipientId.isBlank()) {
+            throw new IllegalArgumentException("recipient_id is required");
+        }
+        String arm = experiment.armName(experiment.assign(recipientId));
+        ArmCounters armCounters = counters(experimentId, arm);
+        if (OUTCOME_CLICK.equals(outcome)) {
+            armCounters.clicks.increment();
+        } else if (OUTCOME_CONVERSION.equals(outcome)) {
+            armCounters.conversions.increment();
+        } else {
+            throw new IllegalArgumentException("Unknown outcome '" + outcome + "', expected click or conversion");
+        }
+        return Map.of("experiment_id", experimentId, "arm", arm, "outcome", outcome);
+    }
+
+    /**
+     * Per-arm counts and rates of every experiment in the catalog or with recorded counts
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> experiments = new TreeMap<>();
+        Set<String> ids = new TreeSet<>(counters.keySet());
+        contentCatalogService.current().getExperiments().forEach(experiment -> ids.add(experiment.getId()));
+        for (String id : ids) {
+            experiments.put(id, stats(id));
+        }
+        return Map.of("catalog_version", contentCatalogService.current().getVersion(), "experiments", experiments);
+    }
+
+    /**
+     * Per-arm counts and rates of one experiment, or null when it has neither a definition nor counts
+     */
+    public Map<String, Object> stats(String experimentId) {
+        ContentExperiment experiment = contentCatalogService.current().experiment(experimentId);
+        Map<String, ArmCounters> recorded = counters.containsKey(experimentId) ? counters.get(experimentId) : Map.of();
+        if (experiment == null && recorded.isEmpty()) {
+            return null;
+        }
+
+        List<Map<String, Object>> arms = new ArrayList<>();
+        Set<String> reported = new HashSet<>();
+        if (experiment != null) {
+            int totalWeight = 0;
+            for (int arm = 0; arm < experiment.armCount(); arm++) {
+                totalWeight += experiment.weight(arm);
+            }
+            for (int arm = 0; arm < experiment.armCount(); arm++) {
+                Map<String, Object> armStats = armStats(experiment.armName(arm), recorded.get(experiment.armName(arm)));
+                armStats.put("weight", experiment.weight(arm));
+                armStats.put("traffic_share", (double) experiment.weight(arm) / totalWeight);
+                arms.add(armStats);
+                reported.add(experiment.armName(arm));
+            }
+        }
+        // Arms dropped from the definition keep their history
+        recorded.forEach((arm, armCounters) -> {
+            if (!reported.contains(arm)) {
+                arms.add(armStats(arm, armCounters));
+            }
+        });
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("active", experiment != null);
+        if (experiment != null) {
+            stats.put("variant", experiment.getVariantId());
+        }
+        stats.put("arms", arms);
+        return stats;
+    }
+
+    private Map<String, Object> armStats(String arm, ArmCounters armCounters) {
+        long exposures = armCounters != null ? armCounters.exposures.sum() : 0;
+        long clicks = armCounters != null ? armCounters.clicks.sum() : 0;
+        long conversions = armCounters != null ? armCounters.conversions.sum() : 0;
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("arm", arm);
+        stats.put("exposures", exposures);
+        stats.put("clicks", clicks);
+        stats.put("conversions", conversions);
+        stats.put("click_rate", exposures == 0 ? 0.0 : (double) clicks / exposures);
+        stats.put("conversion_rate", exposures == 0 ? 0.0 : (double) conversions / exposures);
+        return stats;
+    }
+
+    private ArmCounters counters(String experimentId, String arm) {
+        ConcurrentMap<String, ArmCounters> arms = counters.get(experimentId);
+        if (arms == null) {
+            arms = counters.computeIfAbsent(experimentId, id -> new ConcurrentHashMap<>());
+        }
+        ArmCounters armCounters = arms.get(arm);
+        return armCounters != null ? armCounters : arms.computeIfAbsent(arm, name -> new ArmCounters());
+    }
+
+    private static final class ArmCounters {
+        final LongAdder exposures = new LongAdder();
+        final LongAdder clicks = new LongAdder();
+        final LongAdder conversions = new LongAdder();
+    }
+}
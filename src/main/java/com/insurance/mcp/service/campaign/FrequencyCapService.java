@@ -0,0 +1,303 @@
+package com.insurance.mcp.service.campaign;
+
+import com.insurance.mcp.service.audience.sketch.HyperLogLog;
+import com.insurance.mcp.service.campaign.frequency.FrequencyCapTable;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Per-recipient contact limits per channel, e.g. at most 3 emails in 7 days. Counters live in an
+ * off-heap {@link FrequencyCapTable}; a contact is counted and checked against the limit in one
+ * atomic step, so concurrent renders and sends cannot exceed it together. The table is written
+ * to disk periodically and on shutdown, and reloaded at startup.
+ */
+@Slf4j
+@Service
+public class FrequencyCapService {
+
+    private static final long MINUTE_MILLIS = 60_000;
+    /** 2: keys hold a hash of the recipient rather than its low 59 bits */
+    private static final int SNAPSHOT_VERSION = 2;
+
+    @Value("${mcp.campaign.frequency.enabled:true}")
+    private boolean enabled;
+
+    @Value("${mcp.campaign.frequency.limits:email=3/7d,sms=2/7d,push=5/7d,social_media=7/7d,direct_mail=1/30d}")
+    private String limitsSpec;
+
+    @Value("${mcp.campaign.frequency.capacity:4194304}")
+    private long capacity;
+
+    @Value("${mcp.campaign.frequency.snapshot-path:}")
+    private String snapshotPath;
+
+    private final List<String> channels = new ArrayList<>();
+    private int[] limits;
+    private long[] windowMinutes;
+    private FrequencyCapTable table;
+
+    @PostConstruct
+    public void initialize() {
+        parseLimits(limitsSpec);
+        if (!enabled) {
+            log.info("Frequency capping disabled");
+            return;
+        }
+        table = new FrequencyCapTable(capacity, windowMinutes);
+        load();
+        log.info("Frequency caps {} over {} slots ({} MB off-heap), {} entries loaded", limitsSpec,
+                table.capacity(), table.offHeapBytes() / (1024 * 1024), table.size());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        snapshot();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Index of a capped channel, or -1 when the channel has no limit
+     */
+    public int channel(String channel) {
+        return enabled && channel != null ? channels.indexOf(channel) : -1;
+    }
+
+    /**
+     * Count a contact of a recipient on a capped channel unless the limit is reached
+     *
+     * @return whether the contact may go out
+     */
+    public boolean tryContact(long recipientKey, int channel) {
+        return FrequencyCapTable.allowed(contact(recipientKey, channel));
+    }
+
+    /**
+     * Like {@link #tryContact}, returning the packed table entry, which {@link FrequencyCapTable#allowed}
+     * decodes and {@link #release} needs
+     */
+    public long contact(long recipientKey, int channel) {
+        long nowMinute = System.currentTimeMillis() / MINUTE_MILLIS;
+        return table.checkAndIncrement(recipientKey, channel, limits[channel], nowMinute);
+    }
+
+    /**
+     * Take back an allowed contact whose message was never sent; {@code entry} is what
+     * {@link #contact} returned for it
+     */
+    public void release(long recipientKey, int channel, long entry) {
+        table.release(recipientKey, channel, entry);
+    }
+
+    /**
+     * Whether a contact of a recipient at {@code epochMinute} stays within the limit, counting
+     * nothing: contacts whose window has ended by then no longer count. {@code alreadyCounted}
+     * is for a contact that was counted when it was rendered, so it is one of those in the window.
+     */
+    public boolean allowedAt(long recipientKey, int channel, long epochMinute, boolean alreadyCounted) {
+        long entry = activeEntry(recipientKey, channel, epochMinute);
+        return FrequencyCapTable.count(entry) < limits[channel] + (alreadyCounted ? 1 : 0);
+    }
+
+    /**
+     * The {@code check_frequency_cap} tool: check a recipient's contact limit on a channel and,
+     * unless {@code increment} is false, count the contact when it is allowed
+     */
+    public Map<String, Object> check(Map<String, Object> arguments) {
+        Object recipient = arguments.get("recipient_id");
+        String channel = (String) arguments.get("channel");
+        if (recipient == null || String.valueOf(recipient).isBlank() || channel == null) {
+            throw new IllegalArgumentException("recipient_id and channel are required");
+        }
+        String recipientId = String.valueOf(recipient);
+        boolean increment = !"false".equals(String.valueOf(arguments.get("increment")));
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("recipient_id", recipientId);
+        result.put("channel", channel);
+        int index = channel(channel);
+        if (index < 0) {
+            result.put("allowed", true);
+            result.put("capped", false);
+            return result;
+        }
+
+        long nowMinute = System.currentTimeMillis() / MINUTE_MILLIS;
+        long entry;
+        boolean allowed;
+        if (increment) {
+            entry = table.checkAndIncrement(recipientKey(recipientId), index, limits[index], nowMinute);
+            allowed = FrequencyCapTable.allowed(entry);
+        } else {
+            entry = activeEntry(recipientKey(recipientId), index, nowMinute);
+            allowed = FrequencyCapTable.count(entry) < limits[index];
+        }
+        int count = FrequencyCapTable.count(entry);
+        result.put("allowed", allowed);
+        result.put("capped", true);
+        result.put("contacts_in_window", count);
+        result.put("limit", limits[index]);
+        result.put("window_minutes", windowMinutes[index]);
+        if (count > 0) {
+            long resetsAt = (FrequencyCapTable.windowStart(entry) + windowMinutes[index]) * MINUTE_MILLIS;
+            result.put("window_resets_at", Instant.ofEpochMilli(resetsAt).toString());
+        }
+        return result;
+    }
+
+    /**
+     * The table entry of a recipient on a channel as of {@code epochMinute}: 0 once its window has ended
+     */
+    private long activeEntry(long recipientKey, int channel, long epochMinute) {
+        long entry = table.peek(recipientKey, channel);
+        if (entry != 0 && epochMinute >= FrequencyCapTable.windowStart(entry) + windowMinutes[channel]) {
+            return 0;
+        }
+        return entry;
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("limits", limitsSpec);
+        if (table != null) {
+            stats.put("entries", table.size());
+            stats.put("capacity", table.capacity());
+            stats.put("off_heap_bytes", table.offHeapBytes());
+            stats.put("overflows", table.overflows());
+        }
+        return stats;
+    }
+
+    /**
+     * Drop entries whose window ended, so their slots can be reused
+     */
+    @Scheduled(fixedDelayString = "${mcp.campaign.frequency.sweep-interval-ms:600000}",
+            initialDelayString = "${mcp.campaign.frequency.sweep-interval-ms:600000}")
+    public void sweep() {
+        if (table == null) {
+            return;
+        }
+        long removed = table.sweep(System.currentTimeMillis() / MINUTE_MILLIS);
+        if (removed > 0) {
+            log.debug("Swept {} expired frequency cap entries, {} remain", removed, table.size());
+        }
+    }
+
+    /**
+     * Write the table to the snapshot path; a crash mid-write keeps the previous snapshot
+     */
+    @Scheduled(fixedDelayString = "${mcp.campaign.frequency.snapshot-interval-ms:60000}",
+            initialDelayString = "${mcp.campaign.frequency.snapshot-interval-ms:60000}")
+    public synchronized void snapshot() {
+        if (table == null || snapshotPath.isBlank()) {
+            return;
+        }
+        Path target = Path.of(snapshotPath);
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        try {
+            if (target.getParent() != null) {
+                Files.createDirectories(target.getParent());
+            }
+            long written;
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp), 1 << 16))) {
+                out.writeInt(SNAPSHOT_VERSION);
+                out.writeUTF(String.join(",", channels));
+                written = table.writeTo(out);
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            log.debug("Wrote {} frequency cap entries to {}", written, target);
+        } catch (IOException e) {
+            log.warn("Failed to write frequency cap snapshot {}: {}", target, e.getMessage());
+        }
+    }
+
+    private void load() {
+        Path path = Path.of(snapshotPath);
+        if (snapshotPath.isBlank() || !Files.isRegularFile(path)) {
+            return;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), 1 << 16))) {
+            if (in.readInt() != SNAPSHOT_VERSION) {
+                throw new IOException("unsupported version");
+            }
+            // Channel indexes follow the configured limits; map the snapshot's onto the current ones
+            String[] names = in.readUTF().split(",");
+            int[] channelMap = new int[names.length];
+            for (int i = 0; i < names.length; i++) {
+                channelMap[i] = channels.indexOf(names[i]);
+            }
+            table.readFrom(in, channelMap);
+        } catch (IOException e) {
+            log.warn("Ignoring frequency cap snapshot {}: {}", path, e.getMessage());
+        }
+    }
+
+    /**
+     * Numeric recipient ids (customer ids) are used as they are; others are hashed
+     */
+    public static long recipientKey(String recipientId) {
+        try {
+            return Long.parseLong(recipientId);
+        } catch (NumberFormatException e) {
+            long hash = 0xcbf29ce484222325L;
+            for (byte b : recipientId.getBytes(StandardCharsets.UTF_8)) {
+                hash = (hash ^ (b & 0xff)) * 0x100000001b3L;
+            }
+            return HyperLogLog.hash(hash);
+        }
+    }
+
+    /**
+     * {@code channel=count/window} pairs, the window in minutes, hours or days ({@code 30m}, {@code 12h}, {@code 7d})
+     */
+    private void parseLimits(String spec) {
+        List<Integer> counts = new ArrayList<>();
+        List<Long> windows = new ArrayList<>();
+        for (String entry : spec.split(",")) {
+            if (entry.isBlank()) {
+                continue;
+            }
+            String[] parts = entry.trim().split("[=/]");
+            if (parts.length != 3 || parts[2].length() < 2) {
+                throw new IllegalStateException("Frequency cap '" + entry + "' is not channel=count/window, e.g. email=3/7d");
+            }
+            long amount = Long.parseLong(parts[2].substring(0, parts[2].length() - 1));
+            long minutes = switch (parts[2].charAt(parts[2].length() - 1)) {
+                case 'm' -> amount;
+                case 'h' -> amount * 60;
+                case 'd' -> amount * 1440;
+                default -> throw new IllegalStateException("Frequency cap window '" + parts[2] + "' must end in m, h or d");
+            };
+            channels.add(parts[0].trim());
+            counts.add(Integer.parseInt(parts[1].trim()));
+            windows.add(minutes);
+        }
+        if (channels.size() > FrequencyCapTable.MAX_CHANNELS) {
+            throw new IllegalStateException("At most " + FrequencyCapTable.MAX_CHANNELS + " channels can be capped");
+        }
+        limits = counts.stream().mapToInt(Integer::intValue).toArray();
+        windowMinutes = windows.stream().mapToLong(Long::longValue).toArray();
+    }
+}
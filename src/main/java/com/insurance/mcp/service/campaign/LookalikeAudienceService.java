@@ -0,0 +1,111 @@
+package com.insurance.mcp.service.campaign;
+
+import com.insurance.mcp.service.audience.CustomerProfileStore;
+import com.insurance.mcp.service.audience.LookalikeResult;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Lookalike audiences: the customers most similar to a seed set (for example recent
+ * converters), returned as ids plus criteria that describe them for targeting and export
+ */
+@Slf4j
+@Service
+public class LookalikeAudienceService {
+
+    @Autowired
+    private CustomerProfileStore customerProfileStore;
+
+    @Value("${mcp.audience.lookalike.default-k:1000}")
+    private int defaultK;
+
+    @Value("${mcp.audience.lookalike.max-k:10000}")
+    private int maxK;
+
+    @Value("${mcp.audience.lookalike.max-seeds:100000}")
+    private int maxSeeds;
+
+    @Value("${mcp.audience.lookalike.criteria-coverage:0.8}")
+    private double defaultCoverage;
+
+    public Map<String, Object> findLookalikes(Map<String, Object> arguments) {
+        List<Long> seeds = seedIds(arguments.get("seed_customer_ids"));
+        if (seeds.isEmpty()) {
+            throw new IllegalArgumentException("seed_customer_ids must list at least one customer id");
+        }
+        if (seeds.size() > maxSeeds) {
+            throw new IllegalArgumentException("At most " + maxSeeds + " seed customers are supported");
+        }
+        int k = arguments.get("k") instanceof Number number ? number.intValue() : defaultK;
+        k = Math.max(1, Math.min(k, maxK));
+        double coverage = arguments.get("criteria_coverage") instanceof Number number
+                ? Math.max(0.5, Math.min(number.doubleValue(), 1.0))
+                : defaultCoverage;
+
+        long start = System.nanoTime();
+        LookalikeResult result = customerProfileStore.findLookalikes(seeds, k, coverage);
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+        log.info("Lookalike search over {} profiles from {} seeds returned {} in {} ms",
+                result.getScannedProfiles(), result.getSeedsUsed(), result.getCustomerIds().length, elapsedMs);
+
+        float[] scores = result.getScores();
+        Map<String, Object> similarity = new HashMap<>();
+        if (scores.length > 0) {
+            double sum = 0;
+            for (float score : scores) {
+                sum += score;
+            }
+            similarity.put("best", round(scores[0]));
+            similarity.put("kth", round(scores[scores.length - 1]));
+            similarity.put("mean", round(sum / scores.length));
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("lookalike_size", result.getCustomerIds().length);
+        response.put("customer_ids", Arrays.stream(result.getCustomerIds()).boxed().toList());
+        if (Boolean.TRUE.equals(arguments.get("include_scores"))) {
+            List<Double> rounded = new ArrayList<>(scores.length);
+            for (float score : scores) {
+                rounded.add(round(score));
+            }
+            response.put("scores", rounded);
+        }
+        response.put("similarity", similarity);
+        response.put("derived_criteria", result.getDerivedCriteria());
+        response.put("derived_criteria_coverage", round(result.getDerivedCoverage()));
+        response.put("derived_criteria_size",
+                customerProfileStore.count(List.of(result.getDerivedCriteria())).getCounts()[0]);
+        response.put("seeds_used", result.getSeedsUsed());
+        response.put("seeds_missing", result.getSeedsMissing());
+        response.put("population", result.getScannedProfiles());
+        response.put("scan_method", result.getMethod());
+        response.put("scan_time_ms", elapsedMs);
+        return response;
+    }
+
+    private List<Long> seedIds(Object value) {
+        List<Long> ids = new ArrayList<>();
+        if (value instanceof List<?> list) {
+            for (Object id : list) {
+                ids.add(id instanceof Number number ? number.longValue() : Long.parseLong(String.valueOf(id).trim()));
+            }
+        } else if (value instanceof String text && !text.isBlank()) {
+            for (String id : text.split(",")) {
+                ids.add(Long.parseLong(id.trim()));
+            }
+        }
+        return ids;
+    }
+
+    private static double round(double score) {
+        return Math.round(score * 10_000) / 10_000.0;
+    }
+}
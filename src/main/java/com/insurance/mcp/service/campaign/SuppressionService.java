@@ -0,0 +1,338 @@
+package com.insurance.mcp.service.campaign;
+
+import com.insurance.mcp.service.audience.sketch.HyperLogLog;
+import com.insurance.mcp.service.campaign.suppression.BloomFilter;
+import com.insurance.mcp.service.campaign.suppression.MappedIdSet;
+import com.insurance.mcp.service.support.ReloadableResource;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Do-not-contact list checked for every exported and rendered recipient. A Bloom filter answers
+ * most lookups (recipients not on the list) from one cache line; its positives are confirmed
+ * against the exact list, a sorted memory-mapped file. The list is rebuilt in the background from
+ * the {@code location} file when it changes. Additions and removals made through the API take
+ * effect at once; they are kept as a delta persisted next to the mapped file and applied on top of
+ * every rebuild, so a reloaded source file never drops them.
+ */
+@Slf4j
+@Service
+public class SuppressionService {
+
+    @Autowired
+    private ResourceLoader resourceLoader;
+
+    @Value("${mcp.campaign.suppression.enabled:true}")
+    private boolean enabled;
+
+    @Value("${mcp.campaign.suppression.location:}")
+    private String location;
+
+    @Value("${mcp.campaign.suppression.store-path:}")
+    private String storePath;
+
+    @Value("${mcp.campaign.suppression.bloom-bits-per-key:10}")
+    private int bloomBitsPerKey;
+
+    /** Keys added or removed through the API, whatever the source says; written under this */
+    private final Set<Long> added = ConcurrentHashMap.newKeySet();
+    private final Set<Long> removed = ConcurrentHashMap.newKeySet();
+    /** Count of API updates, and of those the mapped file holds; guarded by this */
+    private long updates;
+    private long mergedUpdates;
+
+    private volatile Snapshot current;
+    private ReloadableResource source;
+    private Path store;
+    private boolean persistent;
+
+    @PostConstruct
+    public void initialize() {
+        if (!enabled) {
+            log.info("Suppression list disabled");
+            return;
+        }
+        persistent = !storePath.isBlank();
+        if (persistent) {
+            store = Path.of(storePath);
+        } else {
+            try {
+                Path directory = Files.createTempDirectory("suppression");
+                directory.toFile().deleteOnExit();
+                store = directory.resolve("suppression.bin");
+                store.toFile().deleteOnExit();
+            } catch (IOException e) {
+                throw new IllegalStateException("Cannot create a temporary suppression set file", e);
+            }
+            log.warn("mcp.campaign.suppression.store-path is not set; suppression updates are kept in memory only");
+        }
+        // The previous build and the API delta are usable at once; the source file is re-read in the background
+        MappedIdSet exact = MappedIdSet.empty();
+        if (persistent && Files.isRegularFile(store)) {
+            try {
+                exact = MappedIdSet.open(store);
+                readUpdates(deltaPath(".added"), added);
+                readUpdates(deltaPath(".removed"), removed);
+            } catch (IOException e) {
+                log.warn("Ignoring suppression set {}: {}", store, e.getMessage());
+            }
+        }
+        BloomFilter bloom = bloom(exact, added.size());
+        added.forEach(key -> bloom.add(HyperLogLog.hash(key)));
+        current = new Snapshot(exact, bloom);
+        if (!location.isBlank()) {
+            source = new ReloadableResource(resourceLoader, location);
+        }
+        log.info("Suppression list: {} recipients mapped from {} ({} added and {} removed through the API), source {}",
+                exact.size(), store, added.size(), removed.size(), source != null ? location : "none");
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (enabled && hasUnmergedUpdates()) {
+            refresh();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Whether a recipient key ({@link FrequencyCapService#recipientKey}) is on the list
+     */
+    public boolean isSuppressed(long recipientKey) {
+        Snapshot snapshot = current;
+        if (!snapshot.bloom.mightContain(HyperLogLog.hash(recipientKey))) {
+            return false;
+        }
+        if (!removed.isEmpty() && removed.contains(recipientKey)) {
+            return false;
+        }
+        return snapshot.exact.contains(recipientKey) || (!added.isEmpty() && added.contains(recipientKey));
+    }
+
+    public boolean isSuppressed(String recipientId) {
+        return enabled && isSuppressed(FrequencyCapService.recipientKey(recipientId));
+    }
+
+    /**
+     * Apply {@code add} and {@code remove} lists of recipient ids; both take effect immediately and
+     * are persisted with the delta before this returns
+     */
+    public synchronized Map<String, Object> update(Collection<?> add, Collection<?> remove) throws IOException {
+        if (!enabled) {
+            throw new IllegalStateException("Suppression list is disabled (mcp.campaign.suppression.enabled)");
+        }
+        Snapshot snapshot = current;
+        for (Object id : add) {
+            long key = FrequencyCapService.recipientKey(String.valueOf(id));
+            removed.remove(key);
+            added.add(key);
+            snapshot.bloom.add(HyperLogLog.hash(key));
+        }
+        for (Object id : remove) {
+            long key = FrequencyCapService.recipientKey(String.valueOf(id));
+            added.remove(key);
+            removed.add(key);
+        }
+        updates++;
+        if (persistent) {
+            writeUpdates(added, deltaPath(".added"));
+            writeUpdates(removed, deltaPath(".removed"));
+        }
+        Map<String, Object> result = new HashMap<>(stats());
+        result.put("added", add.size());
+        result.put("removed", remove.size());
+        return result;
+    }
+
+    public Map<String, Object> check(List<String> recipientIds) {
+        Map<String, Object> suppressed = new HashMap<>();
+        for (String id : recipientIds) {
+            suppressed.put(id, isSuppressed(id));
+        }
+        Map<String, Object> result = new HashMap<>(stats());
+        result.put("suppressed", suppressed);
+        return result;
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", enabled);
+        if (enabled) {
+            Snapshot snapshot = current;
+            stats.put("list_size", snapshot.exact.size());
+            stats.put("api_additions", added.size());
+            stats.put("api_removals", removed.size());
+            stats.put("persistent", persistent);
+            stats.put("bloom_bytes", snapshot.bloom.bytes());
+        }
+        return stats;
+    }
+
+    /**
+     * Rebuild from the source file when it changed, otherwise merge new API updates into the
+     * mapped file. Runs on the scheduler thread, so startup never waits for a large list.
+     */
+    @Scheduled(fixedDelayString = "${mcp.campaign.suppression.reload-interval-ms:60000}")
+    public void refresh() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            if (source != null && source.hasChanged()) {
+                long start = System.nanoTime();
+                long[] ids = readSource();
+                rebuild(ids);
+                log.info("Loaded {} suppressed recipients from {} in {} ms", current.exact.size(), location,
+                        (System.nanoTime() - start) / 1_000_000);
+            } else if (hasUnmergedUpdates()) {
+                MappedIdSet exact = current.exact;
+                long[] ids = new long[exact.size()];
+                for (int i = 0; i < ids.length; i++) {
+                    ids[i] = exact.get(i);
+                }
+                rebuild(ids);
+                log.debug("Merged suppression list updates, {} recipients", current.exact.size());
+            }
+        } catch (IOException | RuntimeException e) {
+            log.error("Failed to rebuild suppression list, keeping {} recipients: {}", current.exact.size(), e.getMessage());
+        }
+    }
+
+    private synchronized boolean hasUnmergedUpdates() {
+        return updates != mergedUpdates;
+    }
+
+    /**
+     * Publish {@code base} (sorted, distinct) with every API update applied
+     */
+    private void rebuild(long[] base) throws IOException {
+        Set<Long> additions;
+        Set<Long> removals;
+        long version;
+        synchronized (this) {
+            additions = new HashSet<>(added);
+            removals = new HashSet<>(removed);
+            version = updates;
+        }
+        long[] merged = Arrays.copyOf(base, base.length + additions.size());
+        int count = base.length;
+        for (Long key : additions) {
+            merged[count++] = key;
+        }
+        Arrays.sort(merged, 0, count);
+        int distinct = 0;
+        for (int i = 0; i < count; i++) {
+            if ((distinct == 0 || merged[i] != merged[distinct - 1]) && !removals.contains(merged[i])) {
+                merged[distinct++] = merged[i];
+            }
+        }
+        if (store.getParent() != null) {
+            Files.createDirectories(store.getParent());
+        }
+        MappedIdSet.write(merged, distinct, store);
+        MappedIdSet exact = MappedIdSet.open(store);
+
+        synchronized (this) {
+            // Keys added while the file was written are not in it; keep them findable
+            BloomFilter bloom = bloom(exact, added.size());
+            for (Long key : added) {
+                bloom.add(HyperLogLog.hash(key));
+            }
+            current = new Snapshot(exact, bloom);
+            mergedUpdates = version;
+        }
+    }
+
+    private Path deltaPath(String suffix) {
+        return store.resolveSibling(store.getFileName() + suffix);
+    }
+
+    private void writeUpdates(Set<Long> keys, Path target) throws IOException {
+        long[] sorted = keys.stream().mapToLong(Long::longValue).sorted().toArray();
+        if (target.getParent() != null) {
+            Files.createDirectories(target.getParent());
+        }
+        MappedIdSet.write(sorted, sorted.length, target);
+    }
+
+    private static void readUpdates(Path path, Set<Long> keys) throws IOException {
+        if (Files.isRegularFile(path)) {
+            MappedIdSet updates = MappedIdSet.open(path);
+            for (int i = 0; i < updates.size(); i++) {
+                keys.add(updates.get(i));
+            }
+        }
+    }
+
+    private BloomFilter bloom(MappedIdSet exact, int extra) {
+        // Headroom for additions until the next rebuild
+        BloomFilter bloom = new BloomFilter(exact.size() + extra + Math.max(1024, exact.size() / 16), bloomBitsPerKey);
+        for (int i = 0; i < exact.size(); i++) {
+            bloom.add(HyperLogLog.hash(exact.get(i)));
+        }
+        return bloom;
+    }
+
+    /**
+     * One recipient id per line; blank lines and lines starting with {@code #} are skipped
+     */
+    private long[] readSource() throws IOException {
+        long[] ids = new long[1024];
+        int count = 0;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(source.open(), StandardCharsets.UTF_8), 1 << 16)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.strip();
+                if (line.isEmpty() || line.charAt(0) == '#') {
+                    continue;
+                }
+                if (count == ids.length) {
+                    ids = Arrays.copyOf(ids, count * 2);
+                }
+                ids[count++] = FrequencyCapService.recipientKey(line);
+            }
+        }
+        Arrays.sort(ids, 0, count);
+        int distinct = 0;
+        for (int i = 0; i < count; i++) {
+            if (distinct == 0 || ids[i] != ids[distinct - 1]) {
+                ids[distinct++] = ids[i];
+            }
+        }
+        return Arrays.copyOf(ids, distinct);
+    }
+
+    private static final class Snapshot {
+        final MappedIdSet exact;
+        final BloomFilter bloom;
+
+        Snapshot(MappedIdSet exact, BloomFilter bloom) {
+            this.exact = exact;
+            this.bloom = bloom;
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.insurance.mcp.service.campaign.compliance;
+
+import com.insurance.mcp.model.campaign.ComplianceRuleSet;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * One version of the compliance rules compiled per jurisdiction: the rules that apply
+ * everywhere, and for each jurisdiction named in the file those plus its own. Immutable.
+ */
+public final class ComplianceRules {
+
+    private final String version;
+    private final ComplianceScanner general;
+    private final Map<String, ComplianceScanner> jurisdictions;
+
+    private ComplianceRules(String version, ComplianceScanner general, Map<String, ComplianceScanner> jurisdictions) {
+        this.version = version;
+        this.general = general;
+        this.jurisdictions = jurisdictions;
+    }
+
+    public static ComplianceRules compile(ComplianceRuleSet ruleSet) {
+        List<ComplianceRuleSet.Rule> rules = ruleSet.getRules() != null ? ruleSet.getRules() : List.of();
+        Set<String> codes = new TreeSet<>();
+        for (ComplianceRuleSet.Rule rule : rules) {
+            if (rule.getId() == null || rule.getId().isBlank()) {
+                throw new IllegalArgumentException("Compliance rule without id");
+            }
+            boolean phrases = rule.getPhrases() != null && !rule.getPhrases().isEmpty();
+            if (!phrases && rule.getRegex() == null) {
+                throw new IllegalArgumentException("Compliance rule " + rule.getId() + " has neither phrases nor regex");
+            }
+            if (rule.getJurisdictions() != null) {
+                rule.getJurisdictions().forEach(code -> codes.add(normalize(code)));
+            }
+        }
+
+        List<ComplianceRuleSet.Rule> everywhere = new ArrayList<>();
+        for (ComplianceRuleSet.Rule rule : rules) {
+            if (rule.getJurisdictions() == null || rule.getJurisdictions().isEmpty()) {
+                everywhere.add(rule);
+            }
+        }
+        Map<String, ComplianceScanner> jurisdictions = new HashMap<>();
+        for (String code : codes) {
+            List<ComplianceRuleSet.Rule> applicable = new ArrayList<>(everywhere);
+            for (ComplianceRuleSet.Rule rule : rules) {
+                if (rule.getJurisdictions() != null
+                        && rule.getJurisdictions().stream().anyMatch(candidate -> normalize(candidate).equals(code))) {
+                    applicable.add(rule);
+                }
+            }
+            jurisdictions.put(code, new ComplianceScanner(code, applicable));
+        }
+        return new ComplianceRules(ruleSet.getVersion(), new ComplianceScanner(null, everywhere), jurisdictions);
+    }
+
+    public String getVersion() {
+        return version;
+    }
+
+    /**
+     * Scanner for a jurisdiction code such as {@code NY}; the general rules for null or codes without rules of their own
+     */
+    public ComplianceScanner scanner(String jurisdiction) {
+        return scanner(jurisdiction, general);
+    }
+
+    /**
+     * Scanner for a jurisdiction code, or {@code fallback} for null or codes without rules of their own
+     */
+    public ComplianceScanner scanner(String jurisdiction, ComplianceScanner fallback) {
+        if (jurisdiction == null || jurisdictions.isEmpty()) {
+            return fallback;
+        }
+        ComplianceScanner scanner = jurisdictions.get(jurisdiction);
+        if (scanner == null) {
+            scanner = jurisdictions.get(normalize(jurisdiction));
+        }
+        return scanner != null ? scanner : fallback;
+    }
+
+    public Set<String> jurisdictions() {
+        return jurisdictions.keySet();
+    }
+
+    private static String normalize(String code) {
+        return code.trim().toUpperCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,135 @@
+package com.insurance.mcp.service.campaign.compliance;
+
+import com.insurance.mcp.model.campaign.ComplianceRuleSet;
+import com.insurance.mcp.model.campaign.ComplianceViolation;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The rules of one jurisdiction compiled into a single {@link PhraseAutomaton}: every phrase,
+ * plus the prefilter literals of the regex rules. One pass over the text finds all phrase
+ * matches; a regex runs only when one of its literals was seen. Immutable and thread-safe.
+ */
+public final class ComplianceScanner {
+
+    private static final Comparator<ComplianceViolation> BY_POSITION =
+            Comparator.comparingInt(ComplianceViolation::getStart).thenComparingInt(ComplianceViolation::getEnd);
+
+    private final String jurisdiction;
+    private final ComplianceRuleSet.Rule[] rules;
+    private final PhraseAutomaton automaton;
+    /** Rule of each automaton phrase; a negative value {@code ~rule} marks a regex prefilter literal */
+    private final int[] phraseRules;
+    private final Pattern[] regexes;
+    /** Regex rules without prefilter literals, evaluated on every text */
+    private final int[] unfiltered;
+
+    ComplianceScanner(String jurisdiction, List<ComplianceRuleSet.Rule> rules) {
+        this.jurisdiction = jurisdiction;
+        this.rules = rules.toArray(new ComplianceRuleSet.Rule[0]);
+        this.regexes = new Pattern[this.rules.length];
+        PhraseAutomaton.Builder builder = PhraseAutomaton.builder();
+        List<Integer> phraseRules = new ArrayList<>();
+        List<Integer> unfiltered = new ArrayList<>();
+        for (int r = 0; r < this.rules.length; r++) {
+            ComplianceRuleSet.Rule rule = this.rules[r];
+            if (rule.getPhrases() != null) {
+                for (String phrase : rule.getPhrases()) {
+                    builder.add(phrase, true);
+                    phraseRules.add(r);
+                }
+            }
+            if (rule.getRegex() != null) {
+                regexes[r] = Pattern.compile(rule.getRegex(), Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE);
+                if (rule.getPrefilter() == null || rule.getPrefilter().isEmpty()) {
+                    unfiltered.add(r);
+                } else {
+                    for (String literal : rule.getPrefilter()) {
+                        builder.add(literal, false);
+                        phraseRules.add(~r);
+                    }
+                }
+            }
+        }
+        this.automaton = builder.build();
+        this.phraseRules = phraseRules.stream().mapToInt(Integer::intValue).toArray();
+        this.unfiltered = unfiltered.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    public String getJurisdiction() {
+        return jurisdiction;
+    }
+
+    public int ruleCount() {
+        return rules.length;
+    }
+
+    /**
+     * Append the violations in {@code text} to {@code violations}, ordered by position, and return
+     * how many were found
+     */
+    public int scan(String field, CharSequence text, List<ComplianceViolation> violations) {
+        if (text == null) {
+            return 0;
+        }
+        int first = violations.size();
+        boolean[][] triggered = new boolean[1][];
+        automaton.scan(text, (phrase, start, end) -> {
+            int rule = phraseRules[phrase];
+            if (rule >= 0) {
+                violations.add(violation(rules[rule], field, text, start, end));
+            } else {
+                if (triggered[0] == null) {
+                    triggered[0] = new boolean[rules.length];
+                }
+                triggered[0][~rule] = true;
+            }
+        });
+        boolean regexMatched = false;
+        for (int r = 0; r < rules.length && triggered[0] != null; r++) {
+            if (triggered[0][r]) {
+                regexMatched |= match(r, field, text, violations);
+            }
+        }
+        for (int r : unfiltered) {
+            regexMatched |= match(r, field, text, violations);
+        }
+        if (regexMatched) {
+            violations.subList(first, violations.size()).sort(BY_POSITION);
+        }
+        return violations.size() - first;
+    }
+
+    public List<ComplianceViolation> scan(String field, CharSequence text) {
+        List<ComplianceViolation> violations = new ArrayList<>(0);
+        scan(field, text, violations);
+        return violations;
+    }
+
+    private boolean match(int rule, String field, CharSequence text, List<ComplianceViolation> violations) {
+        Matcher matcher = regexes[rule].matcher(text);
+        boolean found = false;
+        while (matcher.find()) {
+            violations.add(violation(rules[rule], field, text, matcher.start(), matcher.end()));
+            found = true;
+        }
+        return found;
+    }
+
+    private static ComplianceViolation violation(ComplianceRuleSet.Rule rule, String field, CharSequence text,
+                                                 int start, int end) {
+        return ComplianceViolation.builder()
+                .rule(rule.getId())
+                .severity(rule.getSeverity())
+                .field(field)
+                .start(start)
+                .end(end)
+                .match(text.subSequence(start, end).toString())
+                .message(rule.getMessage())
+                .build();
+    }
+}
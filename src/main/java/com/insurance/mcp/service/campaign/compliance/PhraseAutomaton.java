@@ -0,0 +1,258 @@
+package com.insurance.mcp.service.campaign.compliance;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Aho-Corasick automaton over any number of phrases, compiled to a dense transition table so a
+ * scan costs one array lookup per character regardless of how many phrases there are. Matching
+ * is case-insensitive, and whitespace, hyphens and underscores are one separator: "risk-free"
+ * matches "Risk free" and "risk -  free". Immutable and safe to share between threads.
+ */
+public final class PhraseAutomaton {
+
+    private static final char SEPARATOR = ' ';
+
+    /** Character class of every UTF-16 char, 0 for chars in no phrase */
+    private final char[] classes;
+    private final int separatorClass;
+    private final int alphabet;
+    /**
+     * Transition table: the next state on class {@code c} from the state whose row starts at
+     * {@code row} is at {@code delta[row + c]}, stored as that state's row, complemented when it
+     * ends a phrase so a scan needs no other lookup per character
+     */
+    private final int[] delta;
+    /** Phrases ending at {@code state}: {@code outputs[outputStart[state] .. outputStart[state + 1])} */
+    private final int[] outputStart;
+    private final int[] outputs;
+    private final int[] lengths;
+    private final boolean[] wholeWord;
+
+    private PhraseAutomaton(char[] classes, int separatorClass, int alphabet, int[] delta, int[] outputStart,
+                            int[] outputs, int[] lengths, boolean[] wholeWord) {
+        this.classes = classes;
+        this.separatorClass = separatorClass;
+        this.alphabet = alphabet;
+        this.delta = delta;
+        this.outputStart = outputStart;
+        this.outputs = outputs;
+        this.lengths = lengths;
+        this.wholeWord = wholeWord;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Receives every match as the phrase id and its {@code [start, end)} character range
+     */
+    @FunctionalInterface
+    public interface MatchSink {
+        void match(int phrase, int start, int end);
+    }
+
+    public int states() {
+        return outputStart.length - 1;
+    }
+
+    public void scan(CharSequence text, MatchSink sink) {
+        int row = 0;
+        boolean afterSeparator = false;
+        for (int i = 0, n = text.length(); i < n; i++) {
+            int c = classes[text.charAt(i)];
+            if (c == separatorClass) {
+                // A run of separators reads as one
+                if (afterSeparator) {
+                    continue;
+                }
+                afterSeparator = true;
+            } else {
+                afterSeparator = false;
+            }
+            row = delta[row + c];
+            if (row < 0) {
+                row = ~row;
+                report(text, row / alphabet, i + 1, sink);
+            }
+        }
+    }
+
+    private void report(CharSequence text, int state, int end, MatchSink sink) {
+        for (int o = outputStart[state]; o < outputStart[state + 1]; o++) {
+            int phrase = outputs[o];
+            int start = start(text, end, lengths[phrase]);
+            if (wholeWord[phrase] && (start > 0 && Character.isLetterOrDigit(text.charAt(start - 1))
+                    || end < text.length() && Character.isLetterOrDigit(text.charAt(end)))) {
+                continue;
+            }
+            sink.match(phrase, start, end);
+        }
+    }
+
+    /**
+     * Walk back over {@code length} normalized characters, counting a separator run as one
+     */
+    private int start(CharSequence text, int end, int length) {
+        int i = end;
+        while (length > 0) {
+            i--;
+            if (i > 0 && classes[text.charAt(i)] == separatorClass && classes[text.charAt(i - 1)] == separatorClass) {
+                continue;
+            }
+            length--;
+        }
+        return i;
+    }
+
+    static char fold(char c) {
+        if (Character.isWhitespace(c) || Character.isSpaceChar(c) || c == '-' || c == '_' || (c >= '\u2010' && c <= '\u2015')) {
+            return SEPARATOR;
+        }
+        return Character.toLowerCase(c);
+    }
+
+    /**
+     * Collects phrases; ids are assigned in order from 0
+     */
+    public static final class Builder {
+
+        private final List<String> phrases = new ArrayList<>();
+        private final List<Boolean> wholeWords = new ArrayList<>();
+
+        /**
+         * Add a phrase and return its id; a whole-word phrase only matches between non-alphanumeric characters
+         */
+        public int add(String phrase, boolean wholeWord) {
+            StringBuilder normalized = new StringBuilder(phrase.length());
+            for (int i = 0; i < phrase.length(); i++) {
+                char c = fold(phrase.charAt(i));
+                if (c != SEPARATOR || normalized.length() > 0 && normalized.charAt(normalized.length() - 1) != SEPARATOR) {
+                    normalized.append(c);
+                }
+            }
+            while (normalized.length() > 0 && normalized.charAt(normalized.length() - 1) == SEPARATOR) {
+                normalized.setLength(normalized.length() - 1);
+            }
+            if (normalized.length() == 0) {
+                throw new IllegalArgumentException("Empty phrase: '" + phrase + "'");
+            }
+            phrases.add(normalized.toString());
+            wholeWords.add(wholeWord);
+            return phrases.size() - 1;
+        }
+
+        public PhraseAutomaton build() {
+            // Classes: 0 for chars in no phrase, then one per distinct folded char
+            char[] classOf = new char[Character.MAX_VALUE + 1];
+            int alphabet = 1;
+            int totalLength = 0;
+            for (String phrase : phrases) {
+                totalLength += phrase.length();
+                for (int i = 0; i < phrase.length(); i++) {
+                    char c = phrase.charAt(i);
+                    if (classOf[c] == 0) {
+                        classOf[c] = (char) alphabet++;
+                    }
+                }
+            }
+            char[] classes = new char[Character.MAX_VALUE + 1];
+            for (int c = 0; c <= Character.MAX_VALUE; c++) {
+                classes[c] = classOf[fold((char) c)];
+            }
+            int separatorClass = classOf[SEPARATOR] != 0 ? classOf[SEPARATOR] : -1;
+
+            if ((long) (totalLength + 1) * alphabet > Integer.MAX_VALUE - 8) {
+                throw new IllegalArgumentException("Too many phrases: " + phrases.size());
+            }
+
+            // Trie
+            int[] delta = new int[(totalLength + 1) * alphabet];
+            Arrays.fill(delta, -1);
+            int[] terminal = new int[totalLength + 1];
+            Arrays.fill(terminal, -1);
+            int[] sameTerminal = new int[phrases.size()];
+            int states = 1;
+            for (int p = 0; p < phrases.size(); p++) {
+                String phrase = phrases.get(p);
+                int state = 0;
+                for (int i = 0; i < phrase.length(); i++) {
+                    int slot = state * alphabet + classOf[phrase.charAt(i)];
+                    if (delta[slot] < 0) {
+                        delta[slot] = states++;
+                    }
+                    state = delta[slot];
+                }
+                // Phrases ending in the same state chain through sameTerminal
+                sameTerminal[p] = terminal[state];
+                terminal[state] = p;
+            }
+
+            // Failure links breadth-first, turning the trie into a complete transition table
+            int[] fail = new int[states];
+            int[] order = new int[states];
+            int head = 0;
+            int tail = 1;
+            while (head < tail) {
+                int state = order[head++];
+                for (int c = 0; c < alphabet; c++) {
+                    int slot = state * alphabet + c;
+                    int fallback = state == 0 ? 0 : delta[fail[state] * alphabet + c];
+                    if (delta[slot] < 0) {
+                        delta[slot] = fallback;
+                    } else {
+                        fail[delta[slot]] = fallback;
+                        order[tail++] = delta[slot];
+                    }
+                }
+            }
+
+            // Each state outputs its own phrases and those of its failure chain
+            int[] outputStart = new int[states + 1];
+            List<int[]> stateOutputs = new ArrayList<>(states);
+            for (int s = 0; s < states; s++) {
+                stateOutputs.add(null);
+            }
+            int total = 0;
+            for (int k = 0; k < states; k++) {
+                int state = order[k];
+                int[] inherited = state == 0 ? new int[0] : stateOutputs.get(fail[state]);
+                int own = 0;
+                for (int p = terminal[state]; p >= 0; p = sameTerminal[p]) {
+                    own++;
+                }
+                int[] merged = Arrays.copyOf(inherited, inherited.length + own);
+                int n = inherited.length;
+                for (int p = terminal[state]; p >= 0; p = sameTerminal[p]) {
+                    merged[n++] = p;
+                }
+                stateOutputs.set(state, merged);
+                total += merged.length;
+            }
+            int[] outputs = new int[total];
+            int position = 0;
+            for (int s = 0; s < states; s++) {
+                outputStart[s] = position;
+                int[] merged = stateOutputs.get(s);
+                System.arraycopy(merged, 0, outputs, position, merged.length);
+                position += merged.length;
+            }
+            outputStart[states] = position;
+
+            int[] lengths = new int[phrases.size()];
+            boolean[] wholeWord = new boolean[phrases.size()];
+            for (int p = 0; p < phrases.size(); p++) {
+                lengths[p] = phrases.get(p).length();
+                wholeWord[p] = wholeWords.get(p);
+            }
+            delta = Arrays.copyOf(delta, states * alphabet);
+            for (int slot = 0; slot < delta.length; slot++) {
+                int target = delta[slot];
+                delta[slot] = outputStart[target] != outputStart[target + 1] ? ~(target * alphabet) : target * alphabet;
+            }
+            return new PhraseAutomaton(classes, separatorClass, alphabet, delta, outputStart, outputs, lengths, wholeWord);
+        }
+    }
+}
@@ -0,0 +1,397 @@
+package com.insurance.mcp.service.campaign.frequency;
+
+import com.insurance.mcp.service.audience.sketch.HyperLogLog;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Contact counters per (recipient, channel) in an open-addressing hash table of primitive longs
+ * held off-heap, so tens of millions of entries cost no GC work. Each 16-byte slot holds the key
+ * and a value packing the start minute of the entry's cap window with its contact count.
+ * <p>
+ * The table is split into segments, each a direct buffer of up to 1 GiB with linear probing.
+ * Lookups, inserts and increments are lock-free compare-and-sets on the slot words; they hold
+ * their segment's lock in shared mode only so that a sweep, which removes expired entries by
+ * backward-shift deletion, can run exclusively.
+ */
+public final class FrequencyCapTable {
+
+    /** Channels are the low bits of a key */
+    public static final int MAX_CHANNELS = 16;
+
+    private static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+    private static final int SLOT_BYTES = 16;
+    private static final long PRESENT = Long.MIN_VALUE;
+    private static final int MIN_SEGMENTS = 64;
+    private static final int MAX_SEGMENT_SLOTS = 1 << 26;
+    private static final double SWEEP_LOAD = 0.75;
+    private static final double MAX_LOAD = 0.9;
+    private static final int FULL = -1;
+    private static final int ABSENT = -2;
+    private static final int SNAPSHOT_MAGIC = 0x46434150;
+
+    private final Segment[] segments;
+    private final int segmentBits;
+    private final long[] windowMinutes;
+    private final long slotCount;
+    private final LongAdder overflows = new LongAdder();
+
+    /**
+     * A table of at least {@code capacity} slots, rounded up to a power of two; {@code windowMinutes}
+     * is each channel's cap window, which decides when an entry has expired
+     */
+    public FrequencyCapTable(long capacity, long[] windowMinutes) {
+        this.windowMinutes = windowMinutes.clone();
+        long slots = Long.highestOneBit(Math.max(capacity, MIN_SEGMENTS * 16L) - 1) << 1;
+        int count = (int) Math.max(MIN_SEGMENTS, slots / MAX_SEGMENT_SLOTS);
+        this.segments = new Segment[count];
+        this.segmentBits = Integer.numberOfTrailingZeros(count);
+        for (int i = 0; i < count; i++) {
+            segments[i] = new Segment((int) (slots / count));
+        }
+        this.slotCount = slots;
+    }
+
+    /**
+     * Count a contact of {@code recipient} on {@code channel} unless its window already holds
+     * {@code limit} contacts. A window opens with the first contact and lasts the channel's window.
+     *
+     * @return the packed entry after counting, or its bitwise complement when the contact was refused
+     */
+    public long checkAndIncrement(long recipient, int channel, int limit, long nowMinute) {
+        long key = key(recipient, channel);
+        long hash = HyperLogLog.hash(key);
+        Segment segment = segments[(int) (hash >>> (64 - segmentBits))];
+        for (int attempt = 0; attempt < 2; attempt++) {
+            long stamp = segment.lock.readLock();
+            try {
+                int slot = segment.find(key, hash, true);
+                if (slot >= 0) {
+                    return segment.increment(slot, limit, windowMinutes[channel], nowMinute);
+                }
+            } finally {
+                segment.lock.unlockRead(stamp);
+            }
+            segment.sweepIfDue(windowMinutes, nowMinute);
+        }
+        // Full of live entries: let the contact through uncounted rather than block sends
+        overflows.increment();
+        return pack(nowMinute, 1);
+    }
+
+    /**
+     * Take back a contact counted by {@link #checkAndIncrement}, which returned {@code entry};
+     * nothing changes once that entry's window has been replaced by a newer one
+     */
+    public void release(long recipient, int channel, long entry) {
+        long key = key(recipient, channel);
+        long hash = HyperLogLog.hash(key);
+        Segment segment = segments[(int) (hash >>> (64 - segmentBits))];
+        long stamp = segment.lock.readLock();
+        try {
+            int slot = segment.find(key, hash, false);
+            if (slot >= 0) {
+                segment.decrement(slot, windowStart(entry));
+            }
+        } finally {
+            segment.lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * The packed entry of {@code recipient} on {@code channel}, or 0 when it has none
+     */
+    public long peek(long recipient, int channel) {
+        long key = key(recipient, channel);
+        long hash = HyperLogLog.hash(key);
+        Segment segment = segments[(int) (hash >>> (64 - segmentBits))];
+        long stamp = segment.lock.readLock();
+        try {
+            int slot = segment.find(key, hash, false);
+            return slot >= 0 ? segment.value(slot) : 0;
+        } finally {
+            segment.lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Remove entries whose window ended
+     *
+     * @return the number of entries removed
+     */
+    public long sweep(long nowMinute) {
+        long removed = 0;
+        for (Segment segment : segments) {
+            removed += segment.sweep(windowMinutes, nowMinute);
+        }
+        return removed;
+    }
+
+    public long size() {
+        long size = 0;
+        for (Segment segment : segments) {
+            size += segment.used.get();
+        }
+        return size;
+    }
+
+    public long capacity() {
+        return slotCount;
+    }
+
+    public long offHeapBytes() {
+        return slotCount * SLOT_BYTES;
+    }
+
+    /**
+     * Contacts let through uncounted because a segment was full
+     */
+    public long overflows() {
+        return overflows.sum();
+    }
+
+    /**
+     * Write every entry; the entries of one segment are consistent with each other, segments
+     * are read one after another while the table stays live
+     */
+    public long writeTo(DataOutputStream out) throws IOException {
+        out.writeInt(SNAPSHOT_MAGIC);
+        long written = 0;
+        for (Segment segment : segments) {
+            long stamp = segment.lock.readLock();
+            try {
+                for (int slot = 0; slot < segment.slots; slot++) {
+                    long key = segment.key(slot);
+                    long value = segment.value(slot);
+                    if (key != 0 && value != 0) {
+                        out.writeLong(key);
+                        out.writeLong(value);
+                        written++;
+                    }
+                }
+            } finally {
+                segment.lock.unlockRead(stamp);
+            }
+        }
+        out.writeLong(0);
+        return written;
+    }
+
+    /**
+     * Load entries written by {@link #writeTo}; {@code channelMap} maps each snapshot channel to
+     * its current index, or -1 to drop its entries
+     */
+    public long readFrom(DataInputStream in, int[] channelMap) throws IOException {
+        if (in.readInt() != SNAPSHOT_MAGIC) {
+            throw new IOException("Not a frequency cap snapshot");
+        }
+        long loaded = 0;
+        long key;
+        while ((key = in.readLong()) != 0) {
+            long value = in.readLong();
+            int channel = (int) (key & (MAX_CHANNELS - 1));
+            int mapped = channel < channelMap.length ? channelMap[channel] : -1;
+            if (mapped < 0) {
+                continue;
+            }
+            key = (key & ~(long) (MAX_CHANNELS - 1)) | mapped;
+            long hash = HyperLogLog.hash(key);
+            Segment segment = segments[(int) (hash >>> (64 - segmentBits))];
+            int slot = segment.find(key, hash, true);
+            if (slot >= 0) {
+                segment.put(slot, value);
+                loaded++;
+            }
+        }
+        return loaded;
+    }
+
+    public static long pack(long startMinute, int count) {
+        return (startMinute << 32) | count;
+    }
+
+    public static boolean allowed(long result) {
+        return result >= 0;
+    }
+
+    public static long windowStart(long result) {
+        return (result < 0 ? ~result : result) >>> 32;
+    }
+
+    public static int count(long result) {
+        return (int) (result < 0 ? ~result : result);
+    }
+
+    /**
+     * The channel in the low 4 bits, above it 59 bits of a bijective mix of the whole recipient,
+     * so ids differing only in their top bits stay apart; two of 10M recipients share a key
+     * with a probability of about 1e-4
+     */
+    private static long key(long recipient, int channel) {
+        return PRESENT | (HyperLogLog.hash(recipient) >>> 5) << 4 | channel;
+    }
+
+    private static final class Segment {
+        final ByteBuffer buffer;
+        final int slots;
+        final int mask;
+        final int sweepAt;
+        final int maxUsed;
+        final AtomicInteger used = new AtomicInteger();
+        final StampedLock lock = new StampedLock();
+        volatile long lastSweepMinute = -1;
+
+        Segment(int slots) {
+            this.buffer = ByteBuffer.allocateDirect(slots * SLOT_BYTES).order(ByteOrder.nativeOrder());
+            this.slots = slots;
+            this.mask = slots - 1;
+            this.sweepAt = (int) (slots * SWEEP_LOAD);
+            this.maxUsed = (int) (slots * MAX_LOAD);
+        }
+
+        long key(int slot) {
+            return (long) LONGS.getVolatile(buffer, slot * SLOT_BYTES);
+        }
+
+        long value(int slot) {
+            return (long) LONGS.getVolatile(buffer, slot * SLOT_BYTES + 8);
+        }
+
+        void put(int slot, long value) {
+            LONGS.setVolatile(buffer, slot * SLOT_BYTES + 8, value);
+        }
+
+        /**
+         * Slot holding {@code key}, claiming an empty one if {@code insert}; {@link #FULL} or {@link #ABSENT} otherwise
+         */
+        int find(long key, long hash, boolean insert) {
+            int slot = (int) hash & mask;
+            for (int probe = 0; probe < slots; probe++) {
+                long current = key(slot);
+                if (current == key) {
+                    return slot;
+                }
+                if (current == 0) {
+                    if (!insert) {
+                        return ABSENT;
+                    }
+                    if (used.get() >= maxUsed) {
+                        return FULL;
+                    }
+                    if (LONGS.compareAndSet(buffer, slot * SLOT_BYTES, 0L, key)) {
+                        used.incrementAndGet();
+                        return slot;
+                    }
+                    // Lost the slot; the winner may have been inserting the same key
+                    if (key(slot) == key) {
+                        return slot;
+                    }
+                }
+                slot = (slot + 1) & mask;
+            }
+            return insert ? FULL : ABSENT;
+        }
+
+        long increment(int slot, int limit, long windowMinutes, long nowMinute) {
+            int offset = slot * SLOT_BYTES + 8;
+            while (true) {
+                long value = (long) LONGS.getVolatile(buffer, offset);
+                long next;
+                if (value == 0 || nowMinute >= (value >>> 32) + windowMinutes) {
+                    next = limit > 0 ? pack(nowMinute, 1) : ~pack(nowMinute, 0);
+                } else if ((int) value >= limit) {
+                    return ~value;
+                } else {
+                    next = value + 1;
+                }
+                if (next < 0) {
+                    return next;
+                }
+                if (LONGS.compareAndSet(buffer, offset, value, next)) {
+                    return next;
+                }
+            }
+        }
+
+        void decrement(int slot, long windowStart) {
+            int offset = slot * SLOT_BYTES + 8;
+            while (true) {
+                long value = (long) LONGS.getVolatile(buffer, offset);
+                if (value == 0 || value >>> 32 != windowStart || (int) value == 0) {
+                    return;
+                }
+                if (LONGS.compareAndSet(buffer, offset, value, value - 1)) {
+                    return;
+                }
+            }
+        }
+
+        void sweepIfDue(long[] windowMinutes, long nowMinute) {
+            if (used.get() >= sweepAt && lastSweepMinute != nowMinute) {
+                sweep(windowMinutes, nowMinute);
+            }
+        }
+
+        long sweep(long[] windowMinutes, long nowMinute) {
+            long stamp = lock.writeLock();
+            try {
+                lastSweepMinute = nowMinute;
+                long removed = 0;
+                int slot = 0;
+                while (slot < slots) {
+                    long key = key(slot);
+                    if (key != 0 && expired(key, value(slot), windowMinutes, nowMinute)) {
+                        delete(slot);
+                        removed++;
+                        // An entry may have shifted into this slot; look at it again
+                        continue;
+                    }
+                    slot++;
+                }
+                used.addAndGet((int) -removed);
+                return removed;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        private static boolean expired(long key, long value, long[] windowMinutes, long nowMinute) {
+            int channel = (int) (key & (MAX_CHANNELS - 1));
+            return value == 0 || channel >= windowMinutes.length || nowMinute >= (value >>> 32) + windowMinutes[channel];
+        }
+
+        /**
+         * Backward-shift deletion (Knuth's Algorithm R): later entries of the probe run that
+         * could live in the hole move into it, so lookups never need tombstones
+         */
+        private void delete(int hole) {
+            int slot = hole;
+            while (true) {
+                slot = (slot + 1) & mask;
+                long key = key(slot);
+                if (key == 0) {
+                    break;
+                }
+                int home = (int) HyperLogLog.hash(key) & mask;
+                boolean stays = hole <= slot ? hole < home && home <= slot : hole < home || home <= slot;
+                if (stays) {
+                    continue;
+                }
+                LONGS.setVolatile(buffer, hole * SLOT_BYTES, key);
+                LONGS.setVolatile(buffer, hole * SLOT_BYTES + 8, value(slot));
+                hole = slot;
+            }
+            LONGS.setVolatile(buffer, hole * SLOT_BYTES, 0L);
+            LONGS.setVolatile(buffer, hole * SLOT_BYTES + 8, 0L);
+        }
+    }
+}
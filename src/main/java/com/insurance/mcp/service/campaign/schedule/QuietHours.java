@@ -0,0 +1,121 @@
+package com.insurance.mcp.service.campaign.schedule;
+
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneRules;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Local quiet hours (e.g. 21:00-08:00) evaluated in each recipient's time zone. Zones are
+ * interned to small indexes; each caches its UTC offset until the next transition, so a check
+ * is arithmetic on epoch minutes. Not thread-safe.
+ */
+public final class QuietHours {
+
+    private static final int DAY = 1440;
+
+    private final int start;
+    private final int end;
+    private final Map<String, Integer> indexes = new HashMap<>();
+    private final List<ZoneClock> zones = new ArrayList<>();
+
+    private QuietHours(int start, int end) {
+        this.start = start;
+        this.end = end;
+    }
+
+    /**
+     * Parse {@code HH:mm-HH:mm}; a blank window means no quiet hours
+     */
+    public static QuietHours parse(String window) {
+        if (window == null || window.isBlank()) {
+            return new QuietHours(0, 0);
+        }
+        String[] bounds = window.trim().split("-");
+        if (bounds.length != 2) {
+            throw new IllegalArgumentException("Quiet hours must be HH:mm-HH:mm, e.g. 21:00-08:00: " + window);
+        }
+        return new QuietHours(minuteOfDay(bounds[0]), minuteOfDay(bounds[1]));
+    }
+
+    /**
+     * Index of a time zone, e.g. {@code America/Chicago}
+     */
+    public int zone(String zoneId) {
+        Integer index = indexes.get(zoneId);
+        if (index == null) {
+            ZoneId zone;
+            try {
+                zone = ZoneId.of(zoneId);
+            } catch (DateTimeException e) {
+                throw new IllegalArgumentException("Unknown time zone: " + zoneId);
+            }
+            if (zones.size() == Short.MAX_VALUE) {
+                throw new IllegalArgumentException("Too many distinct time zones");
+            }
+            index = zones.size();
+            zones.add(new ZoneClock(zone.getRules()));
+            indexes.put(zoneId, index);
+        }
+        return index;
+    }
+
+    /**
+     * Minutes from {@code epochMinute} until quiet hours end in {@code zone}; 0 outside quiet hours
+     */
+    public int delay(int zone, long epochMinute) {
+        if (start == end) {
+            return 0;
+        }
+        int local = (int) Math.floorMod(epochMinute + zones.get(zone).offsetMinutes(epochMinute), (long) DAY);
+        if (start < end) {
+            return local >= start && local < end ? end - local : 0;
+        }
+        if (local >= start) {
+            return DAY - local + end;
+        }
+        return local < end ? end - local : 0;
+    }
+
+    private static int minuteOfDay(String time) {
+        String[] parts = time.trim().split(":");
+        try {
+            int hour = Integer.parseInt(parts[0]);
+            int minute = parts.length > 1 ? Integer.parseInt(parts[1]) : 0;
+            if (parts.length > 2 || hour < 0 || hour > 24 || minute < 0 || minute > 59 || hour * 60 + minute > DAY) {
+                throw new NumberFormatException();
+            }
+            return (hour * 60 + minute) % DAY;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid quiet hours time: " + time);
+        }
+    }
+
+    private static final class ZoneClock {
+        final ZoneRules rules;
+        long validFrom = Long.MAX_VALUE;
+        long validTo = Long.MIN_VALUE;
+        int offset;
+
+        ZoneClock(ZoneRules rules) {
+            this.rules = rules;
+        }
+
+        int offsetMinutes(long epochMinute) {
+            if (epochMinute < validFrom || epochMinute >= validTo) {
+                Instant instant = Instant.ofEpochSecond(epochMinute * 60);
+                offset = rules.getOffset(instant).getTotalSeconds() / 60;
+                ZoneOffsetTransition previous = rules.previousTransition(instant.plusSeconds(1));
+                ZoneOffsetTransition following = rules.nextTransition(instant);
+                validFrom = previous != null ? previous.getInstant().getEpochSecond() / 60 : Long.MIN_VALUE;
+                validTo = following != null ? following.getInstant().getEpochSecond() / 60 : Long.MAX_VALUE;
+            }
+            return offset;
+        }
+    }
+}
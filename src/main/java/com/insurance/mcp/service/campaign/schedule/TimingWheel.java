@@ -0,0 +1,178 @@
+package com.insurance.mcp.service.campaign.schedule;
+
+import java.util.Arrays;
+
+/**
+ * Hierarchical timing wheel of integer entries due at whole minutes: 60 minute buckets for the
+ * current hour, 24 hour buckets for the current day and one bucket per day of the horizon.
+ * Scheduling is O(1); an entry cascades to a finer wheel when its hour or day begins, so each
+ * entry moves at most twice. Buckets are FIFO linked lists threaded through one {@code int[]},
+ * so millions of entries cost 8 bytes each and no objects. Not thread-safe.
+ */
+public final class TimingWheel {
+
+    private static final int MINUTES = 60;
+    private static final int HOURS = 24;
+    private static final int DAY = MINUTES * HOURS;
+    private static final int NONE = -1;
+
+    private int[] next;
+    private int[] due;
+    private final int[] minuteHeads = new int[MINUTES];
+    private final int[] minuteTails = new int[MINUTES];
+    private final int[] hourHeads = new int[HOURS];
+    private final int[] hourTails = new int[HOURS];
+    private final int[] dayHeads;
+    private final int[] dayTails;
+    private final int horizon;
+    private int now;
+    private long size;
+
+    /**
+     * A wheel for minutes {@code 0 .. days * 1440 - 1} with room for {@code capacity} entries to start with
+     */
+    public TimingWheel(int days, int capacity) {
+        this.horizon = days * DAY;
+        this.next = new int[Math.max(16, capacity)];
+        this.due = new int[next.length];
+        this.dayHeads = new int[days];
+        this.dayTails = new int[days];
+        Arrays.fill(minuteHeads, NONE);
+        Arrays.fill(hourHeads, NONE);
+        Arrays.fill(dayHeads, NONE);
+    }
+
+    public int horizon() {
+        return horizon;
+    }
+
+    public long size() {
+        return size;
+    }
+
+    public int now() {
+        return now;
+    }
+
+    /**
+     * Schedule {@code entry} at {@code minute}, which must not be before {@link #now()}
+     *
+     * @return false when the minute is beyond the horizon
+     */
+    public boolean schedule(int entry, int minute) {
+        if (minute >= horizon) {
+            return false;
+        }
+        if (minute < now) {
+            throw new IllegalArgumentException("Minute " + minute + " is before the wheel's current minute " + now);
+        }
+        if (entry >= next.length) {
+            int length = Math.max(entry + 1, next.length + (next.length >> 1));
+            next = Arrays.copyOf(next, length);
+            due = Arrays.copyOf(due, length);
+        }
+        due[entry] = minute;
+        place(entry, minute);
+        size++;
+        return true;
+    }
+
+    /**
+     * First minute at or after {@code from} with entries, advancing the wheel to it; -1 when empty
+     * or when every entry is beyond the horizon. Every entry due before {@code from} must have been taken.
+     */
+    public int nextDue(int from) {
+        if (size == 0 || from >= horizon) {
+            return NONE;
+        }
+        advance(from);
+        for (int minute = from; minute < (from / MINUTES + 1) * MINUTES; minute++) {
+            if (minuteHeads[minute % MINUTES] != NONE) {
+                return minute;
+            }
+        }
+        for (int hour = from / MINUTES + 1; hour < (from / DAY + 1) * HOURS; hour++) {
+            if (hourHeads[hour % HOURS] != NONE) {
+                return nextDue(hour * MINUTES);
+            }
+        }
+        for (int day = from / DAY + 1; day < dayHeads.length; day++) {
+            if (dayHeads[day] != NONE) {
+                return nextDue(day * DAY);
+            }
+        }
+        return NONE;
+    }
+
+    /**
+     * Remove and return the entries due at {@code minute} as a list: the first entry, then
+     * {@link #next(int)} of each until -1. Advances the wheel to {@code minute}.
+     */
+    public int take(int minute) {
+        advance(minute);
+        int slot = minute % MINUTES;
+        int head = minuteHeads[slot];
+        minuteHeads[slot] = NONE;
+        for (int entry = head; entry != NONE; entry = next[entry]) {
+            size--;
+        }
+        return head;
+    }
+
+    /**
+     * Entry after {@code entry} in a list returned by {@link #take}, or -1
+     */
+    public int next(int entry) {
+        return next[entry];
+    }
+
+    /**
+     * Link an entry after another, for callers threading taken entries into their own FIFO lists
+     */
+    public void link(int entry, int following) {
+        next[entry] = following;
+    }
+
+    private void advance(int minute) {
+        if (minute < now) {
+            throw new IllegalArgumentException("Minute " + minute + " is before the wheel's current minute " + now);
+        }
+        int previous = now;
+        now = minute;
+        if (minute / DAY != previous / DAY) {
+            cascade(dayHeads, dayTails, minute / DAY);
+        } else if (minute / MINUTES != previous / MINUTES) {
+            cascade(hourHeads, hourTails, (minute / MINUTES) % HOURS);
+        }
+    }
+
+    private void cascade(int[] heads, int[] tails, int bucket) {
+        int entry = heads[bucket];
+        heads[bucket] = NONE;
+        while (entry != NONE) {
+            int following = next[entry];
+            place(entry, due[entry]);
+            entry = following;
+        }
+    }
+
+    private void place(int entry, int minute) {
+        next[entry] = NONE;
+        if (minute / MINUTES == now / MINUTES) {
+            append(minuteHeads, minuteTails, minute % MINUTES, entry);
+        } else if (minute / DAY == now / DAY) {
+            append(hourHeads, hourTails, (minute / MINUTES) % HOURS, entry);
+        } else {
+            append(dayHeads, dayTails, minute / DAY, entry);
+        }
+    }
+
+    private void append(int[] heads, int[] tails, int bucket, int entry) {
+        if (heads[bucket] == NONE) {
+            heads[bucket] = entry;
+        } else {
+            next[tails[bucket]] = entry;
+        }
+        tails[bucket] = entry;
+    }
+}
@@ -0,0 +1,71 @@
+package com.insurance.mcp.service.campaign.suppression;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * Blocked Bloom filter over 64-bit hashes: every key sets all of its bits inside one 512-bit
+ * block (a cache line), so a lookup costs a single cache miss. Bits can be added while readers
+ * query; additions become visible to readers without locking.
+ */
+public final class BloomFilter {
+
+    private static final VarHandle WORDS = MethodHandles.arrayElementVarHandle(long[].class);
+    private static final int BLOCK_WORDS = 8;
+    private static final int BIT_INDEX_BITS = 9;
+    private static final int MAX_HASHES = 64 / BIT_INDEX_BITS;
+
+    private final long[] words;
+    private final long blocks;
+    private final int hashes;
+
+    /**
+     * A filter sized for {@code expectedKeys} at {@code bitsPerKey} bits each; 10 bits per key
+     * give about 1% false positives
+     */
+    public BloomFilter(long expectedKeys, int bitsPerKey) {
+        long bits = Math.max(512, Math.max(1, expectedKeys) * Math.max(1, bitsPerKey));
+        long blockCount = (bits + 511) / 512;
+        if (blockCount * BLOCK_WORDS > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Bloom filter too large: " + bits + " bits");
+        }
+        this.blocks = blockCount;
+        this.words = new long[(int) (blockCount * BLOCK_WORDS)];
+        this.hashes = (int) Math.max(1, Math.min(MAX_HASHES, Math.round(bitsPerKey * Math.log(2))));
+    }
+
+    public void add(long hash) {
+        int base = block(hash);
+        long bits = bits(hash);
+        for (int i = 0; i < hashes; i++) {
+            int bit = (int) (bits >>> (i * BIT_INDEX_BITS)) & 511;
+            WORDS.getAndBitwiseOr(words, base + (bit >>> 6), 1L << bit);
+        }
+    }
+
+    public boolean mightContain(long hash) {
+        int base = block(hash);
+        long bits = bits(hash);
+        for (int i = 0; i < hashes; i++) {
+            int bit = (int) (bits >>> (i * BIT_INDEX_BITS)) & 511;
+            if (((long) WORDS.getOpaque(words, base + (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public long bytes() {
+        return (long) words.length * Long.BYTES;
+    }
+
+    private int block(long hash) {
+        // Multiply-shift maps the high hash bits onto any block count without a power-of-two size
+        return (int) Math.multiplyHigh(hash & Long.MAX_VALUE, blocks << 1) * BLOCK_WORDS;
+    }
+
+    private static long bits(long hash) {
+        // The block came from the high bits; re-mix so the bit positions are independent of it
+        return hash * 0x9E3779B97F4A7C15L;
+    }
+}
@@ -0,0 +1,117 @@
+package com.insurance.mcp.service.campaign.suppression;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Exact set of recipient keys kept as a sorted array of longs in a read-only memory-mapped file
+ * and searched in place. Opening costs the same for any size; pages are faulted in from the OS
+ * page cache on first use. Files are written next to the target and moved into place
+ * atomically, so a server mapping the previous version never observes a partial file.
+ */
+public final class MappedIdSet {
+
+    private static final ByteOrder BYTE_ORDER = ByteOrder.LITTLE_ENDIAN;
+    private static final long MAGIC = 0x31535050_5553434DL;
+    private static final int HEADER_SIZE = 16;
+    private static final int MAX_SIZE = (Integer.MAX_VALUE - HEADER_SIZE) / Long.BYTES;
+
+    private static final MappedIdSet EMPTY = new MappedIdSet(null, LongBuffer.allocate(0));
+
+    private final Path path;
+    private final LongBuffer ids;
+
+    private MappedIdSet(Path path, LongBuffer ids) {
+        this.path = path;
+        this.ids = ids;
+    }
+
+    public static MappedIdSet empty() {
+        return EMPTY;
+    }
+
+    public static MappedIdSet open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long length = channel.size();
+            if (length < HEADER_SIZE) {
+                throw new IOException("Not a suppression set file: " + path);
+            }
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+            mapped.order(BYTE_ORDER);
+            long count = mapped.getLong(8);
+            if (mapped.getLong(0) != MAGIC || count < 0 || HEADER_SIZE + count * Long.BYTES != length) {
+                throw new IOException("Not a suppression set file: " + path);
+            }
+            return new MappedIdSet(path, mapped.position(HEADER_SIZE).slice().order(BYTE_ORDER).asLongBuffer());
+        }
+    }
+
+    /**
+     * Write the first {@code count} of {@code sortedIds}, which must be sorted and distinct, to {@code target}
+     */
+    public static void write(long[] sortedIds, int count, Path target) throws IOException {
+        if (count > MAX_SIZE) {
+            throw new IOException("Suppression set too large for one file: " + count + " ids");
+        }
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer page = ByteBuffer.allocateDirect(1 << 16).order(BYTE_ORDER);
+            page.putLong(MAGIC).putLong(count);
+            for (int i = 0; i < count; i++) {
+                if (!page.hasRemaining()) {
+                    drain(page, channel);
+                }
+                page.putLong(sortedIds[i]);
+            }
+            drain(page, channel);
+            channel.force(true);
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public boolean contains(long id) {
+        int low = 0;
+        int high = ids.limit() - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long value = ids.get(mid);
+            if (value < id) {
+                low = mid + 1;
+            } else if (value > id) {
+                high = mid - 1;
+            } else {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public int size() {
+        return ids.limit();
+    }
+
+    public long get(int index) {
+        return ids.get(index);
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    private static void drain(ByteBuffer page, FileChannel channel) throws IOException {
+        page.flip();
+        while (page.hasRemaining()) {
+            channel.write(page);
+        }
+        page.clear();
+    }
+}
@@ -0,0 +1,123 @@
+package com.insurance.mcp.service.campaign.template;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+
+/**
+ * Text with {@code {TOKEN}} and {@code {TOKEN|fallback}} slots, parsed once into parallel arrays of
+ * literal segments and slot tokens. Rendering appends segments and slot values to a
+ * {@link StringBuilder}, so it neither re-parses the pattern (as {@code String.format} does on
+ * every call) nor allocates anything beyond the result.
+ */
+public final class MessageTemplate {
+
+    private static final int MAX_RETAINED_BUFFER = 16 * 1024;
+    private static final ThreadLocal<StringBuilder> BUFFER = ThreadLocal.withInitial(() -> new StringBuilder(256));
+
+    private final String pattern;
+    /** {@code literals[i]} precedes {@code slots[i]}; the last literal follows the last slot */
+    private final String[] literals;
+    private final TemplateToken[] slots;
+    private final String[] fallbacks;
+    private final int estimatedLength;
+
+    private MessageTemplate(String pattern, String[] literals, TemplateToken[] slots, String[] fallbacks) {
+        this.pattern = pattern;
+        this.literals = literals;
+        this.slots = slots;
+        this.fallbacks = fallbacks;
+        int length = 0;
+        for (String literal : literals) {
+            length += literal.length();
+        }
+        this.estimatedLength = length + 16 * slots.length;
+    }
+
+    /**
+     * Parse a pattern; unknown tokens and unbalanced braces are rejected here, not at render time
+     */
+    public static MessageTemplate compile(String pattern) {
+        List<String> literals = new ArrayList<>();
+        List<TemplateToken> slots = new ArrayList<>();
+        List<String> fallbacks = new ArrayList<>();
+        StringBuilder literal = new StringBuilder();
+        int i = 0;
+        while (i < pattern.length()) {
+            char c = pattern.charAt(i);
+            if (c == '{') {
+                int end = pattern.indexOf('}', i);
+                if (end < 0) {
+                    throw new IllegalArgumentException("Unclosed slot at " + i + " in template: " + pattern);
+                }
+                String slot = pattern.substring(i + 1, end);
+                int bar = slot.indexOf('|');
+                String name = bar < 0 ? slot : slot.substring(0, bar);
+                try {
+                    slots.add(TemplateToken.valueOf(name.trim()));
+                } catch (IllegalArgumentException e) {
+                    throw new IllegalArgumentException("Unknown token '" + name + "' in template: " + pattern);
+                }
+                fallbacks.add(bar < 0 ? "" : slot.substring(bar + 1));
+                literals.add(literal.toString());
+                literal.setLength(0);
+                i = end + 1;
+            } else {
+                literal.append(c);
+                i++;
+            }
+        }
+        literals.add(literal.toString());
+        return new MessageTemplate(pattern, literals.toArray(new String[0]), slots.toArray(new TemplateToken[0]),
+                fallbacks.toArray(new String[0]));
+    }
+
+    /**
+     * Append the rendered text to {@code out}; a slot without a value renders its fallback
+     */
+    public StringBuilder renderTo(TemplateValues values, StringBuilder out) {
+        out.ensureCapacity(out.length() + estimatedLength);
+        for (int i = 0; i < slots.length; i++) {
+            out.append(literals[i]);
+            String value = values.get(slots[i]);
+            out.append(value != null ? value : fallbacks[i]);
+        }
+        return out.append(literals[slots.length]);
+    }
+
+    /**
+     * Render into this thread's reusable buffer and return the text
+     */
+    public String render(TemplateValues values) {
+        StringBuilder out = buffer();
+        renderTo(values, out);
+        return out.toString();
+    }
+
+    /**
+     * This thread's reusable buffer, emptied; for composing several templates into one string
+     */
+    public static StringBuilder buffer() {
+        StringBuilder out = BUFFER.get();
+        if (out.capacity() > MAX_RETAINED_BUFFER) {
+            out = new StringBuilder(256);
+            BUFFER.set(out);
+        }
+        out.setLength(0);
+        return out;
+    }
+
+    /**
+     * Tokens this template has slots for
+     */
+    public EnumSet<TemplateToken> tokens() {
+        EnumSet<TemplateToken> tokens = EnumSet.noneOf(TemplateToken.class);
+        tokens.addAll(Arrays.asList(slots));
+        return tokens;
+    }
+
+    public String getPattern() {
+        return pattern;
+    }
+}
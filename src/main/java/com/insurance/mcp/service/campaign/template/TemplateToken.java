@@ -0,0 +1,20 @@
+package com.insurance.mcp.service.campaign.template;
+
+/**
+ * Named slots a {@link MessageTemplate} can reference as {@code {NAME}} or {@code {NAME|fallback}}
+ */
+public enum TemplateToken {
+    FIRST_NAME,
+    AGE,
+    INSURANCE_TYPE,
+    BENEFIT,
+    CAMPAIGN_OBJECTIVE,
+    AGE_MIN,
+    AGE_MAX,
+    AGE_RANGE,
+    INCOME_LEVEL,
+    INCOME_SEGMENTS,
+    LOCATION,
+    CHANNELS,
+    RADIUS_KM
+}
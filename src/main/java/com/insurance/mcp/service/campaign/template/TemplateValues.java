@@ -0,0 +1,87 @@
+package com.insurance.mcp.service.campaign.template;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Slot values for rendering, indexed by {@link TemplateToken} ordinal so a render does no
+ * map lookups. Cheap to create per request; not thread-safe.
+ */
+public final class TemplateValues {
+
+    private static final int MAX_CACHED_DISPLAY_NAMES = 256;
+    private static final Map<String, String> DISPLAY_NAMES = new ConcurrentHashMap<>();
+
+    private final String[] values = new String[TemplateToken.values().length];
+
+    public TemplateValues set(TemplateToken token, String value) {
+        values[token.ordinal()] = value;
+        return this;
+    }
+
+    public TemplateValues set(TemplateToken token, long value) {
+        return set(token, Long.toString(value));
+    }
+
+    public String get(TemplateToken token) {
+        return values[token.ordinal()];
+    }
+
+    /**
+     * Replace every value with those of {@code defaults}, e.g. campaign-wide values before a recipient's
+     */
+    public TemplateValues copyFrom(TemplateValues defaults) {
+        System.arraycopy(defaults.values, 0, values, 0, values.length);
+        return this;
+    }
+
+    /**
+     * Fill the personalization tokens ({@code AGE_RANGE}, {@code INCOME_LEVEL}, {@code LOCATION}, ...)
+     * from audience criteria given as a request map
+     */
+    public TemplateValues personalize(Map<?, ?> audienceCriteria) {
+        if (audienceCriteria == null) {
+            return this;
+        }
+        Object minAge = audienceCriteria.get("minAge");
+        Object maxAge = audienceCriteria.get("maxAge");
+        if (minAge != null) {
+            set(TemplateToken.AGE_MIN, minAge.toString());
+        }
+        if (maxAge != null) {
+            set(TemplateToken.AGE_MAX, maxAge.toString());
+        }
+        if (minAge != null && maxAge != null) {
+            set(TemplateToken.AGE_RANGE, minAge + "-" + maxAge);
+        }
+        Object incomeRange = audienceCriteria.get("incomeRange");
+        if (incomeRange instanceof List<?> incomes && !incomes.isEmpty()) {
+            set(TemplateToken.INCOME_LEVEL, incomes.get(0).toString());
+        }
+        Object location = audienceCriteria.get("location");
+        if (location instanceof List<?> locations && !locations.isEmpty()) {
+            set(TemplateToken.LOCATION, locations.get(0).toString());
+        }
+        return this;
+    }
+
+    /**
+     * Human-readable form of a key such as {@code life_insurance}, cached for known keys
+     */
+    public static String displayName(String key) {
+        if (key == null) {
+            return null;
+        }
+        String cached = DISPLAY_NAMES.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        String name = key.replace('_', ' ');
+        // Keys come from requests; stop caching rather than grow without bound
+        if (DISPLAY_NAMES.size() < MAX_CACHED_DISPLAY_NAMES) {
+            DISPLAY_NAMES.putIfAbsent(key, name);
+        }
+        return name;
+    }
+}
@@ -0,0 +1,119 @@
+package com.insurance.mcp.service.support;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Concurrency limit with a bounded wait queue. Up to {@code maxConcurrent} callers hold a permit;
+ * up to {@code maxQueue} more wait for one, at most {@code maxWaitMs}. Anyone
+ * beyond that is rejected at once, so a saturated bulkhead costs its callers nothing but the
+ * rejection instead of tying up their threads.
+ */
+public class Bulkhead {
+
+    private final String name;
+    private final int maxConcurrent;
+    private final int maxQueue;
+    private final long maxWaitMs;
+    private final Semaphore permits;
+    private final AtomicInteger queued = new AtomicInteger();
+    private final LongAdder acquired = new LongAdder();
+    private final LongAdder rejectedQueueFull = new LongAdder();
+    private final LongAdder rejectedTimeout = new LongAdder();
+
+    public Bulkhead(String name, int maxConcurrent, int maxQueue, long maxWaitMs) {
+        if (maxConcurrent < 1 || maxQueue < 0) {
+            throw new IllegalArgumentException("Bulkhead " + name + " needs max-concurrent >= 1 and max-queue >= 0");
+        }
+        this.name = name;
+        this.maxConcurrent = maxConcurrent;
+        this.maxQueue = maxQueue;
+        this.maxWaitMs = maxWaitMs;
+        this.permits = new Semaphore(maxConcurrent, true);
+    }
+
+    public enum Outcome {
+        ACQUIRED, QUEUE_FULL, TIMEOUT
+    }
+
+    /**
+     * Take a permit, waiting in the queue if there is room. A granted permit must be given back
+     * with {@link #release()}.
+     */
+    public Outcome tryAcquire() {
+        try {
+            // Unlike the untimed form, a timed acquire honours fairness and never barges ahead of the queue
+            if (permits.tryAcquire(0, TimeUnit.MILLISECONDS)) {
+                acquired.increment();
+                return Outcome.ACQUIRED;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            rejectedTimeout.increment();
+            return Outcome.TIMEOUT;
+        }
+        if (queued.incrementAndGet() > maxQueue) {
+            queued.decrementAndGet();
+            rejectedQueueFull.increment();
+            return Outcome.QUEUE_FULL;
+        }
+        try {
+            if (permits.tryAcquire(maxWaitMs, TimeUnit.MILLISECONDS)) {
+                acquired.increment();
+                return Outcome.ACQUIRED;
+            }
+            rejectedTimeout.increment();
+            return Outcome.TIMEOUT;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            rejectedTimeout.increment();
+            return Outcome.TIMEOUT;
+        } finally {
+            queued.decrementAndGet();
+        }
+    }
+
+    public void release() {
+        permits.release();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getMaxConcurrent() {
+        return maxConcurrent;
+    }
+
+    public int getMaxQueue() {
+        return maxQueue;
+    }
+
+    /**
+     * Callers holding a permit
+     */
+    public int active() {
+        return maxConcurrent - permits.availablePermits();
+    }
+
+    /**
+     * Callers waiting for a permit
+     */
+    public int queued() {
+        return queued.get();
+    }
+
+    public long acquired() {
+        return acquired.sum();
+    }
+
+    public long rejectedQueueFull() {
+        return rejectedQueueFull.sum();
+    }
+
+    public long rejectedTimeout() {
+        return rejectedTimeout.sum();
+    }
+}
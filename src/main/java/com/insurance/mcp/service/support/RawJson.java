@@ -0,0 +1,44 @@
+package com.insurance.mcp.service.support;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonSerializable;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
+
+import java.io.IOException;
+
+/**
+ * Already serialized JSON placed into a tool result; Jackson copies it into the output verbatim
+ * instead of walking an object graph, and {@link #toString()} is the JSON itself. The value may
+ * be given as consecutive parts, so pre-serialized fragments are spliced without concatenating them.
+ */
+public final class RawJson implements JsonSerializable {
+
+    private final String[] parts;
+
+    public RawJson(String... parts) {
+        if (parts.length == 0) {
+            throw new IllegalArgumentException("Raw JSON needs at least one part");
+        }
+        this.parts = parts;
+    }
+
+    @Override
+    public void serialize(JsonGenerator gen, SerializerProvider serializers) throws IOException {
+        gen.writeRawValue(parts[0]);
+        for (int i = 1; i < parts.length; i++) {
+            gen.writeRaw(parts[i]);
+        }
+    }
+
+    @Override
+    public void serializeWithType(JsonGenerator gen, SerializerProvider serializers, TypeSerializer typeSer)
+            throws IOException {
+        serialize(gen, serializers);
+    }
+
+    @Override
+    public String toString() {
+        return String.join("", parts);
+    }
+}
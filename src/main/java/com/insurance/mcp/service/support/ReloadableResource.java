@@ -0,0 +1,52 @@
+package com.insurance.mcp.service.support;
+
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Externally managed resource (rules, catalogs) that can be polled for changes.
+ * Change detection uses the last-modified timestamp, which works for file: and
+ * exploded classpath: locations; resources packaged in a jar never change.
+ */
+public class ReloadableResource {
+
+    private final Resource resource;
+    private final String location;
+    private volatile long lastModified = Long.MIN_VALUE;
+
+    public ReloadableResource(ResourceLoader resourceLoader, String location) {
+        this.resource = resourceLoader.getResource(location);
+        this.location = location;
+    }
+
+    public String getLocation() {
+        return location;
+    }
+
+    /**
+     * Whether the resource changed since the last {@link #open()}
+     */
+    public boolean hasChanged() {
+        return currentLastModified() != lastModified;
+    }
+
+    /**
+     * Open the resource and remember its timestamp as the loaded revision
+     */
+    public InputStream open() throws IOException {
+        lastModified = currentLastModified();
+        return resource.getInputStream();
+    }
+
+    private long currentLastModified() {
+        try {
+            return resource.lastModified();
+        } catch (IOException e) {
+            // Missing or unreadable; report "unchanged" until it comes back
+            return lastModified;
+        }
+    }
+}
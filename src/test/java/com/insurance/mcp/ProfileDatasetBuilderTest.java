@@ -0,0 +1,113 @@
+package com.insurance.mcp;
+
+import com.insurance.mcp.service.audience.MappedProfileTable;
+import com.insurance.mcp.service.audience.ProfileAttribute;
+import com.insurance.mcp.service.audience.ProfileSegment;
+import com.insurance.mcp.service.audience.SyntheticProfileGenerator;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ProfileDatasetBuilderTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void syntheticDatasetReadsBackUnderAnotherLocale() throws Exception {
+        Path output = directory.resolve("profiles.mcpprof");
+        // Lower-casing "RISK_PROFILE" in Turkish gives a dotless i; column names must not depend on it
+        build(Locale.forLanguageTag("tr-TR"), "--output", output.toString(), "--synthetic", "2000", "--seed", "3");
+
+        assertSameRows(SyntheticProfileGenerator.generate(2000, 3), MappedProfileTable.open(output));
+    }
+
+    @Test
+    void ndjsonDatasetReadsBack() throws Exception {
+        Path input = Files.write(directory.resolve("profiles.ndjson"), List.of(
+                "{\"customer_id\": 11, \"age\": 34, \"gender\": \"female\", \"risk_profile\": \"low_risk\","
+                        + " \"interests\": [\"travel\", \"health\"], \"unknown_field\": 1}",
+                "",
+                "{\"customer_id\": 12, \"location\": \"metro\", \"existing_insurance_types\": [\"auto_insurance\"]}",
+                "{\"customer_id\": 13, \"age\": 61, \"has_existing_policy\": true}"));
+        Path output = directory.resolve("profiles.mcpprof");
+        build(Locale.getDefault(), "--output", output.toString(), "--input", input.toString());
+
+        MappedProfileTable table = MappedProfileTable.open(output);
+        assertEquals(3, table.size());
+        assertEquals(List.of(List.of(11L, 34), List.of(12L, -1), List.of(13L, 61)), rows(table));
+        assertEquals(List.of("low_risk"), values(table, ProfileAttribute.RISK_PROFILE, 0));
+        assertEquals(List.of("health", "travel"), values(table, ProfileAttribute.INTERESTS, 0).stream().sorted().toList());
+        assertEquals(List.of("metro"), values(table, ProfileAttribute.LOCATION, 1));
+        assertEquals(List.of("auto_insurance"), values(table, ProfileAttribute.EXISTING_INSURANCE_TYPES, 1));
+        assertEquals(List.of("true"), values(table, ProfileAttribute.HAS_EXISTING_POLICY, 2));
+        assertEquals(List.of(), values(table, ProfileAttribute.GENDER, 2));
+    }
+
+    private static void build(Locale locale, String... args) throws Exception {
+        Locale previous = Locale.getDefault();
+        Locale.setDefault(locale);
+        try {
+            ProfileDatasetBuilder.main(args);
+        } finally {
+            Locale.setDefault(previous);
+        }
+    }
+
+    private static void assertSameRows(ProfileSegment expected, ProfileSegment actual) {
+        assertEquals(expected.size(), actual.size());
+        assertEquals(rows(expected), rows(actual));
+        for (ProfileAttribute attribute : ProfileAttribute.all()) {
+            for (int row = 0; row < expected.size(); row++) {
+                assertEquals(values(expected, attribute, row), values(actual, attribute, row), attribute + " of row " + row);
+            }
+        }
+        byte[] expectedAges = new byte[expected.size()];
+        byte[] actualAges = new byte[actual.size()];
+        expected.readAges(0, expected.size(), expectedAges);
+        actual.readAges(0, actual.size(), actualAges);
+        assertArrayEquals(expectedAges, actualAges);
+    }
+
+    /**
+     * Customer id and age of every row
+     */
+    private static List<List<Number>> rows(ProfileSegment segment) {
+        byte[] ages = new byte[segment.size()];
+        segment.readAges(0, segment.size(), ages);
+        List<List<Number>> rows = new ArrayList<>(segment.size());
+        for (int row = 0; row < segment.size(); row++) {
+            rows.add(List.of(segment.customerId(row), (int) ages[row]));
+        }
+        return rows;
+    }
+
+    /**
+     * Decoded values of one attribute of one row
+     */
+    private static List<String> values(ProfileSegment segment, ProfileAttribute attribute, int row) {
+        List<String> values = new ArrayList<>();
+        if (attribute.isMultiValued()) {
+            int[] tags = new int[1];
+            segment.readTags(attribute, row, 1, tags);
+            for (int bits = tags[0]; bits != 0; bits &= bits - 1) {
+                values.add(segment.dictionary(attribute).value(Integer.numberOfTrailingZeros(bits) + 1));
+            }
+        } else {
+            short[] codes = new short[1];
+            segment.readCodes(attribute, row, 1, codes);
+            if (codes[0] != 0) {
+                values.add(segment.dictionary(attribute).value(codes[0]));
+            }
+        }
+        return values;
+    }
+}
@@ -0,0 +1,36 @@
+package com.insurance.mcp.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ToolBulkheadServiceTest {
+
+    @Test
+    void closingAPermitTwiceGivesBackOnlyOnePermit() {
+        ToolBulkheadService service = new ToolBulkheadService();
+        ReflectionTestUtils.setField(service, "enabled", true);
+        ReflectionTestUtils.setField(service, "defaultSpec", "16/32");
+        ReflectionTestUtils.setField(service, "limitsSpec", "slow_tool=2/0");
+        ReflectionTestUtils.setField(service, "maxWaitMs", 10L);
+        service.initialize();
+        service.register(List.of("slow_tool"));
+
+        ToolBulkheadService.Permit first = service.acquire("slow_tool");
+        first.close();
+        first.close();
+
+        ToolBulkheadService.Permit second = service.acquire("slow_tool");
+        ToolBulkheadService.Permit third = service.acquire("slow_tool");
+        // Two permits are held again; a double release would have left room for a third
+        assertThrows(ToolBulkheadService.RejectedException.class, () -> service.acquire("slow_tool"));
+        assertEquals(2, ((Map<?, ?>) service.stats().get("slow_tool")).get("active"));
+        second.close();
+        third.close();
+    }
+}
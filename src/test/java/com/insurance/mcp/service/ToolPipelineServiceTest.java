@@ -0,0 +1,102 @@
+package com.insurance.mcp.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.insurance.mcp.model.McpResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ToolPipelineServiceTest {
+
+    private McpToolService mcpToolService;
+    private ToolPipelineService pipelineService;
+
+    @BeforeEach
+    void setUp() {
+        mcpToolService = mock(McpToolService.class);
+        pipelineService = new ToolPipelineService();
+        ReflectionTestUtils.setField(pipelineService, "mcpToolService", mcpToolService);
+        ReflectionTestUtils.setField(pipelineService, "objectMapper", new ObjectMapper());
+        ReflectionTestUtils.setField(pipelineService, "parallelism", 2);
+        ReflectionTestUtils.setField(pipelineService, "maxSteps", 32);
+        ReflectionTestUtils.setField(pipelineService, "maxFanOut", 100);
+        ReflectionTestUtils.setField(pipelineService, "timeoutMs", 10_000L);
+        pipelineService.initialize();
+    }
+
+    @AfterEach
+    void tearDown() {
+        pipelineService.shutdown();
+    }
+
+    @Test
+    void forEachCallsReceiveResolvedArguments() {
+        when(mcpToolService.callTool(any(), eq("list"), anyMap()))
+                .thenReturn(result(Map.of("items", List.of("a", "b"))));
+        when(mcpToolService.callTool(any(), eq("echo"), anyMap()))
+                .thenAnswer(call -> result(call.getArgument(2)));
+
+        McpResponse response = pipelineService.execute("1", Map.of(
+                "steps", List.of(
+                        Map.of("id", "list", "tool", "list"),
+                        Map.of("id", "echo", "tool", "echo", "for_each", "$list.items",
+                                "arguments", Map.of("name", "$item", "position", "$index"))),
+                "outputs", List.of("echo")));
+
+        assertNull(response.getError());
+        Map<?, ?> outputs = (Map<?, ?>) ((Map<?, ?>) response.getResult()).get("outputs");
+        assertEquals(List.of(Map.of("name", "a", "position", 0), Map.of("name", "b", "position", 1)),
+                outputs.get("echo"));
+    }
+
+    @Test
+    void resultWithoutContentObjectFailsTheStep() {
+        when(mcpToolService.callTool(any(), eq("broken"), anyMap()))
+                .thenReturn(McpResponse.builder().jsonrpc("2.0").result("not an object").build());
+
+        McpResponse response = pipelineService.execute("1", Map.of(
+                "steps", List.of(Map.of("id", "only", "tool", "broken"))));
+
+        assertNotNull(response.getError());
+        assertEquals(Map.of("step", "only", "tool", "broken"), response.getError().getData());
+    }
+
+    @Test
+    void stepsAfterATimeoutNeverCallTheirTools() throws InterruptedException {
+        ReflectionTestUtils.setField(pipelineService, "timeoutMs", 100L);
+        when(mcpToolService.callTool(any(), eq("slow"), anyMap())).thenAnswer(call -> {
+            Thread.sleep(300);
+            return result(Map.of("id", 1));
+        });
+        when(mcpToolService.callTool(any(), eq("next"), anyMap())).thenReturn(result(Map.of()));
+
+        McpResponse response = pipelineService.execute("1", Map.of(
+                "steps", List.of(
+                        Map.of("id", "slow", "tool", "slow"),
+                        Map.of("id", "next", "tool", "next", "arguments", Map.of("id", "$slow.id")))));
+
+        assertNotNull(response.getError());
+        Thread.sleep(500);
+        verify(mcpToolService).callTool(any(), eq("slow"), anyMap());
+        verify(mcpToolService, never()).callTool(any(), eq("next"), anyMap());
+    }
+
+    private static McpResponse result(Object content) {
+        return McpResponse.builder().jsonrpc("2.0").result(Map.of("content", content)).build();
+    }
+}
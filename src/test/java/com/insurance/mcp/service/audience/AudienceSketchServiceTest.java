@@ -0,0 +1,108 @@
+package com.insurance.mcp.service.audience;
+
+import com.insurance.mcp.model.campaign.AudienceCriteria;
+import com.insurance.mcp.model.campaign.CustomerProfile;
+import com.insurance.mcp.model.campaign.ProfileChange;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AudienceSketchServiceTest {
+
+    private static final int PROFILES = 20_000;
+
+    private CustomerProfileStore store;
+    private AudienceSketchService sketchService;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        store = new CustomerProfileStore();
+        ReflectionTestUtils.setField(store, "datasetPath", "");
+        ReflectionTestUtils.setField(store, "syntheticCount", PROFILES);
+        ReflectionTestUtils.setField(store, "syntheticSeed", 11L);
+        ReflectionTestUtils.setField(store, "bitmapIndexEnabled", true);
+        ReflectionTestUtils.setField(store, "geoCellDegrees", 0.05);
+        ReflectionTestUtils.setField(store, "sketchIndexEnabled", true);
+        ReflectionTestUtils.setField(store, "sketchPrecision", 14);
+        ReflectionTestUtils.setField(store, "parallelism", 2);
+        ReflectionTestUtils.setField(store, "parallelThresholdRows", Long.MAX_VALUE);
+        ReflectionTestUtils.setField(store, "partitionRows", 4096);
+        ReflectionTestUtils.setField(store, "mergeThresholdRows", Integer.MAX_VALUE);
+        ReflectionTestUtils.setField(store, "identityEnabled", false);
+        ReflectionTestUtils.setField(store, "identityLinkKeys", "");
+        store.initialize();
+        long deadline = System.currentTimeMillis() + 30_000;
+        while (store.snapshot().bitmapIndex() == null || store.snapshot().sketchIndex() == null) {
+            assertTrue(System.currentTimeMillis() < deadline, "indexes not built");
+            Thread.sleep(10);
+        }
+
+        sketchService = new AudienceSketchService();
+        ReflectionTestUtils.setField(sketchService, "customerProfileStore", store);
+        ReflectionTestUtils.setField(sketchService, "precision", 14);
+        ReflectionTestUtils.setField(sketchService, "cacheSize", 256);
+        ReflectionTestUtils.setField(sketchService, "maxSavedAudiences", 10);
+    }
+
+    @AfterEach
+    void tearDown() {
+        store.shutdown();
+    }
+
+    @Test
+    void estimatesCoverExactCountsBeforeAndAfterIngest() {
+        assertReportCoversExactCounts();
+
+        List<ProfileChange> changes = new ArrayList<>();
+        for (long id = 1; id <= 4000; id++) {
+            // Half move existing customers, half add new ones without an age
+            long customerId = id % 2 == 0 ? id : PROFILES + id;
+            changes.add(ProfileChange.builder().op(ProfileChange.UPSERT).profile(CustomerProfile.builder()
+                    .customerId(customerId)
+                    .age(id % 2 == 0 ? 30 + (int) (id % 20) : null)
+                    .gender(id % 3 == 0 ? "male" : "female")
+                    .location("metro")
+                    .riskProfile("low_risk")
+                    .interests(List.of("travel"))
+                    .build()).build());
+        }
+        store.ingest(changes);
+        assertTrue(store.snapshot().parts().size() > 1);
+        assertReportCoversExactCounts();
+    }
+
+    private void assertReportCoversExactCounts() {
+        AudienceCriteria everyone = new AudienceCriteria();
+        AudienceCriteria female = AudienceCriteria.builder().gender(List.of("female")).build();
+        AudienceCriteria metro = AudienceCriteria.builder().location(List.of("metro")).minAge(25).build();
+        AudienceCriteria both = AudienceCriteria.builder().gender(List.of("female")).location(List.of("metro"))
+                .minAge(25).build();
+        List<AudienceCriteria> criteriaList = List.of(everyone, female, metro);
+        long[] counts = store.count(criteriaList).getCounts();
+        long intersection = store.count(List.of(both)).getCounts()[0];
+        assertEquals(store.size(), counts[0]);
+
+        Map<String, Object> report = sketchService.overlapReport(criteriaList, counts, null, null);
+        Map<?, ?> union = (Map<?, ?>) report.get("union_reach");
+        long estimate = (Long) union.get("estimate");
+        long bound = (Long) union.get("error_bound");
+        assertTrue(Math.abs(estimate - counts[0]) <= bound, estimate + " ± " + bound + " vs " + counts[0]);
+
+        for (Object entry : (List<?>) report.get("pairwise_overlap")) {
+            Map<?, ?> pair = (Map<?, ?>) entry;
+            if ((Integer) pair.get("criteria_a") == 1 && (Integer) pair.get("criteria_b") == 2) {
+                List<?> range = (List<?>) pair.get("intersection_range");
+                assertTrue((Long) range.get(0) <= intersection && intersection <= (Long) range.get(1),
+                        range + " vs " + intersection);
+            }
+        }
+    }
+}
@@ -0,0 +1,341 @@
+package com.insurance.mcp.service.audience;
+
+import com.insurance.mcp.model.campaign.AudienceCriteria;
+import com.insurance.mcp.model.campaign.CustomerProfile;
+import com.insurance.mcp.model.campaign.ProfileChange;
+import com.insurance.mcp.service.audience.bitmap.RoaringBitmap;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CustomerProfileStoreTest {
+
+    private static final int PROFILES = 20_000;
+    private static final long SEED = 7;
+
+    private CustomerProfileStore store;
+
+    @AfterEach
+    void tearDown() {
+        if (store != null) {
+            store.shutdown();
+        }
+    }
+
+    @Test
+    void countsMatchBruteForceOnEveryPath() throws Exception {
+        List<AudienceCriteria> criteriaList = criteriaList();
+        long[] expected = bruteForceCounts(SyntheticProfileGenerator.generate(PROFILES, SEED), null, criteriaList);
+        assertTrue(expected[1] > 0 && expected[2] > 0 && expected[3] > 0 && expected[4] > 0);
+
+        store = store(true, Long.MAX_VALUE);
+        awaitBitmapIndex();
+        assertCounts(expected, "bitmap_index", store.count(criteriaList));
+        store.shutdown();
+
+        store = store(false, Long.MAX_VALUE);
+        assertCounts(expected, "column_scan", store.count(criteriaList));
+        store.shutdown();
+
+        store = store(false, 4096);
+        assertCounts(expected, "parallel_column_scan", store.count(criteriaList));
+    }
+
+    @Test
+    void countsMatchBruteForceWithDeltaParts() throws Exception {
+        store = store(true, Long.MAX_VALUE);
+        awaitBitmapIndex();
+        List<ProfileChange> changes = new ArrayList<>();
+        for (long id = 1; id <= 3000; id++) {
+            if (id % 3 == 0) {
+                changes.add(ProfileChange.builder().op(ProfileChange.DELETE).customerId(id).build());
+            } else {
+                // Every other change moves an existing customer, the rest are new customers
+                long customerId = id % 2 == 0 ? id : PROFILES + id;
+                changes.add(ProfileChange.builder().op(ProfileChange.UPSERT).profile(CustomerProfile.builder()
+                        .customerId(customerId)
+                        .age(20 + (int) (id % 50))
+                        .gender(id % 5 == 0 ? "male" : "female")
+                        .location(id % 4 == 0 ? "metro" : "rural")
+                        .riskProfile("low_risk")
+                        .interests(id % 7 == 0 ? List.of("travel") : List.of("health", "sports"))
+                        .existingInsuranceTypes(List.of("auto_insurance"))
+                        .build()).build());
+            }
+        }
+        store.ingest(changes);
+
+        ProfileSnapshot snapshot = store.snapshot();
+        assertTrue(snapshot.parts().size() > 1);
+        List<AudienceCriteria> criteriaList = criteriaList();
+        long[] expected = new long[criteriaList.size()];
+        for (ProfilePart part : snapshot.parts()) {
+            long[] partCounts = bruteForceCounts(part.segment(), part.deletes(), criteriaList);
+            for (int i = 0; i < expected.length; i++) {
+                expected[i] += partCounts[i];
+            }
+        }
+        assertCounts(expected, "bitmap_index+delta_scan", store.count(criteriaList));
+        // 1000 deletes and 1000 new customers
+        assertEquals(PROFILES, store.size());
+    }
+
+    @Test
+    void profilesWithoutAgeMatchOnlyCriteriaWithoutAgeBounds() throws Exception {
+        for (boolean bitmapIndex : new boolean[] {true, false}) {
+            store = store(bitmapIndex, Long.MAX_VALUE);
+            if (bitmapIndex) {
+                awaitBitmapIndex();
+            }
+            List<ProfileChange> changes = new ArrayList<>();
+            for (long id = 1; id <= 2000; id++) {
+                // Half the moved and new customers have no age
+                long customerId = id % 2 == 0 ? id : PROFILES + id;
+                changes.add(ProfileChange.builder().op(ProfileChange.UPSERT).profile(CustomerProfile.builder()
+                        .customerId(customerId)
+                        .age(id % 4 < 2 ? null : 18 + (int) (id % 60))
+                        .gender(id % 5 == 0 ? "male" : "female")
+                        .location(id % 3 == 0 ? "metro" : "rural")
+                        .riskProfile("medium_risk")
+                        .interests(List.of("travel"))
+                        .build()).build());
+            }
+            store.ingest(changes);
+            List<AudienceCriteria> criteriaList = new ArrayList<>(criteriaList());
+            criteriaList.add(AudienceCriteria.builder().minAge(-5).build());
+            criteriaList.add(AudienceCriteria.builder().maxAge(500).location(List.of("metro")).build());
+
+            long[] expected = new long[criteriaList.size()];
+            for (ProfilePart part : store.snapshot().parts()) {
+                long[] partCounts = bruteForceCounts(part.segment(), part.deletes(), criteriaList);
+                for (int i = 0; i < expected.length; i++) {
+                    expected[i] += partCounts[i];
+                }
+            }
+            assertArrayEquals(expected, store.count(criteriaList).getCounts());
+            assertEquals(store.size(), expected[0]);
+            assertTrue(expected[expected.length - 2] < expected[0]);
+
+            // Merged into the base segment, through the rebuilt bitmap index or the scan
+            ReflectionTestUtils.invokeMethod(store, "mergeDelta");
+            ProfileSnapshot merged = store.snapshot();
+            long[] mergedExpected = bruteForceCounts(merged.segment(), merged.parts().get(0).deletes(), criteriaList);
+            assertArrayEquals(expected, mergedExpected);
+            assertArrayEquals(expected, store.count(criteriaList).getCounts());
+            store.shutdown();
+        }
+        store = null;
+    }
+
+    @Test
+    void storeIsEmptyWithoutDatasetOrSyntheticCount() throws Exception {
+        store = new CustomerProfileStore();
+        configure(store, true, Long.MAX_VALUE);
+        ReflectionTestUtils.setField(store, "syntheticCount", 0);
+        store.initialize();
+        AudienceCounts counts = store.count(criteriaList());
+        assertEquals("empty", counts.getSource());
+        assertEquals(0, counts.getPopulation());
+        assertArrayEquals(new long[criteriaList().size()], counts.getCounts());
+    }
+
+    @Test
+    void identityCountsMatchBruteForceWithAndWithoutBitmapIndex() throws Exception {
+        List<AudienceCriteria> criteriaList = criteriaList();
+        long[] expected = bruteForceIdentities(SyntheticProfileGenerator.generate(PROFILES, SEED), null, criteriaList);
+
+        store = store(true);
+        awaitBitmapIndex();
+        assertArrayEquals(expected, store.countIdentities(criteriaList));
+
+        store.shutdown();
+        store = store(false);
+        assertArrayEquals(expected, store.countIdentities(criteriaList));
+    }
+
+    @Test
+    void deletesStopBridgingIdentitiesOnceMerged() throws Exception {
+        store = store(true);
+        awaitBitmapIndex();
+        List<ProfileChange> deletes = new ArrayList<>();
+        for (long id = 1; id <= PROFILES; id += 3) {
+            deletes.add(ProfileChange.builder().op(ProfileChange.DELETE).customerId(id).build());
+        }
+        store.ingest(deletes);
+        List<AudienceCriteria> everyone = List.of(new AudienceCriteria());
+        long[] bridged = store.countIdentities(everyone);
+
+        ReflectionTestUtils.invokeMethod(store, "mergeDelta");
+        ProfileSnapshot merged = store.snapshot();
+        assertEquals(1, merged.parts().size());
+        long[] expected = bruteForceIdentities(merged.segment(), merged.parts().get(0).deletes(), everyone);
+        assertArrayEquals(expected, store.countIdentities(everyone));
+        // Deleted records no longer hold surviving ones in one identity
+        assertTrue(expected[0] > bridged[0], expected[0] + " identities after the merge, " + bridged[0] + " before");
+    }
+
+    private static void assertCounts(long[] expected, String method, AudienceCounts counts) {
+        assertEquals(method, counts.getMethod());
+        assertEquals("synthetic", counts.getSource());
+        assertArrayEquals(expected, counts.getCounts());
+    }
+
+    private CustomerProfileStore store(boolean bitmapIndex) throws Exception {
+        return store(bitmapIndex, 4096);
+    }
+
+    private CustomerProfileStore store(boolean bitmapIndex, long parallelThresholdRows) throws Exception {
+        CustomerProfileStore created = new CustomerProfileStore();
+        configure(created, bitmapIndex, parallelThresholdRows);
+        created.initialize();
+        return created;
+    }
+
+    private static void configure(CustomerProfileStore created, boolean bitmapIndex, long parallelThresholdRows) {
+        ReflectionTestUtils.setField(created, "datasetPath", "");
+        ReflectionTestUtils.setField(created, "syntheticCount", PROFILES);
+        ReflectionTestUtils.setField(created, "syntheticSeed", SEED);
+        ReflectionTestUtils.setField(created, "bitmapIndexEnabled", bitmapIndex);
+        ReflectionTestUtils.setField(created, "geoCellDegrees", 0.05);
+        ReflectionTestUtils.setField(created, "sketchIndexEnabled", false);
+        ReflectionTestUtils.setField(created, "sketchPrecision", 14);
+        ReflectionTestUtils.setField(created, "parallelism", 2);
+        ReflectionTestUtils.setField(created, "parallelThresholdRows", parallelThresholdRows);
+        ReflectionTestUtils.setField(created, "partitionRows", 4096);
+        ReflectionTestUtils.setField(created, "mergeThresholdRows", Integer.MAX_VALUE);
+        ReflectionTestUtils.setField(created, "identityEnabled", true);
+        ReflectionTestUtils.setField(created, "identityLinkKeys", "email,phone,address");
+    }
+
+    private void awaitBitmapIndex() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 30_000;
+        while (store.snapshot().bitmapIndex() == null) {
+            assertTrue(System.currentTimeMillis() < deadline, "bitmap index not built");
+            Thread.sleep(10);
+        }
+    }
+
+    private static List<AudienceCriteria> criteriaList() {
+        return List.of(
+                new AudienceCriteria(),
+                AudienceCriteria.builder().minAge(30).maxAge(45).build(),
+                AudienceCriteria.builder().gender(List.of("female")).location(List.of("metro", "coastal")).build(),
+                AudienceCriteria.builder().minAge(25).interests(List.of("technology", "travel", "no such value")).build(),
+                AudienceCriteria.builder().existingInsuranceTypes(List.of("auto_insurance")).maxAge(40)
+                        .riskProfile(List.of("low_risk", "medium_risk")).build(),
+                AudienceCriteria.builder().gender(List.of("no such value")).build());
+    }
+
+    /**
+     * Rows of {@code segment} matching {@code criteria}, decoded value by value
+     */
+    private static boolean[] bruteForceMatches(ProfileSegment segment, AudienceCriteria criteria) {
+        int rows = segment.size();
+        byte[] ages = new byte[rows];
+        segment.readAges(0, rows, ages);
+        boolean[] matches = new boolean[rows];
+        boolean ageBounded = criteria.getMinAge() != null || criteria.getMaxAge() != null;
+        for (int row = 0; row < rows; row++) {
+            // An unknown age satisfies no age bound
+            matches[row] = !ageBounded || ages[row] != CustomerProfileTable.UNKNOWN_AGE
+                    && (criteria.getMinAge() == null || ages[row] >= criteria.getMinAge())
+                    && (criteria.getMaxAge() == null || ages[row] <= criteria.getMaxAge());
+        }
+        for (ProfileAttribute attribute : ProfileAttribute.all()) {
+            List<String> accepted = attribute.criteriaValues(criteria);
+            if (accepted == null || accepted.isEmpty()) {
+                continue;
+            }
+            ValueDictionary dictionary = segment.dictionary(attribute);
+            if (attribute.isMultiValued()) {
+                int[] tags = new int[rows];
+                segment.readTags(attribute, 0, rows, tags);
+                for (int row = 0; row < rows; row++) {
+                    boolean any = false;
+                    for (int bit = 0; bit < Integer.SIZE; bit++) {
+                        if ((tags[row] & (1 << bit)) != 0 && accepted.contains(dictionary.value(bit + 1))) {
+                            any = true;
+                        }
+                    }
+                    matches[row] &= any;
+                }
+            } else {
+                short[] codes = new short[rows];
+                segment.readCodes(attribute, 0, rows, codes);
+                for (int row = 0; row < rows; row++) {
+                    matches[row] &= codes[row] != 0 && accepted.contains(dictionary.value(codes[row]));
+                }
+            }
+        }
+        return matches;
+    }
+
+    private static long[] bruteForceCounts(ProfileSegment segment, RoaringBitmap deletes,
+                                           List<AudienceCriteria> criteriaList) {
+        long[] counts = new long[criteriaList.size()];
+        for (int i = 0; i < counts.length; i++) {
+            boolean[] matches = bruteForceMatches(segment, criteriaList.get(i));
+            for (int row = 0; row < matches.length; row++) {
+                if (matches[row] && (deletes == null || !deletes.contains(row))) {
+                    counts[i]++;
+                }
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * Distinct identities among the live matching rows, clustering rows that share any key
+     */
+    private static long[] bruteForceIdentities(ProfileSegment segment, RoaringBitmap deletes,
+                                               List<AudienceCriteria> criteriaList) {
+        int rows = segment.size();
+        int[] parent = new int[rows];
+        Arrays.setAll(parent, row -> row);
+        for (IdentityKey key : new IdentityKey[] {IdentityKey.EMAIL, IdentityKey.PHONE, IdentityKey.ADDRESS}) {
+            long[] hashes = new long[rows];
+            segment.readIdentityKeys(key, 0, rows, hashes);
+            Map<Long, Integer> owners = new HashMap<>();
+            for (int row = 0; row < rows; row++) {
+                if (hashes[row] == IdentityKey.NONE) {
+                    continue;
+                }
+                Integer owner = owners.putIfAbsent(hashes[row], row);
+                if (owner != null) {
+                    parent[root(parent, row)] = root(parent, owner);
+                }
+            }
+        }
+        long[] counts = new long[criteriaList.size()];
+        for (int i = 0; i < counts.length; i++) {
+            boolean[] matches = bruteForceMatches(segment, criteriaList.get(i));
+            Set<Integer> identities = new HashSet<>();
+            for (int row = 0; row < rows; row++) {
+                if (matches[row] && (deletes == null || !deletes.contains(row))) {
+                    identities.add(root(parent, row));
+                }
+            }
+            counts[i] = identities.size();
+        }
+        return counts;
+    }
+
+    private static int root(int[] parent, int row) {
+        while (parent[row] != row) {
+            row = parent[row];
+        }
+        return row;
+    }
+}
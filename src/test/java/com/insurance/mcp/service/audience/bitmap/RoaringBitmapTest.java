@@ -0,0 +1,172 @@
+package com.insurance.mcp.service.audience.bitmap;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RoaringBitmapTest {
+
+    @Test
+    void cardinalityAroundTheArrayLimit() {
+        RoaringBitmap atLimit = range(0, Container.ARRAY_MAX_SIZE, 1);
+        RoaringBitmap aboveLimit = range(0, Container.ARRAY_MAX_SIZE + 1, 1);
+
+        assertEquals(4096, atLimit.cardinality());
+        assertEquals(4097, aboveLimit.cardinality());
+        assertTrue(atLimit.contains(4095));
+        assertFalse(atLimit.contains(4096));
+        assertTrue(aboveLimit.contains(4096));
+        assertEquals(-1, atLimit.nextSetBit(4096));
+        assertEquals(4096, aboveLimit.nextSetBit(4096));
+        assertEquals(4096, aboveLimit.andCardinality(atLimit));
+        assertEquals(4097, aboveLimit.or(atLimit).cardinality());
+        assertEquals(List.of(4096), ids(aboveLimit.andNot(atLimit)));
+        // A sparse container costs 2 bytes per value, a dense one a fixed 8 KB
+        assertEquals(range(0, 100, 1).sizeInBytes() + 2 * (4096 - 100), atLimit.sizeInBytes());
+        assertEquals(range(0, 60000, 1).sizeInBytes(), aboveLimit.sizeInBytes());
+    }
+
+    @Test
+    void containersConvertAtTheCardinalityLimit() {
+        ArrayContainer half = array(0, 8192, 2);
+        ArrayContainer otherHalf = array(1, 8192, 2);
+        ArrayContainer limit = array(0, Container.ARRAY_MAX_SIZE, 1);
+
+        // Two arrays whose union exceeds the limit become a bitmap
+        Container union = half.or(otherHalf);
+        assertInstanceOf(BitmapContainer.class, union);
+        assertEquals(8192, union.cardinality());
+        // ... but overlapping arrays whose union fits stay an array
+        Container overlapping = limit.or(array(0, Container.ARRAY_MAX_SIZE, 2));
+        assertInstanceOf(ArrayContainer.class, overlapping);
+        assertEquals(4096, overlapping.cardinality());
+
+        // A bitmap shrinking to the limit becomes an array again, one value above stays a bitmap
+        BitmapContainer dense = (BitmapContainer) array(0, 8192, 1).or(array(8192, 8193, 1));
+        assertEquals(8193, dense.cardinality());
+        Container low = BitmapContainer.of(array(0, 4096, 1)).or(array(6000, 6001, 1));
+        Container shifted = BitmapContainer.of(array(1, 4097, 1)).or(array(6000, 6001, 1));
+        Container and = dense.and(low);
+        assertInstanceOf(BitmapContainer.class, and);
+        assertEquals(4097, and.cardinality());
+        Container andAtLimit = low.and(shifted);
+        assertInstanceOf(ArrayContainer.class, andAtLimit);
+        assertEquals(4096, andAtLimit.cardinality());
+        assertEquals(4096, low.andCardinality(shifted));
+        Container andNot = dense.andNot(array(4097, 8193, 1));
+        assertInstanceOf(BitmapContainer.class, andNot);
+        assertEquals(4097, andNot.cardinality());
+        Container andNotAtLimit = dense.andNot(array(4096, 8193, 1));
+        assertInstanceOf(ArrayContainer.class, andNotAtLimit);
+        assertEquals(4096, andNotAtLimit.cardinality());
+        assertEquals(4095, andNotAtLimit.nextValue(4095));
+        assertEquals(-1, andNotAtLimit.nextValue(4096));
+    }
+
+    @Test
+    void operationsAcrossContainerTypesMatchBitSets() {
+        SplittableRandom random = new SplittableRandom(11);
+        for (int round = 0; round < 20; round++) {
+            BitSet a = randomIds(random);
+            BitSet b = randomIds(random);
+            RoaringBitmap x = bitmap(a);
+            RoaringBitmap y = bitmap(b);
+
+            BitSet and = (BitSet) a.clone();
+            and.and(b);
+            BitSet or = (BitSet) a.clone();
+            or.or(b);
+            BitSet andNot = (BitSet) a.clone();
+            andNot.andNot(b);
+
+            assertEquals(a, bitSet(x));
+            assertEquals(and, bitSet(x.and(y)));
+            assertEquals(and, bitSet(y.and(x)));
+            assertEquals(or, bitSet(x.or(y)));
+            assertEquals(or, bitSet(y.or(x)));
+            assertEquals(andNot, bitSet(x.andNot(y)));
+            assertEquals(and.cardinality(), x.andCardinality(y));
+            assertEquals(and.cardinality(), y.andCardinality(x));
+            assertEquals(or.cardinality(), x.or(y).cardinality());
+            assertEquals(or, bitSet(RoaringBitmap.or(List.of(x.andNot(y), x.and(y), y))));
+            for (int probe = 0; probe < 100; probe++) {
+                int from = random.nextInt(5 << 16);
+                assertEquals(a.nextSetBit(from), x.nextSetBit(from));
+            }
+        }
+    }
+
+    @Test
+    void emptyResultsDropTheirContainers() {
+        RoaringBitmap evens = range(0, 3 << 16, 2);
+        RoaringBitmap odds = range(1, 3 << 16, 2);
+
+        assertTrue(evens.and(odds).isEmpty());
+        assertTrue(evens.andNot(evens).isEmpty());
+        assertEquals(0, evens.and(odds).cardinality());
+        assertEquals(-1, evens.andNot(evens).nextSetBit(0));
+        assertEquals(3 << 16, evens.or(odds).cardinality());
+        assertTrue(RoaringBitmap.or(List.of()).isEmpty());
+        assertTrue(RoaringBitmap.empty().or(evens).and(odds).isEmpty());
+    }
+
+    /**
+     * Ids in five high-bit keys, each key empty, sparse, right at the array limit or dense
+     */
+    private static BitSet randomIds(SplittableRandom random) {
+        int[] cardinalities = {0, 100, Container.ARRAY_MAX_SIZE, Container.ARRAY_MAX_SIZE + 1, 30000};
+        BitSet ids = new BitSet();
+        for (int key = 0; key < 5; key++) {
+            int target = cardinalities[random.nextInt(cardinalities.length)];
+            BitSet low = new BitSet(1 << 16);
+            while (low.cardinality() < target) {
+                low.set(random.nextInt(1 << 16));
+            }
+            int high = key << 16;
+            low.stream().forEach(value -> ids.set(high | value));
+        }
+        return ids;
+    }
+
+    private static ArrayContainer array(int from, int to, int step) {
+        char[] values = new char[(to - from + step - 1) / step];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = (char) (from + i * step);
+        }
+        return new ArrayContainer(values, values.length);
+    }
+
+    private static RoaringBitmap range(int from, int to, int step) {
+        RoaringBitmap.Builder builder = RoaringBitmap.builder();
+        for (int value = from; value < to; value += step) {
+            builder.add(value);
+        }
+        return builder.build();
+    }
+
+    private static RoaringBitmap bitmap(BitSet ids) {
+        RoaringBitmap.Builder builder = RoaringBitmap.builder();
+        ids.stream().forEach(builder::add);
+        return builder.build();
+    }
+
+    private static List<Integer> ids(RoaringBitmap bitmap) {
+        List<Integer> ids = new ArrayList<>();
+        bitmap.forEach(ids::add);
+        return ids;
+    }
+
+    private static BitSet bitSet(RoaringBitmap bitmap) {
+        BitSet ids = new BitSet();
+        bitmap.forEach(ids::set);
+        return ids;
+    }
+}
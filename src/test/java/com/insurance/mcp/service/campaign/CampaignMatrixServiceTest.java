@@ -0,0 +1,109 @@
+package com.insurance.mcp.service.campaign;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CampaignMatrixServiceTest {
+
+    private AudienceTargetingService audienceTargetingService;
+    private CampaignContentService campaignContentService;
+    private CampaignMatrixService matrixService;
+
+    @BeforeEach
+    void setUp() {
+        audienceTargetingService = mock(AudienceTargetingService.class);
+        campaignContentService = mock(CampaignContentService.class);
+        when(campaignContentService.previewCampaignContent(anyMap())).thenReturn(Map.of("title", "Cover that fits"));
+
+        matrixService = new CampaignMatrixService();
+        ReflectionTestUtils.setField(matrixService, "audienceTargetingService", audienceTargetingService);
+        ReflectionTestUtils.setField(matrixService, "campaignContentService", campaignContentService);
+        ReflectionTestUtils.setField(matrixService, "objectMapper", new ObjectMapper());
+        ReflectionTestUtils.setField(matrixService, "parallelism", 2);
+        ReflectionTestUtils.setField(matrixService, "maxCells", 10);
+        matrixService.initialize();
+    }
+
+    @AfterEach
+    void tearDown() {
+        matrixService.shutdown();
+    }
+
+    @Test
+    void recommendedCriteriaCountTowardsMaxCells() throws IOException {
+        recommend(List.of(Map.of("age_range", "25-40"), Map.of("age_range", "41-60"), Map.of("risk", "low_risk")));
+
+        // 1 x 3 x 1 passes the criteria-blind check but is 9 cells with three recommended sets
+        Map<String, Object> fits = arguments(List.of("email", "sms", "push"));
+        assertEquals(9, matrixService.matrix(fits).get("cells_total"));
+
+        Map<String, Object> tooLarge = arguments(List.of("email", "sms", "push", "mail"));
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> matrixService.plan(tooLarge));
+        assertTrue(e.getMessage().contains("12 cells"), e.getMessage());
+    }
+
+    @Test
+    void targetingWithoutCriteriaStillDeliversItsCells() throws IOException {
+        Map<String, Object> recommendation = new HashMap<>();
+        recommendation.put("target_segments", List.of());
+        recommendation.put("recommended_criteria", null);
+        when(audienceTargetingService.recommendAudienceCriteria(anyMap())).thenReturn(recommendation);
+
+        List<Map<String, Object>> cells = new ArrayList<>();
+        CampaignMatrixService.MatrixStats stats = matrixService.run(
+                matrixService.plan(arguments(List.of("email", "sms"))), cells::add);
+
+        assertEquals(2, stats.getCells());
+        assertEquals(0, stats.getFailedCells());
+        for (Map<String, Object> cell : cells) {
+            assertFalse(cell.containsKey("error"), cell.toString());
+            assertEquals(Map.of(), cell.get("audience_criteria"));
+        }
+        // Planning counts no experiment or bandit exposures
+        verify(campaignContentService, never()).recommendCampaignContent(anyMap());
+    }
+
+    @Test
+    void failedTargetingIsOneErrorCellPerRow() throws IOException {
+        when(audienceTargetingService.recommendAudienceCriteria(anyMap())).thenThrow(new IllegalStateException("store offline"));
+
+        List<Map<String, Object>> cells = new ArrayList<>();
+        CampaignMatrixService.MatrixStats stats = matrixService.run(
+                matrixService.plan(arguments(List.of("email", "sms"))), cells::add);
+
+        assertEquals(2, stats.getFailedCells());
+        assertTrue(String.valueOf(cells.get(0).get("error")).contains("store offline"));
+    }
+
+    private void recommend(List<Map<String, Object>> criteria) {
+        when(audienceTargetingService.recommendAudienceCriteria(anyMap()))
+                .thenReturn(Map.of("recommended_criteria", criteria, "target_segments", List.of()));
+    }
+
+    private static Map<String, Object> arguments(List<String> channels) {
+        Map<String, Object> arguments = new HashMap<>();
+        arguments.put("insurance_types", List.of("life_insurance"));
+        arguments.put("channels", channels);
+        arguments.put("campaign_goals", List.of("awareness"));
+        return arguments;
+    }
+}
@@ -0,0 +1,107 @@
+package com.insurance.mcp.service.campaign;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.insurance.mcp.service.campaign.CampaignRenderService.RenderPlan;
+import com.insurance.mcp.service.campaign.template.MessageTemplate;
+import com.insurance.mcp.service.campaign.template.TemplateValues;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CampaignRenderServiceTest {
+
+    @TempDir
+    Path directory;
+
+    private FrequencyCapService frequencyCapService;
+    private CampaignRenderService renderService;
+    private RenderPlan plan;
+
+    @BeforeEach
+    void setUp() {
+        frequencyCapService = new FrequencyCapService();
+        ReflectionTestUtils.setField(frequencyCapService, "enabled", true);
+        ReflectionTestUtils.setField(frequencyCapService, "limitsSpec", "email=3/7d");
+        ReflectionTestUtils.setField(frequencyCapService, "capacity", 1024L);
+        ReflectionTestUtils.setField(frequencyCapService, "snapshotPath", "");
+        frequencyCapService.initialize();
+
+        SuppressionService suppressionService = new SuppressionService();
+        ReflectionTestUtils.setField(suppressionService, "enabled", false);
+
+        renderService = new CampaignRenderService();
+        ReflectionTestUtils.setField(renderService, "objectMapper", new ObjectMapper());
+        ReflectionTestUtils.setField(renderService, "frequencyCapService", frequencyCapService);
+        ReflectionTestUtils.setField(renderService, "suppressionService", suppressionService);
+        ReflectionTestUtils.setField(renderService, "parallelism", 2);
+        ReflectionTestUtils.setField(renderService, "chunkSize", 2);
+        ReflectionTestUtils.setField(renderService, "maxInFlightChunks", 2);
+        ReflectionTestUtils.setField(renderService, "directory", directory.toString());
+        renderService.initialize();
+
+        plan = new RenderPlan("email", MessageTemplate.compile("Your quote"), MessageTemplate.compile("Hi {FIRST_NAME|there}"),
+                new TemplateValues(), frequencyCapService.channel("email"), false, null, null);
+    }
+
+    @AfterEach
+    void tearDown() {
+        renderService.shutdown();
+        frequencyCapService.shutdown();
+    }
+
+    @Test
+    void failedBatchReleasesItsContacts() throws IOException {
+        List<String> lines = new ArrayList<>();
+        for (int id = 1; id <= 7; id++) {
+            lines.add("{\"customer_id\": " + id + "}");
+        }
+        lines.add("{\"customer_id\": ");
+        Path input = Files.write(directory.resolve("recipients.jsonl"), lines);
+        Path output = directory.resolve("out/rendered.jsonl");
+
+        assertThrows(IllegalArgumentException.class, () -> renderService.renderFile(plan, input, output));
+        assertFalse(Files.exists(output));
+        assertFalse(Files.exists(output.resolveSibling("rendered.jsonl.part")));
+
+        int email = plan.getFrequencyCapChannel();
+        for (long id = 1; id <= 7; id++) {
+            for (int contact = 0; contact < 3; contact++) {
+                assertTrue(frequencyCapService.tryContact(id, email), "recipient " + id + " contact " + contact);
+            }
+            assertFalse(frequencyCapService.tryContact(id, email));
+        }
+    }
+
+    @Test
+    void completedBatchKeepsItsContacts() throws IOException {
+        List<String> lines = new ArrayList<>();
+        for (int id = 1; id <= 7; id++) {
+            lines.add("{\"customer_id\": " + id + "}");
+        }
+        Path input = Files.write(directory.resolve("recipients.jsonl"), lines);
+        Path output = directory.resolve("out/rendered.jsonl");
+
+        assertEquals(7, renderService.renderFile(plan, input, output).getRendered());
+        assertEquals(7, Files.readAllLines(output).size());
+
+        int email = plan.getFrequencyCapChannel();
+        for (long id = 1; id <= 7; id++) {
+            assertTrue(frequencyCapService.tryContact(id, email));
+            assertTrue(frequencyCapService.tryContact(id, email));
+            assertFalse(frequencyCapService.tryContact(id, email));
+        }
+    }
+}
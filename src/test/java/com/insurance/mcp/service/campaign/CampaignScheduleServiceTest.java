@@ -0,0 +1,177 @@
+package com.insurance.mcp.service.campaign;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CampaignScheduleServiceTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private FrequencyCapService frequencyCapService;
+    private CampaignScheduleService scheduleService;
+    private int email;
+
+    @BeforeEach
+    void setUp() {
+        frequencyCapService = new FrequencyCapService();
+        ReflectionTestUtils.setField(frequencyCapService, "enabled", true);
+        ReflectionTestUtils.setField(frequencyCapService, "limitsSpec", "email=3/7d");
+        ReflectionTestUtils.setField(frequencyCapService, "capacity", 1024L);
+        ReflectionTestUtils.setField(frequencyCapService, "snapshotPath", "");
+        frequencyCapService.initialize();
+        email = frequencyCapService.channel("email");
+
+        SuppressionService suppressionService = new SuppressionService();
+        ReflectionTestUtils.setField(suppressionService, "enabled", false);
+
+        scheduleService = new CampaignScheduleService();
+        ReflectionTestUtils.setField(scheduleService, "frequencyCapService", frequencyCapService);
+        ReflectionTestUtils.setField(scheduleService, "suppressionService", suppressionService);
+        ReflectionTestUtils.setField(scheduleService, "objectMapper", objectMapper);
+        ReflectionTestUtils.setField(scheduleService, "ratesSpec", "email=100");
+        ReflectionTestUtils.setField(scheduleService, "quietHours", "");
+        ReflectionTestUtils.setField(scheduleService, "defaultTimezone", "UTC");
+        ReflectionTestUtils.setField(scheduleService, "horizonDays", 14);
+        ReflectionTestUtils.setField(scheduleService, "maxHorizonDays", 90);
+        scheduleService.initialize();
+    }
+
+    @AfterEach
+    void tearDown() {
+        frequencyCapService.shutdown();
+    }
+
+    @Test
+    void replanningSpendsNoContacts() throws IOException {
+        String recipients = "{\"customer_id\":1}\n{\"customer_id\":2}\n{\"customer_id\":3}\n";
+        for (int run = 0; run < 5; run++) {
+            CampaignScheduleService.ScheduleStats stats = schedule(recipients, Map.of()).stats;
+            assertEquals(3, stats.getScheduled());
+            assertEquals(0, stats.getFrequencyCapped());
+        }
+        for (int contact = 0; contact < 3; contact++) {
+            assertTrue(frequencyCapService.tryContact(1, email));
+        }
+        assertFalse(frequencyCapService.tryContact(1, email));
+    }
+
+    @Test
+    void capIsEvaluatedAtThePlannedMinute() throws IOException {
+        for (int contact = 0; contact < 3; contact++) {
+            assertTrue(frequencyCapService.tryContact(7, email));
+        }
+        String recipients = "{\"customer_id\":7}\n";
+
+        Result soon = schedule(recipients, Map.of("start_at", Instant.now().plus(Duration.ofHours(1)).toString()));
+        assertEquals(1, soon.stats.getFrequencyCapped());
+        assertEquals("frequency_cap", soon.lines.get(0).get("skipped").asText());
+
+        // The 7-day window of today's contacts has ended by day 8
+        Result later = schedule(recipients, Map.of("start_at", Instant.now().plus(Duration.ofDays(8)).toString()));
+        assertEquals(1, later.stats.getScheduled());
+        assertEquals(0, later.stats.getFrequencyCapped());
+    }
+
+    @Test
+    void renderedBatchIsNotCountedTwice() throws IOException {
+        // Rendering counted recipient 8's third contact when it wrote the message
+        for (int contact = 0; contact < 3; contact++) {
+            assertTrue(frequencyCapService.tryContact(8, email));
+        }
+        String rendered = "{\"customer_id\":8,\"channel\":\"email\",\"subject\":\"s\",\"message\":\"m\"}\n"
+                + "{\"customer_id\":9,\"channel\":\"email\",\"skipped\":\"frequency_cap\"}\n"
+                + "{\"customer_id\":10,\"channel\":\"email\",\"skipped\":\"suppressed\"}\n";
+        Result result = schedule(rendered, Map.of());
+        assertEquals(1, result.stats.getScheduled());
+        assertEquals(1, result.stats.getFrequencyCapped());
+        assertEquals(1, result.stats.getSuppressed());
+        Map<Long, String> outcomes = new HashMap<>();
+        for (JsonNode line : result.lines) {
+            outcomes.put(line.get("customer_id").asLong(), line.has("send_at") ? "sent" : line.get("skipped").asText());
+        }
+        assertEquals(Map.of(8L, "sent", 9L, "frequency_cap", 10L, "suppressed"), outcomes);
+
+        // Without a rendered message the same recipient is over the limit
+        assertEquals(1, schedule("{\"customer_id\":8}\n", Map.of()).stats.getFrequencyCapped());
+    }
+
+    @Test
+    void recipientsBeyondHorizonAreSkipped() throws IOException {
+        StringBuilder recipients = new StringBuilder();
+        for (int id = 0; id < 1441; id++) {
+            recipients.append("{\"customer_id\":").append(100 + id).append("}\n");
+        }
+        Result result = schedule(recipients.toString(), Map.of("rate_per_minute", 1, "horizon_days", 1));
+        assertEquals(1440, result.stats.getScheduled());
+        assertEquals(1, result.stats.getBeyondHorizon());
+        JsonNode last = result.lines.get(result.lines.size() - 1);
+        assertEquals(1540, last.get("customer_id").asLong());
+        assertEquals("horizon", last.get("skipped").asText());
+    }
+
+    @Test
+    void recipientsKeepTextIdsAndCountedMarksAcrossGrowth() throws IOException {
+        CampaignScheduleService.Recipients recipients = new CampaignScheduleService.Recipients();
+        JsonNodeFactory nodes = JsonNodeFactory.instance;
+        int entries = (1 << 16) + 10;
+        for (int i = 0; i < entries; i++) {
+            JsonNode id = i % 1000 == 0 ? nodes.textNode("c-" + i) : nodes.numberNode((long) i);
+            assertEquals(i, recipients.add(id, i % 3, i % 7 == 0));
+        }
+        assertEquals(entries, recipients.size);
+        assertEquals(FrequencyCapService.recipientKey("c-65000"), recipients.key(65000));
+        assertEquals(65001, recipients.key(65001));
+        assertTrue(recipients.counted(65520));
+        assertFalse(recipients.counted(65521));
+        assertEquals(2, recipients.zones[65537]);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (var json = objectMapper.getFactory().createGenerator(out)) {
+            json.writeStartObject();
+            recipients.writeId(json, 65000);
+            json.writeEndObject();
+        }
+        assertEquals("{\"customer_id\":\"c-65000\"}", out.toString(StandardCharsets.UTF_8));
+    }
+
+    private Result schedule(String recipients, Map<String, Object> arguments) throws IOException {
+        Map<String, Object> planArguments = new HashMap<>(arguments);
+        planArguments.put("channel", "email");
+        planArguments.putIfAbsent("timezone", "UTC");
+        CampaignScheduleService.SchedulePlan plan = scheduleService.plan(planArguments);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Result result = new Result();
+        result.stats = scheduleService.schedule(plan, new BufferedReader(new StringReader(recipients)), out);
+        for (String line : out.toString(StandardCharsets.UTF_8).split("\n")) {
+            if (!line.isBlank()) {
+                result.lines.add(objectMapper.readTree(line));
+            }
+        }
+        return result;
+    }
+
+    private static final class Result {
+        CampaignScheduleService.ScheduleStats stats;
+        final List<JsonNode> lines = new ArrayList<>();
+    }
+}
@@ -0,0 +1,149 @@
+package com.insurance.mcp.service.campaign;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ContentBanditTest {
+
+    private static final int DRAWS = 200_000;
+
+    @Test
+    void gammaDrawsHaveTheShapesMeanAndVariance() {
+        // Exponential, full Marsaglia-Tsang, and the Wilson-Hilferty approximation from shape 50
+        for (double shape : new double[] {1, 1.5, 4, 49, 50, 400, 20_000}) {
+            double sum = 0;
+            double sumSquares = 0;
+            for (int i = 0; i < DRAWS; i++) {
+                double draw = ContentBandit.gamma(shape, ThreadLocalRandom.current());
+                assertTrue(draw >= 0, "negative gamma draw at shape " + shape);
+                sum += draw;
+                sumSquares += draw * draw;
+            }
+            double mean = sum / DRAWS;
+            double variance = sumSquares / DRAWS - mean * mean;
+            assertEquals(shape, mean, 0.01 * shape, "mean at shape " + shape);
+            assertEquals(shape, variance, 0.05 * shape, "variance at shape " + shape);
+        }
+    }
+
+    @Test
+    void betaDrawsMatchThePosterior() {
+        for (double[] ab : new double[][] {{1, 1}, {3, 7}, {60, 140}, {2_000, 8_000}}) {
+            double alpha = ab[0];
+            double beta = ab[1];
+            double sum = 0;
+            double sumSquares = 0;
+            for (int i = 0; i < DRAWS; i++) {
+                double draw = ContentBandit.beta(alpha, beta, ThreadLocalRandom.current());
+                assertTrue(draw >= 0 && draw <= 1);
+                sum += draw;
+                sumSquares += draw * draw;
+            }
+            double mean = sum / DRAWS;
+            double variance = sumSquares / DRAWS - mean * mean;
+            double expectedMean = alpha / (alpha + beta);
+            double expectedVariance = alpha * beta / ((alpha + beta) * (alpha + beta) * (alpha + beta + 1));
+            assertEquals(expectedMean, mean, 0.005, "mean of Beta(" + alpha + ", " + beta + ")");
+            assertEquals(expectedVariance, variance, 0.05 * expectedVariance, "variance of Beta(" + alpha + ", " + beta + ")");
+        }
+    }
+
+    @Test
+    void thompsonSamplingFavoursTheBetterArm() {
+        ContentBandit bandit = bandit(ContentBandit.Policy.THOMPSON, new long[][] {{1000, 100}, {1000, 300}, {1000, 200}});
+        int[] chosen = new int[3];
+        for (int i = 0; i < 10_000; i++) {
+            chosen[bandit.choose()]++;
+        }
+        assertTrue(chosen[1] > 9_900, "better arm chosen " + chosen[1] + " times");
+    }
+
+    @Test
+    void ucbTriesUntriedArmsFirst() {
+        ContentBandit bandit = bandit(ContentBandit.Policy.UCB, new long[][] {{50, 40}, {0, 0}, {50, 1}, {0, 0}});
+        boolean[] seen = new boolean[4];
+        for (int i = 0; i < 200; i++) {
+            int arm = bandit.choose();
+            assertTrue(arm == 1 || arm == 3, "tried arm " + arm + " chosen before untried ones");
+            seen[arm] = true;
+        }
+        assertTrue(seen[1] && seen[3]);
+    }
+
+    @Test
+    void ucbChoosesHighestMeanPlusExplorationBonus() {
+        long[][] stats = {{1000, 100}, {1000, 500}, {900, 300}};
+        assertEquals(ucb1(stats), bandit(ContentBandit.Policy.UCB, stats).choose());
+        assertEquals(1, ucb1(stats));
+
+        // A rarely tried arm wins on its bonus despite a lower mean
+        long[][] underexplored = {{1000, 500}, {2, 0}};
+        assertEquals(1, ucb1(underexplored));
+        assertEquals(1, bandit(ContentBandit.Policy.UCB, underexplored).choose());
+    }
+
+    @Test
+    void armsCombineTitleAndBenefit() {
+        BanditArm[] titles = arms(new long[][] {{100, 1}, {100, 60}});
+        BanditArm[] benefits = arms(new long[][] {{100, 5}, {100, 5}, {100, 70}});
+        ContentBandit bandit = new ContentBandit("life:email:0", ContentBandit.Policy.UCB, titles, benefits);
+        assertEquals(6, bandit.armCount());
+        int arm = bandit.choose();
+        assertEquals(1 * 3 + 2, arm);
+        assertEquals("life:email:0:1:2", bandit.token(arm));
+
+        bandit.recordExposure(arm);
+        bandit.recordReward(arm);
+        titles[1].publish();
+        benefits[2].publish();
+        assertEquals(101, titles[1].trials());
+        assertEquals(61, titles[1].successes());
+        assertEquals(71, benefits[2].successes());
+    }
+
+    /**
+     * Index of the UCB1 choice, mean plus sqrt(2 ln n / n_i), computed independently
+     */
+    private static int ucb1(long[][] stats) {
+        long total = 0;
+        for (long[] arm : stats) {
+            total += arm[0];
+        }
+        int best = -1;
+        double bestScore = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < stats.length; i++) {
+            double score = (double) stats[i][1] / stats[i][0] + Math.sqrt(2 * Math.log(total) / stats[i][0]);
+            if (score > bestScore) {
+                bestScore = score;
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    private static ContentBandit bandit(ContentBandit.Policy policy, long[][] stats) {
+        return new ContentBandit("key", policy, arms(stats), arms(new long[][] {{0, 0}}));
+    }
+
+    /**
+     * Published arms with the given {trials, successes}
+     */
+    private static BanditArm[] arms(long[][] stats) {
+        BanditArm[] arms = new BanditArm[stats.length];
+        for (int i = 0; i < stats.length; i++) {
+            arms[i] = new BanditArm("arm " + i);
+            for (long t = 0; t < stats[i][0]; t++) {
+                arms[i].recordTrial();
+            }
+            for (long s = 0; s < stats[i][1]; s++) {
+                arms[i].recordSuccess();
+            }
+            arms[i].publish();
+        }
+        return arms;
+    }
+}
@@ -0,0 +1,129 @@
+package com.insurance.mcp.service.campaign;
+
+import com.insurance.mcp.service.audience.sketch.HyperLogLog;
+import com.insurance.mcp.service.campaign.suppression.BloomFilter;
+import com.insurance.mcp.service.campaign.suppression.MappedIdSet;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SuppressionServiceTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void bloomFilterHasNoFalseNegativesAndFewFalsePositives() {
+        BloomFilter bloom = new BloomFilter(100_000, 10);
+        for (long key = 0; key < 100_000; key++) {
+            bloom.add(HyperLogLog.hash(key));
+        }
+        int falsePositives = 0;
+        for (long key = 0; key < 100_000; key++) {
+            assertTrue(bloom.mightContain(HyperLogLog.hash(key)));
+            falsePositives += bloom.mightContain(HyperLogLog.hash(-1 - key)) ? 1 : 0;
+        }
+        assertTrue(falsePositives < 3_000, falsePositives + " false positives in 100000");
+    }
+
+    @Test
+    void mappedSetRoundTrips() throws IOException {
+        long[] ids = LongStream.range(0, 50_000).map(i -> i * 7 - 100_000).toArray();
+        Path file = directory.resolve("ids.bin");
+        MappedIdSet.write(ids, ids.length, file);
+        MappedIdSet set = MappedIdSet.open(file);
+        assertEquals(ids.length, set.size());
+        for (long id : ids) {
+            assertTrue(set.contains(id));
+            assertFalse(set.contains(id + 1));
+        }
+        assertEquals(ids[123], set.get(123));
+    }
+
+    @Test
+    void bloomPositivesAreConfirmedAgainstTheMappedSet() throws IOException {
+        List<String> listed = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++) {
+            listed.add("listed-" + i);
+        }
+        Path list = writeSource(listed);
+        SuppressionService service = service(list, directory.resolve("store/suppression.bin"));
+        service.refresh();
+
+        for (String id : listed) {
+            assertTrue(service.isSuppressed(id), id);
+        }
+        // The Bloom filter lets ~1% through; the exact set must reject every one of them
+        for (int i = 0; i < 20_000; i++) {
+            assertFalse(service.isSuppressed("other-" + i));
+        }
+        assertEquals(20_000, service.stats().get("list_size"));
+    }
+
+    @Test
+    void apiUpdatesSurviveSourceReloadsAndRestarts() throws IOException {
+        Path list = writeSource(List.of("a", "b", "c"));
+        Path store = directory.resolve("suppression.bin");
+        SuppressionService service = service(list, store);
+        service.refresh();
+        service.update(List.of("api-added"), List.of("b"));
+        assertTrue(service.isSuppressed("api-added"));
+        assertFalse(service.isSuppressed("b"));
+        // Merged into the mapped file
+        service.refresh();
+        assertTrue(service.isSuppressed("api-added"));
+
+        // A changed source is rebuilt from scratch, with the API updates reapplied
+        writeSource(List.of("a", "b", "c", "d"));
+        Files.setLastModifiedTime(list, FileTime.fromMillis(Files.getLastModifiedTime(list).toMillis() + 10_000));
+        service.refresh();
+        assertTrue(service.isSuppressed("d"));
+        assertTrue(service.isSuppressed("api-added"));
+        assertFalse(service.isSuppressed("b"));
+
+        // A restart reports the source as changed on its first poll
+        SuppressionService restarted = service(list, store);
+        assertTrue(restarted.isSuppressed("api-added"));
+        assertFalse(restarted.isSuppressed("b"));
+        restarted.refresh();
+        assertTrue(restarted.isSuppressed("api-added"));
+        assertFalse(restarted.isSuppressed("b"));
+        assertTrue(restarted.isSuppressed("a"));
+        assertEquals(4, restarted.stats().get("list_size"));
+
+        // Adding back an id removed through the API overrides the removal
+        restarted.update(List.of("b"), List.of());
+        restarted.refresh();
+        assertTrue(restarted.isSuppressed("b"));
+    }
+
+    private Path writeSource(List<String> ids) throws IOException {
+        Path list = directory.resolve("suppression.txt");
+        Files.write(list, ids);
+        return list;
+    }
+
+    private static SuppressionService service(Path list, Path store) {
+        SuppressionService service = new SuppressionService();
+        ReflectionTestUtils.setField(service, "resourceLoader", new DefaultResourceLoader());
+        ReflectionTestUtils.setField(service, "enabled", true);
+        ReflectionTestUtils.setField(service, "location", list.toUri().toString());
+        ReflectionTestUtils.setField(service, "storePath", store.toString());
+        ReflectionTestUtils.setField(service, "bloomBitsPerKey", 10);
+        service.initialize();
+        return service;
+    }
+}
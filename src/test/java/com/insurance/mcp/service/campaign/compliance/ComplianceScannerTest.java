@@ -0,0 +1,93 @@
+package com.insurance.mcp.service.campaign.compliance;
+
+import com.insurance.mcp.model.campaign.ComplianceRuleSet;
+import com.insurance.mcp.model.campaign.ComplianceViolation;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ComplianceScannerTest {
+
+    private static final ComplianceRules RULES = ComplianceRules.compile(ComplianceRuleSet.builder()
+            .version("test")
+            .rules(List.of(
+                    rule("risk_free", List.of("risk-free", "no risk"), null, null, null),
+                    // The literal is deliberately not part of the pattern, so gating is observable
+                    rule("no_risk_promise", null, "\\bpromise\\b", List.of("guaranteed"), null),
+                    rule("percent", null, "\\d+%", null, null),
+                    rule("no_medical_exam", List.of("no medical exam"), null, null, List.of("NY", " ca ")),
+                    rule("tax_free", List.of("tax-free"), null, null, List.of("ny"))))
+            .build());
+
+    @Test
+    void phraseViolationsCarryRuleAndPosition() {
+        List<ComplianceViolation> violations = RULES.scanner(null).scan("subject", "Totally RISK  FREE cover");
+
+        assertEquals(1, violations.size());
+        ComplianceViolation violation = violations.get(0);
+        assertEquals("risk_free", violation.getRule());
+        assertEquals("subject", violation.getField());
+        assertEquals(8, violation.getStart());
+        assertEquals(18, violation.getEnd());
+        assertEquals("RISK  FREE", violation.getMatch());
+    }
+
+    @Test
+    void regexRunsOnlyWhenAPrefilterLiteralIsPresent() {
+        ComplianceScanner scanner = RULES.scanner(null);
+
+        assertEquals(List.of(), rules(scanner.scan("body", "We promise a fair price")));
+        assertEquals(List.of("no_risk_promise"), rules(scanner.scan("body", "We promise guaranteed cover")));
+        // Without prefilter literals a regex runs on every text
+        assertEquals(List.of("percent"), rules(scanner.scan("body", "Pay 10% less")));
+    }
+
+    @Test
+    void phraseAndRegexViolationsComeOutByPosition() {
+        List<ComplianceViolation> violations = RULES.scanner(null)
+                .scan("body", "Save 15%, no risk, we promise: guaranteed");
+
+        assertEquals(List.of("percent", "risk_free", "no_risk_promise"), rules(violations));
+        assertEquals(List.of(5, 10, 22), violations.stream().map(ComplianceViolation::getStart).toList());
+    }
+
+    @Test
+    void jurisdictionsAddTheirOwnRulesToTheGeneralOnes() {
+        String text = "No medical exam, tax-free and risk-free";
+
+        assertEquals(List.of("risk_free"), rules(RULES.scanner(null).scan("body", text)));
+        assertEquals(List.of("no_medical_exam", "tax_free", "risk_free"), rules(RULES.scanner("NY").scan("body", text)));
+        assertEquals(List.of("no_medical_exam", "risk_free"), rules(RULES.scanner(" ca").scan("body", text)));
+        // Codes without rules of their own get the general rules
+        assertSame(RULES.scanner(null), RULES.scanner("TX"));
+        assertEquals(List.of("CA", "NY"), RULES.jurisdictions().stream().sorted().toList());
+    }
+
+    @Test
+    void rejectsRulesWithoutPhrasesOrRegex() {
+        ComplianceRuleSet ruleSet = ComplianceRuleSet.builder()
+                .rules(List.of(rule("empty", List.of(), null, null, null)))
+                .build();
+        assertThrows(IllegalArgumentException.class, () -> ComplianceRules.compile(ruleSet));
+    }
+
+    private static ComplianceRuleSet.Rule rule(String id, List<String> phrases, String regex, List<String> prefilter,
+                                               List<String> jurisdictions) {
+        return ComplianceRuleSet.Rule.builder()
+                .id(id)
+                .phrases(phrases)
+                .regex(regex)
+                .prefilter(prefilter)
+                .jurisdictions(jurisdictions)
+                .severity("block")
+                .build();
+    }
+
+    private static List<String> rules(List<ComplianceViolation> violations) {
+        return violations.stream().map(ComplianceViolation::getRule).toList();
+    }
+}
@@ -0,0 +1,79 @@
+package com.insurance.mcp.service.campaign.compliance;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class PhraseAutomatonTest {
+
+    @Test
+    void reportsOverlappingAndNestedPhrases() {
+        PhraseAutomaton.Builder builder = PhraseAutomaton.builder();
+        int he = builder.add("he", false);
+        int she = builder.add("she", false);
+        int his = builder.add("his", false);
+        int hers = builder.add("hers", false);
+        PhraseAutomaton automaton = builder.build();
+
+        // Phrases ending at the same character come out shortest suffix first
+        assertEquals(List.of(List.of(he, 2, 4), List.of(she, 1, 4), List.of(hers, 2, 6)), matches(automaton, "ushers"));
+        assertEquals(List.of(List.of(his, 0, 3), List.of(he, 3, 5), List.of(she, 2, 5)), matches(automaton, "hishe"));
+    }
+
+    @Test
+    void separatorRunsMatchOneSeparator() {
+        PhraseAutomaton.Builder builder = PhraseAutomaton.builder();
+        int riskFree = builder.add("risk-free", true);
+        int noExam = builder.add("no  medical_exam ", true);
+        PhraseAutomaton automaton = builder.build();
+
+        String text = "Risk \t- free cover, no-medical – exam, risk free";
+        assertEquals(List.of(
+                List.of(riskFree, 0, 12),
+                List.of(noExam, 20, 37),
+                List.of(riskFree, 39, 48)), matches(automaton, text));
+        assertEquals("Risk \t- free", text.substring(0, 12));
+        assertEquals("no-medical – exam", text.substring(20, 37));
+        assertEquals(List.of(), matches(automaton, "riskfree"));
+    }
+
+    @Test
+    void foldsCase() {
+        PhraseAutomaton.Builder builder = PhraseAutomaton.builder();
+        int phrase = builder.add("Guaranteed Approval", true);
+        PhraseAutomaton automaton = builder.build();
+
+        assertEquals(List.of(List.of(phrase, 0, 19), List.of(phrase, 21, 40)),
+                matches(automaton, "GUARANTEED APPROVAL; guaranteed approval"));
+        assertEquals(List.of(List.of(phrase, 0, 19)), matches(automaton, "gUaRaNtEeD aPpRoVaL"));
+    }
+
+    @Test
+    void wholeWordPhrasesNeedWordBoundaries() {
+        PhraseAutomaton.Builder builder = PhraseAutomaton.builder();
+        int free = builder.add("free", true);
+        int save = builder.add("save", false);
+        PhraseAutomaton automaton = builder.build();
+
+        assertEquals(List.of(List.of(free, 4, 8)), matches(automaton, "Get free cover, freedom or carefree"));
+        assertEquals(List.of(List.of(save, 0, 4)), matches(automaton, "savers"));
+    }
+
+    @Test
+    void rejectsEmptyPhrases() {
+        assertThrows(IllegalArgumentException.class, () -> PhraseAutomaton.builder().add(" - _ ", true));
+    }
+
+    /**
+     * Every match as phrase, start and end, in report order
+     */
+    private static List<List<Integer>> matches(PhraseAutomaton automaton, String text) {
+        List<List<Integer>> matches = new ArrayList<>();
+        automaton.scan(text, (phrase, start, end) -> matches.add(List.of(phrase, start, end)));
+        return matches;
+    }
+}
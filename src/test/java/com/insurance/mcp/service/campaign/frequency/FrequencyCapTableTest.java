@@ -0,0 +1,184 @@
+package com.insurance.mcp.service.campaign.frequency;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FrequencyCapTableTest {
+
+    /** Channel 0 has a 10-minute window, channel 1 a 100-minute one */
+    private static final long[] WINDOWS = {10, 100};
+    private static final int KEYS = 300;
+
+    @Test
+    void concurrentContactsOfOneRecipientStopAtTheLimit() throws InterruptedException {
+        FrequencyCapTable table = new FrequencyCapTable(1024, WINDOWS);
+        AtomicInteger allowed = new AtomicInteger();
+        runConcurrently(8, thread -> {
+            for (int i = 0; i < 1000; i++) {
+                if (FrequencyCapTable.allowed(table.checkAndIncrement(42, 0, 50, 0))) {
+                    allowed.incrementAndGet();
+                }
+            }
+        });
+
+        assertEquals(50, allowed.get());
+        assertEquals(50, FrequencyCapTable.count(table.peek(42, 0)));
+        assertEquals(1, table.size());
+    }
+
+    @Test
+    void racingInsertsOfTheSameKeysClaimOneSlotEach() throws InterruptedException {
+        // 64 segments of 16 slots: most keys share a probe run with others
+        FrequencyCapTable table = new FrequencyCapTable(1024, WINDOWS);
+        runConcurrently(4, thread -> {
+            for (long id = 0; id < KEYS; id++) {
+                assertTrue(FrequencyCapTable.allowed(table.checkAndIncrement(id, 0, 10, 0)));
+            }
+        });
+
+        assertEquals(0, table.overflows());
+        assertEquals(KEYS, table.size());
+        for (long id = 0; id < KEYS; id++) {
+            assertEquals(4, FrequencyCapTable.count(table.peek(id, 0)), "recipient " + id);
+        }
+    }
+
+    @Test
+    void windowExpiryOpensANewWindow() {
+        FrequencyCapTable table = new FrequencyCapTable(1024, WINDOWS);
+        assertEquals(FrequencyCapTable.pack(0, 1), table.checkAndIncrement(7, 0, 2, 0));
+        assertEquals(FrequencyCapTable.pack(0, 2), table.checkAndIncrement(7, 0, 2, 5));
+
+        long refused = table.checkAndIncrement(7, 0, 2, 9);
+        assertFalse(FrequencyCapTable.allowed(refused));
+        assertEquals(2, FrequencyCapTable.count(refused));
+        assertEquals(0, FrequencyCapTable.windowStart(refused));
+
+        long reopened = table.checkAndIncrement(7, 0, 2, 10);
+        assertTrue(FrequencyCapTable.allowed(reopened));
+        assertEquals(1, FrequencyCapTable.count(reopened));
+        assertEquals(10, FrequencyCapTable.windowStart(reopened));
+    }
+
+    @Test
+    void releaseOnlyTakesBackContactsOfTheSameWindow() {
+        FrequencyCapTable table = new FrequencyCapTable(1024, WINDOWS);
+        long first = table.checkAndIncrement(7, 0, 2, 0);
+        long second = table.checkAndIncrement(7, 0, 2, 1);
+        table.release(7, 0, second);
+        assertEquals(FrequencyCapTable.pack(0, 1), table.peek(7, 0));
+
+        long reopened = table.checkAndIncrement(7, 0, 2, 20);
+        table.release(7, 0, first);
+        assertEquals(reopened, table.peek(7, 0));
+
+        table.release(8, 0, first);
+        assertEquals(0, table.peek(8, 0));
+    }
+
+    @Test
+    void sweepKeepsEveryLiveEntryReachable() {
+        FrequencyCapTable table = new FrequencyCapTable(1024, WINDOWS);
+        for (long id = 0; id < KEYS; id++) {
+            int channel = (int) (id % 2);
+            table.checkAndIncrement(id, channel, 5, 0);
+            table.checkAndIncrement(id, channel, 5, 0);
+        }
+        assertEquals(0, table.overflows());
+
+        // Channel 0 windows have ended, channel 1 ones are live and must survive the backward shifts
+        assertEquals(KEYS / 2, table.sweep(50));
+        assertEquals(KEYS / 2, table.size());
+        for (long id = 0; id < KEYS; id++) {
+            if (id % 2 == 0) {
+                assertEquals(0, table.peek(id, 0), "recipient " + id);
+            } else {
+                assertEquals(FrequencyCapTable.pack(0, 2), table.peek(id, 1), "recipient " + id);
+            }
+        }
+
+        assertEquals(KEYS / 2, table.sweep(100));
+        assertEquals(0, table.size());
+    }
+
+    @Test
+    void snapshotRoundTripRemapsAndDropsChannels() throws IOException {
+        FrequencyCapTable table = new FrequencyCapTable(4096, WINDOWS);
+        for (long id = 0; id < KEYS; id++) {
+            for (int contact = 0; contact <= id % 3; contact++) {
+                table.checkAndIncrement(id, 0, 5, 3);
+            }
+            table.checkAndIncrement(id, 1, 5, 4);
+        }
+        assertEquals(0, table.overflows());
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            assertEquals(2L * KEYS, table.writeTo(out));
+        }
+
+        // Channel 0 of the snapshot is channel 1 now; its channel 1 is no longer capped
+        FrequencyCapTable loaded = new FrequencyCapTable(1024, WINDOWS);
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            assertEquals(KEYS, loaded.readFrom(in, new int[] {1, -1}));
+        }
+        assertEquals(KEYS, loaded.size());
+        for (long id = 0; id < KEYS; id++) {
+            assertEquals(table.peek(id, 0), loaded.peek(id, 1), "recipient " + id);
+            assertEquals(0, loaded.peek(id, 0), "recipient " + id);
+        }
+    }
+
+    @Test
+    void recipientsDifferingOnlyInTheirTopBitsStayApart() {
+        FrequencyCapTable table = new FrequencyCapTable(1024, WINDOWS);
+        long[] recipients = {7, 7 | 1L << 60, 7 | 1L << 62, 7 | Long.MIN_VALUE};
+        for (long recipient : recipients) {
+            assertEquals(FrequencyCapTable.pack(0, 1), table.checkAndIncrement(recipient, 0, 1, 0));
+        }
+        assertEquals(recipients.length, table.size());
+    }
+
+    private static void runConcurrently(int threads, ThreadBody body) throws InterruptedException {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> started = new ArrayList<>();
+        List<Throwable> failures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            Thread worker = new Thread(() -> {
+                try {
+                    start.await();
+                    body.run(thread);
+                } catch (Throwable e) {
+                    synchronized (failures) {
+                        failures.add(e);
+                    }
+                }
+            });
+            worker.start();
+            started.add(worker);
+        }
+        start.countDown();
+        for (Thread worker : started) {
+            worker.join();
+        }
+        assertTrue(failures.isEmpty(), failures.toString());
+    }
+
+    @FunctionalInterface
+    private interface ThreadBody {
+        void run(int thread) throws Exception;
+    }
+}
@@ -0,0 +1,69 @@
+package com.insurance.mcp.service.campaign.schedule;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TimingWheelTest {
+
+    @Test
+    void rejectsMinutesBeyondHorizon() {
+        TimingWheel wheel = new TimingWheel(2, 16);
+        assertEquals(2 * 1440, wheel.horizon());
+        assertTrue(wheel.schedule(0, 2 * 1440 - 1));
+        assertFalse(wheel.schedule(1, 2 * 1440));
+        assertEquals(1, wheel.size());
+    }
+
+    @Test
+    void entriesComeOutInDueOrderAcrossHoursAndDays() {
+        TimingWheel wheel = new TimingWheel(14, 4);
+        int[] minutes = {5000, 3, 61, 1439, 3, 1440, 59, 13 * 1440 + 7, 120};
+        for (int entry = 0; entry < minutes.length; entry++) {
+            assertTrue(wheel.schedule(entry, minutes[entry]));
+        }
+
+        List<int[]> taken = drain(wheel);
+        assertEquals(minutes.length, taken.size());
+        for (int i = 1; i < taken.size(); i++) {
+            assertTrue(taken.get(i - 1)[1] <= taken.get(i)[1]);
+        }
+        for (int[] entry : taken) {
+            assertEquals(minutes[entry[0]], entry[1]);
+        }
+        // Same minute keeps insertion order
+        assertEquals(1, taken.get(0)[0]);
+        assertEquals(4, taken.get(1)[0]);
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void reschedulingAfterTakeCascadesAgain() {
+        TimingWheel wheel = new TimingWheel(3, 16);
+        wheel.schedule(0, 10);
+        assertEquals(10, wheel.nextDue(0));
+        assertEquals(0, wheel.take(10));
+        // A recipient deferred by quiet hours into the next day
+        assertTrue(wheel.schedule(0, 10 + 1440 + 30));
+        assertEquals(10 + 1440 + 30, wheel.nextDue(11));
+        assertThrows(IllegalArgumentException.class, () -> wheel.schedule(1, 5));
+    }
+
+    private static List<int[]> drain(TimingWheel wheel) {
+        List<int[]> taken = new ArrayList<>();
+        int minute = 0;
+        while ((minute = wheel.nextDue(minute)) != -1) {
+            for (int entry = wheel.take(minute); entry != -1; entry = wheel.next(entry)) {
+                taken.add(new int[] {entry, minute});
+            }
+            minute++;
+        }
+        return taken;
+    }
+}
@@ -0,0 +1,51 @@
+package com.insurance.mcp.service.support;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BulkheadTest {
+
+    @Test
+    void rejectsBeyondQueueAndAfterWait() {
+        Bulkhead bulkhead = new Bulkhead("tool", 1, 0, 10);
+        assertEquals(Bulkhead.Outcome.ACQUIRED, bulkhead.tryAcquire());
+        assertEquals(Bulkhead.Outcome.QUEUE_FULL, bulkhead.tryAcquire());
+
+        Bulkhead queued = new Bulkhead("tool", 1, 1, 10);
+        assertEquals(Bulkhead.Outcome.ACQUIRED, queued.tryAcquire());
+        assertEquals(Bulkhead.Outcome.TIMEOUT, queued.tryAcquire());
+        queued.release();
+        assertEquals(Bulkhead.Outcome.ACQUIRED, queued.tryAcquire());
+        assertEquals(1, queued.active());
+        assertEquals(2, queued.acquired());
+        assertEquals(1, queued.rejectedTimeout());
+    }
+
+    @Test
+    void releasedPermitGoesToTheQueueNotToANewCaller() throws Exception {
+        Bulkhead bulkhead = new Bulkhead("tool", 1, 1, 10_000);
+        assertEquals(Bulkhead.Outcome.ACQUIRED, bulkhead.tryAcquire());
+
+        AtomicReference<Thread> waiter = new AtomicReference<>();
+        CompletableFuture<Bulkhead.Outcome> queued = CompletableFuture.supplyAsync(() -> {
+            waiter.set(Thread.currentThread());
+            return bulkhead.tryAcquire();
+        });
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (waiter.get() == null || waiter.get().getState() != Thread.State.TIMED_WAITING) {
+            assertTrue(System.currentTimeMillis() < deadline, "waiter never queued");
+            Thread.sleep(1);
+        }
+
+        bulkhead.release();
+        assertNotEquals(Bulkhead.Outcome.ACQUIRED, bulkhead.tryAcquire());
+        assertEquals(Bulkhead.Outcome.ACQUIRED, queued.get(5, TimeUnit.SECONDS));
+    }
+}